@@ -3,19 +3,18 @@ package com.neilsonmarcil.tictactoe;
 import android.content.Context;
 import android.os.Bundle;
 import android.support.v4.app.Fragment;
-import android.util.SparseArray;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
-import android.widget.TextView;
 
 import com.neilsonmarcil.tictactoe.game.Board;
 
 /**
  * A {@code BoardFragment} is used to display the Board Game and handle the user click on it. It
  * uses the Observer pattern to notify the listener that a click has been done on the fragment.
+ * The board is drawn by a single {@link BoardView}, whatever its size.
  */
-public class BoardFragment extends Fragment implements View.OnClickListener {
+public class BoardFragment extends Fragment implements BoardView.OnBoxClickListener {
 
     /**
      * the key to get the object from the arguments
@@ -24,31 +23,6 @@ public class BoardFragment extends Fragment implements View.OnClickListener {
     private static final String PLAYER_X_SYMBOL_ID = "playerX";
     private static final String PLAYER_O_SYMBOL_ID = "playerO";
 
-    private static final String SYMBOL_X = "X";
-    private static final String SYMBOL_O = "O";
-
-    /**
-     * Key for the tag to identify the box when the user click on the board
-     */
-    private static final int TAG_BOX_ID = R.string.board_box_id_tag;
-
-    /**
-     * The layout that reacts to the user click and contains the TextView
-     */
-    private static final int[] BOXES_ID_LIST = new int[] {
-            R.id.board_0, R.id.board_1, R.id.board_2, R.id.board_3, R.id.board_4,
-            R.id.board_5, R.id.board_6, R.id.board_7, R.id.board_8
-    };
-
-    /**
-     * The TextView id for each boxes.
-     */
-    private static final int[] CONTENT_ID_LIST = new int[] {
-            R.id.board_token_0, R.id.board_token_1, R.id.board_token_2,
-            R.id.board_token_3, R.id.board_token_4, R.id.board_token_5,
-            R.id.board_token_6, R.id.board_token_7, R.id.board_token_8
-    };
-
     /**
      * The Board internal object
      */
@@ -65,15 +39,14 @@ public class BoardFragment extends Fragment implements View.OnClickListener {
     private int mPlayerClickingId = 1;
 
     /**
-     * Association between the player Id and their respective symbols (X or O)
+     * The player drawn as O, the player clicking is drawn as X
      */
-    private SparseArray<String> mPlayersSymbol = new SparseArray<>();
+    private int mPlayerOId;
 
     /**
-     * A reference to all the TextView, to increase performance when clearing the board for
-     * a new game.
+     * The view that draws the board, null when the fragment has no view
      */
-    private TextView[] mBoxesTextView = new TextView[9];
+    private BoardView mBoardView;
 
     /**
      * Enable/disable the click on the board
@@ -103,18 +76,22 @@ public class BoardFragment extends Fragment implements View.OnClickListener {
         if (args != null) {
             mBoard = args.getParcelable(BOARD_OBJECT_KEY);
             mPlayerClickingId = args.getInt(PLAYER_X_SYMBOL_ID);
-
-            mPlayersSymbol.put(mPlayerClickingId, SYMBOL_X);
-            mPlayersSymbol.put(args.getInt(PLAYER_O_SYMBOL_ID), SYMBOL_O);
+            mPlayerOId = args.getInt(PLAYER_O_SYMBOL_ID);
         }
     }
 
     @Override
     public View onCreateView(LayoutInflater inflater, ViewGroup container, Bundle savedInstanceState) {
-        View view = inflater.inflate(R.layout.fragment_board, container, false);
-        setClickListener(view);
-        updateBoard();
-        return view;
+        mBoardView = (BoardView)inflater.inflate(R.layout.fragment_board, container, false);
+        mBoardView.setBoard(mBoard, mPlayerClickingId, mPlayerOId);
+        mBoardView.setOnBoxClickListener(this);
+        return mBoardView;
+    }
+
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        mBoardView = null;
     }
 
     @Override
@@ -131,15 +108,13 @@ public class BoardFragment extends Fragment implements View.OnClickListener {
     @Override
     public void onDetach() {
         super.onDetach();
-        mBoxesTextView = new TextView[0];
         mListener = null;
-        mPlayersSymbol.clear();
     }
 
     @Override
-    public void onClick(View v) {
+    public void onBoxClick(int index) {
         if (mListener != null && mEnableBoard) {
-            mListener.moveCompleted((int)v.getTag(TAG_BOX_ID), mPlayerClickingId);
+            mListener.moveCompleted(index, mPlayerClickingId);
         }
     }
 
@@ -150,8 +125,9 @@ public class BoardFragment extends Fragment implements View.OnClickListener {
      */
     public void moveTo(int index, int id) {
         mBoard.addToken(index, id);
-        mBoxesTextView[index].setVisibility(View.VISIBLE);
-        mBoxesTextView[index].setText(mPlayersSymbol.get(id));
+        if (mBoardView != null) {
+            mBoardView.invalidateBox(index);
+        }
     }
 
     /**
@@ -172,27 +148,8 @@ public class BoardFragment extends Fragment implements View.OnClickListener {
      * Update the UI board with the current value from the Board data structure
      */
     public void updateBoard() {
-        for (int i = 0; i < 9; i++) {
-            int bv = mBoard.getToken(i);
-            if (bv != 0) {
-                mBoxesTextView[i].setText(mPlayersSymbol.get(bv));
-            }
-            else {
-                mBoxesTextView[i].setText("");
-            }
-        }
-    }
-
-    /**
-     *  Set the Click listener for all the boxes and set the tag to keep track of which box
-     *  is clicked.
-     */
-    private void setClickListener(View v) {
-        for (int i = 0; i < BOXES_ID_LIST.length; i++) {
-            View box = v.findViewById(BOXES_ID_LIST[i]);
-            box.setTag(TAG_BOX_ID, i);
-            box.setOnClickListener(this);
-            mBoxesTextView[i] = (TextView)v.findViewById(CONTENT_ID_LIST[i]);
+        if (mBoardView != null) {
+            mBoardView.invalidate();
         }
     }
 
@@ -0,0 +1,328 @@
+package com.neilsonmarcil.tictactoe;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.Rect;
+import android.support.v4.content.ContextCompat;
+import android.util.AttributeSet;
+import android.view.MotionEvent;
+import android.view.View;
+
+import com.neilsonmarcil.tictactoe.game.Board;
+
+/**
+ * A {@code BoardView} draws a board of any size on a canvas: the grid, then the token of each
+ * box. It replaces a layout of one view per box, so a board of 19x19 boxes costs a single view
+ * to measure and lay out.<br/><br/>
+ *
+ * The empty boxes are drawn once into a bitmap when the size of the boxes changes, and a frame
+ * draws that bitmap then the token of each box that is not empty. The tokens are paths built
+ * once for the size of a box and drawn translated to their box, the paints are created once. A
+ * move invalidates the rectangle of its box, but with hardware acceleration, the default since
+ * API 14, the dirty rectangle is ignored from API 21 and the whole view is redrawn: the frame
+ * time still grows with the number of tokens on the board, not with the number of boxes. The
+ * box under a touch is found from its coordinates, without looking at every box.
+ */
+public class BoardView extends View {
+
+    /**
+     * The stroke of a token, relative to the size of a box, and the margin around it
+     */
+    private static final float TOKEN_STROKE = 0.1f;
+    private static final float TOKEN_MARGIN = 0.25f;
+
+    private Board mBoard;
+
+    /**
+     * The id of the players drawn as X and as O
+     */
+    private int mPlayerX;
+    private int mPlayerO;
+
+    /**
+     * The listener of the touches on a box
+     */
+    private OnBoxClickListener mListener;
+
+    /**
+     * The preferred size of a box and the space between two boxes, in pixels
+     */
+    private final int mPreferredBoxSize;
+    private final int mGap;
+
+    private final Paint mBoxPaint = new Paint();
+    private final Paint mTokenPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+
+    /**
+     * The tokens of a box at the origin, built when the size of the boxes changes
+     */
+    private final Path mXPath = new Path();
+    private final Path mOPath = new Path();
+
+    /**
+     * The empty boxes, drawn once when the size of the boxes changes, null until the next frame
+     * after a change
+     */
+    private Bitmap mGrid;
+
+    /**
+     * The size of a box and the position of the grid, centered in the view
+     */
+    private int mBoxSize;
+    private int mLeft;
+    private int mTop;
+
+    /**
+     * The box touched down, -1 when there is none
+     */
+    private int mPressedBox = -1;
+
+    /**
+     * Reused buffers for the clip bounds and the rectangle of a box
+     */
+    private final Rect mClip = new Rect();
+    private final Rect mBoxRect = new Rect();
+
+    public BoardView(Context context) {
+        this(context, null);
+    }
+
+    public BoardView(Context context, AttributeSet attrs) {
+        super(context, attrs);
+        Resources res = context.getResources();
+        mPreferredBoxSize = res.getDimensionPixelSize(R.dimen.board_cell_size);
+        mGap = res.getDimensionPixelSize(R.dimen.board_grid_margin_between_cell);
+        setBackgroundColor(ContextCompat.getColor(context, R.color.colorBoardBorder));
+        mBoxPaint.setColor(ContextCompat.getColor(context, R.color.colorBoardCellBackground));
+        mTokenPaint.setColor(ContextCompat.getColor(context, R.color.colorAccent));
+        mTokenPaint.setStyle(Paint.Style.STROKE);
+        mTokenPaint.setStrokeCap(Paint.Cap.ROUND);
+    }
+
+    /**
+     * Set the board to draw.
+     * @param b the board
+     * @param idX the id of the player drawn as X
+     * @param idO the id of the player drawn as O
+     */
+    public void setBoard(Board b, int idX, int idO) {
+        mBoard = b;
+        mPlayerX = idX;
+        mPlayerO = idO;
+        if (getWidth() > 0) {
+            updateBoxes(getWidth(), getHeight());
+        }
+        requestLayout();
+        invalidate();
+    }
+
+    public void setOnBoxClickListener(OnBoxClickListener l) {
+        mListener = l;
+    }
+
+    /**
+     * Redraw one box, after a move. Without hardware acceleration only that box is redrawn, with
+     * it the whole view is.
+     * @param index the index of the box
+     */
+    public void invalidateBox(int index) {
+        if (mBoard == null || mBoxSize == 0 || index < 0 || index >= mBoard.getCellCount()) {
+            return;
+        }
+        getBoxRect(index, mBoxRect);
+        invalidate(mBoxRect);
+    }
+
+    /**
+     * Returns the box at a position of the view.
+     * @param x the horizontal position, in pixels
+     * @param y the vertical position, in pixels
+     * @return the index of the box, -1 if the position is outside the boxes
+     */
+    public int getBoxAt(float x, float y) {
+        if (mBoard == null || mBoxSize == 0 || x < mLeft || y < mTop) {
+            return -1;
+        }
+        int step = mBoxSize + mGap;
+        int column = (int)(x - mLeft) / step;
+        int row = (int)(y - mTop) / step;
+        int columns = mBoard.getGeometry().getColumns();
+        if (column >= columns || row >= mBoard.getGeometry().getRows()) {
+            return -1;
+        }
+        // the gap between two boxes is not part of a box
+        if ((int)(x - mLeft) % step >= mBoxSize || (int)(y - mTop) % step >= mBoxSize) {
+            return -1;
+        }
+        return row * columns + column;
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        int columns = mBoard != null ? mBoard.getGeometry().getColumns() : 0;
+        int rows = mBoard != null ? mBoard.getGeometry().getRows() : 0;
+        int width = columns * mPreferredBoxSize + Math.max(columns - 1, 0) * mGap;
+        int height = rows * mPreferredBoxSize + Math.max(rows - 1, 0) * mGap;
+        setMeasuredDimension(resolveSize(width + getPaddingLeft() + getPaddingRight(), widthMeasureSpec),
+                resolveSize(height + getPaddingTop() + getPaddingBottom(), heightMeasureSpec));
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        updateBoxes(w, h);
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        if (mBoard == null || mBoxSize == 0) {
+            return;
+        }
+        int columns = mBoard.getGeometry().getColumns();
+        int rows = mBoard.getGeometry().getRows();
+        int step = mBoxSize + mGap;
+        if (mGrid == null) {
+            mGrid = drawGrid(columns, rows, step);
+        }
+        canvas.drawBitmap(mGrid, 0, 0, null);
+        // the clip bounds are the dirty area in software, the whole view with hardware acceleration
+        if (!canvas.getClipBounds(mClip)) {
+            return;
+        }
+        int firstColumn = Math.max(0, (mClip.left - mLeft) / step);
+        int lastColumn = Math.min(columns - 1, (mClip.right - mLeft) / step);
+        int firstRow = Math.max(0, (mClip.top - mTop) / step);
+        int lastRow = Math.min(rows - 1, (mClip.bottom - mTop) / step);
+
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int column = firstColumn; column <= lastColumn; column++) {
+                int token = mBoard.getToken(row * columns + column);
+                Path path = token == mPlayerX ? mXPath : token == mPlayerO ? mOPath : null;
+                if (path != null) {
+                    canvas.save();
+                    canvas.translate(mLeft + column * step, mTop + row * step);
+                    canvas.drawPath(path, mTokenPaint);
+                    canvas.restore();
+                }
+            }
+        }
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        releaseGrid();
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        if (!isEnabled()) {
+            return false;
+        }
+        switch (event.getActionMasked()) {
+            case MotionEvent.ACTION_DOWN:
+                mPressedBox = getBoxAt(event.getX(), event.getY());
+                return mPressedBox >= 0;
+            case MotionEvent.ACTION_UP:
+                // the touch must end on the box where it started
+                if (mPressedBox >= 0 && mPressedBox == getBoxAt(event.getX(), event.getY())) {
+                    performClick();
+                }
+                mPressedBox = -1;
+                return true;
+            case MotionEvent.ACTION_CANCEL:
+                mPressedBox = -1;
+                return true;
+            default:
+                return true;
+        }
+    }
+
+    @Override
+    public boolean performClick() {
+        boolean handled = super.performClick();
+        if (mPressedBox >= 0 && mListener != null) {
+            mListener.onBoxClick(mPressedBox);
+            return true;
+        }
+        return handled;
+    }
+
+    /**
+     * Compute the size of the boxes that fit in the view and build the paths of the tokens for
+     * that size.
+     */
+    private void updateBoxes(int w, int h) {
+        releaseGrid();
+        if (mBoard == null) {
+            mBoxSize = 0;
+            return;
+        }
+        int columns = mBoard.getGeometry().getColumns();
+        int rows = mBoard.getGeometry().getRows();
+        int width = w - getPaddingLeft() - getPaddingRight();
+        int height = h - getPaddingTop() - getPaddingBottom();
+        mBoxSize = Math.max(0, Math.min((width - (columns - 1) * mGap) / columns,
+                (height - (rows - 1) * mGap) / rows));
+        mLeft = getPaddingLeft() + (width - columns * mBoxSize - (columns - 1) * mGap) / 2;
+        mTop = getPaddingTop() + (height - rows * mBoxSize - (rows - 1) * mGap) / 2;
+
+        float margin = mBoxSize * TOKEN_MARGIN;
+        float end = mBoxSize - margin;
+        mTokenPaint.setStrokeWidth(mBoxSize * TOKEN_STROKE);
+        mXPath.reset();
+        mXPath.moveTo(margin, margin);
+        mXPath.lineTo(end, end);
+        mXPath.moveTo(end, margin);
+        mXPath.lineTo(margin, end);
+        mOPath.reset();
+        mOPath.addCircle(mBoxSize / 2f, mBoxSize / 2f, mBoxSize / 2f - margin, Path.Direction.CW);
+    }
+
+    /**
+     * Draw the empty boxes into a bitmap of the size of the view, the background of the view
+     * shows through the gaps.
+     */
+    private Bitmap drawGrid(int columns, int rows, int step) {
+        Bitmap grid = Bitmap.createBitmap(getWidth(), getHeight(), Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(grid);
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                float left = mLeft + column * step;
+                float top = mTop + row * step;
+                canvas.drawRect(left, top, left + mBoxSize, top + mBoxSize, mBoxPaint);
+            }
+        }
+        return grid;
+    }
+
+    private void releaseGrid() {
+        if (mGrid != null) {
+            mGrid.recycle();
+            mGrid = null;
+        }
+    }
+
+    private void getBoxRect(int index, Rect rect) {
+        int columns = mBoard.getGeometry().getColumns();
+        int step = mBoxSize + mGap;
+        int left = mLeft + index % columns * step;
+        int top = mTop + index / columns * step;
+        rect.set(left, top, left + mBoxSize, top + mBoxSize);
+    }
+
+    /**
+     * The listener of the touches on the boxes of the board
+     */
+    public interface OnBoxClickListener {
+        /**
+         * Called when the user touches a box, empty or not
+         * @param index the index of the box
+         */
+        void onBoxClick(int index);
+    }
+}
@@ -0,0 +1,99 @@
+package com.neilsonmarcil.tictactoe;
+
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.BatteryManager;
+import android.os.Build;
+import android.os.PowerManager;
+
+import com.neilsonmarcil.tictactoe.player.PonderPolicy;
+
+import java.lang.reflect.Method;
+
+/**
+ * A {@code DevicePonderPolicy} only lets the computer player ponder when the device can afford
+ * it: not in power saving mode, not on a low battery that is not charging, and not when the
+ * device is getting hot.<br/><br/>
+ *
+ * The thermal status was added in API 29, after the SDK the application is compiled with, so it
+ * is read by reflection.
+ */
+public class DevicePonderPolicy implements PonderPolicy {
+
+    /**
+     * The battery level, in percent, under which pondering stops unless the device is charging
+     */
+    private static final int LOW_BATTERY_LEVEL = 15;
+
+    /**
+     * PowerManager.THERMAL_STATUS_MODERATE, the first status where the device is throttled
+     */
+    private static final int THERMAL_STATUS_MODERATE = 2;
+
+    private final Context mContext;
+    private final PowerManager mPowerManager;
+    private final Method mThermalStatus;
+
+    /**
+     * Create a new DevicePonderPolicy.
+     * @param context any context, the application context is kept
+     */
+    public DevicePonderPolicy(Context context) {
+        mContext = context.getApplicationContext();
+        mPowerManager = (PowerManager)mContext.getSystemService(Context.POWER_SERVICE);
+        mThermalStatus = Build.VERSION.SDK_INT >= 29 ? getMethod("getCurrentThermalStatus") : null;
+    }
+
+    @Override
+    public boolean canPonder() {
+        if (Build.VERSION.SDK_INT >= 21 && mPowerManager.isPowerSaveMode()) {
+            return false;
+        }
+        if (isBatteryLow()) {
+            return false;
+        }
+        return getThermalStatus() < THERMAL_STATUS_MODERATE;
+    }
+
+    /**
+     * Returns true if the battery is low and not charging. The battery state is the last one
+     * broadcast, reading it does not register a receiver.
+     */
+    private boolean isBatteryLow() {
+        Intent battery = mContext.registerReceiver(null, new IntentFilter(Intent.ACTION_BATTERY_CHANGED));
+        if (battery == null) {
+            return false;
+        }
+        if (battery.getIntExtra(BatteryManager.EXTRA_PLUGGED, 0) != 0) {
+            return false;
+        }
+        int level = battery.getIntExtra(BatteryManager.EXTRA_LEVEL, -1);
+        int scale = battery.getIntExtra(BatteryManager.EXTRA_SCALE, -1);
+        return level >= 0 && scale > 0 && level * 100 <= LOW_BATTERY_LEVEL * scale;
+    }
+
+    /**
+     * Returns the thermal status of the device, 0 when it is not known
+     */
+    private int getThermalStatus() {
+        if (mThermalStatus == null) {
+            return 0;
+        }
+        try {
+            return (Integer)mThermalStatus.invoke(mPowerManager);
+        }
+        catch (Exception e) {
+            return 0;
+        }
+    }
+
+    private static Method getMethod(String name) {
+        try {
+            return PowerManager.class.getMethod(name);
+        }
+        catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+}
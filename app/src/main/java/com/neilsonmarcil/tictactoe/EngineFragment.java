@@ -0,0 +1,234 @@
+package com.neilsonmarcil.tictactoe;
+
+import android.content.Context;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.v4.app.Fragment;
+import android.util.Log;
+
+import com.neilsonmarcil.tictactoe.game.Board;
+import com.neilsonmarcil.tictactoe.game.Game;
+import com.neilsonmarcil.tictactoe.game.Score;
+import com.neilsonmarcil.tictactoe.player.ComputerPlayer;
+import com.neilsonmarcil.tictactoe.player.Player;
+import com.neilsonmarcil.tictactoe.player.Ponderer;
+import com.neilsonmarcil.tictactoe.store.ReplayLog;
+import com.neilsonmarcil.tictactoe.store.ScoreStore;
+
+import java.io.IOException;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * An {@code EngineFragment} keeps the game and the computer player while the activity is
+ * recreated, on a rotation for example. It has no user interface and is retained across the
+ * configuration changes, so the transposition table, the replies being pondered and a search in
+ * progress survive them: the new activity gets the move of the search that was already running
+ * instead of searching it again.<br/><br/>
+ *
+ * The fragment is the listener of the game and gives the moves of the computer player to the
+ * activity. A move found while no activity listens is kept and given to the next one. The
+ * search threads are stopped when the fragment is destroyed, which only happens when the
+ * activity is finished.<br/><br/>
+ *
+ * The score store and the replay log are kept here too, so they are opened once and closed when
+ * the activity is finished instead of on every rotation: closing them waits for their records to
+ * be written.
+ */
+public class EngineFragment extends Fragment implements Game.ComputerPlayerListener {
+
+    /**
+     * The tag of the fragment in the fragment manager
+     */
+    public static final String TAG = "engine";
+
+    private static final String LOG_TAG = "EngineFragment";
+
+    /**
+     * Game component, null until the game is created
+     */
+    private Game mGame;
+    private Board mBoard;
+    private Score mScore;
+    private ComputerPlayer mComputer;
+    private Ponderer mPonderer;
+
+    /**
+     * Keeps the score on the disk, null until the activity sets it
+     */
+    private ScoreStore mScoreStore;
+
+    /**
+     * Records the games played, null until the activity sets it
+     */
+    private ReplayLog mReplayLog;
+
+    /**
+     * The computer player searches on a background thread, its moves are given back on the
+     * main thread
+     */
+    private ExecutorService mSearchExecutor;
+    private final Executor mMainExecutor = new Executor() {
+        private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+        @Override
+        public void execute(Runnable r) {
+            mHandler.post(r);
+        }
+    };
+
+    /**
+     * The activity that receives the moves, and the move found while there was none, -1 when
+     * there is no such move
+     */
+    private Game.ComputerPlayerListener mListener;
+    private int mPendingMove = -1;
+    private int mPendingPlayer;
+
+    @Override
+    public void onCreate(Bundle bundle) {
+        super.onCreate(bundle);
+        setRetainInstance(true);
+    }
+
+    @Override
+    public void onDestroy() {
+        // the activity is finished, the search threads are not needed anymore
+        if (mGame != null) {
+            mGame.cancelComputerPlay();
+            mSearchExecutor.shutdownNow();
+            mPonderer.shutdown();
+            mComputer.setThreadCount(1);
+        }
+        if (mScoreStore != null) {
+            try {
+                mScoreStore.close();
+            }
+            catch (IOException e) {
+                Log.w(LOG_TAG, "Cannot write the score", e);
+            }
+            mScoreStore = null;
+        }
+        if (mReplayLog != null) {
+            try {
+                mReplayLog.close();
+            }
+            catch (IOException e) {
+                Log.w(LOG_TAG, "Cannot write the replay log", e);
+            }
+            mReplayLog = null;
+        }
+        super.onDestroy();
+    }
+
+    /**
+     * Create the game played by the activities. The computer player searches in the background
+     * and ponders while the user thinks.
+     * @param context a context to read the state of the device
+     * @param b the Board on which to play the game
+     * @param s the Score for this game
+     * @param user the user player
+     * @param computer the computer player
+     * @param activePlayer the id of the player that has to play
+     * @return the game
+     */
+    public Game createGame(Context context, Board b, Score s, Player user, ComputerPlayer computer,
+                           int activePlayer) {
+        mBoard = b;
+        mScore = s;
+        mComputer = computer;
+        mGame = new Game(b, s, new Player[] { user, computer }, this);
+        mGame.setActivePlayer(activePlayer);
+        mSearchExecutor = Executors.newSingleThreadExecutor();
+        mGame.setComputerExecutor(mSearchExecutor, mMainExecutor);
+        mPonderer = new Ponderer(computer);
+        mPonderer.setPolicy(new DevicePonderPolicy(context));
+        mGame.setPonderer(mPonderer);
+        return mGame;
+    }
+
+    /**
+     * Determine if the game was created, it is not when the fragment was recreated after the
+     * process was killed
+     */
+    public boolean hasGame() {
+        return mGame != null;
+    }
+
+    public Game getGame() {
+        return mGame;
+    }
+
+    public Board getBoard() {
+        return mBoard;
+    }
+
+    public Score getScore() {
+        return mScore;
+    }
+
+    /**
+     * Returns the score store opened by a previous activity, null if there is none
+     */
+    public ScoreStore getScoreStore() {
+        return mScoreStore;
+    }
+
+    /**
+     * Keep the score store for the next activities, it is closed when the fragment is destroyed.
+     * @param store the store, null if it cannot be opened
+     */
+    public void setScoreStore(ScoreStore store) {
+        mScoreStore = store;
+    }
+
+    /**
+     * Returns the replay log opened by a previous activity, null if there is none
+     */
+    public ReplayLog getReplayLog() {
+        return mReplayLog;
+    }
+
+    /**
+     * Keep the replay log for the next activities, it is closed when the fragment is destroyed.
+     * @param log the log, null if it cannot be opened
+     */
+    public void setReplayLog(ReplayLog log) {
+        mReplayLog = log;
+    }
+
+    /**
+     * Set the listener of the moves of the computer player. A move found while there was no
+     * listener is given to the new one right away.
+     * @param l the listener, null when the activity is destroyed
+     */
+    public void setListener(Game.ComputerPlayerListener l) {
+        mListener = l;
+        if (l != null && mPendingMove >= 0) {
+            int move = mPendingMove;
+            mPendingMove = -1;
+            l.computerPlayerMove(move, mPendingPlayer);
+        }
+    }
+
+    @Override
+    public void computerPlayerMove(int box, int i) {
+        if (mListener != null) {
+            mListener.computerPlayerMove(box, i);
+        }
+        else {
+            mPendingMove = box;
+            mPendingPlayer = i;
+        }
+    }
+
+    @Override
+    public void computerPlayerThinking() {
+        if (mListener != null) {
+            mListener.computerPlayerThinking();
+        }
+    }
+}
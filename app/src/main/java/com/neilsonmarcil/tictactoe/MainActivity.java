@@ -1,7 +1,9 @@
 package com.neilsonmarcil.tictactoe;
 
+import android.content.res.AssetFileDescriptor;
 import android.support.v7.app.AppCompatActivity;
 import android.os.Bundle;
+import android.util.Log;
 import android.view.View;
 import android.widget.Button;
 import android.widget.TextView;
@@ -10,17 +12,35 @@ import com.neilsonmarcil.tictactoe.game.Board;
 import com.neilsonmarcil.tictactoe.game.Game;
 import com.neilsonmarcil.tictactoe.game.Score;
 import com.neilsonmarcil.tictactoe.player.ComputerPlayer;
+import com.neilsonmarcil.tictactoe.player.MoveBook;
 import com.neilsonmarcil.tictactoe.player.Player;
+import com.neilsonmarcil.tictactoe.player.SearchStats;
+import com.neilsonmarcil.tictactoe.store.ReplayLog;
+import com.neilsonmarcil.tictactoe.store.ReplayRecorder;
+import com.neilsonmarcil.tictactoe.store.ScoreStore;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 
 /**
  * The {@code MainActivity} acts as the Controller for the application. It creates the game objects
  * and the UI component (fragments). It also act as the observer for the Board interaction
  * (when the user is playing) and the Computer player interaction (when the computer player is
- * playing).
+ * playing).<br/><br/>
+ *
+ * The game objects are kept by a retained {@link EngineFragment}: when the activity is recreated
+ * after a configuration change, the game goes on where it was, with the search of the computer
+ * player still running.
  */
 public class MainActivity extends AppCompatActivity implements BoardFragment.BoardInteractionListener,
+                                                               ScoreFragment.ScoreResetListener,
                                                                Game.ComputerPlayerListener{
 
+    private static final String TAG = "MainActivity";
+
     /**
      * Constants used to identify the two players. Cannot be zero, app won't start.
      */
@@ -34,6 +54,12 @@ public class MainActivity extends AppCompatActivity implements BoardFragment.Boa
     private static final String RESET_ENABLED_KEY = "reset";
     private static final String GAME_TIP_KEY = "gametip";
     private static final String BOARD_ENABLED_KEY = "boardenabled";
+    private static final String REPLAY_KEY = "replay";
+
+    /**
+     * The directory of the replay log, in the files of the application
+     */
+    private static final String REPLAY_DIRECTORY = "replays";
 
     /**
      * Game component
@@ -42,6 +68,22 @@ public class MainActivity extends AppCompatActivity implements BoardFragment.Boa
     private Score mScore;
     private Board mBoard;
 
+    /**
+     * Keeps the game objects and the search across the configuration changes
+     */
+    private EngineFragment mEngine;
+
+    /**
+     * Keeps the score on the disk, null if the files cannot be opened
+     */
+    private ScoreStore mScoreStore;
+
+    /**
+     * Records the games played, null if the replay log cannot be opened
+     */
+    private ReplayLog mReplayLog;
+    private ReplayRecorder mReplayRecorder;
+
     /**
      * UI and fragment component
      */
@@ -55,7 +97,15 @@ public class MainActivity extends AppCompatActivity implements BoardFragment.Boa
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_main);
 
-        createNewGame(savedInstanceState);
+        attachEngine();
+        // the store survives the configuration changes in the engine, it is only opened once
+        mScoreStore = mEngine.getScoreStore();
+        if (mScoreStore == null) {
+            mScoreStore = openScoreStore();
+            mEngine.setScoreStore(mScoreStore);
+        }
+        openReplayLog(savedInstanceState);
+        boolean retained = createNewGame(savedInstanceState);
 
         mScoreFragment = ScoreFragment.newInstance(mScore);
         getSupportFragmentManager().beginTransaction().replace(R.id.score_fragment, mScoreFragment, "score").commitNow();
@@ -69,7 +119,20 @@ public class MainActivity extends AppCompatActivity implements BoardFragment.Boa
         setResetButton(savedInstanceState);
         setGameTip(savedInstanceState);
 
-        processBeginOfGame(true);
+        mEngine.setListener(this);
+        // a retained game goes on, the move being searched is given to this activity
+        if (!retained) {
+            processBeginOfGame(true);
+        }
+    }
+
+    @Override
+    protected void onDestroy() {
+        // a search in progress goes on for the next activity, the engine stops it when finished
+        mEngine.setListener(null);
+        // the score store and the replay log are kept by the engine, which closes them when the
+        // activity is finished
+        super.onDestroy();
     }
 
     @Override
@@ -81,6 +144,9 @@ public class MainActivity extends AppCompatActivity implements BoardFragment.Boa
         savedInstanceState.putBoolean(RESET_ENABLED_KEY, mReset.isEnabled());
         savedInstanceState.putString(GAME_TIP_KEY, mGameTip.getText().toString());
         savedInstanceState.putBoolean(BOARD_ENABLED_KEY, mBoardFragment.isEnabledBoard());
+        if (mReplayRecorder != null) {
+            savedInstanceState.putIntArray(REPLAY_KEY, mReplayRecorder.saveState());
+        }
         super.onSaveInstanceState(savedInstanceState);
     }
 
@@ -89,6 +155,9 @@ public class MainActivity extends AppCompatActivity implements BoardFragment.Boa
         if (mGame.isValidMove(box)) {
 
             mBoardFragment.moveTo(box, id);
+            if (mReplayRecorder != null) {
+                mReplayRecorder.moveCompleted(box, id);
+            }
             int winner = mGame.determineWinner();
 
             if (winner == 0 && !mGame.isGameOver()) {
@@ -107,9 +176,37 @@ public class MainActivity extends AppCompatActivity implements BoardFragment.Boa
      */
     @Override
     public void computerPlayerMove(int box, int i) {
+        SearchStats stats = mGame.getSearchStats();
+        if (stats != null) {
+            Log.d(TAG, "Computer move: " + stats);
+        }
+        mBoardFragment.enableBoard(true);
         moveCompleted(box, i);
     }
 
+    /**
+     * The score is set to 0 and a new game starts, the user plays first.
+     */
+    @Override
+    public void scoreReset() {
+        mScore.resetScore();
+        if (mScoreStore != null) {
+            mScoreStore.reset();
+        }
+        mScoreFragment.updateScore();
+        mGame.setActivePlayer(HUMAN_PLAYER_ID);
+        processBeginOfGame(false);
+        mReset.setEnabled(false);
+    }
+
+    /**
+     * The user cannot play while the computer player searches its move.
+     */
+    @Override
+    public void computerPlayerThinking() {
+        mBoardFragment.enableBoard(false);
+    }
+
     /**
      * Process the end of the game by disabling the board, enabling the reset button and updating
      * the score.
@@ -119,6 +216,13 @@ public class MainActivity extends AppCompatActivity implements BoardFragment.Boa
         mBoardFragment.enableBoard(false);
         mReset.setEnabled(true);
         mGame.updateScore(winner);
+        if (mReplayRecorder != null) {
+            mReplayRecorder.gameOver(winner);
+        }
+        if (mScoreStore != null) {
+            mScoreStore.recordGame(winner == HUMAN_PLAYER_ID ? ScoreStore.RESULT_WIN
+                    : winner == 0 ? ScoreStore.RESULT_DRAW : ScoreStore.RESULT_LOSS);
+        }
         mScoreFragment.updateScore();
         showGameTip(R.string.game_tip_2_game_over);
     }
@@ -166,6 +270,10 @@ public class MainActivity extends AppCompatActivity implements BoardFragment.Boa
      */
     private void processBeginOfGame(boolean first) {
         if (!first) {
+            mGame.cancelComputerPlay();
+            if (mReplayRecorder != null) {
+                mReplayRecorder.startGame();
+            }
             mBoard.resetBoard();
             mBoardFragment.enableBoard(true);
             mBoardFragment.updateBoard();
@@ -175,10 +283,20 @@ public class MainActivity extends AppCompatActivity implements BoardFragment.Boa
     }
 
     /**
-     * Create a new game with two player, a board and a score object. It will restore any
-     * previous game if the Bundle in parameter is not null.
+     * Create a new game with two player, a board and a score object. The game kept by the engine
+     * fragment is used when the activity is recreated, otherwise it will restore any previous
+     * game if the Bundle in parameter is not null.
+     * @return true if the game of the engine fragment is used
      */
-    private void createNewGame(Bundle b) {
+    private boolean createNewGame(Bundle b) {
+        // the engine keeps its game, unless it was recreated after the process was killed
+        if (mEngine.hasGame()) {
+            mGame = mEngine.getGame();
+            mBoard = mEngine.getBoard();
+            mScore = mEngine.getScore();
+            return true;
+        }
+
         int p1 = HUMAN_PLAYER_ID;
         int p2 = COMPUTER_PLAYER_ID;
         int activePlayer = HUMAN_PLAYER_ID;
@@ -194,13 +312,101 @@ public class MainActivity extends AppCompatActivity implements BoardFragment.Boa
         }
         else {
             mBoard = new Board();
-            mScore = new Score(0, 0, 0);
+            mScore = mScoreStore != null ? mScoreStore.getScore() : new Score(0, 0, 0);
+        }
+
+        ComputerPlayer computer = new ComputerPlayer(p2);
+        computer.setMoveBook(loadMoveBook());
+        // the statistics of each move are logged by the debug builds
+        computer.setStatsEnabled(BuildConfig.DEBUG);
+
+        mGame = mEngine.createGame(this, mBoard, mScore, new Player(p1), computer, activePlayer);
+        return false;
+    }
+
+    /**
+     * Find the engine fragment kept across the configuration changes, or add it when the
+     * activity is created for the first time.
+     */
+    private void attachEngine() {
+        mEngine = (EngineFragment)getSupportFragmentManager().findFragmentByTag(EngineFragment.TAG);
+        if (mEngine == null) {
+            mEngine = new EngineFragment();
+            getSupportFragmentManager().beginTransaction().add(mEngine, EngineFragment.TAG).commitNow();
+        }
+    }
+
+    /**
+     * Open the score kept in the files of the application. The score is only kept in memory when
+     * the files cannot be opened.
+     * @return the score store, or null if it cannot be opened
+     */
+    private ScoreStore openScoreStore() {
+        try {
+            return new ScoreStore(getFilesDir());
         }
+        catch (IOException e) {
+            Log.w(TAG, "Score store not available, the score will not be kept", e);
+            return null;
+        }
+    }
 
-        Player[] players = new Player[] { new Player(p1), new ComputerPlayer(p2) };
-        mGame = new Game(mBoard, mScore, players, this);
-        mGame.setActivePlayer(activePlayer);
+    /**
+     * Open the replay log, or take the one kept by the engine, and restore the moves of the game
+     * in progress. The games are not recorded when the log cannot be opened.
+     * @param b the restoration bundle.
+     */
+    private void openReplayLog(Bundle b) {
+        mReplayLog = mEngine.getReplayLog();
+        if (mReplayLog == null) {
+            try {
+                mReplayLog = new ReplayLog(new File(getFilesDir(), REPLAY_DIRECTORY));
+            }
+            catch (IOException e) {
+                Log.w(TAG, "Replay log not available, the games will not be recorded", e);
+                return;
+            }
+            mEngine.setReplayLog(mReplayLog);
+        }
+        mReplayRecorder = new ReplayRecorder(mReplayLog, HUMAN_PLAYER_ID, COMPUTER_PLAYER_ID);
+        if (b != null && b.containsKey(REPLAY_KEY)) {
+            mReplayRecorder.restoreState(b.getIntArray(REPLAY_KEY));
+        }
+    }
 
+    /**
+     * Memory map the move book from the assets. The computer player searches every move when the
+     * book is missing or not valid.
+     * @return the move book, or null if it cannot be loaded
+     */
+    private MoveBook loadMoveBook() {
+        AssetFileDescriptor afd = null;
+        FileInputStream in = null;
+        try {
+            afd = getAssets().openFd(MoveBook.ASSET_NAME);
+            in = new FileInputStream(afd.getFileDescriptor());
+            ByteBuffer buffer = in.getChannel().map(FileChannel.MapMode.READ_ONLY,
+                    afd.getStartOffset(), afd.getLength());
+            return new MoveBook(buffer);
+        }
+        catch (IOException | IllegalArgumentException e) {
+            Log.w(TAG, "Move book not available, the computer player will search every move", e);
+            return null;
+        }
+        finally {
+            // the mapping stays valid after the file is closed
+            try {
+                if (in != null) {
+                    in.close();
+                }
+                if (afd != null) {
+                    afd.close();
+                }
+            }
+            catch (IOException e) {
+                Log.w(TAG, "Cannot close the move book file", e);
+            }
+        }
     }
 
     private void showGameTip(int res) {
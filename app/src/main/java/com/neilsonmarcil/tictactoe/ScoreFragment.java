@@ -1,5 +1,6 @@
 package com.neilsonmarcil.tictactoe;
 
+import android.content.Context;
 import android.content.DialogInterface;
 import android.os.Bundle;
 import android.support.v4.app.Fragment;
@@ -13,7 +14,8 @@ import com.neilsonmarcil.tictactoe.game.Score;
 
 /**
  * A {@code ScoreFragment} is used to display a score containing the number of wins, losses and draw.
- * The user interface may not include all the information.
+ * The user interface may not include all the information. A long click asks the user to reset
+ * the score, the listener is notified when the user accepts.
  */
 public class ScoreFragment extends Fragment implements View.OnLongClickListener{
 
@@ -24,6 +26,11 @@ public class ScoreFragment extends Fragment implements View.OnLongClickListener{
      */
     private Score mScoreObject;
 
+    /**
+     * A listener notified when the user resets the score
+     */
+    private ScoreResetListener mListener;
+
     /**
      * UI Element
      */
@@ -54,6 +61,23 @@ public class ScoreFragment extends Fragment implements View.OnLongClickListener{
         }
     }
 
+    @Override
+    public void onAttach(Context context) {
+        super.onAttach(context);
+        if (context instanceof ScoreResetListener) {
+            mListener = (ScoreResetListener) context;
+        }
+        else {
+            throw new RuntimeException(context.toString() + " must implement ScoreResetListener");
+        }
+    }
+
+    @Override
+    public void onDetach() {
+        super.onDetach();
+        mListener = null;
+    }
+
     @Override
     public View onCreateView(LayoutInflater inflater, ViewGroup container, Bundle savedInstanceState) {
         View view = inflater.inflate(R.layout.fragment_score, container, false);
@@ -74,9 +98,9 @@ public class ScoreFragment extends Fragment implements View.OnLongClickListener{
         builder.setPositiveButton(R.string.reset_score_yes, new DialogInterface.OnClickListener() {
             @Override
             public void onClick(DialogInterface dialog, int which) {
-                getActivity().finish();
-                getActivity().startActivity(
-                        getActivity().getPackageManager().getLaunchIntentForPackage(getActivity().getPackageName()));
+                if (mListener != null) {
+                    mListener.scoreReset();
+                }
             }
         });
         builder.create().show();
@@ -92,4 +116,13 @@ public class ScoreFragment extends Fragment implements View.OnLongClickListener{
         mDrawsTxt.setText(getString(R.string.game_score_draws_format, mScoreObject.getScoreDraws()));
     }
 
+    /**
+     * The interface to implement to be notified when the user resets the score.
+     */
+    public interface ScoreResetListener {
+        /**
+         * The user accepted to reset the score. The score is not changed by the fragment.
+         */
+        void scoreReset();
+    }
 }
@@ -3,42 +3,218 @@ package com.neilsonmarcil.tictactoe.game;
 import android.os.Parcel;
 import android.os.Parcelable;
 
-import java.util.Arrays;
-
 /**
  * A {@code Board} represents the TicTacToe playable area. This is used by the AI to play the
  * next move. It uses the Composition pattern by having a reference of the BoardFragment in
- * the class member.
+ * the class member.<br/><br/>
+ *
+ * The shape of the board is given by its {@link BoardGeometry}, the classic 3x3 board is used
+ * by default. The position is stored as a bitboard: each of the two players owns a bitset where
+ * the bit {@code i} is set when the player has a token in the box {@code i}. Winning lines and
+ * possible moves are computed with mask operations instead of scanning the boxes.<br/><br/>
+ *
+ * The board also keeps a Zobrist hash of the position, updated by {@code addToken}, that is
+ * used by the AI to recognize a position reached through different move orders. It also keeps
+ * the hash of the position moved by each symmetry of the geometry, so the AI can find the
+ * canonical form of a position, the one with the smallest hash, and store the symmetric
+ * positions only once.<br/><br/>
+ *
+ * To answer "is there a winner" and "is the board full" without scanning the board, it counts
+ * the tokens of each player in each winning line, the completed lines of each player and the
+ * empty boxes. {@code addToken} updates the counters of the lines that contain the box only, so
+ * a move and its undo cost the same on every board size.
  */
 public class Board implements Parcelable {
 
     /**
-     * Represents an empty Board
+     * The number of boxes on the classic 3x3 board
      */
-    private static final int[] EMPTY_BOARD = new int[] { 0, 0, 0, 0, 0, 0, 0, 0, 0 };
+    public static final int BOARD_SIZE = 9;
 
     /**
-     * Represents the actual state of the Board
+     * Represents a classic 3x3 board where every box is taken
      */
-    private int[] mBoard = new int[0];
+    public static final int FULL_MASK = (1 << BOARD_SIZE) - 1;
 
     /**
-     * Create a new Board
+     * Represents the winning lines of the classic 3x3 board: the three rows, the three columns
+     * and the two diagonals. A player wins when his mask contains all the bits of one of those
+     * lines.
+     */
+    public static final int[] WINNING_MASKS = new int[] {
+            0x007, 0x038, 0x1C0,    // rows
+            0x049, 0x092, 0x124,    // columns
+            0x111, 0x054            // diagonals
+    };
+
+    /**
+     * The shape of the board
+     */
+    private final BoardGeometry mGeometry;
+
+    /**
+     * The number of words of the bitsets, cached from the geometry
+     */
+    private final int mWords;
+
+    /**
+     * The bits of the last word of a bitset that represent a box
+     */
+    private final long mLastWordMask;
+
+    /**
+     * The bitsets of the winning lines, cached from the geometry
+     */
+    private final long[] mLineMasks;
+
+    /**
+     * The player id associated with each bitset. A value of 0 means the slot is not used yet.
+     */
+    private int[] mPlayers = new int[2];
+
+    /**
+     * Represents the actual state of the Board: the bitset of the first player followed by the
+     * bitset of the second one.
+     */
+    private long[] mMasks;
+
+    /**
+     * The values that the tokens of each player slot add to the hash, by box, null until the
+     * slot is used
+     */
+    private final long[][] mSlotKeys = new long[2][];
+
+    /**
+     * The boxes where each symmetry moves each box, cached from the geometry
+     */
+    private final int[] mSymmetricCells;
+
+    /**
+     * The Zobrist hash of the actual state of the Board moved by each symmetry of the geometry.
+     * The hash of the identity is the hash of the Board.
+     */
+    private final long[] mHashes;
+
+    /**
+     * The number of tokens of each player in each winning line: the lines of the first slot
+     * followed by the lines of the second one
+     */
+    private final int[] mLineCounts;
+
+    /**
+     * The number of winning lines completed by each player slot
+     */
+    private final int[] mCompleted = new int[2];
+
+    /**
+     * The number of empty boxes
+     */
+    private int mEmptyCount;
+
+    /**
+     * Create a new classic 3x3 Board
      */
     public Board() {
-        mBoard = Arrays.copyOf(EMPTY_BOARD, EMPTY_BOARD.length) ;
+        this(BoardGeometry.STANDARD);
+    }
+
+    /**
+     * Create a new Board
+     * @param rows the number of rows
+     * @param columns the number of columns
+     * @param length the number of tokens in a row needed to win
+     */
+    public Board(int rows, int columns, int length) {
+        this(BoardGeometry.get(rows, columns, length));
+    }
+
+    /**
+     * Create a new Board
+     * @param geometry the shape of the board
+     */
+    public Board(BoardGeometry geometry) {
+        mGeometry = geometry;
+        mWords = geometry.getWordCount();
+        mMasks = new long[2 * mWords];
+        mLastWordMask = -1L >>> (-geometry.getCellCount() & 63);
+        mLineMasks = geometry.getLineMasks();
+        mLineCounts = new int[2 * geometry.getLineCount()];
+        mEmptyCount = geometry.getCellCount();
+        mSymmetricCells = geometry.getSymmetricCells();
+        mHashes = new long[geometry.getSymmetryCount()];
     }
 
+    /**
+     * Create a copy of a Board. The copy has the same geometry, tokens and hash, and can be
+     * changed without changing the original, for example by another thread.
+     * @param other the board to copy
+     */
+    public Board(Board other) {
+        this(other.mGeometry);
+        copyFrom(other);
+    }
+
+    /**
+     * Replace the tokens of this board by the tokens of another board of the same geometry,
+     * without allocating. Used to search a working copy instead of the board being played.
+     * @param other the board to copy
+     */
+    public void copyFrom(Board other) {
+        if (other.mGeometry != mGeometry) {
+            throw new IllegalArgumentException("Cannot copy a " + other.mGeometry + " board into a "
+                    + mGeometry + " board");
+        }
+        System.arraycopy(other.mPlayers, 0, mPlayers, 0, mPlayers.length);
+        mSlotKeys[0] = other.mSlotKeys[0];
+        mSlotKeys[1] = other.mSlotKeys[1];
+        System.arraycopy(other.mMasks, 0, mMasks, 0, mMasks.length);
+        System.arraycopy(other.mLineCounts, 0, mLineCounts, 0, mLineCounts.length);
+        mCompleted[0] = other.mCompleted[0];
+        mCompleted[1] = other.mCompleted[1];
+        mEmptyCount = other.mEmptyCount;
+        System.arraycopy(other.mHashes, 0, mHashes, 0, mHashes.length);
+    }
+
+    /**
+     * Returns the shape of the board
+     */
+    public BoardGeometry getGeometry() {
+        return mGeometry;
+    }
+
+    /**
+     * Returns the number of boxes of the board
+     */
+    public int getCellCount() {
+        return mGeometry.getCellCount();
+    }
 
     /**
      * Add a token from the player at a specific position. It does not check if there
-     * is already a token from the other player. It will override any existing value.
+     * is already a token from the other player. It will override any existing value. Adding
+     * the value 0 undoes the move.
      * @param index the box index to add the token
-     * @param player the player symbol to add on the board
+     * @param player the player symbol to add on the board, 0 to empty the box
      */
     public void addToken(int index, int player) {
-        if (index >= 0 && index < mBoard.length) {
-            mBoard[index] = player;
+        if (index >= 0 && index < mGeometry.getCellCount()) {
+            int w = index >>> 6;
+            long bit = 1L << index;
+            if (((mMasks[w] | mMasks[mWords + w]) & bit) != 0) {
+                int slot = (mMasks[w] & bit) != 0 ? 0 : 1;
+                updateHashes(index, mSlotKeys[slot]);
+                mMasks[w] &= ~bit;
+                mMasks[mWords + w] &= ~bit;
+                updateLines(index, slot, -1);
+                mEmptyCount++;
+            }
+            if (player != 0) {
+                int slot = getSlot(player);
+                mMasks[slot * mWords + w] |= bit;
+                updateHashes(index, mSlotKeys[slot]);
+                updateLines(index, slot, 1);
+                mEmptyCount--;
+            }
         }
     }
 
@@ -48,8 +224,16 @@ public class Board implements Parcelable {
      * @return the value from the board at the index, if the index is out of bound, returns -1
      */
     public int getToken(int index) {
-        if (index >= 0 && index < mBoard.length) {
-            return mBoard[index];
+        if (index >= 0 && index < mGeometry.getCellCount()) {
+            int w = index >>> 6;
+            long bit = 1L << index;
+            if ((mMasks[w] & bit) != 0) {
+                return mPlayers[0];
+            }
+            if ((mMasks[mWords + w] & bit) != 0) {
+                return mPlayers[1];
+            }
+            return 0;
         }
         return -1;
     }
@@ -60,14 +244,27 @@ public class Board implements Parcelable {
      * @return an native int array that contains the indexes of empty boxes.
      */
     public int[] getNextPossibleMoves() {
-        int[] moves = new int[9];
+        int[] moves = new int[getPossibleMovesCount()];
+        getNextPossibleMoves(moves);
+        return moves;
+    }
+
+    /**
+     * Write all the possible moves from the board into an existing array, in increasing order.
+     * @param moves the array that receives the indexes of the empty boxes, it must be large
+     *              enough to hold all of them
+     * @return the number of possible moves written in the array
+     */
+    public int getNextPossibleMoves(int[] moves) {
         int c = 0;
-        for (int i = 0; i < mBoard.length; i++) {
-            if (mBoard[i] == 0) {
-                moves[c++] = i;
+        for (int w = 0; w < mWords; w++) {
+            long empty = getEmptyWord(w);
+            while (empty != 0) {
+                moves[c++] = (w << 6) + Long.numberOfTrailingZeros(empty);
+                empty &= empty - 1;
             }
         }
-        return Arrays.copyOf(moves, c);
+        return c;
     }
 
     /**
@@ -76,14 +273,267 @@ public class Board implements Parcelable {
      * @return the list of box (index) that contains the player token
      */
     public int[] getPlayerPosition(int player) {
-        int[] pos = new int[5];
+        int slot = findSlot(player);
+        if (slot < 0) {
+            return new int[0];
+        }
+        int count = 0;
+        for (int w = 0; w < mWords; w++) {
+            count += Long.bitCount(mMasks[slot * mWords + w]);
+        }
+        int[] pos = new int[count];
         int c = 0;
-        for (int i = 0; i < mBoard.length && c < 5; i++) {
-            if (mBoard[i] == player) {
-                pos[c++] = i;
+        for (int w = 0; w < mWords; w++) {
+            long mask = mMasks[slot * mWords + w];
+            while (mask != 0) {
+                pos[c++] = (w << 6) + Long.numberOfTrailingZeros(mask);
+                mask &= mask - 1;
+            }
+        }
+        return pos;
+    }
+
+    /**
+     * Returns a word of the bitset of the empty boxes.
+     * @param word the word index, from 0 to getGeometry().getWordCount() - 1
+     */
+    public long getEmptyWord(int word) {
+        long empty = ~(mMasks[word] | mMasks[mWords + word]);
+        return word == mWords - 1 ? empty & mLastWordMask : empty;
+    }
+
+    /**
+     * Returns a word of the bitset of the boxes owned by the player.
+     * @param player the player id
+     * @param word the word index, from 0 to getGeometry().getWordCount() - 1
+     */
+    public long getPlayerWord(int player, int word) {
+        int slot = findSlot(player);
+        return slot < 0 ? 0 : mMasks[slot * mWords + word];
+    }
+
+    /**
+     * Returns the mask of the empty boxes, bit {@code i} is set when the box {@code i} is empty.
+     * Only the boxes 0 to 31 are part of the mask.
+     */
+    public int getEmptyMask() {
+        return (int)getEmptyWord(0);
+    }
+
+    /**
+     * Returns the mask of the boxes owned by the player. Only the boxes 0 to 31 are part of the
+     * mask.
+     * @param player the player id
+     * @return the player mask, 0 if the player has no token on the board
+     */
+    public int getPlayerMask(int player) {
+        return (int)getPlayerWord(player, 0);
+    }
+
+    /**
+     * Returns the number of possible moves, which is the number of empty boxes.
+     */
+    public int getPossibleMovesCount() {
+        return mEmptyCount;
+    }
+
+    /**
+     * Determine if every box of the board is taken.
+     */
+    public boolean isFull() {
+        return mEmptyCount == 0;
+    }
+
+    /**
+     * Determine if one of the players owns a complete winning line.
+     */
+    public boolean hasWinner() {
+        return mCompleted[0] + mCompleted[1] != 0;
+    }
+
+    /**
+     * Determine if the player owns a complete winning line.
+     * @param player the player id
+     * @return true if the player is winning, otherwise false.
+     */
+    public boolean isWinning(int player) {
+        int slot = findSlot(player);
+        return slot >= 0 && mCompleted[slot] != 0;
+    }
+
+    /**
+     * Determine if the token in the box completes a winning line. Only the lines that contain
+     * the box are checked, which makes it cheaper than isWinning after a move.
+     * @param index the box index
+     * @return true if the box is part of a winning line of its owner, otherwise false.
+     */
+    public boolean isWinningMove(int index) {
+        int slot = findSlot(getToken(index));
+        if (slot < 0 || mCompleted[slot] == 0) {
+            return false;
+        }
+        int[] lines = mGeometry.getCellLines(index);
+        int base = slot * mGeometry.getLineCount();
+        int length = mGeometry.getLength();
+        for (int i = 0; i < lines.length; i++) {
+            if (mLineCounts[base + lines[i]] == length) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the first empty box that would complete a winning line for the player.
+     * @param player the player id
+     * @return the lowest box index of a winning move, -1 if the player cannot win with his next
+     * move
+     */
+    public int getWinningMove(int player) {
+        int slot = findSlot(player);
+        int length = mGeometry.getLength();
+        if (slot < 0) {
+            // a player without tokens can only win with a line of one box
+            return length == 1 ? firstEmptyBox() : -1;
+        }
+        if (mWords == 1) {
+            long mask = mMasks[slot];
+            long empty = getEmptyWord(0);
+            long moves = 0;
+            for (int l = 0; l < mLineMasks.length; l++) {
+                long missing = mLineMasks[l] & ~mask;
+                if ((missing & (missing - 1)) == 0 && (missing & empty) != 0) {
+                    moves |= missing;
+                }
+            }
+            return moves == 0 ? -1 : Long.numberOfTrailingZeros(moves);
+        }
+        // only the lines with one empty box and no token of the other player are read
+        int lines = mGeometry.getLineCount();
+        int base = slot * lines;
+        int other = (1 - slot) * lines;
+        int best = -1;
+        for (int l = 0; l < lines; l++) {
+            if (mLineCounts[base + l] != length - 1 || mLineCounts[other + l] != 0) {
+                continue;
+            }
+            for (int i = 0; i < length; i++) {
+                int cell = mGeometry.getLineCell(l, i);
+                if ((mMasks[slot * mWords + (cell >>> 6)] & 1L << cell) == 0) {
+                    if (best < 0 || cell < best) {
+                        best = cell;
+                    }
+                    break;
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Count the lines that are still open for the player, which are the lines where the other
+     * player has no token.
+     * @param player the player id
+     * @param counts receives at index {@code c} the number of open lines that hold {@code c}
+     *               tokens of the player, it must have getGeometry().getLength() + 1 entries
+     */
+    public void countOpenLines(int player, int[] counts) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = 0;
+        }
+        int slot = findSlot(player);
+        int lines = mGeometry.getLineCount();
+        if (slot < 0) {
+            // the lines of the player without tokens are the lines without any token
+            for (int l = 0; l < lines; l++) {
+                if (mLineCounts[l] == 0 && mLineCounts[lines + l] == 0) {
+                    counts[0]++;
+                }
+            }
+            return;
+        }
+        int base = slot * lines;
+        int other = (1 - slot) * lines;
+        for (int l = 0; l < lines; l++) {
+            if (mLineCounts[other + l] == 0) {
+                counts[mLineCounts[base + l]]++;
+            }
+        }
+    }
+
+    /**
+     * Returns the Zobrist hash of the position. Two boards with the same tokens in the same
+     * boxes always have the same hash.
+     */
+    public long getHash() {
+        return mHashes[0];
+    }
+
+    /**
+     * Returns the Zobrist hash of the position moved by a symmetry of the geometry: the hash of
+     * the board where the token of each box {@code i} is in the box
+     * {@code getGeometry().getSymmetricCell(symmetry, i)}.
+     * @param symmetry the symmetry, from 0 to getGeometry().getSymmetryCount() - 1
+     */
+    public long getSymmetricHash(int symmetry) {
+        return mHashes[symmetry];
+    }
+
+    /**
+     * Returns the symmetry that moves the position to its canonical form, the symmetric position
+     * with the smallest hash. All the symmetric positions have the same canonical hash. When
+     * several symmetries give the smallest hash, the first one is returned.
+     */
+    public int getCanonicalSymmetry() {
+        int best = 0;
+        for (int t = 1; t < mHashes.length; t++) {
+            if (mHashes[t] < mHashes[best]) {
+                best = t;
             }
         }
-        return Arrays.copyOf(pos, c);
+        return best;
+    }
+
+    /**
+     * Determine if a symmetry leaves the position unchanged, in which case the moves it swaps
+     * are worth the same.
+     * @param symmetry the symmetry, from 0 to getGeometry().getSymmetryCount() - 1
+     * @return true if the token of each box is the token of the box where the symmetry moves it
+     */
+    public boolean isSymmetric(int symmetry) {
+        if (mHashes[symmetry] != mHashes[0]) {
+            return false;
+        }
+        int cells = mGeometry.getCellCount();
+        int base = symmetry * cells;
+        for (int w = 0; w < mMasks.length; w++) {
+            long bits = mMasks[w];
+            int offset = w < mWords ? 0 : mWords;
+            while (bits != 0) {
+                int index = ((w - offset) << 6) + Long.numberOfTrailingZeros(bits);
+                int moved = mSymmetricCells[base + index];
+                if ((mMasks[offset + (moved >>> 6)] & (1L << moved)) == 0) {
+                    return false;
+                }
+                bits &= bits - 1;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Determine if a mask contains a complete winning line of the classic 3x3 board.
+     * @param mask a player mask
+     * @return true if one of the winning lines is contained in the mask.
+     */
+    public static boolean isWinningMask(int mask) {
+        for (int i = 0; i < WINNING_MASKS.length; i++) {
+            int w = WINNING_MASKS[i];
+            if ((mask & w) == w) {
+                return true;
+            }
+        }
+        return false;
     }
 
     /**
@@ -91,7 +541,102 @@ public class Board implements Parcelable {
      *  refresh the UI to show the new board state.
      */
     public void resetBoard() {
-        mBoard = Arrays.copyOf(EMPTY_BOARD, EMPTY_BOARD.length);
+        for (int i = 0; i < mMasks.length; i++) {
+            mMasks[i] = 0;
+        }
+        for (int i = 0; i < mLineCounts.length; i++) {
+            mLineCounts[i] = 0;
+        }
+        mCompleted[0] = 0;
+        mCompleted[1] = 0;
+        mEmptyCount = mGeometry.getCellCount();
+        for (int t = 0; t < mHashes.length; t++) {
+            mHashes[t] = 0;
+        }
+    }
+
+    /**
+     * Add a token of the player slot to the counters of the lines that contain the box, or
+     * remove it.
+     * @param index the box index
+     * @param slot the player slot
+     * @param delta 1 when the token is added, -1 when it is removed
+     */
+    private void updateLines(int index, int slot, int delta) {
+        int[] lines = mGeometry.getCellLines(index);
+        int base = slot * mGeometry.getLineCount();
+        int length = mGeometry.getLength();
+        for (int i = 0; i < lines.length; i++) {
+            int count = mLineCounts[base + lines[i]];
+            if (count == length) {
+                mCompleted[slot]--;
+            }
+            count += delta;
+            if (count == length) {
+                mCompleted[slot]++;
+            }
+            mLineCounts[base + lines[i]] = count;
+        }
+    }
+
+    private int firstEmptyBox() {
+        for (int w = 0; w < mWords; w++) {
+            long empty = getEmptyWord(w);
+            if (empty != 0) {
+                return (w << 6) + Long.numberOfTrailingZeros(empty);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Add or remove a token in the hash of each symmetric position: the symmetry {@code t}
+     * moves the token to the box {@code mSymmetricCells[t * cells + index]}.
+     * @param index the box index
+     * @param keys the values that the tokens of the player add to the hash
+     */
+    private void updateHashes(int index, long[] keys) {
+        int cells = mGeometry.getCellCount();
+        for (int t = 0; t < mHashes.length; t++) {
+            mHashes[t] ^= keys[mSymmetricCells[t * cells + index]];
+        }
+    }
+
+    /**
+     * Returns the slot of the player, -1 if the player has no slot.
+     */
+    private int findSlot(int player) {
+        if (player != 0) {
+            if (mPlayers[0] == player) {
+                return 0;
+            }
+            if (mPlayers[1] == player) {
+                return 1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the bitset slot associated with the player, the first two players that add a token
+     * on the board get a slot assigned.
+     */
+    private int getSlot(int player) {
+        int slot = findSlot(player);
+        if (slot >= 0) {
+            return slot;
+        }
+        if (mPlayers[0] == 0) {
+            mPlayers[0] = player;
+            mSlotKeys[0] = mGeometry.getPlayerKeys(player);
+            return 0;
+        }
+        if (mPlayers[1] == 0) {
+            mPlayers[1] = player;
+            mSlotKeys[1] = mGeometry.getPlayerKeys(player);
+            return 1;
+        }
+        throw new IllegalArgumentException("Board supports only two players, cannot add: " + player);
     }
 
     /**
@@ -105,7 +650,14 @@ public class Board implements Parcelable {
 
     @Override
     public void writeToParcel(Parcel dest, int flags) {
-        dest.writeIntArray(mBoard);
+        dest.writeInt(mGeometry.getRows());
+        dest.writeInt(mGeometry.getColumns());
+        dest.writeInt(mGeometry.getLength());
+        int[] board = new int[mGeometry.getCellCount()];
+        for (int i = 0; i < board.length; i++) {
+            board[i] = getToken(i);
+        }
+        dest.writeIntArray(board);
     }
 
     public static final Parcelable.Creator<Board> CREATOR = new Parcelable.Creator<Board>() {
@@ -118,7 +670,11 @@ public class Board implements Parcelable {
     };
 
     private Board(Parcel in) {
-        mBoard = new int[9];
-        in.readIntArray(mBoard);
+        this(BoardGeometry.get(in.readInt(), in.readInt(), in.readInt()));
+        int[] board = new int[mGeometry.getCellCount()];
+        in.readIntArray(board);
+        for (int i = 0; i < board.length; i++) {
+            addToken(i, board[i]);
+        }
     }
 }
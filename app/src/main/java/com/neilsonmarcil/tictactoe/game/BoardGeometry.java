@@ -0,0 +1,353 @@
+package com.neilsonmarcil.tictactoe.game;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * A {@code BoardGeometry} describes the shape of a board: the number of rows and columns and the
+ * number of tokens in a row needed to win. The winning lines of a geometry are generated once
+ * and shared by all the boards that use it.<br/><br/>
+ *
+ * The boxes are numbered row by row, the box {@code i} is at row {@code i / columns} and column
+ * {@code i % columns}. A set of boxes is stored as a bitset of {@code long} words where the bit
+ * {@code i % 64} of the word {@code i / 64} represents the box {@code i}.<br/><br/>
+ *
+ * The symmetries of a geometry are the rotations and reflections that move the winning lines
+ * onto winning lines: the 8 symmetries of the square when the board has as many rows as
+ * columns, otherwise the 4 symmetries of the rectangle. Symmetric positions have the same value,
+ * so the search only needs one of them. The symmetry 0 is the identity.
+ */
+public final class BoardGeometry {
+
+    /**
+     * The maximum number of rows or columns
+     */
+    public static final int MAX_SIZE = 19;
+
+    /**
+     * The geometries already created, a geometry is created only once
+     */
+    private static final Map<Integer, BoardGeometry> GEOMETRIES = new HashMap<>();
+
+    /**
+     * The classic TicTacToe board: 3 rows, 3 columns and 3 in a row to win
+     */
+    public static final BoardGeometry STANDARD = get(3, 3, 3);
+
+    private final int mRows;
+    private final int mColumns;
+    private final int mLength;
+    private final int mCellCount;
+    private final int mWordCount;
+    private final int mLineCount;
+
+    /**
+     * The winning lines as bitsets, {@code mWordCount} words per line
+     */
+    private final long[] mLineMasks;
+
+    /**
+     * The boxes of the winning lines, {@code mLength} boxes per line
+     */
+    private final int[] mLineCells;
+
+    /**
+     * For each box, the winning lines that contain it
+     */
+    private final int[][] mCellLines;
+
+    /**
+     * The random values used to build the Zobrist hash of a board, one per box
+     */
+    private final long[] mZobrist;
+
+    /**
+     * The box where each symmetry moves each box, {@code mCellCount} boxes per symmetry, and the
+     * symmetry that moves them back
+     */
+    private final int mSymmetryCount;
+    private final int[] mSymmetricCells;
+    private final int[] mInverseSymmetries;
+
+    /**
+     * The values that the tokens of a player add to the hash, by player id and box, created the
+     * first time a player plays on a board of this geometry
+     */
+    private final Map<Integer, long[]> mPlayerKeys = new HashMap<>();
+
+    /**
+     * Returns the geometry of a board.
+     * @param rows the number of rows, from 1 to MAX_SIZE
+     * @param columns the number of columns, from 1 to MAX_SIZE
+     * @param length the number of tokens in a row to win, cannot be greater than the rows and
+     *               the columns at the same time
+     * @return the geometry, the same instance is returned for the same parameters
+     */
+    public static BoardGeometry get(int rows, int columns, int length) {
+        if (rows < 1 || rows > MAX_SIZE || columns < 1 || columns > MAX_SIZE) {
+            throw new IllegalArgumentException("Invalid board size: " + rows + "x" + columns);
+        }
+        if (length < 1 || (length > rows && length > columns)) {
+            throw new IllegalArgumentException("Invalid winning length: " + length);
+        }
+        Integer key = (rows * (MAX_SIZE + 1) + columns) * (MAX_SIZE + 1) + length;
+        synchronized (GEOMETRIES) {
+            BoardGeometry g = GEOMETRIES.get(key);
+            if (g == null) {
+                g = new BoardGeometry(rows, columns, length);
+                GEOMETRIES.put(key, g);
+            }
+            return g;
+        }
+    }
+
+    private BoardGeometry(int rows, int columns, int length) {
+        mRows = rows;
+        mColumns = columns;
+        mLength = length;
+        mCellCount = rows * columns;
+        mWordCount = (mCellCount + 63) >>> 6;
+
+        // rows, columns, diagonals and anti-diagonals
+        int[][] directions = new int[][] { { 0, 1 }, { 1, 0 }, { 1, 1 }, { 1, -1 } };
+        int[] cells = new int[mCellCount * directions.length * length];
+        int lines = 0;
+        for (int[] d : directions) {
+            for (int r = 0; r < rows; r++) {
+                for (int c = 0; c < columns; c++) {
+                    int endRow = r + d[0] * (length - 1);
+                    int endColumn = c + d[1] * (length - 1);
+                    if (endRow < 0 || endRow >= rows || endColumn < 0 || endColumn >= columns) {
+                        continue;
+                    }
+                    // a single box is a line in every direction, keep only one of them
+                    if (length == 1 && d != directions[0]) {
+                        continue;
+                    }
+                    for (int i = 0; i < length; i++) {
+                        cells[lines * length + i] = (r + d[0] * i) * columns + c + d[1] * i;
+                    }
+                    lines++;
+                }
+            }
+        }
+
+        mLineCount = lines;
+        mLineCells = new int[lines * length];
+        System.arraycopy(cells, 0, mLineCells, 0, mLineCells.length);
+        mLineMasks = new long[lines * mWordCount];
+        int[] cellLineCount = new int[mCellCount];
+        for (int l = 0; l < lines; l++) {
+            for (int i = 0; i < length; i++) {
+                int cell = mLineCells[l * length + i];
+                mLineMasks[l * mWordCount + (cell >>> 6)] |= 1L << cell;
+                cellLineCount[cell]++;
+            }
+        }
+
+        mCellLines = new int[mCellCount][];
+        for (int i = 0; i < mCellCount; i++) {
+            mCellLines[i] = new int[cellLineCount[i]];
+            cellLineCount[i] = 0;
+        }
+        for (int l = 0; l < lines; l++) {
+            for (int i = 0; i < length; i++) {
+                int cell = mLineCells[l * length + i];
+                mCellLines[cell][cellLineCount[cell]++] = l;
+            }
+        }
+
+        mZobrist = new long[mCellCount];
+        Random random = new Random(0x5EEDL);
+        for (int i = 0; i < mCellCount; i++) {
+            mZobrist[i] = random.nextLong();
+        }
+
+        int[] symmetries = new int[8];
+        int count = 0;
+        for (int t = 0; t < symmetries.length; t++) {
+            // the symmetries that swap the rows and the columns need a square
+            if (rows == columns || !isTransposing(t)) {
+                symmetries[count++] = t;
+            }
+        }
+        mSymmetryCount = count;
+        mSymmetricCells = new int[count * mCellCount];
+        for (int s = 0; s < count; s++) {
+            for (int cell = 0; cell < mCellCount; cell++) {
+                mSymmetricCells[s * mCellCount + cell] = transform(symmetries[s], cell / columns, cell % columns);
+            }
+        }
+        mInverseSymmetries = new int[count];
+        for (int s = 0; s < count; s++) {
+            for (int inverse = 0; inverse < count; inverse++) {
+                int cell = 0;
+                while (cell < mCellCount && getSymmetricCell(inverse, getSymmetricCell(s, cell)) == cell) {
+                    cell++;
+                }
+                if (cell == mCellCount) {
+                    mInverseSymmetries[s] = inverse;
+                    break;
+                }
+            }
+        }
+    }
+
+    public int getRows() {
+        return mRows;
+    }
+
+    public int getColumns() {
+        return mColumns;
+    }
+
+    /**
+     * Returns the number of tokens in a row needed to win
+     */
+    public int getLength() {
+        return mLength;
+    }
+
+    /**
+     * Returns the number of boxes of the board
+     */
+    public int getCellCount() {
+        return mCellCount;
+    }
+
+    /**
+     * Returns the number of {@code long} words of a bitset of boxes
+     */
+    public int getWordCount() {
+        return mWordCount;
+    }
+
+    /**
+     * Returns the number of winning lines
+     */
+    public int getLineCount() {
+        return mLineCount;
+    }
+
+    /**
+     * Returns a word of the bitset of a winning line.
+     * @param line the line index
+     * @param word the word index
+     */
+    public long getLineMask(int line, int word) {
+        return mLineMasks[line * mWordCount + word];
+    }
+
+    /**
+     * Returns the bitsets of all the winning lines, {@code getWordCount()} words per line. The
+     * returned array must not be modified.
+     */
+    long[] getLineMasks() {
+        return mLineMasks;
+    }
+
+    /**
+     * Returns a box of a winning line.
+     * @param line the line index
+     * @param i the position of the box in the line, from 0 to getLength() - 1
+     */
+    public int getLineCell(int line, int i) {
+        return mLineCells[line * mLength + i];
+    }
+
+    /**
+     * Returns the winning lines that contain the box. The returned array must not be modified.
+     * @param cell the box index
+     */
+    public int[] getCellLines(int cell) {
+        return mCellLines[cell];
+    }
+
+    /**
+     * Returns the number of symmetries of the board, the identity included: 8 for a square, 4
+     * for a rectangle
+     */
+    public int getSymmetryCount() {
+        return mSymmetryCount;
+    }
+
+    /**
+     * Returns the box where a symmetry moves a box.
+     * @param symmetry the symmetry, from 0 to getSymmetryCount() - 1
+     * @param cell the box index
+     */
+    public int getSymmetricCell(int symmetry, int cell) {
+        return mSymmetricCells[symmetry * mCellCount + cell];
+    }
+
+    /**
+     * Returns the symmetry that moves the boxes back where they were before a symmetry
+     */
+    public int getInverseSymmetry(int symmetry) {
+        return mInverseSymmetries[symmetry];
+    }
+
+    /**
+     * Returns the boxes where each symmetry moves each box, {@code getCellCount()} boxes per
+     * symmetry. The returned array must not be modified.
+     */
+    int[] getSymmetricCells() {
+        return mSymmetricCells;
+    }
+
+    /**
+     * Returns the values that the tokens of a player add to the Zobrist hash of a board, by box.
+     * The player id is mixed with the random value of the box so that the hash does not depend
+     * on which player played first on a board. The returned array must not be modified.
+     * @param player the player id
+     */
+    long[] getPlayerKeys(int player) {
+        synchronized (mPlayerKeys) {
+            long[] keys = mPlayerKeys.get(player);
+            if (keys == null) {
+                keys = new long[mCellCount];
+                for (int i = 0; i < mCellCount; i++) {
+                    long z = mZobrist[i] + player * 0x9E3779B97F4A7C15L;
+                    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+                    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+                    keys[i] = z ^ (z >>> 31);
+                }
+                mPlayerKeys.put(player, keys);
+            }
+            return keys;
+        }
+    }
+
+    /**
+     * Returns true if a symmetry swaps the rows and the columns
+     */
+    private static boolean isTransposing(int t) {
+        return t == 1 || t == 3 || t == 6 || t == 7;
+    }
+
+    /**
+     * Returns the box where a symmetry moves the box of a row and a column: the rotations of a
+     * quarter, a half and three quarters of a turn, then the reflections across the vertical
+     * axis, the horizontal axis, the diagonal and the anti-diagonal.
+     */
+    private int transform(int t, int r, int c) {
+        int lastRow = mRows - 1;
+        int lastColumn = mColumns - 1;
+        switch (t) {
+            case 0: return r * mColumns + c;
+            case 1: return c * mColumns + lastRow - r;
+            case 2: return (lastRow - r) * mColumns + lastColumn - c;
+            case 3: return (lastColumn - c) * mColumns + r;
+            case 4: return r * mColumns + lastColumn - c;
+            case 5: return (lastRow - r) * mColumns + c;
+            case 6: return c * mColumns + r;
+            default: return (lastColumn - c) * mColumns + lastRow - r;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return mRows + "x" + mColumns + "x" + mLength;
+    }
+}
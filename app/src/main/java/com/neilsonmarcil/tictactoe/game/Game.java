@@ -1,23 +1,29 @@
 package com.neilsonmarcil.tictactoe.game;
 
-import com.neilsonmarcil.tictactoe.player.ComputerPlayer;
+import com.neilsonmarcil.tictactoe.player.AIPlayer;
+import com.neilsonmarcil.tictactoe.player.Difficulty;
 import com.neilsonmarcil.tictactoe.player.Player;
+import com.neilsonmarcil.tictactoe.player.Ponderer;
+import com.neilsonmarcil.tictactoe.player.SearchStats;
 
-import java.util.Arrays;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 /**
  * A {@code Game} object holds the game properties (scores, last player played, etc...) and
- * reference to the different object (Board, Player, etc...)
+ * reference to the different object (Board, Player, etc...)<br/><br/>
+ *
+ * By default the computer player plays on the thread that gives it the turn. When executors are
+ * set, it searches a copy of the board on the background executor and its move is given to the
+ * listener on the callback executor, usually the main thread. A search in progress can be
+ * cancelled, its move is then never given to the listener.<br/><br/>
+ *
+ * When a {@link Ponderer} is set, the replies of the computer player are searched while the user
+ * thinks, and a reply that is ready is given to the listener right away, without searching.
  */
 public class Game {
 
-    /**
-     * Represents the winning condition. Index 0 to 2 represents the first row, 3 to 5 the diagonal
-     * from top right to lower left, etc...
-     */
-    private static final int[] WINNING_CONDITION = new int[]
-            { 0, 1, 2, 0, 4, 8, 0, 3, 6, 3, 4, 5, 6, 7, 8, 2, 4, 6, 1, 4, 7, 2, 5, 8 };
-
     /**
      * The Board
      */
@@ -31,9 +37,36 @@ public class Game {
     /**
      * Computer player, active player and all the players id
      */
-    private ComputerPlayer mComputerPlayer;
+    private AIPlayer mComputerPlayer;
     private int mActivePlayer;
     private int[] mPlayersId;
+    private Player[] mPlayers;
+
+    /**
+     * The difficulty level of the computer player, one of the Difficulty LEVEL constants
+     */
+    private int mDifficulty = Difficulty.LEVEL_PERFECT;
+
+    /**
+     * The executors of the search and of the listener, null when the computer player plays
+     * on the calling thread
+     */
+    private ExecutorService mBackground;
+    private Executor mCallback;
+
+    /**
+     * The search in progress, and a number that changes each time a search starts or is
+     * cancelled so that the move of an old search is ignored. Only used on the callback thread.
+     */
+    private Future<?> mPending;
+    private int mGeneration;
+
+    /**
+     * Searches the replies of the computer player during the turn of the user, null when they
+     * are not searched in advance. True when the last move came from it.
+     */
+    private Ponderer mPonderer;
+    private boolean mPondered;
 
     /**
      * A listener that is interested to be notified when a move has been played by the
@@ -46,7 +79,7 @@ public class Game {
      * @param b the Board on which to play the game
      * @param s the Score for this game
      * @param p the players that will play the game. The first one must be the user player, the second one
-     *          the computer player
+     *          the computer player, any AIPlayer
      * @param l the ComputerPlayerListener that is used when the AI player has done his turn. Cannot be null.
      */
     public Game(Board b, Score s, Player[] p, ComputerPlayerListener l) {
@@ -54,8 +87,9 @@ public class Game {
         mScore = s;
 
         if (p.length == 2) {
-            mComputerPlayer = (ComputerPlayer)p[1];
+            mComputerPlayer = (AIPlayer)p[1];
             mPlayersId = new int[] { p[0].getId(), mComputerPlayer.getId() };
+            mPlayers = p;
         }
         else {
             throw new IllegalArgumentException("Game must have two players");
@@ -102,6 +136,9 @@ public class Game {
         if (mActivePlayer == mPlayersId[1]) {
             makeComputerPlay();
         }
+        else {
+            startPondering();
+        }
     }
 
     /**
@@ -115,6 +152,7 @@ public class Game {
         }
         else {
             mActivePlayer = mPlayersId[0];
+            startPondering();
         }
     }
 
@@ -157,12 +195,12 @@ public class Game {
      *     <ol>There is no more possible moves (the board is full)</ol>
      *     <ol>There is a winner for this current game state</ol>
      * </li>
+     * Both conditions are kept up to date by the Board on each move, so this does not scan the
+     * board.
      * @return true if the game is over, otherwise false.
      */
     public boolean isGameOver() {
-        int[] possibleMove = mBoard.getNextPossibleMoves();
-        int winner = determineWinner();
-        return possibleMove.length == 0 || winner != 0;
+        return mBoard.isFull() || mBoard.hasWinner();
     }
 
     /**
@@ -170,17 +208,37 @@ public class Game {
      * @return the player id that is the winner. If no winner, returns the value 0
      */
     public int determineWinner() {
-        boolean p1posWinner = isPlayerWinning(mPlayersId[0]);
-        if (p1posWinner) {
+        if (!mBoard.hasWinner()) {
+            return 0;
+        }
+        if (mBoard.isWinning(mPlayersId[0])) {
             return mPlayersId[0];
         }
-        boolean p2posWinner = isPlayerWinning(mPlayersId[1]);
-        if (p2posWinner) {
+        if (mBoard.isWinning(mPlayersId[1])) {
             return mPlayersId[1];
         }
         return 0;
     }
 
+    /**
+     * Returns a snapshot of the board with the computer player to move, that can be searched
+     * while the game goes on.
+     */
+    public Position getPosition() {
+        return new Position(mBoard, mPlayersId[1], mPlayersId[0]);
+    }
+
+    /**
+     * Returns the statistics of the last move of the computer player, null if they are not
+     * collected or if the move was searched in advance.
+     */
+    public SearchStats getSearchStats() {
+        if (mPondered) {
+            return null;
+        }
+        return mComputerPlayer.getSearchStats();
+    }
+
     /**
      * Get the active player
      * @return the player id active player
@@ -198,66 +256,136 @@ public class Game {
     }
 
     /**
-     * Call the AI player to play the next move and send the result to the listener.
+     * Let the computer player search its moves in the background. The game must then only be
+     * used from the thread of the callback executor.
+     * @param background the executor of the search, null to play on the calling thread
+     * @param callback the executor that gives the move to the listener
      */
-    private void makeComputerPlay() {
-        int move = mComputerPlayer.playMove(this);
-        if (isValidMove(move)) {
-            mListener.computerPlayerMove(move, mPlayersId[1]);
+    public void setComputerExecutor(ExecutorService background, Executor callback) {
+        if (background != null && callback == null) {
+            throw new IllegalArgumentException("Callback executor cannot be null");
         }
+        cancelComputerPlay();
+        mBackground = background;
+        mCallback = callback;
     }
 
     /**
-     * Determine if the player is winning for the current state of the game
-     * @param p the player id
-     * @return true if the player is the winner, otherwise false.
+     * Set the difficulty level of the computer player, from its next move. A search in progress
+     * and the replies searched in advance are dropped, they were searched with the old level.
+     * @param level one of the Difficulty LEVEL constants
      */
-    private boolean isPlayerWinning(int p) {
-        return isPlayerWinning(WINNING_CONDITION, mBoard.getPlayerPosition(p));
+    public void setDifficulty(int level) {
+        Difficulty difficulty = Difficulty.get(level);
+        boolean thinking = mPending != null;
+        cancelComputerPlay();
+        mComputerPlayer.setDifficulty(difficulty);
+        mDifficulty = level;
+        if (thinking) {
+            makeComputerPlay();
+        }
+        else if (mActivePlayer == mPlayersId[0]) {
+            startPondering();
+        }
     }
 
     /**
-     * Checks for three values that are equals in the array.
-     * @param block the array
-     * @param maxIndex the max index to check
-     * @return true if three value are found between index 0 and maxIndex.
+     * Returns the difficulty level of the computer player, one of the Difficulty LEVEL constants
      */
-    private boolean hasThreeOccurences(int[] block, int maxIndex) {
-        boolean result = false;
-        int[] b = Arrays.copyOf(block, maxIndex);
-        Arrays.sort(b);
-
-        for (int i = 2; i < b.length && !result && i < maxIndex; i++ ) {
-            if (b[i - 2] == b[i - 1] && b[i - 1] == b[i]) {
-                result = true;
-            }
+    public int getDifficulty() {
+        return mDifficulty;
+    }
+
+    /**
+     * Let the computer player search its replies while the user thinks. The ponderer must
+     * search for the computer player of this game.
+     * @param ponderer the ponderer, null to search each move when the user has played
+     */
+    public void setPonderer(Ponderer ponderer) {
+        if (mPonderer != null) {
+            mPonderer.cancel();
+        }
+        mPonderer = ponderer;
+    }
+
+    /**
+     * Determine if the computer player is searching its next move in the background
+     */
+    public boolean isComputerThinking() {
+        return mPending != null;
+    }
+
+    /**
+     * Stop the search of the computer player in progress, if any. Its move is never given to
+     * the listener.
+     */
+    public void cancelComputerPlay() {
+        mGeneration++;
+        if (mPonderer != null) {
+            mPonderer.cancel();
+        }
+        if (mPending != null) {
+            mComputerPlayer.cancel();
+            mPending.cancel(true);
+            mPending = null;
         }
-        return result;
     }
 
     /**
-     * This function checks for all the player position and for each of them, determine which
-     * winning block it belongs to. For example, position 0, 1, 2 belongs to a winning block
-     * (representing the first row). Each position index value from the winning condition block are
-     * divided by three, resulting in a value for a block. When there is three values that
-     * represents the same block, the player is in a winning condition.
-     * @param wc the winning condition array
-     * @param p the player position
-     * @return true if the player is winning.
+     * Call the AI player to play the next move and send the result to the listener.
      */
-    private boolean isPlayerWinning(int[] wc, int[] p) {
-        boolean winner = false;
-        int blockIndex = 0;
-        int[] block = new int[20];
-        for (int i = 0; i < p.length && !winner; i++) {
-            for (int j = 0; j < wc.length && !winner; j++) {
-                if (p[i] == wc[j]) {
-                    block[blockIndex++] = j / 3;
-                    winner = hasThreeOccurences(block, blockIndex);
-                }
+    private void makeComputerPlay() {
+        mPondered = false;
+        if (mPonderer != null) {
+            int reply = mPonderer.getReply(mBoard);
+            // the other replies are not needed anymore, the search gets the whole processor
+            mPonderer.cancel();
+            if (reply >= 0 && isValidMove(reply)) {
+                mGeneration++;
+                mPondered = true;
+                mListener.computerPlayerMove(reply, mPlayersId[1]);
+                return;
+            }
+        }
+        if (mBackground == null) {
+            int move = mComputerPlayer.playMove(this);
+            if (isValidMove(move)) {
+                mListener.computerPlayerMove(move, mPlayersId[1]);
             }
+            return;
+        }
+
+        // the search changes the board while it runs, it gets its own copy
+        final Game snapshot = new Game(new Board(mBoard), mScore, mPlayers, null);
+        final int generation = ++mGeneration;
+        mListener.computerPlayerThinking();
+        mPending = mBackground.submit(new Runnable() {
+            @Override
+            public void run() {
+                final int move = mComputerPlayer.playMove(snapshot);
+                mCallback.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (generation != mGeneration) {
+                            return;
+                        }
+                        mPending = null;
+                        if (isValidMove(move)) {
+                            mListener.computerPlayerMove(move, mPlayersId[1]);
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Start searching the replies of the computer player to the possible moves of the user.
+     */
+    private void startPondering() {
+        if (mPonderer != null && !isGameOver()) {
+            mPonderer.start(mBoard, mPlayersId[0], mPlayersId[1]);
         }
-        return winner;
     }
 
     /**
@@ -272,5 +400,11 @@ public class Game {
          * @param i the player id
          */
         void computerPlayerMove(int box, int i);
+
+        /**
+         * Represents the computer player starting to search its move in the background. The
+         * move is given to computerPlayerMove later, unless the search is cancelled.
+         */
+        void computerPlayerThinking();
     }
 }
@@ -0,0 +1,85 @@
+package com.neilsonmarcil.tictactoe.game;
+
+/**
+ * A {@code Position} is an immutable snapshot of a board with the player to move. It is given to
+ * the search instead of the board being played, so that the game can go on while the position is
+ * searched, and several positions can be searched at the same time.
+ */
+public final class Position {
+
+    private final Board mBoard;
+    private final int mPlayer;
+    private final int mOpponent;
+
+    /**
+     * Create a new Position from the current state of a board. The board is copied, the position
+     * does not change when the board changes.
+     * @param b the board
+     * @param player the id of the player to move
+     * @param opponent the id of the other player
+     */
+    public Position(Board b, int player, int opponent) {
+        if (player == 0 || opponent == 0 || player == opponent) {
+            throw new IllegalArgumentException("Invalid players: " + player + ", " + opponent);
+        }
+        mBoard = new Board(b);
+        mPlayer = player;
+        mOpponent = opponent;
+    }
+
+    public BoardGeometry getGeometry() {
+        return mBoard.getGeometry();
+    }
+
+    /**
+     * Returns the id of the player to move
+     */
+    public int getPlayerToMove() {
+        return mPlayer;
+    }
+
+    /**
+     * Returns the id of the player that does not move
+     */
+    public int getOpponent() {
+        return mOpponent;
+    }
+
+    /**
+     * Get the value of a box of the position.
+     * @param index the box index
+     * @return the player id in the box, 0 if it is empty, -1 if the index is out of bound
+     */
+    public int getToken(int index) {
+        return mBoard.getToken(index);
+    }
+
+    /**
+     * Returns the number of empty boxes
+     */
+    public int getPossibleMovesCount() {
+        return mBoard.getPossibleMovesCount();
+    }
+
+    /**
+     * Determine if one of the players owns a complete winning line, the game is then over.
+     */
+    public boolean hasWinner() {
+        return mBoard.isWinning(mPlayer) || mBoard.isWinning(mOpponent);
+    }
+
+    /**
+     * Returns the Zobrist hash of the tokens of the position
+     */
+    public long getHash() {
+        return mBoard.getHash();
+    }
+
+    /**
+     * Copy the tokens of the position into a board of the same geometry, to search it.
+     * @param b the board that receives the tokens
+     */
+    public void copyTo(Board b) {
+        b.copyFrom(mBoard);
+    }
+}
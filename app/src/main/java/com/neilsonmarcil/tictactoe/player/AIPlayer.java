@@ -0,0 +1,49 @@
+package com.neilsonmarcil.tictactoe.player;
+
+import com.neilsonmarcil.tictactoe.game.Game;
+
+/**
+ * An {@code AIPlayer} is a player whose moves are chosen by the application. The {@code Game}
+ * asks it for a move each time it is its turn.
+ */
+public abstract class AIPlayer extends Player {
+
+    /**
+     * Constructor that takes the player id in parameter
+     * @param id a unique ID
+     */
+    public AIPlayer(int id) {
+        super(id);
+    }
+
+    /**
+     * Returns the next move that the AI wants to play. The {@code Game} instance gives the board
+     * to play on and the id of the opponent.
+     * @param g the current game being played
+     * @return the index of the box in which the AI wants to play.
+     */
+    public abstract int playMove(Game g);
+
+    /**
+     * Stop the search in progress as soon as possible, from any thread. The move returned by
+     * the stopped search is not meaningful.
+     */
+    public void cancel() {
+    }
+
+    /**
+     * Set the search budget of the player. The players that do not search a tree of moves
+     * ignore it.
+     * @param difficulty the budget, cannot be null
+     */
+    public void setDifficulty(Difficulty difficulty) {
+    }
+
+    /**
+     * Returns the statistics of the search of the last move, null when the player does not
+     * collect them.
+     */
+    public SearchStats getSearchStats() {
+        return null;
+    }
+}
@@ -10,21 +10,34 @@ import java.util.Random;
 
 /**
  * A {@code ComputerPlayer} is a AI player that competes against a human player (the user).
- * It uses the minimax algorithm to determine the best next move. The implementation makes
- * the computer player almost unbeatable.
+ * It uses the negamax algorithm with alpha-beta pruning to determine the best next move. The
+ * implementation makes the computer player almost unbeatable.<br/><br/>
+ *
+ * By default every move is searched until the end of the game. When a time budget is set, the
+ * search is iterative: it searches one move ahead, then two, and so on until the budget is
+ * spent, and plays the best move of the last search completed. The positions at the end of an
+ * incomplete search are scored by counting the lines still open for each player.<br/><br/>
+ *
+ * The search runs on the calling thread, or is split across several threads when a thread
+ * count greater than one is set.<br/><br/>
+ *
+ * On a single thread, {@code playMove} does not allocate once the buffers of the board geometry
+ * are allocated: the moves of each depth level are written in buffers kept by the search, which
+ * is reused from one move to the next, so the garbage collector does not run during the turn of
+ * the AI.<br/><br/>
+ *
+ * The search runs on a copy of the board of the game, the board being played is never changed.
+ * A ComputerPlayer searches one move at a time, the {@link SearchEngine} searches several
+ * positions at the same time.
  */
-public class ComputerPlayer extends Player implements Parcelable {
+public class ComputerPlayer extends AIPlayer implements Parcelable {
 
     /**
-     * Represents the default value that defines the worth of a game state.
+     * The search algorithms available. Both find a move of the same value, the principal
+     * variation search usually visits less nodes when the first move searched is the best one.
      */
-    private static final int DEFAULT_WIN_VALUE = 10;
-
-    /**
-     * The current state game. The algorithm needs to know from the game logic if a given state
-     * is a winning condition.
-     */
-    private Game mCurrentGame;
+    public static final int SEARCH_ALPHA_BETA = 0;
+    public static final int SEARCH_PRINCIPAL_VARIATION = 1;
 
     /**
      * Keep in memory the best move found so far during the decision tree.
@@ -41,110 +54,284 @@ public class ComputerPlayer extends Player implements Parcelable {
      */
     private int mPlayer2;
 
+    /**
+     * The search algorithm used by playMove
+     */
+    private int mSearchMode = SEARCH_ALPHA_BETA;
+
+    /**
+     * The time budget of a move in milliseconds, 0 when the search is not limited
+     */
+    private long mTimeBudget;
+
+    /**
+     * The depth, nodes and noise of the search, perfect by default
+     */
+    private Difficulty mDifficulty = Difficulty.PERFECT;
+
+    /**
+     * The positions already searched. The table is kept between moves and games so the
+     * positions searched for a move are not searched again for the next one.
+     */
+    private TranspositionTable mTable;
+
+    /**
+     * The search of the moves, with its copy of the board
+     */
+    private SearchContext mContext;
+
+    /**
+     * The solved positions. When a position is in the book, its best move is played without
+     * searching. Can be null, then every move is searched.
+     */
+    private MoveBook mMoveBook;
+
+    /**
+     * The solved 4x4 positions, played without searching when the board has their geometry.
+     * Can be null.
+     */
+    private Tablebase mTablebase;
+
+    /**
+     * The statistics of the last move, null when they are not collected
+     */
+    private SearchStats mStats;
+
+    /**
+     * Chooses the first move on an empty board
+     */
+    private Random mRandom = new Random();
+
     /**
      * The default constructor that takes the player id in parameter
      * @param id the player id
      */
     public ComputerPlayer(int id) {
+        this(id, new TranspositionTable());
+    }
+
+    /**
+     * Create a new ComputerPlayer that uses the specified transposition table.
+     * @param id the player id
+     * @param table the transposition table used by the search, cannot be null
+     */
+    public ComputerPlayer(int id, TranspositionTable table) {
         super(id);
+        if (table == null) {
+            throw new IllegalArgumentException("Transposition table cannot be null");
+        }
+        mTable = table;
+        mContext = new SearchContext(table);
     }
 
     /**
-     * Returns the next move that the AI wants to play. The {@code Game} instance is necessary for
-     * the algorithm to detect for any state if there is a winner or if the game is over.
+     * Returns the next move that the AI wants to play. The {@code Game} instance gives the board
+     * to play on and the id of the opponent.
      * @param g the current game being played
-     * @return an index from 0 to 8 inclusive representing the box in which the AI wants to play.
+     * @return the index of the box in which the AI wants to play.
      */
+    @Override
     public int playMove(Game g) {
+        search(g);
+        return mNextMove;
+    }
+
+    /**
+     * Search the next move that the AI wants to play. When a time budget is set, the search stops
+     * when the budget is spent.
+     * @param g the current game being played
+     * @return the move with the depth of the search that found it
+     */
+    public SearchResult searchMove(Game g) {
+        search(g);
+        return new SearchResult(mNextMove, mContext.getScore(), mContext.getDepth(),
+                getLastNodeCount());
+    }
+
+    /**
+     * Search the next move on a copy of the board and keep it in mNextMove. Nothing is allocated
+     * here, the results are kept by the context so that playMove does not need a SearchResult.
+     * @param g the current game being played
+     */
+    private void search(Game g) {
+        int generation = mContext.getGeneration();
         mPlayer1 = g.getPlayersId()[0];
         mPlayer2 = getId();
-        mCurrentGame = g;
-        playMoveRecursive(mCurrentGame.getBoard(), getId(), 0);
-        return mNextMove;
+
+        Board b = g.getBoard();
+        long start = mStats != null ? System.nanoTime() : 0;
+        mContext.getBoard(b.getGeometry()).copyFrom(b);
+        mContext.search(mPlayer2, mPlayer1, mSearchMode, mTimeBudget, mDifficulty, mMoveBook,
+                mTablebase, mRandom, generation);
+        mNextMove = mContext.getMove();
+        if (mStats != null) {
+            mContext.collectStats(mStats, System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public void cancel() {
+        mContext.cancel();
+    }
+
+    /**
+     * Set the time budget of a move. The search always completes a search of one move ahead,
+     * which is bounded by the number of possible moves, so a move is returned within a few
+     * milliseconds of the budget.
+     * @param millis the budget in milliseconds, 0 to search every move until the end of the game
+     */
+    public void setTimeBudget(long millis) {
+        if (millis < 0) {
+            throw new IllegalArgumentException("Time budget cannot be negative: " + millis);
+        }
+        mTimeBudget = millis;
+    }
+
+    /**
+     * Returns the time budget of a move in milliseconds, 0 when the search is not limited
+     */
+    public long getTimeBudget() {
+        return mTimeBudget;
     }
 
     /**
-     * This recursive method uses the minimax algorithm to find the best possible move for
-     * the current board state. It will always try to either win and block the player
-     * even if the game is already lost.<br/><br/>
-     *
-     * It uses a depth value for each recursive level to either put more or less value to
-     * specific decision tree. When the algorithm analyses the turn of the opponent, the best
-     * score will be the highest one. When it analyses his own turn, the best score will be the
-     * lowest one. After each passes, if the current move is the best, it is kept in memory
-     * until a new best score is calculated.<br/><br/>
-     *
-     * A slight optimisation has been done when the board is empty, in that case the algorithm will
-     * choose any box on the board to avoid the calculation of all the possible game output.<br/><br/>
-     *
-     * The Board object and its internal data structure are not copied to keep the memory footprint
-     * to the minimum. After every passes, the algorithm will undo the last move and the board
-     * will retain it's original state.
-     *
-     * @param b the board to use.
-     * @param pt the player turn
-     * @param depth the depth level
-     * @return the score based on the victory of the human player (+10) or not (-10). It is adjusted
-     * by the depth value.
-     */
-    private int playMoveRecursive(Board b, int pt, int depth) {
-        int bs = pt == mPlayer1 ? Integer.MIN_VALUE : Integer.MAX_VALUE;
-        int bm = Integer.MIN_VALUE;
-        int cs = 0;
-
-        int[] emptyBoard = b.getNextPossibleMoves();
-        if (emptyBoard.length == 9) {
-            mNextMove = chooseRandomBox();
-            return DEFAULT_WIN_VALUE;
+     * Set the budget of the search. The levels below the perfect one search less, they are
+     * weaker and cheaper. A time budget set with setTimeBudget also applies.
+     * @param difficulty the budget, cannot be null
+     */
+    @Override
+    public void setDifficulty(Difficulty difficulty) {
+        if (difficulty == null) {
+            throw new IllegalArgumentException("Difficulty cannot be null");
         }
+        mDifficulty = difficulty;
+    }
 
-        if (mCurrentGame.isGameOver()) {
-            bs = getScore(depth);
+    /**
+     * Returns the budget of the search
+     */
+    public Difficulty getDifficulty() {
+        return mDifficulty;
+    }
+
+    /**
+     * Set the number of threads of the search. With more than one thread, the search is split
+     * across a ForkJoinPool, which needs Android API 21. The chosen move has the same score
+     * whatever the number of threads. The search uses one thread by default: the parallel search
+     * has not been measured faster yet, see ParallelSearchBenchmark.
+     * @param threads the number of threads, 1 to search on the calling thread only
+     */
+    public void setThreadCount(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Thread count must be at least 1: " + threads);
         }
-        else {
-            depth++;
-            int[] possibleMove = b.getNextPossibleMoves();
-
-            for (int i = 0; i < possibleMove.length; i++) {
-                int moveTo = possibleMove[i];
-                b.addToken(moveTo, pt);
-
-                if (pt == mPlayer1) {
-                    cs = playMoveRecursive(b, mPlayer2, depth);
-                    if (cs > bs) {
-                        bs = cs;
-                        bm = moveTo;
-                    }
-                }
-                else {
-                    cs = playMoveRecursive(b, mPlayer1, depth);
-                    if (cs < bs) {
-                        bs = cs;
-                        bm = moveTo;
-                    }
-                }
-                // removing the move from the board
-                b.addToken(moveTo, 0);
-                mNextMove = bm;
-            }
+        if (threads == getThreadCount()) {
+            return;
         }
-        return bs;
+        if (mContext.getParallel() != null) {
+            mContext.getParallel().shutdown();
+        }
+        mContext.setParallel(threads > 1 ? new ParallelSearch(threads) : null);
+    }
+
+    /**
+     * Returns the number of threads of the search
+     */
+    public int getThreadCount() {
+        ParallelSearch parallel = mContext.getParallel();
+        return parallel == null ? 1 : parallel.getThreadCount();
+    }
+
+    /**
+     * Set the seed of the random first move on an empty board, so that the games are
+     * reproducible. Every other move is chosen by the search.
+     */
+    public void setSeed(long seed) {
+        mRandom = new Random(seed);
     }
 
-    private int getScore(int depth) {
-        int winner = mCurrentGame.determineWinner();
-        if (winner == mPlayer1) {
-            return DEFAULT_WIN_VALUE - depth;
+    /**
+     * Collect the statistics of each move, read with getSearchStats. When they are disabled, the
+     * search only updates a few counters.
+     * @param enabled true to collect the statistics
+     */
+    public void setStatsEnabled(boolean enabled) {
+        if (!enabled) {
+            mStats = null;
         }
-        else if (winner == mPlayer2) {
-            return depth - DEFAULT_WIN_VALUE;
+        else if (mStats == null) {
+            mStats = new SearchStats();
         }
-        return 0;
     }
 
-    private int chooseRandomBox() {
-        Random r = new Random(System.currentTimeMillis());
-        return r.nextInt(9);
+    /**
+     * Returns the statistics of the last move, null if they are not collected
+     */
+    @Override
+    public SearchStats getSearchStats() {
+        return mStats;
+    }
+
+    /**
+     * Set the book used to play the solved positions without searching.
+     * @param book the book, or null to search every move
+     */
+    public void setMoveBook(MoveBook book) {
+        mMoveBook = book;
+    }
+
+    /**
+     * Returns the book used to play the solved positions, null if there is none.
+     */
+    public MoveBook getMoveBook() {
+        return mMoveBook;
+    }
+
+    /**
+     * Set the tablebase used to play the 4x4 positions without searching.
+     * @param tablebase the tablebase, or null to search every move
+     */
+    public void setTablebase(Tablebase tablebase) {
+        mTablebase = tablebase;
+    }
+
+    /**
+     * Returns the tablebase used to play the 4x4 positions, null if there is none.
+     */
+    public Tablebase getTablebase() {
+        return mTablebase;
+    }
+
+    /**
+     * Set the search algorithm used by playMove.
+     * @param mode either SEARCH_ALPHA_BETA or SEARCH_PRINCIPAL_VARIATION
+     */
+    public void setSearchMode(int mode) {
+        if (mode != SEARCH_ALPHA_BETA && mode != SEARCH_PRINCIPAL_VARIATION) {
+            throw new IllegalArgumentException("Unknown search mode: " + mode);
+        }
+        mSearchMode = mode;
+    }
+
+    /**
+     * Returns the search algorithm used by playMove
+     */
+    public int getSearchMode() {
+        return mSearchMode;
+    }
+
+    /**
+     * Returns the transposition table used by the search
+     */
+    public TranspositionTable getTranspositionTable() {
+        return mTable;
+    }
+
+    /**
+     * Returns the number of nodes (board states) visited by the last call to playMove.
+     */
+    public long getLastNodeCount() {
+        return mContext.getNodeCount();
     }
 
     /**
@@ -175,6 +362,8 @@ public class ComputerPlayer extends Player implements Parcelable {
 
     private ComputerPlayer(Parcel in) {
         super(in.readInt());
+        mTable = new TranspositionTable();
+        mContext = new SearchContext(mTable);
         mNextMove = in.readInt();
         mPlayer1 = in.readInt();
         mPlayer2 = in.readInt();
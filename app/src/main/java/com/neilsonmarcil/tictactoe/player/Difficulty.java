@@ -0,0 +1,100 @@
+package com.neilsonmarcil.tictactoe.player;
+
+/**
+ * A {@code Difficulty} is the search budget of a level of the {@link ComputerPlayer}: how many
+ * moves ahead it looks, how many nodes it can visit and how much noise is added to the score of
+ * the positions where it stops looking. The easy levels are weaker because they search less,
+ * so they also cost less processor time and battery.<br/><br/>
+ *
+ * The search of a limited level deepens one move at a time until the depth limit. The node
+ * budget is checked from the second depth, so a move is always chosen by a complete search of
+ * one move ahead: a win in one move is always played and a loss in one move always blocked.
+ * The book and the tablebase play perfectly, they are only used by the perfect level.
+ */
+public final class Difficulty {
+
+    /**
+     * The levels, from the cheapest to the strongest
+     */
+    public static final int LEVEL_EASY = 0;
+    public static final int LEVEL_MEDIUM = 1;
+    public static final int LEVEL_HARD = 2;
+    public static final int LEVEL_PERFECT = 3;
+
+    private static final Difficulty[] LEVELS = new Difficulty[] {
+            new Difficulty(LEVEL_EASY, 1, 0, 12),
+            new Difficulty(LEVEL_MEDIUM, 2, 1000, 4),
+            new Difficulty(LEVEL_HARD, 4, 10000, 0),
+            new Difficulty(LEVEL_PERFECT, 0, 0, 0)
+    };
+
+    /**
+     * The level searched until the end of the game
+     */
+    public static final Difficulty PERFECT = LEVELS[LEVEL_PERFECT];
+
+    private final int mLevel;
+    private final int mDepthLimit;
+    private final long mNodeBudget;
+    private final int mNoise;
+
+    private Difficulty(int level, int depthLimit, long nodeBudget, int noise) {
+        mLevel = level;
+        mDepthLimit = depthLimit;
+        mNodeBudget = nodeBudget;
+        mNoise = noise;
+    }
+
+    /**
+     * Returns the budget of a level.
+     * @param level one of the LEVEL constants
+     */
+    public static Difficulty get(int level) {
+        if (level < LEVEL_EASY || level > LEVEL_PERFECT) {
+            throw new IllegalArgumentException("Unknown difficulty level: " + level);
+        }
+        return LEVELS[level];
+    }
+
+    public int getLevel() {
+        return mLevel;
+    }
+
+    /**
+     * Returns the number of moves searched ahead, 0 when the search goes until the end of the
+     * game
+     */
+    public int getDepthLimit() {
+        return mDepthLimit;
+    }
+
+    /**
+     * Returns the number of nodes a move can visit after the first depth, 0 when it is not
+     * limited
+     */
+    public long getNodeBudget() {
+        return mNodeBudget;
+    }
+
+    /**
+     * Returns the largest value added to or removed from the score of a position at the depth
+     * limit. The positions scored by counting the open lines are worth up to
+     * Searcher.MAX_EVALUATION, a win or a loss is never changed by the noise.
+     */
+    public int getEvaluationNoise() {
+        return mNoise;
+    }
+
+    /**
+     * Returns true if the search of this level does not always go until the end of the game
+     */
+    public boolean isLimited() {
+        return mDepthLimit > 0 || mNodeBudget > 0;
+    }
+
+    @Override
+    public String toString() {
+        return "level " + mLevel + ": depth " + mDepthLimit + ", nodes " + mNodeBudget
+                + ", noise " + mNoise;
+    }
+}
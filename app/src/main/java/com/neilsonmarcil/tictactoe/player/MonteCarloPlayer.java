@@ -0,0 +1,487 @@
+package com.neilsonmarcil.tictactoe.player;
+
+import com.neilsonmarcil.tictactoe.game.Board;
+import com.neilsonmarcil.tictactoe.game.Game;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * A {@code MonteCarloPlayer} is a AI player that uses the Monte Carlo Tree Search with the UCT
+ * selection to choose its moves. Instead of searching every move until the end of the game like
+ * the {@link ComputerPlayer}, it plays many random games (playouts) from the current position and
+ * grows a tree toward the moves that win the most often. It plays on any board size, including
+ * the boards where a full search is not possible.<br/><br/>
+ *
+ * The tree is stored in primitive arrays allocated once with a fixed number of nodes. The
+ * children of a node are stored next to each other, so a node only needs the index of its first
+ * child and the number of children. When the arrays are full, the tree stops growing and the
+ * playouts start from its leaves.<br/><br/>
+ *
+ * The search plays a number of playouts or stops when its time budget is spent. With more than
+ * one thread, each thread grows its own tree from the same position (root parallelization) and
+ * the visits of the root moves are added together to choose the move.
+ */
+public class MonteCarloPlayer extends AIPlayer {
+
+    /**
+     * The default number of playouts of a move
+     */
+    public static final int DEFAULT_PLAYOUTS = 20000;
+
+    /**
+     * The default number of nodes of a tree
+     */
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+
+    /**
+     * The weight of the exploration in the UCT formula, the theoretical value is the square root
+     * of 2
+     */
+    private static final float EXPLORATION = 1.41f;
+
+    /**
+     * The number of playouts between two checks of the time budget, minus one
+     */
+    private static final int TIME_CHECK_INTERVAL = 0x3F;
+
+    /**
+     * The result of a playout for the player that moved into a node, counted in half points so a
+     * draw is worth half a win
+     */
+    private static final int WIN = 2;
+    private static final int DRAW = 1;
+
+    private int mPlayouts = DEFAULT_PLAYOUTS;
+    private long mTimeBudget;
+    private long mSeed = System.nanoTime();
+    private final int mCapacity;
+
+    /**
+     * One tree per thread, the first one is grown by the calling thread
+     */
+    private Tree[] mTrees;
+    private ExecutorService mExecutor;
+
+    /**
+     * The statistics of the last search
+     */
+    private long mLastPlayouts;
+    private long mLastElapsed;
+
+    /**
+     * Create a new MonteCarloPlayer with trees of the default capacity
+     * @param id the player id
+     */
+    public MonteCarloPlayer(int id) {
+        this(id, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Create a new MonteCarloPlayer
+     * @param id the player id
+     * @param capacity the number of nodes of a tree, the arrays of the tree are allocated once
+     */
+    public MonteCarloPlayer(int id, int capacity) {
+        super(id);
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Tree capacity must be at least 1: " + capacity);
+        }
+        mCapacity = capacity;
+        mTrees = new Tree[] { new Tree(capacity) };
+    }
+
+    /**
+     * Set the number of playouts of a move, shared between the threads. A move needs either
+     * playouts or a time budget.
+     * @param playouts the number of playouts, 0 to only stop when the time budget is spent
+     */
+    public void setPlayouts(int playouts) {
+        if (playouts < 0) {
+            throw new IllegalArgumentException("Playouts cannot be negative: " + playouts);
+        }
+        mPlayouts = playouts;
+    }
+
+    public int getPlayouts() {
+        return mPlayouts;
+    }
+
+    /**
+     * Set the time budget of a move. The search stops when either the playouts or the time
+     * budget is spent. A move needs either playouts or a time budget.
+     * @param millis the budget in milliseconds, 0 to only stop when the playouts are done
+     */
+    public void setTimeBudget(long millis) {
+        if (millis < 0) {
+            throw new IllegalArgumentException("Time budget cannot be negative: " + millis);
+        }
+        mTimeBudget = millis;
+    }
+
+    public long getTimeBudget() {
+        return mTimeBudget;
+    }
+
+    /**
+     * Set the seed of the random playouts. With one thread, the same seed and the same playouts
+     * budget always choose the same move.
+     */
+    public void setSeed(long seed) {
+        mSeed = seed;
+    }
+
+    /**
+     * Set the number of threads of the search, each one grows its own tree.
+     * @param threads the number of threads, 1 to search on the calling thread only
+     */
+    public void setThreadCount(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Thread count must be at least 1: " + threads);
+        }
+        if (threads == mTrees.length) {
+            return;
+        }
+        if (mExecutor != null) {
+            mExecutor.shutdown();
+            mExecutor = null;
+        }
+        Tree[] trees = new Tree[threads];
+        for (int i = 0; i < threads; i++) {
+            trees[i] = i < mTrees.length ? mTrees[i] : new Tree(mCapacity);
+        }
+        mTrees = trees;
+        if (threads > 1) {
+            mExecutor = Executors.newFixedThreadPool(threads - 1, new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "MonteCarloPlayer");
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+        }
+    }
+
+    public int getThreadCount() {
+        return mTrees.length;
+    }
+
+    /**
+     * Returns the number of playouts of the last move, for all the threads
+     */
+    public long getLastPlayoutCount() {
+        return mLastPlayouts;
+    }
+
+    /**
+     * Returns the number of playouts per second of the last move, for all the threads
+     */
+    public double getPlayoutsPerSecond() {
+        return mLastElapsed == 0 ? 0 : mLastPlayouts * 1e9 / mLastElapsed;
+    }
+
+    @Override
+    public void cancel() {
+        for (Tree tree : mTrees) {
+            tree.mCancelled = true;
+        }
+    }
+
+    @Override
+    public int playMove(Game g) {
+        if (mPlayouts == 0 && mTimeBudget == 0) {
+            throw new IllegalStateException("A move needs either playouts or a time budget");
+        }
+        final int opponent = g.getPlayersId()[0];
+        final int player = getId();
+        final Board b = g.getBoard();
+        // the flags are cleared before the trees are handed to the threads, so that a cancel
+        // received before a thread starts its playouts still stops it
+        for (Tree tree : mTrees) {
+            tree.mCancelled = false;
+        }
+        long start = System.nanoTime();
+        mLastPlayouts = 0;
+        mLastElapsed = 0;
+
+        // a move that wins or blocks the only winning move of the opponent needs no playout
+        int move = b.getWinningMove(player);
+        if (move < 0) {
+            move = b.getWinningMove(opponent);
+        }
+        if (move >= 0 || b.getPossibleMovesCount() <= 1) {
+            return move >= 0 ? move : b.getNextPossibleMoves()[0];
+        }
+
+        final long deadline = mTimeBudget > 0 ? start + mTimeBudget * 1000000L : 0;
+        // a thread with no playout would run until the deadline, there are no more threads than
+        // playouts
+        final int threads = mPlayouts > 0 ? Math.min(mTrees.length, mPlayouts) : mTrees.length;
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 1; t < threads; t++) {
+            final Tree tree = mTrees[t];
+            final int playouts = share(t, threads);
+            final long seed = mSeed + t;
+            final Board copy = new Board(b);
+            futures.add(mExecutor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    tree.search(copy, player, opponent, playouts, deadline, seed);
+                }
+            }));
+        }
+        mTrees[0].search(b, player, opponent, share(0, threads), deadline, mSeed);
+        for (Future<?> f : futures) {
+            try {
+                f.get();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            catch (ExecutionException e) {
+                throw new IllegalStateException("Playouts failed", e.getCause());
+            }
+        }
+        mSeed = mSeed * 0x5DEECE66DL + 0xBL;
+
+        // the most visited move is the most reliable one
+        int[] visits = new int[b.getCellCount()];
+        for (int t = 0; t < threads; t++) {
+            mTrees[t].addRootVisits(visits);
+            mLastPlayouts += mTrees[t].mPlayoutCount;
+        }
+        int best = -1;
+        for (int i = 0; i < visits.length; i++) {
+            if (b.getToken(i) == 0 && (best < 0 || visits[i] > visits[best])) {
+                best = i;
+            }
+        }
+        mLastElapsed = System.nanoTime() - start;
+        return best;
+    }
+
+    /**
+     * Returns the playouts budget of a thread
+     */
+    private int share(int thread, int threads) {
+        return mPlayouts / threads + (thread < mPlayouts % threads ? 1 : 0);
+    }
+
+    /**
+     * The search tree of one thread. Node 0 is the root, the node fields are stored in parallel
+     * arrays.
+     */
+    private static final class Tree {
+
+        /**
+         * The box played to reach the node
+         */
+        private final int[] mMove;
+
+        /**
+         * The index of the first child, -1 when the node is not expanded
+         */
+        private final int[] mFirstChild;
+        private final int[] mChildCount;
+
+        /**
+         * The number of playouts through the node and their result, in half points, for the
+         * player that moved into the node
+         */
+        private final int[] mVisits;
+        private final int[] mScore;
+
+        private int mSize;
+        private long mPlayoutCount;
+        private long mRandom;
+        private volatile boolean mCancelled;
+
+        /**
+         * The nodes and the moves from the root to the current node, the empty boxes of a
+         * playout
+         */
+        private int[] mPath = new int[0];
+        private int[] mPlayed = new int[0];
+        private int[] mEmpty = new int[0];
+
+        Tree(int capacity) {
+            mMove = new int[capacity];
+            mFirstChild = new int[capacity];
+            mChildCount = new int[capacity];
+            mVisits = new int[capacity];
+            mScore = new int[capacity];
+        }
+
+        /**
+         * Play the playouts from the position of the board, which is restored after each one.
+         */
+        void search(Board b, int player, int opponent, int playouts, long deadline, long seed) {
+            int cells = b.getCellCount();
+            if (mPath.length < cells + 1) {
+                mPath = new int[cells + 1];
+                mPlayed = new int[cells];
+                mEmpty = new int[cells];
+            }
+            mRandom = seed == 0 ? 1 : seed;
+            mSize = 1;
+            mFirstChild[0] = -1;
+            mChildCount[0] = 0;
+            mVisits[0] = 0;
+            mScore[0] = 0;
+            mPlayoutCount = 0;
+
+            while (playouts == 0 || mPlayoutCount < playouts) {
+                if ((mPlayoutCount & TIME_CHECK_INTERVAL) == 0 && (mCancelled
+                        || (deadline != 0 && System.nanoTime() - deadline >= 0))) {
+                    break;
+                }
+                playout(b, player, opponent);
+                mPlayoutCount++;
+            }
+        }
+
+        /**
+         * Select a path in the tree with UCT, expand its last node, finish the game with random
+         * moves and add the result to the nodes of the path.
+         */
+        private void playout(Board b, int player, int opponent) {
+            int node = 0;
+            int depth = 0;
+            int played = 0;
+            int toMove = player;
+            int winner = -1;
+            mPath[0] = 0;
+
+            while (true) {
+                if (mFirstChild[node] < 0 && (node == 0 || mVisits[node] > 0)) {
+                    expand(node, b);
+                }
+                if (mFirstChild[node] < 0) {
+                    break;
+                }
+                node = select(node);
+                int move = mMove[node];
+                b.addToken(move, toMove);
+                mPlayed[played++] = move;
+                mPath[++depth] = node;
+                if (b.isWinningMove(move)) {
+                    winner = toMove;
+                    break;
+                }
+                if (mChildCount[mPath[depth - 1]] == 1) {
+                    winner = 0;
+                    break;
+                }
+                toMove = toMove == player ? opponent : player;
+            }
+
+            if (winner < 0) {
+                int count = b.getNextPossibleMoves(mEmpty);
+                winner = 0;
+                while (count > 0) {
+                    int i = nextInt(count);
+                    int move = mEmpty[i];
+                    mEmpty[i] = mEmpty[--count];
+                    b.addToken(move, toMove);
+                    mPlayed[played++] = move;
+                    if (b.isWinningMove(move)) {
+                        winner = toMove;
+                        break;
+                    }
+                    toMove = toMove == player ? opponent : player;
+                }
+            }
+
+            // the player that moved into a node at an odd depth is the player of the root
+            for (int d = depth; d >= 0; d--) {
+                int n = mPath[d];
+                mVisits[n]++;
+                if (winner == 0) {
+                    mScore[n] += DRAW;
+                }
+                else if ((winner == player) == ((d & 1) == 1)) {
+                    mScore[n] += WIN;
+                }
+            }
+            while (played > 0) {
+                b.addToken(mPlayed[--played], 0);
+            }
+        }
+
+        /**
+         * Add the children of a node, one per empty box, if the tree has room for them.
+         */
+        private void expand(int node, Board b) {
+            int count = b.getPossibleMovesCount();
+            if (count == 0 || mSize + count > mMove.length) {
+                return;
+            }
+            int first = mSize;
+            b.getNextPossibleMoves(mEmpty);
+            for (int i = 0; i < count; i++) {
+                int child = first + i;
+                mMove[child] = mEmpty[i];
+                mFirstChild[child] = -1;
+                mChildCount[child] = 0;
+                mVisits[child] = 0;
+                mScore[child] = 0;
+            }
+            mSize += count;
+            mFirstChild[node] = first;
+            mChildCount[node] = count;
+        }
+
+        /**
+         * Returns the child with the best UCT value, a child never visited is selected first.
+         */
+        private int select(int node) {
+            int first = mFirstChild[node];
+            int end = first + mChildCount[node];
+            float logVisits = (float)Math.log(mVisits[node]);
+            int best = first;
+            float bestValue = -1;
+            for (int c = first; c < end; c++) {
+                int visits = mVisits[c];
+                if (visits == 0) {
+                    return c;
+                }
+                float value = mScore[c] / (2f * visits)
+                        + EXPLORATION * (float)Math.sqrt(logVisits / visits);
+                if (value > bestValue) {
+                    bestValue = value;
+                    best = c;
+                }
+            }
+            return best;
+        }
+
+        /**
+         * Add the visits of the root children to the visits of their box
+         */
+        void addRootVisits(int[] visits) {
+            int first = mFirstChild[0];
+            for (int c = first; first >= 0 && c < first + mChildCount[0]; c++) {
+                visits[mMove[c]] += mVisits[c];
+            }
+        }
+
+        /**
+         * Returns a random number between 0 and bound - 1 with a xorshift generator, which is
+         * much faster than java.util.Random and is not shared between the threads.
+         */
+        private int nextInt(int bound) {
+            long x = mRandom;
+            x ^= x << 13;
+            x ^= x >>> 7;
+            x ^= x << 17;
+            mRandom = x;
+            return (int)(((x >>> 33) * bound) >>> 31);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.neilsonmarcil.tictactoe.player;
+
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+
+/**
+ * A {@code MoveBook} holds the solved value and the best moves of every 3x3 position. It is
+ * generated at build time and read from a {@code ByteBuffer}, usually memory mapped from the
+ * application assets, so the AI can play a perfect move without searching.<br/><br/>
+ *
+ * The book is made of a header followed by one entry per position. A position is indexed in
+ * base 3 from the point of view of the player that has to play: the box {@code i} is the digit
+ * {@code i} and is 0 when empty, 1 when it holds a token of the player to move and 2 when it
+ * holds a token of the opponent. Each entry is a 16 bits value where the bits 0 to 8 are the
+ * mask of the best moves and the bits 9 to 15 are the signed score of the position. Positions
+ * that are not reachable or already over have an entry of 0.
+ */
+public class MoveBook {
+
+    /**
+     * The name of the book in the application assets
+     */
+    public static final String ASSET_NAME = "movebook.bin";
+
+    /**
+     * Header: magic number, version, number of entries and CRC32 of the entries.
+     */
+    public static final int MAGIC = 0x54545442;
+    public static final int VERSION = 1;
+    public static final int HEADER_SIZE = 16;
+
+    /**
+     * The number of entries, one for each combination of the 9 boxes
+     */
+    public static final int ENTRY_COUNT = 19683;
+
+    /**
+     * Layout of an entry
+     */
+    public static final int MOVES_MASK = 0x1FF;
+    public static final int SCORE_SHIFT = 9;
+
+    /**
+     * The value of each digit of the base 3 index, indexed by box
+     */
+    private static final int[] POWERS_OF_THREE = new int[] { 1, 3, 9, 27, 81, 243, 729, 2187, 6561 };
+
+    /**
+     * The entries of the book, positioned after the header
+     */
+    private final ByteBuffer mEntries;
+
+    /**
+     * Create a new MoveBook from the content of a book file. The header and the checksum of the
+     * entries are validated before the book can be used.
+     * @param buffer the content of the book, from its current position
+     * @throws IllegalArgumentException when the header is not valid or the checksum does not match
+     */
+    public MoveBook(ByteBuffer buffer) {
+        ByteBuffer b = buffer.duplicate();
+        if (b.remaining() != HEADER_SIZE + ENTRY_COUNT * 2) {
+            throw new IllegalArgumentException("Invalid move book size: " + b.remaining());
+        }
+        int magic = b.getInt();
+        int version = b.getInt();
+        int count = b.getInt();
+        int checksum = b.getInt();
+        if (magic != MAGIC || version != VERSION || count != ENTRY_COUNT) {
+            throw new IllegalArgumentException("Invalid move book header");
+        }
+
+        mEntries = b.slice();
+        if (checksum(mEntries.duplicate()) != checksum) {
+            throw new IllegalArgumentException("Move book checksum does not match");
+        }
+    }
+
+    /**
+     * Returns the mask of the best moves for the player to move.
+     * @param player the mask of the boxes of the player to move
+     * @param opponent the mask of the boxes of the opponent
+     * @return the mask of the boxes that are a best move, 0 if the position is not in the book
+     */
+    public int getBestMoves(int player, int opponent) {
+        return getEntry(player, opponent) & MOVES_MASK;
+    }
+
+    /**
+     * Returns the score of the position for the player to move, a win in {@code n} moves is
+     * worth {@code 10 - n}, a loss {@code n - 10} and a draw 0.
+     * @param player the mask of the boxes of the player to move
+     * @param opponent the mask of the boxes of the opponent
+     * @return the score of the position, 0 if the position is not in the book
+     */
+    public int getScore(int player, int opponent) {
+        return getEntry(player, opponent) >> SCORE_SHIFT;
+    }
+
+    /**
+     * Returns the raw 16 bits entry of the position.
+     */
+    public int getEntry(int player, int opponent) {
+        return mEntries.getShort(index(player, opponent) * 2);
+    }
+
+    /**
+     * Returns the base 3 index of a position.
+     * @param player the mask of the boxes of the player to move
+     * @param opponent the mask of the boxes of the opponent
+     * @return the index of the position, from 0 to ENTRY_COUNT - 1
+     */
+    public static int index(int player, int opponent) {
+        int index = 0;
+        for (int i = 0; i < POWERS_OF_THREE.length; i++) {
+            if ((player & 1 << i) != 0) {
+                index += POWERS_OF_THREE[i];
+            }
+            else if ((opponent & 1 << i) != 0) {
+                index += 2 * POWERS_OF_THREE[i];
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Compute the CRC32 of the remaining bytes of the buffer.
+     */
+    public static int checksum(ByteBuffer b) {
+        CRC32 crc = new CRC32();
+        byte[] chunk = new byte[4096];
+        while (b.hasRemaining()) {
+            int length = Math.min(chunk.length, b.remaining());
+            b.get(chunk, 0, length);
+            crc.update(chunk, 0, length);
+        }
+        return (int)crc.getValue();
+    }
+}
@@ -0,0 +1,343 @@
+package com.neilsonmarcil.tictactoe.player;
+
+import android.annotation.TargetApi;
+
+import com.neilsonmarcil.tictactoe.game.Board;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@code ParallelSearch} splits the search of the {@link ComputerPlayer} across the threads of
+ * a {@link ForkJoinPool}, with the Young Brothers Wait scheme: a node with a deep enough subtree
+ * searches its first move alone, then searches the other moves in parallel, each one on a copy
+ * of the board kept by the Searcher of the task. The best score of a split is kept in an {@code AtomicLong}, so the threads raise it
+ * without locking and the moves searched later get a narrower window.<br/><br/>
+ *
+ * The threads share the transposition table. The score of a search does not depend on the
+ * number of threads, and at the root the first move with the best score is kept, which is the
+ * move of the single-threaded search.<br/><br/>
+ *
+ * A node is split when the depth left to search below it is large enough, so the split depth
+ * follows the horizon of the search and the number of empty boxes rather than the distance from
+ * the root: the tasks are large enough to pay for themselves on every board size, and the larger
+ * boards are split deeper, with more tasks to share between the threads.<br/><br/>
+ *
+ * The ForkJoinPool is available on Android from API 21. The parallel search is only used when a
+ * thread count is set.
+ */
+@TargetApi(21)
+final class ParallelSearch {
+
+    /**
+     * The nodes with less depth left to search than this value are searched by one thread, their
+     * subtree is smaller than the cost of a task
+     */
+    private static final int MIN_SPLIT_DRAFT = 8;
+
+    /**
+     * The minimum number of moves of a node below the root that is split, the smaller nodes
+     * are not worth the cost of a task
+     */
+    private static final int MIN_SPLIT_MOVES = 4;
+
+    private final ForkJoinPool mPool;
+
+    /**
+     * The Searchers that are not used by a task, each task takes one and gives it back
+     */
+    private final ConcurrentLinkedQueue<Searcher> mSearchers = new ConcurrentLinkedQueue<>();
+
+    /**
+     * The number of nodes visited by the tasks since the start of the search
+     */
+    private final AtomicLong mNodeCount = new AtomicLong();
+
+    /**
+     * The statistics of the tasks since the start of the search, see the Searcher counters
+     */
+    private final AtomicLong mTableHits = new AtomicLong();
+    private final AtomicLong mCutoffs = new AtomicLong();
+    private final AtomicInteger mMaxDepth = new AtomicInteger();
+
+    /**
+     * The Searcher of the thread that started the search, its settings are given to the tasks
+     */
+    private Searcher mMain;
+
+    /**
+     * Set when the time budget of the search is spent
+     */
+    private volatile boolean mTimeout;
+
+    /**
+     * Create a new ParallelSearch
+     * @param threads the number of threads, at least 2
+     */
+    ParallelSearch(int threads) {
+        mPool = new ForkJoinPool(threads);
+    }
+
+    int getThreadCount() {
+        return mPool.getParallelism();
+    }
+
+    /**
+     * Start a new search.
+     * @param main the Searcher of the thread that searches the root
+     */
+    void start(Searcher main) {
+        mMain = main;
+        mTimeout = false;
+        mNodeCount.set(0);
+        mTableHits.set(0);
+        mCutoffs.set(0);
+        mMaxDepth.set(0);
+    }
+
+    /**
+     * Returns the number of nodes visited by the tasks since the start of the search
+     */
+    long getNodeCount() {
+        return mNodeCount.get();
+    }
+
+    long getTableHits() {
+        return mTableHits.get();
+    }
+
+    long getCutoffs() {
+        return mCutoffs.get();
+    }
+
+    int getMaxDepth() {
+        return mMaxDepth.get();
+    }
+
+    /**
+     * Add the counters of a Searcher that completed a task
+     */
+    private void addCounts(Searcher s) {
+        mNodeCount.addAndGet(s.getNodeCount());
+        mTableHits.addAndGet(s.getTableHits());
+        mCutoffs.addAndGet(s.getCutoffs());
+        int depth = s.getMaxDepth();
+        int max = mMaxDepth.get();
+        while (depth > max && !mMaxDepth.compareAndSet(max, depth)) {
+            max = mMaxDepth.get();
+        }
+    }
+
+    void timeout() {
+        mTimeout = true;
+    }
+
+    boolean isTimeout() {
+        return mTimeout;
+    }
+
+    /**
+     * Stop the threads of the pool
+     */
+    void shutdown() {
+        mPool.shutdown();
+    }
+
+    /**
+     * Determine if a node below the root is split.
+     * @param draft the depth left to search below the node, see the Searcher horizon
+     * @param count the number of moves of the node
+     */
+    boolean canSplit(int draft, int count) {
+        return draft >= MIN_SPLIT_DRAFT && count >= MIN_SPLIT_MOVES;
+    }
+
+    /**
+     * Search all the moves of a node except the first one in parallel. When the split is done,
+     * the parent Searcher is aborted if the search was stopped.
+     * @param parent the Searcher of the node
+     * @param b the board of the node, it is not changed until the split is done
+     * @param moves the moves of the node, the first one is already searched
+     * @param count the number of moves
+     * @param pt the player turn
+     * @param opponent the player that played the last move
+     * @param depth the depth of the node
+     * @param alpha the best score of the node after its first move
+     * @param beta the score the opponent is already assured of
+     * @param first 0 if the first move is the best one so far, -1 if it is not better than alpha
+     * @return the split, with the best score and the index of the best move
+     */
+    Split split(Searcher parent, Board b, int[] moves, int count, int pt, int opponent, int depth,
+                int alpha, int beta, int first) {
+        final Split split = new Split(parent.getSplit(), alpha, beta, first, depth == 0);
+        final SearchTask[] tasks = new SearchTask[count - 1];
+        for (int i = 1; i < count; i++) {
+            tasks[i - 1] = new SearchTask(split, b, moves[i], i, pt, opponent, depth);
+        }
+
+        if (ForkJoinTask.getPool() == mPool) {
+            ForkJoinTask.invokeAll(tasks);
+        }
+        else {
+            mPool.invoke(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    invokeAll(tasks);
+                }
+            });
+        }
+
+        if (mTimeout || (split.mParent != null && split.mParent.isStopped())) {
+            parent.abort();
+        }
+        return split;
+    }
+
+    private Searcher acquire() {
+        Searcher s = mSearchers.poll();
+        if (s == null) {
+            s = new Searcher(mMain.getTable());
+        }
+        s.copySettings(mMain);
+        return s;
+    }
+
+    /**
+     * The search of one move of a split, on the copy of the board of its Searcher
+     */
+    private final class SearchTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Split mSplit;
+        private final Board mBoard;
+        private final int mMove;
+        private final int mIndex;
+        private final int mPlayer;
+        private final int mOpponent;
+        private final int mDepth;
+
+        SearchTask(Split split, Board b, int move, int index, int pt, int opponent, int depth) {
+            mSplit = split;
+            mBoard = b;
+            mMove = move;
+            mIndex = index;
+            mPlayer = pt;
+            mOpponent = opponent;
+            mDepth = depth;
+        }
+
+        @Override
+        protected void compute() {
+            if (mSplit.isStopped() || mTimeout || mMain.isCancelled()) {
+                return;
+            }
+            Searcher s = acquire();
+            // a task may visit less nodes than the interval between two checks of the time
+            // budget, so it is checked before the task starts
+            if (s.isPastDeadline()) {
+                mTimeout = true;
+                mSearchers.offer(s);
+                return;
+            }
+            s.setSplit(mSplit);
+            Board b = s.copyBoard(mBoard);
+            b.addToken(mMove, mPlayer);
+            int alpha = mSplit.getScore();
+            int cs = s.searchChild(b, mOpponent, mPlayer, mMove, mDepth + 1, alpha, mSplit.mBeta,
+                    false);
+
+            // at the root, a move that is not better than a best move found after it may be as
+            // good, it is searched again to keep the first best move
+            if (mSplit.mTies && !s.isAborted() && cs == alpha && mSplit.getScore() == alpha
+                    && mIndex < mSplit.getIndex()) {
+                if (s.searchChild(b, mOpponent, mPlayer, mMove, mDepth + 1, alpha - 1, alpha,
+                        true) >= alpha) {
+                    cs = alpha;
+                }
+                else {
+                    cs = alpha - 1;
+                }
+            }
+            boolean aborted = s.isAborted();
+            addCounts(s);
+            s.setSplit(null);
+            mSearchers.offer(s);
+
+            if (!aborted) {
+                mSplit.update(cs, mIndex);
+            }
+        }
+    }
+
+    /**
+     * The moves of a node searched in parallel. The best score and the index of its move are
+     * packed in a long, the score in the high bits, so that the greatest value is the best move
+     * and, between moves of the same score, the first one.
+     */
+    static final class Split {
+
+        private final Split mParent;
+        private final int mBeta;
+        private final boolean mTies;
+        private final AtomicLong mBest;
+        private volatile boolean mStopped;
+
+        Split(Split parent, int alpha, int beta, int index, boolean ties) {
+            mParent = parent;
+            mBeta = beta;
+            mTies = ties;
+            mBest = new AtomicLong(pack(alpha, index));
+        }
+
+        /**
+         * Keep the score of a move if it is the best one, or as good as the best one with a
+         * lower index. The other moves are stopped when the
+         * score is enough to cut the node.
+         */
+        void update(int score, int index) {
+            long value = pack(score, index);
+            long current = mBest.get();
+            while (value > current && !mBest.compareAndSet(current, value)) {
+                current = mBest.get();
+            }
+            if (score >= mBeta) {
+                mStopped = true;
+            }
+        }
+
+        /**
+         * Returns true if the split or one of its parents does not need the result of its moves
+         * anymore
+         */
+        boolean isStopped() {
+            for (Split s = this; s != null; s = s.mParent) {
+                if (s.mStopped) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        int getScore() {
+            return (int)(mBest.get() >> 32);
+        }
+
+        /**
+         * Returns the index of the best move, -1 if no move is better than the first alpha
+         */
+        int getIndex() {
+            int order = (int)mBest.get();
+            return order == 0 ? -1 : Integer.MAX_VALUE - order;
+        }
+
+        private static long pack(int score, int index) {
+            int order = index < 0 ? 0 : Integer.MAX_VALUE - index;
+            return (long)score << 32 | order;
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.neilsonmarcil.tictactoe.player;
+
+/**
+ * A {@code PonderPolicy} tells the {@link Ponderer} whether the device can spend energy on the
+ * replies that may never be played. It is asked before each reply is searched, so pondering
+ * stops as soon as the device conditions change.
+ */
+public interface PonderPolicy {
+
+    /**
+     * Returns true if the replies can be searched now. Called on the pondering thread.
+     */
+    boolean canPonder();
+}
@@ -0,0 +1,226 @@
+package com.neilsonmarcil.tictactoe.player;
+
+import com.neilsonmarcil.tictactoe.game.Board;
+import com.neilsonmarcil.tictactoe.game.Position;
+
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * A {@code Ponderer} searches the replies of the {@link ComputerPlayer} while the human player
+ * thinks. When the human has to play, it searches the position after each of the possible
+ * moves, on a background thread of low priority, and keeps the reply to each of them. When the
+ * human plays a move whose reply is ready, the computer player plays it without searching.<br/><br/>
+ *
+ * The replies are searched with the settings and the transposition table of the computer
+ * player, so they are the moves it would have found, and the positions searched stay in the
+ * table for the moves that were not pondered. Pondering stops when it is cancelled, when the
+ * human plays, or when the {@link PonderPolicy} does not allow it anymore.
+ */
+public class Ponderer {
+
+    private final ComputerPlayer mPlayer;
+
+    /**
+     * The search of the replies, only used by the pondering thread
+     */
+    private final SearchContext mContext;
+    private final Random mRandom = new Random();
+
+    private final ExecutorService mExecutor;
+
+    private volatile PonderPolicy mPolicy;
+
+    /**
+     * The replies of the turn being pondered, null when there is none. Only changed on the
+     * thread of the game.
+     */
+    private Turn mTurn;
+    private Future<?> mPending;
+
+    /**
+     * Create a new Ponderer for a computer player.
+     * @param player the computer player, its settings are read before each reply is searched
+     */
+    public Ponderer(ComputerPlayer player) {
+        if (player == null) {
+            throw new IllegalArgumentException("Computer player cannot be null");
+        }
+        mPlayer = player;
+        mContext = new SearchContext(player.getTranspositionTable());
+        mExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "Ponderer");
+                t.setDaemon(true);
+                // the replies are a bonus, the user interface comes first
+                t.setPriority(Thread.MIN_PRIORITY);
+                return t;
+            }
+        });
+    }
+
+    /**
+     * Set the policy that allows pondering.
+     * @param policy the policy, or null to always ponder
+     */
+    public void setPolicy(PonderPolicy policy) {
+        mPolicy = policy;
+    }
+
+    /**
+     * Start searching the replies to the possible moves of the human player. The pondering of
+     * the previous turn is cancelled. The board is copied, it can change during the pondering.
+     * @param b the board, with the human player to move
+     * @param human the id of the human player
+     * @param computer the id of the computer player
+     */
+    public void start(Board b, int human, int computer) {
+        cancel();
+        PonderPolicy policy = mPolicy;
+        if (policy != null && !policy.canPonder()) {
+            return;
+        }
+        int[] moves = b.getNextPossibleMoves();
+        Position[] positions = new Position[moves.length];
+        Board copy = new Board(b);
+        int count = 0;
+        for (int move : moves) {
+            copy.addToken(move, human);
+            // a move that ends the game has no reply
+            if (!copy.isWinningMove(move) && !copy.isFull()) {
+                positions[count] = new Position(copy, computer, human);
+                count++;
+            }
+            copy.addToken(move, 0);
+        }
+        if (count == 0) {
+            return;
+        }
+        // the turn is stopped by the next cancel, even if its searches have not started yet
+        final Turn turn = new Turn(positions, count, mContext.getGeneration());
+        mTurn = turn;
+        mPending = mExecutor.submit(new Runnable() {
+            @Override
+            public void run() {
+                ponder(turn);
+            }
+        });
+    }
+
+    /**
+     * Returns the reply to the last move of the human player, if it was pondered.
+     * @param b the board, after the move of the human player
+     * @return the reply, -1 if it is not ready
+     */
+    public int getReply(Board b) {
+        Turn turn = mTurn;
+        if (turn == null) {
+            return -1;
+        }
+        for (int i = 0; i < turn.mCount; i++) {
+            Position p = turn.mPositions[i];
+            if (p.getHash() == b.getHash() && p.getGeometry() == b.getGeometry() && sameTokens(p, b)) {
+                return turn.mReplies.get(i);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the number of replies ready for the turn being pondered
+     */
+    public int getReadyCount() {
+        Turn turn = mTurn;
+        if (turn == null) {
+            return 0;
+        }
+        int ready = 0;
+        for (int i = 0; i < turn.mCount; i++) {
+            if (turn.mReplies.get(i) >= 0) {
+                ready++;
+            }
+        }
+        return ready;
+    }
+
+    /**
+     * Stop the pondering in progress and forget its replies.
+     */
+    public void cancel() {
+        Turn turn = mTurn;
+        if (turn != null) {
+            turn.mCancelled = true;
+            mContext.cancel();
+            mPending.cancel(false);
+            mTurn = null;
+            mPending = null;
+        }
+    }
+
+    /**
+     * Stop the pondering and its thread, the Ponderer cannot be used after.
+     */
+    public void shutdown() {
+        cancel();
+        mExecutor.shutdown();
+    }
+
+    /**
+     * Search the replies one after the other, until they are all ready or the turn is over.
+     * Called on the pondering thread.
+     */
+    private void ponder(Turn turn) {
+        for (int i = 0; i < turn.mCount; i++) {
+            PonderPolicy policy = mPolicy;
+            if (turn.mCancelled || (policy != null && !policy.canPonder())) {
+                return;
+            }
+            Position p = turn.mPositions[i];
+            p.copyTo(mContext.getBoard(p.getGeometry()));
+            mContext.search(p.getPlayerToMove(), p.getOpponent(), mPlayer.getSearchMode(),
+                    mPlayer.getTimeBudget(), mPlayer.getDifficulty(), mPlayer.getMoveBook(),
+                    mPlayer.getTablebase(), mRandom, turn.mGeneration);
+            // the move of a cancelled search is not meaningful
+            if (turn.mCancelled) {
+                return;
+            }
+            turn.mReplies.set(i, mContext.getMove());
+        }
+    }
+
+    private static boolean sameTokens(Position p, Board b) {
+        for (int i = 0; i < b.getCellCount(); i++) {
+            if (p.getToken(i) != b.getToken(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The positions after each move of the human player and their replies, -1 until they are
+     * searched
+     */
+    private static final class Turn {
+        private final Position[] mPositions;
+        private final int mCount;
+        private final AtomicIntegerArray mReplies;
+        private final int mGeneration;
+        private volatile boolean mCancelled;
+
+        Turn(Position[] positions, int count, int generation) {
+            mPositions = positions;
+            mCount = count;
+            mGeneration = generation;
+            mReplies = new AtomicIntegerArray(count);
+            for (int i = 0; i < count; i++) {
+                mReplies.set(i, -1);
+            }
+        }
+    }
+}
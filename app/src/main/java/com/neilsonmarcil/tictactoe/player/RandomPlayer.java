@@ -0,0 +1,36 @@
+package com.neilsonmarcil.tictactoe.player;
+
+import com.neilsonmarcil.tictactoe.game.Board;
+import com.neilsonmarcil.tictactoe.game.Game;
+
+import java.util.Random;
+
+/**
+ * A {@code RandomPlayer} is a AI player that plays in any empty box. It is the weakest opponent
+ * and is used to test the other players.
+ */
+public class RandomPlayer extends AIPlayer {
+
+    private final Random mRandom;
+    private int[] mMoves = new int[0];
+
+    /**
+     * Create a new RandomPlayer
+     * @param id the player id
+     * @param seed the seed of the moves, the same seed plays the same moves in the same positions
+     */
+    public RandomPlayer(int id, long seed) {
+        super(id);
+        mRandom = new Random(seed);
+    }
+
+    @Override
+    public int playMove(Game g) {
+        Board b = g.getBoard();
+        if (mMoves.length < b.getCellCount()) {
+            mMoves = new int[b.getCellCount()];
+        }
+        int count = b.getNextPossibleMoves(mMoves);
+        return count == 0 ? -1 : mMoves[mRandom.nextInt(count)];
+    }
+}
@@ -0,0 +1,378 @@
+package com.neilsonmarcil.tictactoe.player;
+
+import com.neilsonmarcil.tictactoe.game.Board;
+import com.neilsonmarcil.tictactoe.game.BoardGeometry;
+
+import java.util.Random;
+
+/**
+ * A {@code SearchContext} searches the move of one position at a time, on its own working copy
+ * of the board. It holds everything that a search changes, so two searches that run at the same
+ * time with their own context only share the transposition table, and the board being played is
+ * never changed by the search.<br/><br/>
+ *
+ * A context is kept and reused by its owner: the {@link ComputerPlayer} has one, the
+ * {@link SearchEngine} keeps a pool of them. Once its buffers are allocated for a geometry, a
+ * search does not allocate.
+ */
+final class SearchContext {
+
+    private final Searcher mSearcher;
+
+    /**
+     * The copy of the position that is searched
+     */
+    private Board mBoard;
+
+    /**
+     * The threads the search is split across, null when it runs on the calling thread only
+     */
+    private ParallelSearch mParallel;
+
+    /**
+     * The player to move and the other player of the position searched
+     */
+    private int mPlayer;
+    private int mOpponent;
+
+    /**
+     * The score of the best move found by the last root search
+     */
+    private int mRootScore;
+
+    /**
+     * The move chosen by the last search, its score and the depth of the search that found it
+     */
+    private int mMove;
+    private int mScore;
+    private int mDepth;
+
+    /**
+     * The symmetries that leave the root position unchanged, reused by every search
+     */
+    private final int[] mSymmetries = new int[8];
+
+    /**
+     * Create a new SearchContext
+     * @param table the transposition table used by the search
+     */
+    SearchContext(TranspositionTable table) {
+        mSearcher = new Searcher(table);
+    }
+
+    void setParallel(ParallelSearch parallel) {
+        mParallel = parallel;
+    }
+
+    ParallelSearch getParallel() {
+        return mParallel;
+    }
+
+    /**
+     * Returns the working board, where the position to search is copied before the search.
+     * @param geometry the geometry of the position
+     */
+    Board getBoard(BoardGeometry geometry) {
+        if (mBoard == null || mBoard.getGeometry() != geometry) {
+            mBoard = new Board(geometry);
+        }
+        return mBoard;
+    }
+
+    /**
+     * Search the move of the player to move in the working board: the first move of an empty
+     * board is random, the positions of the book and of the tablebase are not searched at the
+     * perfect level.
+     * @param player the player to move
+     * @param opponent the other player
+     * @param mode the search algorithm, one of the ComputerPlayer SEARCH constants
+     * @param timeBudget the time budget in milliseconds, 0 to search until the end of the game
+     * @param difficulty the depth, nodes and noise of the search
+     * @param book the solved 3x3 positions, can be null
+     * @param tablebase the solved 4x4 positions, can be null
+     * @param random chooses the first move of an empty board and the noise of the evaluation
+     * @param generation the value of getGeneration when the search was requested
+     */
+    void search(int player, int opponent, int mode, long timeBudget, Difficulty difficulty,
+                MoveBook book, Tablebase tablebase, Random random, int generation) {
+        Board b = mBoard;
+        mPlayer = player;
+        mOpponent = opponent;
+        int remaining = b.getPossibleMovesCount();
+        boolean limited = difficulty.isLimited();
+        mSearcher.prepare(b.getGeometry(), mPlayer, mode, timeBudget > 0 || limited, generation);
+        mSearcher.setParallel(mParallel);
+        if (mParallel != null) {
+            mParallel.start(mSearcher);
+        }
+        if (remaining == b.getCellCount()) {
+            mSearcher.countNode();
+            mMove = random.nextInt(b.getCellCount());
+            mScore = 0;
+            mDepth = 0;
+            return;
+        }
+        if (limited) {
+            mSearcher.setNoise(difficulty.getEvaluationNoise(), random.nextLong());
+            searchIterative(b, timeBudget, difficulty.getDepthLimit(), difficulty.getNodeBudget());
+            return;
+        }
+        if (playBookMove(b, book)) {
+            mScore = book.getScore(b.getPlayerMask(mPlayer), b.getPlayerMask(mOpponent));
+            mDepth = remaining;
+            return;
+        }
+        if (playTablebaseMove(b, tablebase)) {
+            mDepth = remaining;
+            return;
+        }
+        if (timeBudget > 0) {
+            searchIterative(b, timeBudget, 0, 0);
+            return;
+        }
+        int[] moves = mSearcher.getMoveBuffer(0);
+        int count = pruneSymmetricMoves(b, moves, b.getNextPossibleMoves(moves));
+        mSearcher.countNode();
+        // a cancelled search may not have searched any move
+        mMove = moves[Math.max(searchRoot(b, moves, count), 0)];
+        mScore = mRootScore;
+        mDepth = remaining;
+    }
+
+    int getMove() {
+        return mMove;
+    }
+
+    int getScore() {
+        return mScore;
+    }
+
+    int getDepth() {
+        return mDepth;
+    }
+
+    /**
+     * Returns the number of nodes (board states) visited by the last search
+     */
+    long getNodeCount() {
+        return mSearcher.getNodeCount() + (mParallel != null ? mParallel.getNodeCount() : 0);
+    }
+
+    /**
+     * Returns the generation of the searches requested from now on, a cancel stops them even if
+     * they have not started yet
+     */
+    int getGeneration() {
+        return mSearcher.getGeneration();
+    }
+
+    /**
+     * Stop the search in progress and the ones requested before, from any thread
+     */
+    void cancel() {
+        mSearcher.cancel();
+        ParallelSearch parallel = mParallel;
+        if (parallel != null) {
+            parallel.timeout();
+        }
+    }
+
+    /**
+     * Fill the statistics of the last search, with the counters of every thread and the
+     * principal variation found in the table.
+     * @param stats the statistics to fill
+     * @param elapsed the wall time of the search in nanoseconds
+     */
+    void collectStats(SearchStats stats, long elapsed) {
+        stats.setResult(mMove, mScore, mDepth, elapsed);
+        long hits = mSearcher.getTableHits();
+        long cutoffs = mSearcher.getCutoffs();
+        int maxDepth = mSearcher.getMaxDepth();
+        if (mParallel != null) {
+            hits += mParallel.getTableHits();
+            cutoffs += mParallel.getCutoffs();
+            maxDepth = Math.max(maxDepth, mParallel.getMaxDepth());
+        }
+        stats.setCounts(getNodeCount(), hits, cutoffs, maxDepth);
+        int[] pv = stats.getPrincipalVariationBuffer(mBoard.getCellCount());
+        stats.setPrincipalVariationLength(mSearcher.getPrincipalVariation(mBoard, mMove, mOpponent, pv));
+    }
+
+    /**
+     * Search the board one move ahead, then two, and so on until a budget is spent or the game
+     * is solved. The best move of the previous search is searched first, so a move that
+     * replaces it in an incomplete search is at least as good and can be played. The node budget
+     * only applies once the search of one move ahead is complete.
+     * @param b the board to use.
+     * @param timeBudget the time budget in milliseconds, 0 when the time is not limited
+     * @param depthLimit the deepest search, 0 to search until the end of the game
+     * @param nodeBudget the nodes visited by the whole search, 0 when they are not limited
+     */
+    private void searchIterative(Board b, long timeBudget, int depthLimit, long nodeBudget) {
+        long deadline = System.nanoTime() + timeBudget * 1000000L;
+        if (timeBudget > 0) {
+            mSearcher.setDeadline(deadline);
+        }
+        int[] moves = mSearcher.getMoveBuffer(0);
+        int count = pruneSymmetricMoves(b, moves, b.getNextPossibleMoves(moves));
+        int bestMove = moves[0];
+        int bestScore = 0;
+        int completed = 0;
+        int remaining = b.getPossibleMovesCount();
+        int lastHorizon = depthLimit > 0 ? Math.min(depthLimit, remaining) : remaining;
+
+        for (int horizon = 1; horizon <= lastHorizon; horizon++) {
+            mSearcher.setHorizon(horizon);
+            if (horizon == 2 && nodeBudget > 0) {
+                mSearcher.setNodeLimit(nodeBudget);
+            }
+            Searcher.moveToFront(moves, count, bestMove);
+            mSearcher.countNode();
+            int best = searchRoot(b, moves, count);
+
+            if (mSearcher.isAborted()) {
+                if (best >= 0) {
+                    bestMove = moves[best];
+                }
+                break;
+            }
+            bestMove = moves[best];
+            bestScore = mRootScore;
+            completed = horizon;
+
+            // a proven win found at this depth cannot be found sooner with a deeper search
+            if (bestScore > Searcher.MAX_EVALUATION || (timeBudget > 0 && System.nanoTime() - deadline >= 0)) {
+                break;
+            }
+        }
+
+        mMove = bestMove;
+        mScore = bestScore;
+        mDepth = completed;
+    }
+
+    /**
+     * Search the possible moves of the player to move and keep the first one with the best
+     * score. A move only replaces the best one when its score is strictly better, so the chosen
+     * move is the same one that a full minimax search would choose. The score of the best move
+     * is kept in mRootScore.
+     * @param b the board to use.
+     * @param moves the moves to search, in order
+     * @param count the number of moves
+     * @return the index of the best move, -1 if the search was stopped before the first move
+     * was searched
+     */
+    private int searchRoot(Board b, int[] moves, int count) {
+        int infinity = mSearcher.getInfinity();
+        int alpha = -infinity;
+        int best = -1;
+
+        for (int i = 0; i < count; i++) {
+            int moveTo = moves[i];
+            b.addToken(moveTo, mPlayer);
+            int cs = mSearcher.searchChild(b, mOpponent, mPlayer, moveTo, 1, alpha, infinity, i == 0);
+            b.addToken(moveTo, 0);
+            if (mSearcher.isAborted()) {
+                break;
+            }
+
+            if (cs > alpha) {
+                alpha = cs;
+                best = i;
+            }
+
+            // the other moves are searched in parallel once the first one is known
+            if (mParallel != null && count > 1) {
+                ParallelSearch.Split split = mParallel.split(mSearcher, b, moves, count, mPlayer,
+                        mOpponent, 0, alpha, infinity, best);
+                if (split.getIndex() >= 0) {
+                    alpha = split.getScore();
+                    best = split.getIndex();
+                }
+                break;
+            }
+        }
+        mRootScore = alpha;
+        return best;
+    }
+
+    /**
+     * Remove the moves that a symmetry of the position moves to a smaller box: the position
+     * after them is a rotation or a reflection of the position after the smaller move, so they
+     * have the same score. The moves are in increasing order, so the first move with the best
+     * score is kept and the chosen move does not change.
+     * @param b the board to use.
+     * @param moves the possible moves, in increasing order
+     * @param count the number of moves
+     * @return the number of moves kept, at the start of the array
+     */
+    private int pruneSymmetricMoves(Board b, int[] moves, int count) {
+        BoardGeometry geometry = b.getGeometry();
+        int[] symmetries = mSymmetries;
+        int symmetryCount = 0;
+        for (int t = 1; t < geometry.getSymmetryCount(); t++) {
+            if (b.isSymmetric(t)) {
+                symmetries[symmetryCount++] = t;
+            }
+        }
+        if (symmetryCount == 0) {
+            return count;
+        }
+        int kept = 0;
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            boolean smallest = true;
+            for (int s = 0; s < symmetryCount && smallest; s++) {
+                smallest = geometry.getSymmetricCell(symmetries[s], move) >= move;
+            }
+            if (smallest) {
+                moves[kept++] = move;
+            }
+        }
+        return kept;
+    }
+
+    /**
+     * Look for the position in the book and keep its first best move, which is the move the
+     * search would choose. The book only holds the classic 3x3 positions.
+     * @param b the board to use.
+     * @param book the book, can be null
+     * @return true if the position is in the book, otherwise false.
+     */
+    private boolean playBookMove(Board b, MoveBook book) {
+        if (book == null || b.getGeometry() != BoardGeometry.STANDARD) {
+            return false;
+        }
+        int moves = book.getBestMoves(b.getPlayerMask(mPlayer), b.getPlayerMask(mOpponent));
+        if (moves == 0) {
+            return false;
+        }
+        mMove = Integer.numberOfTrailingZeros(moves);
+        return true;
+    }
+
+    /**
+     * Look for the position in the tablebase and keep its first best move with its score, which
+     * are the move and the score the search would find.
+     * @param b the board to use.
+     * @param tablebase the tablebase, can be null
+     * @return true if the position is in the tablebase, otherwise false.
+     */
+    private boolean playTablebaseMove(Board b, Tablebase tablebase) {
+        if (tablebase == null || b.getGeometry() != tablebase.getGeometry()) {
+            return false;
+        }
+        int player = b.getPlayerMask(mPlayer);
+        int opponent = b.getPlayerMask(mOpponent);
+        int count = Integer.bitCount(player);
+        int opponentCount = Integer.bitCount(opponent);
+        if (opponentCount != count && opponentCount != count + 1) {
+            return false;
+        }
+        mMove = tablebase.getBestMove(player, opponent);
+        int value = tablebase.getValue(player, opponent);
+        int result = Tablebase.getResult(value);
+        mScore = result * (mSearcher.getWinValue() - Tablebase.getDistance(value));
+        return true;
+    }
+}
@@ -0,0 +1,139 @@
+package com.neilsonmarcil.tictactoe.player;
+
+import com.neilsonmarcil.tictactoe.game.Position;
+
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * A {@code SearchEngine} finds the best move of a {@link Position} with the same search as the
+ * {@link ComputerPlayer}. It is safe to use from several threads at the same time: each search
+ * takes a context of its own from a pool, with its own copy of the board, so one engine can
+ * serve many games and background analysis. Only the transposition table is shared, so what a
+ * search learns is used by the other ones.<br/><br/>
+ *
+ * The settings apply to the searches that start after they are set.
+ */
+public class SearchEngine {
+
+    private final TranspositionTable mTable;
+
+    /**
+     * The contexts not used by a search, each search takes one and gives it back
+     */
+    private final ConcurrentLinkedQueue<SearchContext> mContexts = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Chooses the first move on an empty board, Random can be used by several threads
+     */
+    private final Random mRandom = new Random();
+
+    private volatile int mSearchMode = ComputerPlayer.SEARCH_ALPHA_BETA;
+    private volatile long mTimeBudget;
+    private volatile Difficulty mDifficulty = Difficulty.PERFECT;
+    private volatile MoveBook mMoveBook;
+    private volatile Tablebase mTablebase;
+
+    /**
+     * Create a new SearchEngine with a table of the default size
+     */
+    public SearchEngine() {
+        this(new TranspositionTable());
+    }
+
+    /**
+     * Create a new SearchEngine
+     * @param table the transposition table shared by the searches, cannot be null
+     */
+    public SearchEngine(TranspositionTable table) {
+        if (table == null) {
+            throw new IllegalArgumentException("Transposition table cannot be null");
+        }
+        mTable = table;
+    }
+
+    /**
+     * Search the best move of the player to move. The position is not changed.
+     * @param position the position to search, the game must not be over
+     * @return the move with its score and the depth of the search that found it
+     */
+    public SearchResult search(Position position) {
+        if (position.getPossibleMovesCount() == 0) {
+            throw new IllegalArgumentException("Cannot search a full board");
+        }
+        if (position.hasWinner()) {
+            throw new IllegalArgumentException("Cannot search a position that is already won");
+        }
+        SearchContext context = mContexts.poll();
+        if (context == null) {
+            context = new SearchContext(mTable);
+        }
+        try {
+            int generation = context.getGeneration();
+            position.copyTo(context.getBoard(position.getGeometry()));
+            context.search(position.getPlayerToMove(), position.getOpponent(), mSearchMode,
+                    mTimeBudget, mDifficulty, mMoveBook, mTablebase, mRandom, generation);
+            return new SearchResult(context.getMove(), context.getScore(), context.getDepth(),
+                    context.getNodeCount());
+        }
+        finally {
+            mContexts.offer(context);
+        }
+    }
+
+    /**
+     * Set the search algorithm.
+     * @param mode either ComputerPlayer.SEARCH_ALPHA_BETA or SEARCH_PRINCIPAL_VARIATION
+     */
+    public void setSearchMode(int mode) {
+        if (mode != ComputerPlayer.SEARCH_ALPHA_BETA && mode != ComputerPlayer.SEARCH_PRINCIPAL_VARIATION) {
+            throw new IllegalArgumentException("Unknown search mode: " + mode);
+        }
+        mSearchMode = mode;
+    }
+
+    /**
+     * Set the time budget of a search.
+     * @param millis the budget in milliseconds, 0 to search until the end of the game
+     */
+    public void setTimeBudget(long millis) {
+        if (millis < 0) {
+            throw new IllegalArgumentException("Time budget cannot be negative: " + millis);
+        }
+        mTimeBudget = millis;
+    }
+
+    /**
+     * Set the budget of a search.
+     * @param difficulty the depth, nodes and noise of the search, cannot be null
+     */
+    public void setDifficulty(Difficulty difficulty) {
+        if (difficulty == null) {
+            throw new IllegalArgumentException("Difficulty cannot be null");
+        }
+        mDifficulty = difficulty;
+    }
+
+    /**
+     * Set the book used to play the solved positions without searching.
+     * @param book the book, or null to search every position
+     */
+    public void setMoveBook(MoveBook book) {
+        mMoveBook = book;
+    }
+
+    /**
+     * Set the tablebase used to play the 4x4 positions without searching.
+     * @param tablebase the tablebase, or null to search every position
+     */
+    public void setTablebase(Tablebase tablebase) {
+        mTablebase = tablebase;
+    }
+
+    /**
+     * Returns the transposition table shared by the searches
+     */
+    public TranspositionTable getTranspositionTable() {
+        return mTable;
+    }
+}
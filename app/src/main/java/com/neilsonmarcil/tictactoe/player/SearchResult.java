@@ -0,0 +1,60 @@
+package com.neilsonmarcil.tictactoe.player;
+
+/**
+ * A {@code SearchResult} holds the move chosen by the AI and how it was found.
+ */
+public class SearchResult {
+
+    private final int mMove;
+    private final int mScore;
+    private final int mDepth;
+    private final long mNodeCount;
+
+    /**
+     * Create a new SearchResult
+     * @param move the box chosen
+     * @param score the score of the move for the player that searched it
+     * @param depth the depth of the last complete search
+     * @param nodes the number of nodes visited
+     */
+    public SearchResult(int move, int score, int depth, long nodes) {
+        mMove = move;
+        mScore = score;
+        mDepth = depth;
+        mNodeCount = nodes;
+    }
+
+    /**
+     * Returns the box chosen
+     */
+    public int getMove() {
+        return mMove;
+    }
+
+    /**
+     * Returns the score of the move for the player that searched it
+     */
+    public int getScore() {
+        return mScore;
+    }
+
+    /**
+     * Returns the depth, in moves, of the last search that was completed before the move was
+     * chosen. It is 0 when the move was not searched.
+     */
+    public int getDepth() {
+        return mDepth;
+    }
+
+    /**
+     * Returns the number of nodes (board states) visited
+     */
+    public long getNodeCount() {
+        return mNodeCount;
+    }
+
+    @Override
+    public String toString() {
+        return "move " + mMove + ", score " + mScore + ", depth " + mDepth + ", nodes " + mNodeCount;
+    }
+}
@@ -0,0 +1,164 @@
+package com.neilsonmarcil.tictactoe.player;
+
+import java.util.Arrays;
+
+/**
+ * A {@code SearchStats} describes how the AI searched its last move: the number of nodes visited
+ * and how fast, how deep the search went, how often the transposition table and the cutoffs saved
+ * some work, and the sequence of moves the AI expects.<br/><br/>
+ *
+ * The same instance is filled again by each move, so collecting the statistics does not allocate
+ * once the buffer of the principal variation is large enough. It must only be read between two
+ * moves.
+ */
+public class SearchStats {
+
+    private int mMove;
+    private int mScore;
+    private int mDepth;
+    private int mMaxDepth;
+    private long mNodeCount;
+    private long mTableHits;
+    private long mCutoffs;
+    private long mElapsed;
+    private int[] mPrincipalVariation = new int[0];
+    private int mPrincipalVariationLength;
+
+    /**
+     * Returns the box chosen
+     */
+    public int getMove() {
+        return mMove;
+    }
+
+    /**
+     * Returns the score of the move for the player that searched it
+     */
+    public int getScore() {
+        return mScore;
+    }
+
+    /**
+     * Returns the depth, in moves, of the last search that was completed before the move was
+     * chosen
+     */
+    public int getDepth() {
+        return mDepth;
+    }
+
+    /**
+     * Returns the deepest level reached by the search, in moves from the position searched
+     */
+    public int getMaxDepth() {
+        return mMaxDepth;
+    }
+
+    /**
+     * Returns the number of nodes (board states) visited
+     */
+    public long getNodeCount() {
+        return mNodeCount;
+    }
+
+    /**
+     * Returns the number of nodes found in the transposition table
+     */
+    public long getTableHits() {
+        return mTableHits;
+    }
+
+    /**
+     * Returns the number of nodes where the search stopped before the last move because a move
+     * was good enough
+     */
+    public long getCutoffs() {
+        return mCutoffs;
+    }
+
+    /**
+     * Returns the wall time of the search in nanoseconds
+     */
+    public long getElapsedNanos() {
+        return mElapsed;
+    }
+
+    /**
+     * Returns the number of nodes visited per second of wall time
+     */
+    public long getNodesPerSecond() {
+        return mElapsed == 0 ? 0 : (long)(mNodeCount * 1e9 / mElapsed);
+    }
+
+    /**
+     * Returns the moves that the AI expects to be played from the position searched, starting
+     * with its own move, as found in the transposition table.
+     */
+    public int[] getPrincipalVariation() {
+        return Arrays.copyOf(mPrincipalVariation, mPrincipalVariationLength);
+    }
+
+    /**
+     * Returns the number of moves of the principal variation
+     */
+    public int getPrincipalVariationLength() {
+        return mPrincipalVariationLength;
+    }
+
+    /**
+     * Returns a move of the principal variation without copying it
+     * @param i the position of the move, from 0 to getPrincipalVariationLength() - 1
+     */
+    public int getPrincipalVariationMove(int i) {
+        if (i < 0 || i >= mPrincipalVariationLength) {
+            throw new IndexOutOfBoundsException("Invalid principal variation index: " + i);
+        }
+        return mPrincipalVariation[i];
+    }
+
+    void setResult(int move, int score, int depth, long elapsed) {
+        mMove = move;
+        mScore = score;
+        mDepth = depth;
+        mElapsed = elapsed;
+    }
+
+    void setCounts(long nodes, long tableHits, long cutoffs, int maxDepth) {
+        mNodeCount = nodes;
+        mTableHits = tableHits;
+        mCutoffs = cutoffs;
+        mMaxDepth = maxDepth;
+    }
+
+    /**
+     * Returns the buffer that receives the principal variation, with room for the given number
+     * of moves
+     */
+    int[] getPrincipalVariationBuffer(int size) {
+        if (mPrincipalVariation.length < size) {
+            mPrincipalVariation = new int[size];
+        }
+        return mPrincipalVariation;
+    }
+
+    void setPrincipalVariationLength(int length) {
+        mPrincipalVariationLength = length;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("move ").append(mMove)
+                .append(", score ").append(mScore)
+                .append(", depth ").append(mDepth).append('/').append(mMaxDepth)
+                .append(", nodes ").append(mNodeCount)
+                .append(" in ").append(mElapsed / 1000).append(" us (")
+                .append(getNodesPerSecond()).append(" nps)")
+                .append(", table hits ").append(mTableHits)
+                .append(", cutoffs ").append(mCutoffs)
+                .append(", pv");
+        for (int i = 0; i < mPrincipalVariationLength; i++) {
+            sb.append(' ').append(mPrincipalVariation[i]);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,686 @@
+package com.neilsonmarcil.tictactoe.player;
+
+import com.neilsonmarcil.tictactoe.game.Board;
+import com.neilsonmarcil.tictactoe.game.BoardGeometry;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A {@code Searcher} runs the negamax search of the {@link ComputerPlayer} on one thread. It
+ * holds the buffers and the counters of the search, so each thread that searches a part of the
+ * tree needs its own Searcher. The transposition table is shared by all of them.<br/><br/>
+ *
+ * The buffers are allocated when the geometry of the board changes and reused by every search
+ * after that, a node does not allocate anything.<br/><br/>
+ *
+ * The positions are stored in the table in their canonical form, so the rotations and
+ * reflections of a position share one entry. The move of an entry is a box of the canonical
+ * position, it is moved back to the board being searched when the entry is read.
+ */
+final class Searcher {
+
+    /**
+     * Represents the default value that defines the worth of a game state. On boards with more
+     * boxes, the worth of a win is the number of boxes plus one so that a win is always worth
+     * more than 0 whatever its depth.
+     */
+    static final int DEFAULT_WIN_VALUE = 10;
+
+    /**
+     * The maximum absolute score of a position scored by counting the open lines. When the search
+     * is limited, the worth of a win is raised by this value so that a win is always better than
+     * a scored position.
+     */
+    static final int MAX_EVALUATION = 1000;
+
+    /**
+     * Added to the board hash, multiplied by the id of the player to move: the same tokens on the
+     * board do not have the same score for both players.
+     */
+    private static final long SIDE_TO_MOVE_KEY = 0x2545F4914F6CDD1DL;
+
+    /**
+     * The number of nodes between two checks of the time budget, minus one
+     */
+    private static final int TIME_CHECK_INTERVAL = 0xFF;
+
+    private final TranspositionTable mTable;
+
+    /**
+     * The search algorithm, one of the ComputerPlayer SEARCH constants
+     */
+    private int mSearchMode = ComputerPlayer.SEARCH_ALPHA_BETA;
+
+    /**
+     * The computer player id, the player of the root of the search
+     */
+    private int mPlayer;
+
+    /**
+     * The worth of a win and a value greater than any score for the board being searched
+     */
+    private int mWinValue = DEFAULT_WIN_VALUE;
+    private int mInfinity = DEFAULT_WIN_VALUE + 1;
+
+    /**
+     * The geometry of the last board searched
+     */
+    private BoardGeometry mGeometry;
+
+    /**
+     * Added to the keys of the table, it depends on the geometry and on the worth of a win so
+     * that searches of different boards or budgets can share a table without reading the scores
+     * of each other
+     */
+    private long mKeySalt;
+
+    /**
+     * The depth after which the positions are scored instead of searched
+     */
+    private int mHorizon = Integer.MAX_VALUE;
+
+    /**
+     * The time at which a limited search must stop, from System.nanoTime, 0 when the search is
+     * not limited, and if the search was stopped
+     */
+    private long mDeadline;
+    private boolean mAborted;
+
+    /**
+     * The number of nodes after which the search stops, Long.MAX_VALUE when it is not limited
+     */
+    private long mNodeLimit = Long.MAX_VALUE;
+
+    /**
+     * The largest noise added to the score of a position, and the seed that chooses the noise of
+     * each position. The seed is also added to the keys of the table: the noisy scores of a
+     * search are only read by the same search.
+     */
+    private int mNoise;
+    private long mNoiseSeed;
+
+    /**
+     * Incremented by another thread to stop the searches started before, and the count when the
+     * search was requested. The search stops when they differ.
+     */
+    private final AtomicInteger mCancelCount = new AtomicInteger();
+    private int mGeneration;
+
+    /**
+     * The number of nodes visited since the last reset
+     */
+    private long mNodeCount;
+
+    /**
+     * The statistics of the search since the last reset: the nodes found in the table, the nodes
+     * cut before their last move and the deepest level reached. They cost a field update, like
+     * the node count, and are only read when the statistics are enabled.
+     */
+    private long mTableHits;
+    private long mCutoffs;
+    private int mMaxDepth;
+
+    /**
+     * One buffer of possible moves for each depth level, allocated once per geometry
+     */
+    private int[][] mMoveBuffers;
+
+    /**
+     * Buffers to count the open lines of both players when a position is scored
+     */
+    private int[] mOpenLines;
+    private int[] mOpponentOpenLines;
+
+    /**
+     * The parallel search that the nodes with a deep subtree are split with, null when the
+     * search runs on a single thread
+     */
+    private ParallelSearch mParallel;
+
+    /**
+     * The split this Searcher is working for, null when it searches from the root
+     */
+    private ParallelSearch.Split mSplit;
+
+    /**
+     * The board that the tasks of a parallel search copy their node into, reused by each task
+     * given to this Searcher
+     */
+    private Board mTaskBoard;
+
+    /**
+     * Create a new Searcher
+     * @param table the transposition table used by the search
+     */
+    Searcher(TranspositionTable table) {
+        mTable = table;
+    }
+
+    /**
+     * Set up a new search. The scores stored in the table are not comparable when the geometry
+     * or the worth of a win changes, the keys of the table change with them.
+     * @param geometry the shape of the board searched
+     * @param player the computer player id
+     * @param mode the search algorithm
+     * @param limited true if the search is limited by a time budget
+     * @param generation the value of getGeneration when the search was requested, the search
+     * is stopped if it was cancelled since, even before this call
+     */
+    void prepare(BoardGeometry geometry, int player, int mode, boolean limited, int generation) {
+        int cells = geometry.getCellCount();
+        int winValue = Math.max(DEFAULT_WIN_VALUE, cells + 1) + (limited ? MAX_EVALUATION : 0);
+        if (geometry != mGeometry || winValue != mWinValue) {
+            mWinValue = winValue;
+            mInfinity = mWinValue + 1;
+            mKeySalt = salt(geometry, winValue);
+        }
+        allocate(geometry);
+        mPlayer = player;
+        mSearchMode = mode;
+        mHorizon = Integer.MAX_VALUE;
+        mDeadline = 0;
+        mNodeLimit = Long.MAX_VALUE;
+        mNoise = 0;
+        mNoiseSeed = 0;
+        mGeneration = generation;
+        mAborted = isCancelled();
+        resetCounts();
+        mSplit = null;
+    }
+
+    /**
+     * Take the settings of the search from another Searcher, used by the threads that search a
+     * part of the same tree.
+     */
+    void copySettings(Searcher other) {
+        allocate(other.mGeometry);
+        mPlayer = other.mPlayer;
+        mSearchMode = other.mSearchMode;
+        mWinValue = other.mWinValue;
+        mInfinity = other.mInfinity;
+        mKeySalt = other.mKeySalt;
+        mHorizon = other.mHorizon;
+        mDeadline = other.mDeadline;
+        mNodeLimit = other.mNodeLimit;
+        mNoise = other.mNoise;
+        mNoiseSeed = other.mNoiseSeed;
+        mParallel = other.mParallel;
+        // the threads of a split are stopped through the ParallelSearch, never cancelled
+        mGeneration = mCancelCount.get();
+        mAborted = false;
+        resetCounts();
+        mSplit = null;
+    }
+
+    private void resetCounts() {
+        mNodeCount = 0;
+        mTableHits = 0;
+        mCutoffs = 0;
+        mMaxDepth = 0;
+    }
+
+    private void allocate(BoardGeometry geometry) {
+        if (geometry != mGeometry) {
+            int cells = geometry.getCellCount();
+            mGeometry = geometry;
+            mMoveBuffers = new int[cells + 1][cells];
+            mOpenLines = new int[geometry.getLength() + 1];
+            mOpponentOpenLines = new int[geometry.getLength() + 1];
+        }
+    }
+
+    TranspositionTable getTable() {
+        return mTable;
+    }
+
+    /**
+     * Copy a board into the board kept for the tasks of a parallel search, which is only
+     * allocated when the geometry changes.
+     * @param b the board of the node that is split
+     * @return the copy, valid until the next call
+     */
+    Board copyBoard(Board b) {
+        if (mTaskBoard == null || mTaskBoard.getGeometry() != b.getGeometry()) {
+            mTaskBoard = new Board(b);
+        }
+        else {
+            mTaskBoard.copyFrom(b);
+        }
+        return mTaskBoard;
+    }
+
+    int getWinValue() {
+        return mWinValue;
+    }
+
+    int getInfinity() {
+        return mInfinity;
+    }
+
+    long getNodeCount() {
+        return mNodeCount;
+    }
+
+    long getTableHits() {
+        return mTableHits;
+    }
+
+    long getCutoffs() {
+        return mCutoffs;
+    }
+
+    int getMaxDepth() {
+        return mMaxDepth;
+    }
+
+    /**
+     * Count a node searched by the caller, such as the root
+     */
+    void countNode() {
+        mNodeCount++;
+    }
+
+    /**
+     * Returns the buffer of possible moves of a depth level
+     */
+    int[] getMoveBuffer(int depth) {
+        return mMoveBuffers[depth];
+    }
+
+    void setHorizon(int horizon) {
+        mHorizon = horizon;
+    }
+
+    void setDeadline(long deadline) {
+        mDeadline = deadline;
+    }
+
+    /**
+     * Stop the search once it has visited a number of nodes, counted since prepare. Each thread
+     * of a parallel search counts its own nodes.
+     * @param limit the number of nodes, Long.MAX_VALUE to search without limit
+     */
+    void setNodeLimit(long limit) {
+        mNodeLimit = limit;
+    }
+
+    /**
+     * Add noise to the score of the positions at the horizon.
+     * @param noise the largest value added or removed, 0 for no noise
+     * @param seed chooses the noise of each position
+     */
+    void setNoise(int noise, long seed) {
+        mNoise = noise;
+        mNoiseSeed = noise > 0 ? seed : 0;
+    }
+
+    /**
+     * Returns true if the time budget of the search is spent
+     */
+    boolean isPastDeadline() {
+        return mDeadline != 0 && System.nanoTime() - mDeadline >= 0;
+    }
+
+    /**
+     * Returns true if the search was stopped before it completed, the scores returned since then
+     * must be ignored.
+     */
+    boolean isAborted() {
+        return mAborted;
+    }
+
+    /**
+     * Returns the generation to give to prepare, the searches prepared with it are stopped by
+     * the next cancel
+     */
+    int getGeneration() {
+        return mCancelCount.get();
+    }
+
+    /**
+     * Stop the search in progress and the ones prepared with an older generation, from another
+     * thread
+     */
+    void cancel() {
+        mCancelCount.incrementAndGet();
+    }
+
+    /**
+     * Returns true if the search was cancelled since it was requested
+     */
+    boolean isCancelled() {
+        return mCancelCount.get() != mGeneration;
+    }
+
+    /**
+     * Stop the search, used when a split searched by other threads was stopped
+     */
+    void abort() {
+        mAborted = true;
+    }
+
+    void setParallel(ParallelSearch parallel) {
+        mParallel = parallel;
+    }
+
+    void setSplit(ParallelSearch.Split split) {
+        mSplit = split;
+    }
+
+    ParallelSearch.Split getSplit() {
+        return mSplit;
+    }
+
+    /**
+     * Search a child node and returns its score from the point of view of the player that just
+     * moved. With the principal variation search, every move except the first one is searched
+     * with a null window first and searched again only when it may be better than alpha.
+     */
+    int searchChild(Board b, int pt, int opponent, int lastMove, int depth, int alpha, int beta,
+                    boolean first) {
+        if (mSearchMode == ComputerPlayer.SEARCH_PRINCIPAL_VARIATION && !first) {
+            int cs = -negamax(b, pt, opponent, lastMove, depth, -alpha - 1, -alpha);
+            if (cs > alpha && cs < beta) {
+                cs = -negamax(b, pt, opponent, lastMove, depth, -beta, -alpha);
+            }
+            return cs;
+        }
+        return -negamax(b, pt, opponent, lastMove, depth, -beta, -alpha);
+    }
+
+    /**
+     * This recursive method uses the negamax algorithm with alpha-beta pruning to find the score
+     * of the current board state. The score is always given from the point of view of the player
+     * that has to play: a win is worth {@code DEFAULT_WIN_VALUE - depth} and a loss
+     * {@code depth - DEFAULT_WIN_VALUE}, so a fast win or a slow loss is preferred.<br/><br/>
+     *
+     * The search stops looking at the remaining moves of a node as soon as one of them is good
+     * enough that the opponent would never let the game reach that node (the score is greater
+     * or equal than beta). A node where the player can win with his next move is scored right
+     * away, and a node where the opponent threatens to win only searches the blocking move.<br/><br/>
+     *
+     * The result of every node is kept in the transposition table. When a node is already in the
+     * table, its score is used directly if it is exact or if its bound is enough to cut the
+     * search, otherwise its best move is searched first.<br/><br/>
+     *
+     * The Board object and its internal data structure are not copied to keep the memory footprint
+     * to the minimum. After every passes, the algorithm will undo the last move and the board
+     * will retain it's original state. Only the nodes of a parallel search that are split give
+     * a copy of the board to the other threads.
+     *
+     * @param b the board to use.
+     * @param pt the player turn
+     * @param opponent the player that played the last move
+     * @param lastMove the box of the last move
+     * @param depth the depth level
+     * @param alpha the score the player to move is already assured of
+     * @param beta the score the opponent is already assured of
+     * @return the score of the board for the player turn
+     */
+    private int negamax(Board b, int pt, int opponent, int lastMove, int depth, int alpha, int beta) {
+        if ((++mNodeCount & TIME_CHECK_INTERVAL) == 0 || mNodeCount > mNodeLimit) {
+            checkStop();
+        }
+        if (mAborted) {
+            return 0;
+        }
+        if (depth > mMaxDepth) {
+            mMaxDepth = depth;
+        }
+
+        // only the last move can have completed a line
+        if (b.isWinningMove(lastMove)) {
+            return depth - mWinValue;
+        }
+        int remaining = b.getPossibleMovesCount();
+        if (remaining == 0) {
+            return 0;
+        }
+
+        // a player that can complete a line wins right away, nothing can score better
+        if (b.getWinningMove(pt) >= 0) {
+            return mWinValue - depth - 1;
+        }
+
+        // the position is scored when the search is limited and the depth is reached
+        if (depth >= mHorizon) {
+            return evaluate(b, pt, opponent);
+        }
+
+        int symmetry = b.getCanonicalSymmetry();
+        long key = getKey(b, pt, symmetry);
+        int draft = Math.min(remaining, mHorizon - depth);
+        int firstMove = TranspositionTable.NO_MOVE;
+        int entry = mTable.probe(key);
+        if (entry != 0) {
+            mTableHits++;
+        }
+        if (entry != 0 && TranspositionTable.getDepth(entry) >= draft) {
+            int score = fromTableScore(TranspositionTable.getScore(entry), depth);
+            int bound = TranspositionTable.getBound(entry);
+            if (bound == TranspositionTable.BOUND_EXACT
+                    || (bound == TranspositionTable.BOUND_LOWER && score >= beta)
+                    || (bound == TranspositionTable.BOUND_UPPER && score <= alpha)) {
+                return score;
+            }
+        }
+        if (entry != 0) {
+            firstMove = fromCanonicalMove(b, symmetry, TranspositionTable.getMove(entry));
+        }
+
+        // when the opponent threatens to complete a line, any other move loses immediately
+        int[] moves = mMoveBuffers[depth];
+        int count;
+        int threat = b.getWinningMove(opponent);
+        if (threat >= 0) {
+            moves[0] = threat;
+            count = 1;
+        }
+        else {
+            count = b.getNextPossibleMoves(moves);
+            moveToFront(moves, count, firstMove);
+        }
+
+        int alphaOrig = alpha;
+        int bestMove = TranspositionTable.NO_MOVE;
+        for (int i = 0; i < count; i++) {
+            int moveTo = moves[i];
+            b.addToken(moveTo, pt);
+            int cs = searchChild(b, opponent, pt, moveTo, depth + 1, alpha, beta, i == 0);
+            // removing the move from the board
+            b.addToken(moveTo, 0);
+            if (mAborted) {
+                return 0;
+            }
+
+            if (cs > alpha) {
+                alpha = cs;
+                bestMove = moveTo;
+                if (alpha >= beta) {
+                    mCutoffs++;
+                    break;
+                }
+            }
+
+            // Young Brothers Wait: once the first move is searched, the other ones are searched
+            // in parallel with its score as the lower bound
+            if (i == 0 && mParallel != null && mParallel.canSplit(draft, count)) {
+                ParallelSearch.Split split = mParallel.split(this, b, moves, count, pt, opponent,
+                        depth, alpha, beta, bestMove == moveTo ? 0 : -1);
+                if (mAborted) {
+                    return 0;
+                }
+                if (split.getIndex() >= 0) {
+                    alpha = split.getScore();
+                    bestMove = moves[split.getIndex()];
+                }
+                break;
+            }
+        }
+
+        int bound = alpha >= beta ? TranspositionTable.BOUND_LOWER
+                : alpha > alphaOrig ? TranspositionTable.BOUND_EXACT : TranspositionTable.BOUND_UPPER;
+        mTable.store(key, toTableScore(alpha, depth), bound, draft, toCanonicalMove(b, symmetry, bestMove));
+        return alpha;
+    }
+
+    /**
+     * Follow the best moves kept in the table from a position, which is the sequence of moves the
+     * search expects. It stops at the end of the game, or when a position is not in the table and
+     * the player to move cannot complete a line. The board is left as it was.
+     * @param b the board searched
+     * @param move the move chosen for the computer player
+     * @param opponent the other player id
+     * @param pv receives the moves, the sequence stops when it is full
+     * @return the number of moves written
+     */
+    int getPrincipalVariation(Board b, int move, int opponent, int[] pv) {
+        int length = 0;
+        int pt = mPlayer;
+        int other = opponent;
+        while (move >= 0 && move < b.getCellCount() && b.getToken(move) == 0 && length < pv.length) {
+            b.addToken(move, pt);
+            pv[length++] = move;
+            if (b.isWinningMove(move) || b.isFull()) {
+                break;
+            }
+            int next = other;
+            other = pt;
+            pt = next;
+            int symmetry = b.getCanonicalSymmetry();
+            int entry = mTable.probe(getKey(b, pt, symmetry));
+            // the nodes where a line can be completed are not kept in the table
+            move = entry != 0 ? fromCanonicalMove(b, symmetry, TranspositionTable.getMove(entry))
+                    : b.getWinningMove(pt);
+        }
+        for (int i = length - 1; i >= 0; i--) {
+            b.addToken(pv[i], 0);
+        }
+        return length;
+    }
+
+    /**
+     * Stop the search when the time or node budget is spent, when it was cancelled or when the split
+     * being searched is not needed anymore.
+     */
+    private void checkStop() {
+        if (isCancelled() || isPastDeadline() || mNodeCount > mNodeLimit) {
+            mAborted = true;
+            if (mParallel != null) {
+                mParallel.timeout();
+            }
+        }
+        else if (mSplit != null && (mSplit.isStopped() || mParallel.isTimeout())) {
+            mAborted = true;
+        }
+    }
+
+    /**
+     * Score a position that is not over from the point of view of the player to move. Each line
+     * still open for a player is worth more when it holds more of his tokens. The noise of a
+     * position only depends on its canonical form and the seed of the search, so the score of a
+     * position found twice, or of two symmetric positions, is the same.
+     */
+    private int evaluate(Board b, int pt, int opponent) {
+        b.countOpenLines(pt, mOpenLines);
+        b.countOpenLines(opponent, mOpponentOpenLines);
+        int score = 0;
+        for (int c = 1; c < mOpenLines.length; c++) {
+            int weight = 1 << Math.min(3 * (c - 1), 24);
+            score += weight * (mOpenLines[c] - mOpponentOpenLines[c]);
+        }
+        if (mNoise > 0) {
+            long z = getKey(b, pt, b.getCanonicalSymmetry()) * 0x9E3779B97F4A7C15L;
+            z ^= z >>> 32;
+            score += (int)((z & Integer.MAX_VALUE) % (2 * mNoise + 1)) - mNoise;
+        }
+        return Math.max(-MAX_EVALUATION, Math.min(MAX_EVALUATION, score));
+    }
+
+    /**
+     * Returns the key of a position in the table
+     * @param b the board
+     * @param pt the player to move
+     * @param symmetry the canonical symmetry of the board
+     */
+    private long getKey(Board b, int pt, int symmetry) {
+        return b.getSymmetricHash(symmetry) ^ pt * SIDE_TO_MOVE_KEY ^ mKeySalt ^ mNoiseSeed;
+    }
+
+    /**
+     * Returns the box of the canonical position where a move of the board is, the move stored
+     * in the table.
+     */
+    private static int toCanonicalMove(Board b, int symmetry, int move) {
+        if (move == TranspositionTable.NO_MOVE || symmetry == 0) {
+            return move;
+        }
+        return b.getGeometry().getSymmetricCell(symmetry, move);
+    }
+
+    /**
+     * Returns the box of the board where a move stored in the table for the canonical position
+     * is. A move that is not a box of the board, from an entry of another position with the
+     * same key, is returned as it is.
+     */
+    private static int fromCanonicalMove(Board b, int symmetry, int move) {
+        if (move >= b.getCellCount() || symmetry == 0) {
+            return move;
+        }
+        BoardGeometry geometry = b.getGeometry();
+        return geometry.getSymmetricCell(geometry.getInverseSymmetry(symmetry), move);
+    }
+
+    private static long salt(BoardGeometry geometry, int winValue) {
+        long z = ((long)geometry.getRows() << 48 | (long)geometry.getColumns() << 32
+                | (long)geometry.getLength() << 16) + winValue;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Move the box to the front of the list, the other boxes keep their order. Nothing is done
+     * if the box is not in the list.
+     */
+    static void moveToFront(int[] moves, int count, int move) {
+        for (int i = 0; i < count; i++) {
+            if (moves[i] == move) {
+                for (int j = i; j > 0; j--) {
+                    moves[j] = moves[j - 1];
+                }
+                moves[0] = move;
+                return;
+            }
+        }
+    }
+
+    /**
+     * The score of a win or a loss depends on the depth of the node, the table keeps it relative
+     * to the node instead so it can be used when the same position is found at another depth,
+     * or by the search of another root. The score of a position scored at the horizon does not
+     * depend on the depth, it is kept as it is.
+     */
+    private int toTableScore(int score, int depth) {
+        if (!isWinScore(score)) {
+            return score;
+        }
+        return score > 0 ? score + depth : score - depth;
+    }
+
+    private int fromTableScore(int score, int depth) {
+        if (!isWinScore(score)) {
+            return score;
+        }
+        return score > 0 ? score - depth : score + depth;
+    }
+
+    /**
+     * Returns true if a score is a win or a loss. When the search is limited, the scored
+     * positions are worth up to MAX_EVALUATION and a win is worth more, otherwise every score
+     * that is not a draw is a win or a loss.
+     */
+    private boolean isWinScore(int score) {
+        return mWinValue > MAX_EVALUATION ? Math.abs(score) > MAX_EVALUATION : score != 0;
+    }
+}
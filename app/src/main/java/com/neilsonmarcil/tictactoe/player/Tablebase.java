@@ -0,0 +1,245 @@
+package com.neilsonmarcil.tictactoe.player;
+
+import com.neilsonmarcil.tictactoe.game.BoardGeometry;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * A {@code Tablebase} holds the solved value of every 4x4 position: whether the player to move
+ * wins, draws or loses with a perfect play, and in how many moves the game ends. It is generated
+ * offline by a retrograde analysis and read from a {@code ByteBuffer}, usually memory mapped, so
+ * a position is looked up in constant time without searching.<br/><br/>
+ *
+ * The table is made of a header followed by one value of {@link #VALUE_BITS} bits per position
+ * of the {@link TablebaseIndex}, packed in little endian order. A value of 0 is a draw, the
+ * values 1 to 8 are a win in 1, 3, ... 15 moves and the values 9 to 16 a loss in 2, 4, ... 16
+ * moves. The positions that are already over or cannot be reached have a value of 0.
+ */
+public class Tablebase {
+
+    /**
+     * Header: magic number, version, rows, columns, winning length, number of entries and CRC32
+     * of the values.
+     */
+    public static final int MAGIC = 0x54544442;
+    public static final int VERSION = 1;
+    public static final int HEADER_SIZE = 28;
+
+    /**
+     * The number of bits of a value
+     */
+    public static final int VALUE_BITS = 5;
+    private static final int VALUE_MASK = (1 << VALUE_BITS) - 1;
+
+    /**
+     * The results of a position for the player to move
+     */
+    public static final int RESULT_LOSS = -1;
+    public static final int RESULT_DRAW = 0;
+    public static final int RESULT_WIN = 1;
+
+    /**
+     * The value of a draw, and the last value of a win
+     */
+    public static final int VALUE_DRAW = 0;
+    private static final int LAST_WIN_VALUE = TablebaseIndex.CELLS / 2;
+
+    /**
+     * A win in no move, worth more than any move, used to compare the values
+     */
+    private static final int BEST_SCORE = TablebaseIndex.CELLS + 1;
+
+    private final TablebaseIndex mIndex;
+
+    /**
+     * The values, positioned after the header
+     */
+    private final ByteBuffer mValues;
+
+    /**
+     * Create a new Tablebase from the content of a table file. The header and the checksum of
+     * the values are validated before the table can be used.
+     * @param buffer the content of the table, from its current position
+     * @throws IllegalArgumentException when the header is not valid or the checksum does not match
+     */
+    public Tablebase(ByteBuffer buffer) {
+        ByteBuffer b = buffer.duplicate().order(ByteOrder.BIG_ENDIAN);
+        if (b.remaining() < HEADER_SIZE) {
+            throw new IllegalArgumentException("Invalid tablebase size: " + b.remaining());
+        }
+        int magic = b.getInt();
+        int version = b.getInt();
+        int rows = b.getInt();
+        int columns = b.getInt();
+        int length = b.getInt();
+        int count = b.getInt();
+        int checksum = b.getInt();
+        if (magic != MAGIC || version != VERSION || rows != TablebaseIndex.SIZE
+                || columns != TablebaseIndex.SIZE || length < 1 || length > TablebaseIndex.SIZE) {
+            throw new IllegalArgumentException("Invalid tablebase header");
+        }
+        mIndex = new TablebaseIndex(length);
+        if (count != mIndex.getEntryCount() || b.remaining() != getDataSize(count)) {
+            throw new IllegalArgumentException("Invalid tablebase size: " + count + " entries, "
+                    + b.remaining() + " bytes");
+        }
+
+        mValues = b.slice().order(ByteOrder.LITTLE_ENDIAN);
+        if (MoveBook.checksum(mValues.duplicate()) != checksum) {
+            throw new IllegalArgumentException("Tablebase checksum does not match");
+        }
+    }
+
+    /**
+     * Memory map a table file.
+     * @param file the table file
+     * @return the table, it stays valid after the file is closed
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException when the content of the file is not valid
+     */
+    public static Tablebase map(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            return new Tablebase(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+        finally {
+            raf.close();
+        }
+    }
+
+    /**
+     * Returns the number of bytes of the values of a table, with one more byte so that a value
+     * can always be read with two bytes
+     */
+    public static int getDataSize(int entries) {
+        return (int)(((long)entries * VALUE_BITS + 7) / 8) + 1;
+    }
+
+    /**
+     * Returns the geometry of the positions of the table
+     */
+    public BoardGeometry getGeometry() {
+        return mIndex.getGeometry();
+    }
+
+    /**
+     * Returns the value of a position that is not over.
+     * @param player the mask of the boxes of the player to move
+     * @param opponent the mask of the boxes of the opponent
+     * @return the value of the position
+     * @throws IllegalArgumentException if the masks are not a position of the table
+     */
+    public int getValue(int player, int opponent) {
+        int index = mIndex.index(player, opponent);
+        if (index < 0) {
+            throw new IllegalArgumentException("Not a tablebase position: " + player + ", " + opponent);
+        }
+        int bit = index * VALUE_BITS;
+        return (mValues.getShort(bit >>> 3) & 0xffff) >>> (bit & 7) & VALUE_MASK;
+    }
+
+    /**
+     * Returns the result of a position for the player to move, one of the RESULT constants.
+     */
+    public int getResult(int player, int opponent) {
+        return getResult(getValue(player, opponent));
+    }
+
+    /**
+     * Returns the number of moves until the end of a position with a perfect play, 0 for a draw.
+     */
+    public int getDistance(int player, int opponent) {
+        return getDistance(getValue(player, opponent));
+    }
+
+    /**
+     * Returns the first box that is a best move of the player to move: the fastest win, a draw,
+     * or the slowest loss. The position must not be over.
+     * @param player the mask of the boxes of the player to move
+     * @param opponent the mask of the boxes of the opponent
+     * @return the box, -1 if the board is full
+     */
+    public int getBestMove(int player, int opponent) {
+        int empty = ~(player | opponent) & ((1 << TablebaseIndex.CELLS) - 1);
+        int best = -1;
+        int bestScore = Integer.MIN_VALUE;
+        for (int e = empty; e != 0; e &= e - 1) {
+            int bit = e & -e;
+            int next = player | bit;
+            int score;
+            if (mIndex.isWinning(next)) {
+                // nothing is better than a win right away
+                return Integer.numberOfTrailingZeros(bit);
+            }
+            else if ((empty & ~bit) == 0) {
+                score = 0;
+            }
+            else {
+                score = -getScore(getValue(opponent, next));
+            }
+            if (score > bestScore) {
+                bestScore = score;
+                best = Integer.numberOfTrailingZeros(bit);
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Returns the result of a value, one of the RESULT constants
+     */
+    public static int getResult(int value) {
+        return value == VALUE_DRAW ? RESULT_DRAW : value <= LAST_WIN_VALUE ? RESULT_WIN : RESULT_LOSS;
+    }
+
+    /**
+     * Returns the number of moves until the end of the game of a value, 0 for a draw
+     */
+    public static int getDistance(int value) {
+        return value == VALUE_DRAW ? 0 : value <= LAST_WIN_VALUE ? 2 * value - 1 : 2 * (value - LAST_WIN_VALUE);
+    }
+
+    /**
+     * Returns the value of a result.
+     * @param result one of the RESULT constants
+     * @param distance the number of moves until the end of the game: odd for a win, even for a
+     *                 loss, ignored for a draw
+     */
+    public static int toValue(int result, int distance) {
+        if (result == RESULT_DRAW) {
+            return VALUE_DRAW;
+        }
+        if (result == RESULT_WIN && distance % 2 == 1 && distance < 2 * LAST_WIN_VALUE) {
+            return (distance + 1) / 2;
+        }
+        if (result == RESULT_LOSS && distance % 2 == 0 && distance > 0 && distance <= 2 * LAST_WIN_VALUE) {
+            return LAST_WIN_VALUE + distance / 2;
+        }
+        throw new IllegalArgumentException("Invalid result: " + result + " in " + distance + " moves");
+    }
+
+    /**
+     * Returns a score of a value for the player to move, a greater score is a better value: a win
+     * is worth more when it is faster and a loss when it is slower.
+     */
+    public static int getScore(int value) {
+        int result = getResult(value);
+        return result == RESULT_DRAW ? 0 : result * (BEST_SCORE - getDistance(value));
+    }
+
+    /**
+     * Returns the value of a position from the value of the position after the best move: the
+     * result is the opposite and the game ends one move later.
+     * @param childValue the value for the opponent, after the move
+     */
+    public static int getParentValue(int childValue) {
+        int result = getResult(childValue);
+        return result == RESULT_DRAW ? VALUE_DRAW : toValue(-result, getDistance(childValue) + 1);
+    }
+}
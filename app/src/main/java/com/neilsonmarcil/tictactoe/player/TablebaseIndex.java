@@ -0,0 +1,265 @@
+package com.neilsonmarcil.tictactoe.player;
+
+import com.neilsonmarcil.tictactoe.game.BoardGeometry;
+
+/**
+ * A {@code TablebaseIndex} numbers the positions of a 4x4 board for the {@link Tablebase}. A
+ * position is seen from the player to move, who has as many tokens as the opponent or one
+ * less, so both players can start. The 8 symmetries of the square give the same value to a
+ * position and its rotations and reflections, they all have the same index.<br/><br/>
+ *
+ * The positions are grouped by number of tokens, then by mask of the player to move, which is
+ * reduced to the smallest of its 8 symmetric masks, then by mask of the opponent, ranked among
+ * the subsets of the empty boxes of the same size. Computing an index is a few table lookups and
+ * a loop over the 16 boxes.
+ */
+public final class TablebaseIndex {
+
+    /**
+     * The number of rows and columns
+     */
+    public static final int SIZE = 4;
+    public static final int CELLS = SIZE * SIZE;
+
+    private static final int FULL_MASK = (1 << CELLS) - 1;
+
+    /**
+     * The symmetries of the square, numbered as in BoardGeometry
+     */
+    private static final int TRANSFORMS = 8;
+
+    private static final int[][] BINOMIAL = new int[CELLS + 1][CELLS + 2];
+
+    static {
+        for (int n = 0; n <= CELLS; n++) {
+            BINOMIAL[n][0] = 1;
+            for (int k = 1; k <= n; k++) {
+                BINOMIAL[n][k] = BINOMIAL[n - 1][k - 1] + BINOMIAL[n - 1][k];
+            }
+        }
+    }
+
+    private final BoardGeometry mGeometry;
+
+    /**
+     * True when the mask holds a line of the geometry
+     */
+    private final boolean[] mWinning = new boolean[1 << CELLS];
+
+    /**
+     * The bytes of a mask moved by each symmetry, the low byte and the high byte
+     */
+    private final char[][] mPermuteLow = new char[TRANSFORMS][256];
+    private final char[][] mPermuteHigh = new char[TRANSFORMS][256];
+
+    /**
+     * For each mask, the smallest of its symmetric masks and the symmetry that gives it
+     */
+    private final char[] mCanonical = new char[1 << CELLS];
+    private final byte[] mTransform = new byte[1 << CELLS];
+
+    /**
+     * For each smallest mask, the symmetries that do not change it, one bit per symmetry. The
+     * opponent mask of a position is reduced by them.
+     */
+    private final byte[] mStabilizer = new byte[1 << CELLS];
+
+    /**
+     * The rank of a smallest mask among the smallest masks of the same size, and the smallest
+     * masks by size and rank
+     */
+    private final int[] mClassRank = new int[1 << CELLS];
+    private final char[][] mClasses = new char[CELLS + 1][];
+
+    /**
+     * The first index of each number of tokens, the last one is the number of entries
+     */
+    private final int[] mLayerOffset = new int[CELLS + 2];
+
+    /**
+     * Create the index of the 4x4 positions.
+     * @param length the number of tokens in a row to win
+     */
+    public TablebaseIndex(int length) {
+        mGeometry = BoardGeometry.get(SIZE, SIZE, length);
+        for (int l = 0; l < mGeometry.getLineCount(); l++) {
+            int line = (int)mGeometry.getLineMask(l, 0);
+            for (int m = line; m <= FULL_MASK; m = (m + 1) | line) {
+                mWinning[m] = true;
+            }
+        }
+
+        for (int t = 0; t < TRANSFORMS; t++) {
+            for (int cell = 0; cell < CELLS; cell++) {
+                int to = mGeometry.getSymmetricCell(t, cell);
+                for (int b = 0; b < 256; b++) {
+                    if (cell < 8 && (b & 1 << cell) != 0) {
+                        mPermuteLow[t][b] |= 1 << to;
+                    }
+                    if (cell >= 8 && (b & 1 << (cell - 8)) != 0) {
+                        mPermuteHigh[t][b] |= 1 << to;
+                    }
+                }
+            }
+        }
+
+        int[] classCount = new int[CELLS + 1];
+        for (int m = 0; m <= FULL_MASK; m++) {
+            int best = m;
+            int bestTransform = 0;
+            for (int t = 1; t < TRANSFORMS; t++) {
+                int p = permute(t, m);
+                if (p < best) {
+                    best = p;
+                    bestTransform = t;
+                }
+            }
+            mCanonical[m] = (char)best;
+            mTransform[m] = (byte)bestTransform;
+            if (best == m) {
+                mClassRank[m] = classCount[Integer.bitCount(m)]++;
+                for (int t = 1; t < TRANSFORMS; t++) {
+                    if (permute(t, m) == m) {
+                        mStabilizer[m] |= 1 << t;
+                    }
+                }
+            }
+        }
+        for (int k = 0; k <= CELLS; k++) {
+            mClasses[k] = new char[classCount[k]];
+        }
+        for (int m = 0; m <= FULL_MASK; m++) {
+            if (mCanonical[m] == m) {
+                mClasses[Integer.bitCount(m)][mClassRank[m]] = (char)m;
+            }
+        }
+
+        for (int n = 0; n <= CELLS; n++) {
+            int player = n / 2;
+            int opponent = n - player;
+            mLayerOffset[n + 1] = mLayerOffset[n] + classCount[player] * BINOMIAL[CELLS - player][opponent];
+        }
+    }
+
+    public BoardGeometry getGeometry() {
+        return mGeometry;
+    }
+
+    /**
+     * Returns the number of positions of the index
+     */
+    public int getEntryCount() {
+        return mLayerOffset[CELLS + 1];
+    }
+
+    /**
+     * Returns the first index of the positions with a number of tokens
+     * @param tokens the number of tokens, from 0 to 17 where 17 gives the number of entries
+     */
+    public int getLayerOffset(int tokens) {
+        return mLayerOffset[tokens];
+    }
+
+    /**
+     * Returns true if the mask holds a line of the geometry
+     */
+    public boolean isWinning(int mask) {
+        return mWinning[mask];
+    }
+
+    /**
+     * Returns the index of a position.
+     * @param player the mask of the player to move
+     * @param opponent the mask of the opponent
+     * @return the index, -1 if the masks are not a position of the index: they overlap, or the
+     * opponent does not have as many tokens as the player to move or one more
+     */
+    public int index(int player, int opponent) {
+        int pc = Integer.bitCount(player);
+        int oc = Integer.bitCount(opponent);
+        if ((player & opponent) != 0 || ((player | opponent) & ~FULL_MASK) != 0
+                || (oc != pc && oc != pc + 1)) {
+            return -1;
+        }
+        int canonical = mCanonical[player];
+        int o = permute(mTransform[player], opponent);
+        int stabilizer = mStabilizer[canonical] & 0xff;
+        if (stabilizer != 0) {
+            int moved = o;
+            for (int t = 1; t < TRANSFORMS; t++) {
+                if ((stabilizer & 1 << t) != 0) {
+                    o = Math.min(o, permute(t, moved));
+                }
+            }
+        }
+        return mLayerOffset[pc + oc] + mClassRank[canonical] * BINOMIAL[CELLS - pc][oc]
+                + rank(~canonical & FULL_MASK, o);
+    }
+
+    /**
+     * Returns the position of an index, the mask of the player to move in the high 16 bits and
+     * the mask of the opponent in the low 16 bits. The mask of the player to move is the
+     * smallest of its symmetric masks. When this mask is symmetric, some indexes hold a position
+     * symmetric to the position of a smaller index, they are never returned by index().
+     * @param index the index, from 0 to getEntryCount() - 1
+     */
+    public int position(int index) {
+        if (index < 0 || index >= getEntryCount()) {
+            throw new IndexOutOfBoundsException("Invalid tablebase index: " + index);
+        }
+        int n = 0;
+        while (mLayerOffset[n + 1] <= index) {
+            n++;
+        }
+        int pc = n / 2;
+        int oc = n - pc;
+        int block = BINOMIAL[CELLS - pc][oc];
+        int relative = index - mLayerOffset[n];
+        int player = mClasses[pc][relative / block];
+        int opponent = unrank(~player & FULL_MASK, oc, relative % block);
+        return player << CELLS | opponent;
+    }
+
+    /**
+     * Returns the colexicographic rank of a subset of the free boxes
+     */
+    private static int rank(int free, int subset) {
+        int rank = 0;
+        int position = 0;
+        int count = 0;
+        for (int f = free; f != 0; f &= f - 1) {
+            if ((subset & f & -f) != 0) {
+                count++;
+                rank += BINOMIAL[position][count];
+            }
+            position++;
+        }
+        return rank;
+    }
+
+    /**
+     * Returns the subset of the free boxes of a size that has a colexicographic rank
+     */
+    private static int unrank(int free, int size, int rank) {
+        int[] cells = new int[CELLS];
+        int n = 0;
+        for (int f = free; f != 0; f &= f - 1) {
+            cells[n++] = Integer.numberOfTrailingZeros(f);
+        }
+        int subset = 0;
+        int position = n - 1;
+        for (int k = size; k > 0; k--) {
+            while (BINOMIAL[position][k] > rank) {
+                position--;
+            }
+            rank -= BINOMIAL[position][k];
+            subset |= 1 << cells[position];
+            position--;
+        }
+        return subset;
+    }
+
+    private int permute(int t, int mask) {
+        return mPermuteLow[t][mask & 0xff] | mPermuteHigh[t][mask >>> 8];
+    }
+}
@@ -0,0 +1,184 @@
+package com.neilsonmarcil.tictactoe.player;
+
+/**
+ * A {@code TranspositionTable} keeps the result of the positions already searched by the AI,
+ * indexed by the Zobrist hash of the position. When the same position is reached again through
+ * another move order, or in a later move of the game, the stored result is used instead of
+ * searching the position again.<br/><br/>
+ *
+ * The table uses open addressing on two primitive arrays: the keys and the data. Each entry data
+ * is packed into a single int that holds the score, the bound type, the depth and the best move.
+ * The key is stored XORed with the data, so an entry written partially by another thread is seen
+ * as a miss instead of a wrong result.
+ */
+public class TranspositionTable {
+
+    /**
+     * The bound types. The score of an entry is either the exact score of the position, a lower
+     * bound (the search stopped after finding a move good enough) or an upper bound (no move was
+     * better than the search window).
+     */
+    public static final int BOUND_EXACT = 1;
+    public static final int BOUND_LOWER = 2;
+    public static final int BOUND_UPPER = 3;
+
+    /**
+     * The replacement policies. When all the entries probed for a new position are taken, the
+     * first one is always replaced, or the one searched with the smallest depth.
+     */
+    public static final int REPLACE_ALWAYS = 0;
+    public static final int REPLACE_DEPTH_PREFERRED = 1;
+
+    /**
+     * Represents an entry without a best move
+     */
+    public static final int NO_MOVE = 0x1FF;
+
+    /**
+     * The maximum depth of an entry, a greater depth is stored as MAX_DEPTH
+     */
+    public static final int MAX_DEPTH = 0xFF;
+
+    /**
+     * The default number of entries, enough to keep every 3x3 position
+     */
+    public static final int DEFAULT_SIZE = 1 << 14;
+
+    /**
+     * The number of consecutive entries probed for a position
+     */
+    private static final int PROBE_LENGTH = 4;
+
+    /**
+     * Layout of the packed data: move on bits 0 to 8, depth on bits 9 to 16, bound on bits 17
+     * and 18 and the signed score on bits 19 to 31.
+     */
+    private static final int DEPTH_SHIFT = 9;
+    private static final int BOUND_SHIFT = 17;
+    private static final int SCORE_SHIFT = 19;
+
+    private final long[] mKeys;
+    private final int[] mData;
+    private final int mIndexMask;
+    private final int mPolicy;
+
+    /**
+     * Create a new TranspositionTable with the default size that replaces the entries with the
+     * smallest depth first.
+     */
+    public TranspositionTable() {
+        this(DEFAULT_SIZE, REPLACE_DEPTH_PREFERRED);
+    }
+
+    /**
+     * Create a new TranspositionTable
+     * @param size the number of entries, rounded up to the next power of two
+     * @param policy either REPLACE_ALWAYS or REPLACE_DEPTH_PREFERRED
+     */
+    public TranspositionTable(int size, int policy) {
+        if (size <= 0 || size > 1 << 30) {
+            throw new IllegalArgumentException("Invalid transposition table size: " + size);
+        }
+        if (policy != REPLACE_ALWAYS && policy != REPLACE_DEPTH_PREFERRED) {
+            throw new IllegalArgumentException("Unknown replacement policy: " + policy);
+        }
+        int capacity = Integer.highestOneBit(size);
+        if (capacity < size) {
+            capacity <<= 1;
+        }
+        mKeys = new long[capacity];
+        mData = new int[capacity];
+        mIndexMask = capacity - 1;
+        mPolicy = policy;
+    }
+
+    /**
+     * Returns the number of entries of the table
+     */
+    public int size() {
+        return mData.length;
+    }
+
+    /**
+     * Look for the entry of a position.
+     * @param key the hash of the position
+     * @return the packed data of the entry, or 0 if the position is not in the table. The data
+     * is read with the getScore, getBound, getDepth and getMove methods.
+     */
+    public int probe(long key) {
+        int index = (int)key & mIndexMask;
+        for (int i = 0; i < PROBE_LENGTH; i++) {
+            int data = mData[index];
+            if (data == 0) {
+                return 0;
+            }
+            if ((mKeys[index] ^ data) == key) {
+                return data;
+            }
+            index = (index + 1) & mIndexMask;
+        }
+        return 0;
+    }
+
+    /**
+     * Store the result of a position. An existing entry of the same position is always replaced,
+     * otherwise the first empty entry is used or one is replaced according to the policy.
+     * @param key the hash of the position
+     * @param score the score, between -4096 and 4095
+     * @param bound the bound type
+     * @param depth the depth searched from this position
+     * @param move the best move, or NO_MOVE
+     */
+    public void store(long key, int score, int bound, int depth, int move) {
+        int data = score << SCORE_SHIFT | bound << BOUND_SHIFT
+                | Math.min(depth, MAX_DEPTH) << DEPTH_SHIFT | (move & NO_MOVE);
+        int index = (int)key & mIndexMask;
+        int victim = index;
+        int victimDepth = Integer.MAX_VALUE;
+
+        for (int i = 0; i < PROBE_LENGTH; i++) {
+            int current = mData[index];
+            if (current == 0 || (mKeys[index] ^ current) == key) {
+                victim = index;
+                break;
+            }
+            if (mPolicy == REPLACE_DEPTH_PREFERRED && getDepth(current) < victimDepth) {
+                victim = index;
+                victimDepth = getDepth(current);
+            }
+            index = (index + 1) & mIndexMask;
+        }
+        mData[victim] = data;
+        mKeys[victim] = key ^ data;
+    }
+
+    /**
+     * Remove all the entries
+     */
+    public void clear() {
+        for (int i = 0; i < mData.length; i++) {
+            mData[i] = 0;
+            mKeys[i] = 0;
+        }
+    }
+
+    /**
+     * Get the fields of a packed entry returned by probe
+     */
+
+    public static int getScore(int data) {
+        return data >> SCORE_SHIFT;
+    }
+
+    public static int getBound(int data) {
+        return (data >>> BOUND_SHIFT) & 0x3;
+    }
+
+    public static int getDepth(int data) {
+        return (data >>> DEPTH_SHIFT) & MAX_DEPTH;
+    }
+
+    public static int getMove(int data) {
+        return data & NO_MOVE;
+    }
+}
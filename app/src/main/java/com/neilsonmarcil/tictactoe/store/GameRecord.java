@@ -0,0 +1,216 @@
+package com.neilsonmarcil.tictactoe.store;
+
+import com.neilsonmarcil.tictactoe.game.Board;
+import com.neilsonmarcil.tictactoe.game.BoardGeometry;
+
+/**
+ * A {@code GameRecord} is a finished game of the classic 3x3 board: the boxes played in order,
+ * the player that played first and the result. It is kept in {@link #SIZE} bytes, so millions of
+ * games fit in a few megabytes:<br/>
+ * - bits 0 to 28: the boxes, as a number in base 9 with the first move in the lowest digit.<br/>
+ * - bits 29 to 32: the number of moves.<br/>
+ * - bits 33 and 34: the result.<br/>
+ * - bit 35: the player that played first.<br/>
+ * - bits 36 to 39: a check of the other bits, so that a damaged record, or a record of zeros
+ * left by a crash, is not read as a game.<br/><br/>
+ *
+ * The players are numbered 1 and 2 in the order of the game, the records do not depend on the
+ * ids of the players.
+ */
+public final class GameRecord {
+
+    /**
+     * The number of bytes of a record
+     */
+    public static final int SIZE = 5;
+
+    /**
+     * The results of a game
+     */
+    public static final int RESULT_DRAW = 0;
+    public static final int RESULT_PLAYER_1 = 1;
+    public static final int RESULT_PLAYER_2 = 2;
+
+    private static final int CELLS = 9;
+    private static final int MOVE_COUNT_SHIFT = 29;
+    private static final int RESULT_SHIFT = 33;
+    private static final int FIRST_PLAYER_SHIFT = 35;
+    private static final int CHECK_SHIFT = 36;
+    private static final long DATA_MASK = (1L << CHECK_SHIFT) - 1;
+    private static final int CHECK_SEED = 0x5;
+
+    /**
+     * The powers of 9, to read a move without decoding the previous ones
+     */
+    private static final int[] POWERS = new int[CELLS + 1];
+
+    static {
+        POWERS[0] = 1;
+        for (int i = 1; i < POWERS.length; i++) {
+            POWERS[i] = POWERS[i - 1] * CELLS;
+        }
+    }
+
+    private final long mPacked;
+
+    /**
+     * Create a new GameRecord.
+     * @param moves the boxes played, in order
+     * @param count the number of moves, at most 9
+     * @param firstPlayer the player that played first, 1 or 2
+     * @param result one of the RESULT constants
+     */
+    public GameRecord(int[] moves, int count, int firstPlayer, int result) {
+        if (count < 0 || count > CELLS || count > moves.length) {
+            throw new IllegalArgumentException("Invalid move count: " + count);
+        }
+        if (firstPlayer != 1 && firstPlayer != 2) {
+            throw new IllegalArgumentException("Invalid first player: " + firstPlayer);
+        }
+        if (result < RESULT_DRAW || result > RESULT_PLAYER_2) {
+            throw new IllegalArgumentException("Invalid result: " + result);
+        }
+        long value = 0;
+        int played = 0;
+        for (int i = count - 1; i >= 0; i--) {
+            int box = moves[i];
+            if (box < 0 || box >= CELLS || (played & 1 << box) != 0) {
+                throw new IllegalArgumentException("Invalid move: " + box);
+            }
+            played |= 1 << box;
+            value = value * CELLS + box;
+        }
+        long data = value | (long)count << MOVE_COUNT_SHIFT | (long)result << RESULT_SHIFT
+                | (long)(firstPlayer - 1) << FIRST_PLAYER_SHIFT;
+        mPacked = data | (long)check(data) << CHECK_SHIFT;
+    }
+
+    private GameRecord(long packed) {
+        mPacked = packed;
+    }
+
+    /**
+     * Read a record from its packed value.
+     * @param packed the 40 bits of the record
+     * @return the record
+     * @throws IllegalArgumentException if the value is not a valid record
+     */
+    static GameRecord fromPacked(long packed) {
+        long data = packed & DATA_MASK;
+        if (packed >>> CHECK_SHIFT != check(data)) {
+            throw new IllegalArgumentException("Invalid record check: " + Long.toHexString(packed));
+        }
+        int count = (int)(data >>> MOVE_COUNT_SHIFT) & 0xf;
+        int result = (int)(data >>> RESULT_SHIFT) & 0x3;
+        long value = data & ((1L << MOVE_COUNT_SHIFT) - 1);
+        if (count > CELLS || result > RESULT_PLAYER_2 || value >= POWERS[count]) {
+            throw new IllegalArgumentException("Invalid record: " + Long.toHexString(packed));
+        }
+        int played = 0;
+        for (int i = 0; i < count; i++) {
+            int box = (int)(value % CELLS);
+            if ((played & 1 << box) != 0) {
+                throw new IllegalArgumentException("Box played twice: " + Long.toHexString(packed));
+            }
+            played |= 1 << box;
+            value /= CELLS;
+        }
+        return new GameRecord(packed);
+    }
+
+    /**
+     * Returns the 40 bits of the record
+     */
+    long getPacked() {
+        return mPacked;
+    }
+
+    /**
+     * Returns the number of moves of the game
+     */
+    public int getMoveCount() {
+        return (int)(mPacked >>> MOVE_COUNT_SHIFT) & 0xf;
+    }
+
+    /**
+     * Returns a box played.
+     * @param i the number of the move, from 0 to getMoveCount() - 1
+     */
+    public int getMove(int i) {
+        if (i < 0 || i >= getMoveCount()) {
+            throw new IndexOutOfBoundsException("Invalid move index: " + i);
+        }
+        return (int)((mPacked & ((1L << MOVE_COUNT_SHIFT) - 1)) / POWERS[i] % CELLS);
+    }
+
+    /**
+     * Returns the player that played first, 1 or 2
+     */
+    public int getFirstPlayer() {
+        return (int)(mPacked >>> FIRST_PLAYER_SHIFT & 1) + 1;
+    }
+
+    /**
+     * Returns the result of the game, one of the RESULT constants
+     */
+    public int getResult() {
+        return (int)(mPacked >>> RESULT_SHIFT) & 0x3;
+    }
+
+    /**
+     * Put a board in the state it had after some moves of the game. The board is reset first.
+     * @param b a board of the classic 3x3 geometry
+     * @param moves the number of moves to play, from 0 to getMoveCount()
+     * @param player1 the id of the player 1
+     * @param player2 the id of the player 2
+     */
+    public void replay(Board b, int moves, int player1, int player2) {
+        if (b.getGeometry() != BoardGeometry.STANDARD) {
+            throw new IllegalArgumentException("Only the 3x3 games are recorded");
+        }
+        if (moves < 0 || moves > getMoveCount()) {
+            throw new IllegalArgumentException("Invalid number of moves: " + moves);
+        }
+        b.resetBoard();
+        int player = getFirstPlayer() == 1 ? player1 : player2;
+        int other = player == player1 ? player2 : player1;
+        long value = mPacked & ((1L << MOVE_COUNT_SHIFT) - 1);
+        for (int i = 0; i < moves; i++) {
+            b.addToken((int)(value % CELLS), player);
+            value /= CELLS;
+            int next = other;
+            other = player;
+            player = next;
+        }
+    }
+
+    /**
+     * The xor of the nibbles of the data, mixed with a seed so that zeros are not valid
+     */
+    private static int check(long data) {
+        int check = CHECK_SEED;
+        for (int shift = 0; shift < CHECK_SHIFT; shift += 4) {
+            check ^= (int)(data >>> shift) & 0xf;
+        }
+        return check;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof GameRecord && ((GameRecord)o).mPacked == mPacked;
+    }
+
+    @Override
+    public int hashCode() {
+        return (int)(mPacked ^ mPacked >>> 32);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("first ").append(getFirstPlayer()).append(", moves");
+        for (int i = 0; i < getMoveCount(); i++) {
+            sb.append(' ').append(getMove(i));
+        }
+        return sb.append(", result ").append(getResult()).toString();
+    }
+}
@@ -0,0 +1,303 @@
+package com.neilsonmarcil.tictactoe.store;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * A {@code ReplayLog} keeps the finished games in rolling files of its directory. The games are
+ * appended as {@link GameRecord}s of 5 bytes to the last file, after a header of 4 bytes. When
+ * the file is full, a new one is started, and the oldest files are deleted so the log never
+ * holds more than a maximum number of files.<br/><br/>
+ *
+ * The games are written by a background thread, in the order of the calls. A record cut by a
+ * crash is removed when the log is opened again. The games are read back with a
+ * {@link ReplayReader}, which streams the files without loading them.
+ */
+public class ReplayLog {
+
+    /**
+     * The default size of a file, about 200,000 games
+     */
+    public static final long DEFAULT_FILE_SIZE = 1 << 20;
+
+    /**
+     * The default number of files kept
+     */
+    public static final int DEFAULT_FILE_COUNT = 8;
+
+    /**
+     * The first bytes of each file
+     */
+    static final int MAGIC = 0x54545231;
+    static final int HEADER_SIZE = 4;
+
+    private static final String PREFIX = "replay-";
+    private static final String SUFFIX = ".log";
+
+    private final File mDirectory;
+    private final long mMaxFileSize;
+    private final int mMaxFiles;
+
+    /**
+     * The file where the games are appended, used by the writer thread only
+     */
+    private int mFileIndex;
+    private RandomAccessFile mFile;
+    private FileChannel mChannel;
+    private final ByteBuffer mRecord = ByteBuffer.allocate(8);
+
+    private final ExecutorService mWriter;
+
+    /**
+     * The first error of the writer thread, thrown by the next call to flush
+     */
+    private volatile IOException mError;
+
+    /**
+     * Open the log of a directory with the default size and number of files.
+     * @param directory the directory of the files, created if it does not exist
+     * @throws IOException if the last file cannot be opened
+     */
+    public ReplayLog(File directory) throws IOException {
+        this(directory, DEFAULT_FILE_SIZE, DEFAULT_FILE_COUNT);
+    }
+
+    /**
+     * Open the log of a directory.
+     * @param directory the directory of the files, created if it does not exist
+     * @param maxFileSize the size of a file, it holds at least one game
+     * @param maxFiles the number of files kept, at least 1
+     * @throws IOException if the last file cannot be opened
+     */
+    public ReplayLog(File directory, long maxFileSize, int maxFiles) throws IOException {
+        if (maxFileSize < HEADER_SIZE + GameRecord.SIZE) {
+            throw new IllegalArgumentException("File size too small: " + maxFileSize);
+        }
+        if (maxFiles < 1) {
+            throw new IllegalArgumentException("File count must be at least 1: " + maxFiles);
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new FileNotFoundException("Cannot create the directory " + directory);
+        }
+        mDirectory = directory;
+        mMaxFileSize = maxFileSize;
+        mMaxFiles = maxFiles;
+
+        File[] files = listFiles(directory);
+        if (files.length == 0) {
+            startFile(1);
+        }
+        else {
+            openLastFile(files[files.length - 1]);
+        }
+
+        mWriter = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "ReplayLog");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+    }
+
+    /**
+     * Append a game to the log. The game is written in the background.
+     * @param record the game
+     */
+    public void append(final GameRecord record) {
+        mWriter.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (mError != null) {
+                    return;
+                }
+                try {
+                    write(record.getPacked());
+                }
+                catch (IOException e) {
+                    mError = e;
+                }
+            }
+        });
+    }
+
+    /**
+     * Wait until the games given so far are written.
+     * @throws IOException if a game could not be written
+     */
+    public void flush() throws IOException {
+        try {
+            mWriter.submit(new Runnable() {
+                @Override
+                public void run() {
+                }
+            }).get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the replay log", e);
+        }
+        catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        }
+        IOException error = mError;
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    /**
+     * Write the games given so far, then close the file. The log cannot be used after.
+     * @throws IOException if a game could not be written or the file closed
+     */
+    public void close() throws IOException {
+        try {
+            flush();
+        }
+        finally {
+            mWriter.shutdown();
+            mFile.close();
+        }
+    }
+
+    /**
+     * Write the games given so far and read all the games of the log, oldest first.
+     * @return a reader that must be closed
+     * @throws IOException if a game could not be written
+     */
+    public ReplayReader openReader() throws IOException {
+        flush();
+        return openReader(mDirectory);
+    }
+
+    /**
+     * Read all the games of the log of a directory, oldest first. The log does not need to be
+     * opened, the files can be copied from a device and read by the tools.
+     * @param directory the directory of the files
+     * @return a reader that must be closed
+     */
+    public static ReplayReader openReader(File directory) {
+        return new ReplayReader(Arrays.asList(listFiles(directory)));
+    }
+
+    /**
+     * Returns the files of the log, oldest first
+     */
+    static File[] listFiles(File directory) {
+        File[] files = directory.listFiles();
+        List<File> logs = new ArrayList<>();
+        if (files != null) {
+            for (File f : files) {
+                if (parseIndex(f) > 0) {
+                    logs.add(f);
+                }
+            }
+        }
+        File[] sorted = logs.toArray(new File[logs.size()]);
+        Arrays.sort(sorted, new Comparator<File>() {
+            @Override
+            public int compare(File a, File b) {
+                int ia = parseIndex(a);
+                int ib = parseIndex(b);
+                return ia < ib ? -1 : (ia == ib ? 0 : 1);
+            }
+        });
+        return sorted;
+    }
+
+    /**
+     * Returns the index in the name of a file of the log, 0 if it is not a file of the log
+     */
+    private static int parseIndex(File f) {
+        String name = f.getName();
+        if (!name.startsWith(PREFIX) || !name.endsWith(SUFFIX)) {
+            return 0;
+        }
+        try {
+            return Integer.parseInt(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+        }
+        catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Append the record to the last file, or to a new one when it is full. Called by the
+     * writer thread.
+     */
+    private void write(long packed) throws IOException {
+        long position = mChannel.size();
+        if (position + GameRecord.SIZE > mMaxFileSize) {
+            mFile.close();
+            startFile(mFileIndex + 1);
+            position = HEADER_SIZE;
+        }
+        ByteBuffer r = mRecord;
+        r.clear();
+        r.putLong(packed << (8 * (8 - GameRecord.SIZE)));
+        r.flip();
+        r.limit(GameRecord.SIZE);
+        while (r.hasRemaining()) {
+            position += mChannel.write(r, position);
+        }
+    }
+
+    /**
+     * Keep appending to the last file. A record cut by a crash is removed, a file without a
+     * valid header is left to the reader, which skips it, and a new file is started.
+     */
+    private void openLastFile(File last) throws IOException {
+        int index = parseIndex(last);
+        mFile = new RandomAccessFile(last, "rw");
+        mChannel = mFile.getChannel();
+        long size = mChannel.size();
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        if (size < HEADER_SIZE || mChannel.read(header, 0) < HEADER_SIZE || header.getInt(0) != MAGIC) {
+            mFile.close();
+            startFile(index + 1);
+            return;
+        }
+        long valid = size - (size - HEADER_SIZE) % GameRecord.SIZE;
+        if (valid != size) {
+            mChannel.truncate(valid);
+        }
+        mFileIndex = index;
+    }
+
+    /**
+     * Create a new file with its header, and delete the oldest files
+     */
+    private void startFile(int index) throws IOException {
+        File f = new File(mDirectory, String.format(Locale.US, "%s%06d%s", PREFIX, index, SUFFIX));
+        mFile = new RandomAccessFile(f, "rw");
+        mChannel = mFile.getChannel();
+        mChannel.truncate(0);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).flip();
+        while (header.hasRemaining()) {
+            mChannel.write(header);
+        }
+        mFileIndex = index;
+
+        File[] files = listFiles(mDirectory);
+        for (int i = 0; i < files.length - mMaxFiles; i++) {
+            if (!files[i].delete()) {
+                throw new IOException("Cannot delete " + files[i]);
+            }
+        }
+    }
+}
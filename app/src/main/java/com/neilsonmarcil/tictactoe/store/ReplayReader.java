@@ -0,0 +1,157 @@
+package com.neilsonmarcil.tictactoe.store;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * A {@code ReplayReader} streams the games of a {@link ReplayLog}, oldest first. The files are
+ * read through a buffer of fixed size, one after the other, so any number of games can be read
+ * with the same memory. A file without a valid header is skipped, a damaged record is skipped
+ * and counted, and a record cut at the end of a file is ignored.
+ */
+public class ReplayReader implements Iterator<GameRecord>, Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024 / GameRecord.SIZE * GameRecord.SIZE;
+
+    private final List<File> mFiles;
+    private int mNextFile;
+    private FileInputStream mInput;
+    private FileChannel mChannel;
+    private final ByteBuffer mBuffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+    private GameRecord mNext;
+    private long mSkipped;
+
+    /**
+     * Create a new ReplayReader.
+     * @param files the files to read, in order
+     */
+    ReplayReader(List<File> files) {
+        mFiles = files;
+        mBuffer.flip();
+    }
+
+    /**
+     * @throws IllegalStateException if a file cannot be read
+     */
+    @Override
+    public boolean hasNext() {
+        if (mNext != null) {
+            return true;
+        }
+        try {
+            mNext = readNext();
+        }
+        catch (IOException e) {
+            throw new IllegalStateException("Cannot read the replay log", e);
+        }
+        return mNext != null;
+    }
+
+    /**
+     * @throws IllegalStateException if a file cannot be read
+     */
+    @Override
+    public GameRecord next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        GameRecord r = mNext;
+        mNext = null;
+        return r;
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException("The replay log is append only");
+    }
+
+    /**
+     * Returns the number of damaged records skipped so far
+     */
+    public long getSkippedCount() {
+        return mSkipped;
+    }
+
+    @Override
+    public void close() throws IOException {
+        mNextFile = mFiles.size();
+        closeFile();
+    }
+
+    /**
+     * Returns the next valid record, null at the end of the last file
+     */
+    private GameRecord readNext() throws IOException {
+        while (true) {
+            if (mBuffer.remaining() < GameRecord.SIZE && !fill()) {
+                return null;
+            }
+            long packed = 0;
+            for (int i = 0; i < GameRecord.SIZE; i++) {
+                packed = packed << 8 | mBuffer.get() & 0xff;
+            }
+            try {
+                return GameRecord.fromPacked(packed);
+            }
+            catch (IllegalArgumentException e) {
+                mSkipped++;
+            }
+        }
+    }
+
+    /**
+     * Read the next bytes of the files into the buffer
+     * @return false when there is no complete record left
+     */
+    private boolean fill() throws IOException {
+        while (true) {
+            if (mChannel != null) {
+                mBuffer.compact();
+                int read = 0;
+                while (mBuffer.position() < GameRecord.SIZE && read >= 0) {
+                    read = mChannel.read(mBuffer);
+                }
+                mBuffer.flip();
+                if (mBuffer.remaining() >= GameRecord.SIZE) {
+                    return true;
+                }
+                // the end of the file, an incomplete record is left by a crash
+                closeFile();
+            }
+            if (mNextFile >= mFiles.size()) {
+                return false;
+            }
+            openFile(mFiles.get(mNextFile++));
+        }
+    }
+
+    private void openFile(File f) throws IOException {
+        mBuffer.clear();
+        mBuffer.flip();
+        mInput = new FileInputStream(f);
+        mChannel = mInput.getChannel();
+        ByteBuffer header = ByteBuffer.allocate(ReplayLog.HEADER_SIZE);
+        mChannel.read(header);
+        if (header.hasRemaining() || header.getInt(0) != ReplayLog.MAGIC) {
+            closeFile();
+        }
+    }
+
+    private void closeFile() throws IOException {
+        mBuffer.clear();
+        mBuffer.flip();
+        if (mInput != null) {
+            mInput.close();
+            mInput = null;
+            mChannel = null;
+        }
+    }
+}
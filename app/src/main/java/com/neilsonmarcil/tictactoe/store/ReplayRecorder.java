@@ -0,0 +1,107 @@
+package com.neilsonmarcil.tictactoe.store;
+
+/**
+ * A {@code ReplayRecorder} follows the moves of the game being played and appends the game to a
+ * {@link ReplayLog} when it is over. The player ids of the game are turned into the player
+ * numbers of the {@link GameRecord}: the first id given is the player 1.<br/><br/>
+ *
+ * The moves of the game in progress can be saved and restored, so the game is still recorded
+ * when the activity is recreated.
+ */
+public class ReplayRecorder {
+
+    private static final int MAX_MOVES = 9;
+
+    private final ReplayLog mLog;
+    private final int mPlayer1;
+    private final int mPlayer2;
+
+    private final int[] mMoves = new int[MAX_MOVES];
+    private int mMoveCount;
+    private int mFirstPlayer;
+
+    /**
+     * Create a new ReplayRecorder.
+     * @param log the log where the games are appended
+     * @param player1 the id of the player 1
+     * @param player2 the id of the player 2
+     */
+    public ReplayRecorder(ReplayLog log, int player1, int player2) {
+        if (log == null) {
+            throw new IllegalArgumentException("Replay log cannot be null");
+        }
+        if (player1 == 0 || player2 == 0 || player1 == player2) {
+            throw new IllegalArgumentException("Invalid players: " + player1 + ", " + player2);
+        }
+        mLog = log;
+        mPlayer1 = player1;
+        mPlayer2 = player2;
+    }
+
+    /**
+     * Forget the moves of the game in progress, a new game starts.
+     */
+    public void startGame() {
+        mMoveCount = 0;
+    }
+
+    /**
+     * Add a move to the game in progress.
+     * @param box the box played
+     * @param id the id of the player
+     */
+    public void moveCompleted(int box, int id) {
+        if (mMoveCount == MAX_MOVES) {
+            throw new IllegalStateException("The game is already over");
+        }
+        if (mMoveCount == 0) {
+            mFirstPlayer = toPlayer(id);
+        }
+        mMoves[mMoveCount++] = box;
+    }
+
+    /**
+     * Append the game in progress to the log. The next moves belong to a new game.
+     * @param winner the id of the winner, 0 for a draw
+     */
+    public void gameOver(int winner) {
+        int result = winner == 0 ? GameRecord.RESULT_DRAW : toPlayer(winner);
+        if (mMoveCount > 0) {
+            mLog.append(new GameRecord(mMoves, mMoveCount, mFirstPlayer, result));
+        }
+        mMoveCount = 0;
+    }
+
+    /**
+     * Returns the moves of the game in progress, with the first player in the first element
+     */
+    public int[] saveState() {
+        int[] state = new int[mMoveCount + 1];
+        state[0] = mFirstPlayer;
+        System.arraycopy(mMoves, 0, state, 1, mMoveCount);
+        return state;
+    }
+
+    /**
+     * Restore the moves of the game in progress.
+     * @param state an array returned by saveState
+     */
+    public void restoreState(int[] state) {
+        if (state == null || state.length == 0 || state.length > MAX_MOVES + 1) {
+            throw new IllegalArgumentException("Invalid replay state");
+        }
+        mFirstPlayer = state[0];
+        mMoveCount = state.length - 1;
+        System.arraycopy(state, 1, mMoves, 0, mMoveCount);
+    }
+
+    private int toPlayer(int id) {
+        if (id == mPlayer1) {
+            return 1;
+        }
+        if (id == mPlayer2) {
+            return 2;
+        }
+        throw new IllegalArgumentException("Unknown player id: " + id);
+    }
+}
@@ -0,0 +1,369 @@
+package com.neilsonmarcil.tictactoe.store;
+
+import com.neilsonmarcil.tictactoe.game.Score;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.zip.CRC32;
+
+/**
+ * A {@code ScoreStore} keeps the score on the disk, so that it survives the end of the process.
+ * It uses two files in its directory:<br/>
+ * - a journal, where each finished game and each reset of the score is appended as a record of
+ * fixed size with its checksum.<br/>
+ * - a snapshot, the score with the sequence number of the last record it includes. The journal
+ * is compacted into a new snapshot every {@link #COMPACT_RECORDS} records, so it stays short.
+ * <br/><br/>
+ *
+ * When the store is opened, the snapshot is memory mapped and the records of the journal written
+ * after it are applied. A record cut by a crash or with a wrong checksum ends the journal, it and
+ * the bytes after it are removed. A snapshot is written to a temporary file, synced, then renamed
+ * over the previous one, so the snapshot on the disk is always complete. If the process stops
+ * between the rename and the truncation of the journal, the records already in the snapshot are
+ * recognized by their sequence number and skipped.<br/><br/>
+ *
+ * The score is updated in memory right away and the files are written by a background thread, in
+ * the order of the calls, so the main thread never waits for the disk.
+ */
+public class ScoreStore {
+
+    /**
+     * The results of a finished game, for the player of the device
+     */
+    public static final int RESULT_WIN = 1;
+    public static final int RESULT_LOSS = 2;
+    public static final int RESULT_DRAW = 3;
+
+    /**
+     * The number of records after which the journal is compacted into a new snapshot
+     */
+    public static final int COMPACT_RECORDS = 64;
+
+    static final String SNAPSHOT_NAME = "score.snapshot";
+    static final String JOURNAL_NAME = "score.journal";
+    private static final String SNAPSHOT_TEMP_NAME = "score.snapshot.tmp";
+
+    /**
+     * The record that sets the score to 0
+     */
+    private static final int RECORD_RESET = 4;
+
+    /**
+     * Snapshot: magic, version, sequence, wins, losses, draws, checksum
+     */
+    private static final int SNAPSHOT_MAGIC = 0x54545353;
+    private static final int SNAPSHOT_VERSION = 1;
+    static final int SNAPSHOT_SIZE = 32;
+
+    /**
+     * Record: sequence, time in milliseconds, type, checksum
+     */
+    static final int RECORD_SIZE = 24;
+
+    private final File mDirectory;
+
+    /**
+     * The score as seen by the callers, updated when a call is made
+     */
+    private final int[] mScore = new int[3];
+
+    /**
+     * The score and the sequence number of the records written, only used by the writer thread
+     */
+    private final int[] mWrittenScore = new int[3];
+    private long mSequence;
+    private int mJournalRecords;
+
+    private final RandomAccessFile mJournal;
+    private final FileChannel mJournalChannel;
+    private final ByteBuffer mRecord = ByteBuffer.allocate(RECORD_SIZE);
+    private final CRC32 mCrc = new CRC32();
+
+    private final ExecutorService mWriter;
+
+    /**
+     * The first error of the writer thread, thrown by the next call to flush
+     */
+    private volatile IOException mError;
+
+    /**
+     * Open the store of a directory, and load the score it holds. The directory is created if
+     * it does not exist.
+     * @param directory the directory of the files
+     * @throws IOException if the files cannot be read or created
+     */
+    public ScoreStore(File directory) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new FileNotFoundException("Cannot create the directory " + directory);
+        }
+        mDirectory = directory;
+        // a temporary snapshot was not renamed, the previous one is still valid
+        File temp = new File(directory, SNAPSHOT_TEMP_NAME);
+        if (temp.exists() && !temp.delete()) {
+            throw new IOException("Cannot delete " + temp);
+        }
+        readSnapshot(new File(directory, SNAPSHOT_NAME));
+
+        mJournal = new RandomAccessFile(new File(directory, JOURNAL_NAME), "rw");
+        mJournalChannel = mJournal.getChannel();
+        try {
+            readJournal();
+        }
+        catch (IOException e) {
+            mJournal.close();
+            throw e;
+        }
+        System.arraycopy(mWrittenScore, 0, mScore, 0, mScore.length);
+
+        mWriter = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "ScoreStore");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+    }
+
+    /**
+     * Returns a copy of the score
+     */
+    public synchronized Score getScore() {
+        return new Score(mScore[0], mScore[1], mScore[2]);
+    }
+
+    /**
+     * Add the result of a finished game to the score. The record is written in the background.
+     * @param result one of RESULT_WIN, RESULT_LOSS or RESULT_DRAW
+     */
+    public void recordGame(int result) {
+        if (result != RESULT_WIN && result != RESULT_LOSS && result != RESULT_DRAW) {
+            throw new IllegalArgumentException("Unknown game result: " + result);
+        }
+        append(result);
+    }
+
+    /**
+     * Set the score to 0. The record is written in the background.
+     */
+    public void reset() {
+        append(RECORD_RESET);
+    }
+
+    /**
+     * Wait until the records given so far are written and synced to the disk.
+     * @throws IOException if a record could not be written
+     */
+    public void flush() throws IOException {
+        try {
+            mWriter.submit(new Runnable() {
+                @Override
+                public void run() {
+                }
+            }).get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the score store", e);
+        }
+        catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        }
+        IOException error = mError;
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    /**
+     * Write the records given so far, then close the files. The store cannot be used after.
+     * @throws IOException if a record could not be written or the files closed
+     */
+    public void close() throws IOException {
+        try {
+            flush();
+        }
+        finally {
+            mWriter.shutdown();
+            mJournal.close();
+        }
+    }
+
+    /**
+     * Returns the number of records of the journal that are not in the snapshot yet
+     */
+    int getJournalRecordCount() throws IOException {
+        flush();
+        return mJournalRecords;
+    }
+
+    /**
+     * Update the score in memory and give the record to the writer thread
+     */
+    private void append(final int type) {
+        final long time = System.currentTimeMillis();
+        synchronized (this) {
+            apply(mScore, type);
+        }
+        mWriter.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (mError != null) {
+                    return;
+                }
+                try {
+                    writeRecord(type, time);
+                    if (mJournalRecords >= COMPACT_RECORDS) {
+                        compact();
+                    }
+                }
+                catch (IOException e) {
+                    mError = e;
+                }
+            }
+        });
+    }
+
+    /**
+     * Append a record to the journal and sync it. Called by the writer thread.
+     */
+    private void writeRecord(int type, long time) throws IOException {
+        long sequence = mSequence + 1;
+        ByteBuffer r = mRecord;
+        r.clear();
+        r.putLong(sequence).putLong(time).putInt(type);
+        r.putInt(checksum(r.array(), RECORD_SIZE - 4));
+        r.flip();
+        long position = mJournalChannel.size();
+        while (r.hasRemaining()) {
+            position += mJournalChannel.write(r, position);
+        }
+        mJournalChannel.force(false);
+        mSequence = sequence;
+        mJournalRecords++;
+        apply(mWrittenScore, type);
+    }
+
+    /**
+     * Write the score in a new snapshot, then empty the journal. Called by the writer thread.
+     */
+    private void compact() throws IOException {
+        ByteBuffer b = ByteBuffer.allocate(SNAPSHOT_SIZE);
+        b.putInt(SNAPSHOT_MAGIC).putInt(SNAPSHOT_VERSION).putLong(mSequence)
+                .putInt(mWrittenScore[0]).putInt(mWrittenScore[1]).putInt(mWrittenScore[2]);
+        b.putInt(checksum(b.array(), SNAPSHOT_SIZE - 4));
+        b.flip();
+
+        File temp = new File(mDirectory, SNAPSHOT_TEMP_NAME);
+        RandomAccessFile file = new RandomAccessFile(temp, "rw");
+        try {
+            FileChannel channel = file.getChannel();
+            channel.truncate(0);
+            while (b.hasRemaining()) {
+                channel.write(b);
+            }
+            channel.force(true);
+        }
+        finally {
+            file.close();
+        }
+        if (!temp.renameTo(new File(mDirectory, SNAPSHOT_NAME))) {
+            throw new IOException("Cannot rename " + temp);
+        }
+        mJournalChannel.truncate(0);
+        mJournalChannel.force(true);
+        mJournalRecords = 0;
+    }
+
+    /**
+     * Load the score of the snapshot, the score stays at 0 when there is no valid snapshot
+     */
+    private void readSnapshot(File snapshot) throws IOException {
+        if (snapshot.length() != SNAPSHOT_SIZE) {
+            return;
+        }
+        RandomAccessFile file = new RandomAccessFile(snapshot, "r");
+        try {
+            MappedByteBuffer b = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, SNAPSHOT_SIZE);
+            byte[] bytes = new byte[SNAPSHOT_SIZE];
+            b.get(bytes);
+            ByteBuffer s = ByteBuffer.wrap(bytes);
+            if (s.getInt() != SNAPSHOT_MAGIC || s.getInt() != SNAPSHOT_VERSION
+                    || s.getInt(SNAPSHOT_SIZE - 4) != checksum(bytes, SNAPSHOT_SIZE - 4)) {
+                return;
+            }
+            mSequence = s.getLong();
+            mWrittenScore[0] = s.getInt();
+            mWrittenScore[1] = s.getInt();
+            mWrittenScore[2] = s.getInt();
+        }
+        finally {
+            file.close();
+        }
+    }
+
+    /**
+     * Apply the records of the journal that are not in the snapshot. The journal ends at the
+     * first record that is incomplete, has a wrong checksum or is out of sequence, it is
+     * truncated there so the next records are appended after the last valid one.
+     */
+    private void readJournal() throws IOException {
+        long size = mJournalChannel.size();
+        long valid = 0;
+        if (size >= RECORD_SIZE) {
+            MappedByteBuffer b = mJournalChannel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            byte[] bytes = mRecord.array();
+            long last = -1;
+            while (b.remaining() >= RECORD_SIZE) {
+                b.get(bytes);
+                ByteBuffer r = ByteBuffer.wrap(bytes);
+                long sequence = r.getLong();
+                r.getLong();
+                int type = r.getInt();
+                if (r.getInt() != checksum(bytes, RECORD_SIZE - 4) || sequence <= last
+                        || type < RESULT_WIN || type > RECORD_RESET) {
+                    break;
+                }
+                last = sequence;
+                valid += RECORD_SIZE;
+                // the records up to the sequence of the snapshot are already in it
+                if (sequence > mSequence) {
+                    mSequence = sequence;
+                    apply(mWrittenScore, type);
+                }
+                mJournalRecords++;
+            }
+        }
+        if (valid != size) {
+            mJournalChannel.truncate(valid);
+            mJournalChannel.force(true);
+        }
+    }
+
+    private int checksum(byte[] bytes, int length) {
+        CRC32 crc = mCrc;
+        crc.reset();
+        crc.update(bytes, 0, length);
+        return (int)crc.getValue();
+    }
+
+    private static void apply(int[] score, int type) {
+        if (type == RECORD_RESET) {
+            score[0] = 0;
+            score[1] = 0;
+            score[2] = 0;
+        }
+        else {
+            score[type - RESULT_WIN]++;
+        }
+    }
+}
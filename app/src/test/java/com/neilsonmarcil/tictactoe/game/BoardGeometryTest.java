@@ -0,0 +1,101 @@
+package com.neilsonmarcil.tictactoe.game;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the winning lines generated for different board geometries and the Board operations
+ * on boards that need more than one word per bitset.
+ */
+public class BoardGeometryTest {
+
+    @Test
+    public void lineCounts() throws Exception {
+        assertEquals(8, BoardGeometry.STANDARD.getLineCount());
+        assertEquals(10, BoardGeometry.get(4, 4, 4).getLineCount());
+        assertEquals(28, BoardGeometry.get(5, 5, 4).getLineCount());
+        assertEquals(572, BoardGeometry.get(15, 15, 5).getLineCount());
+        assertSame(BoardGeometry.get(5, 5, 4), BoardGeometry.get(5, 5, 4));
+    }
+
+    @Test
+    public void standardLinesMatchTheWinningMasks() throws Exception {
+        BoardGeometry g = BoardGeometry.STANDARD;
+        int found = 0;
+        for (int l = 0; l < g.getLineCount(); l++) {
+            for (int w : Board.WINNING_MASKS) {
+                if (g.getLineMask(l, 0) == w) {
+                    found++;
+                }
+            }
+        }
+        assertEquals(Board.WINNING_MASKS.length, found);
+    }
+
+    @Test
+    public void everyCellKnowsItsLines() throws Exception {
+        BoardGeometry g = BoardGeometry.get(15, 15, 5);
+        for (int cell = 0; cell < g.getCellCount(); cell++) {
+            for (int line : g.getCellLines(cell)) {
+                assertTrue((g.getLineMask(line, cell >>> 6) & 1L << cell) != 0);
+            }
+        }
+        // the center box of a 15x15 board is in 5 lines for each of the 4 directions
+        assertEquals(20, g.getCellLines(7 * 15 + 7).length);
+    }
+
+    @Test
+    public void winOnALargeBoard() throws Exception {
+        Board b = new Board(15, 15, 5);
+        assertEquals(225, b.getPossibleMovesCount());
+
+        // an anti-diagonal that crosses the boundary between two bitset words
+        int[] cells = new int[] { 4 * 15 + 8, 5 * 15 + 7, 6 * 15 + 6, 7 * 15 + 5 };
+        for (int c : cells) {
+            b.addToken(c, 1);
+        }
+        b.addToken(0, 2);
+        assertFalse(b.isWinning(1));
+        assertEquals(3 * 15 + 9, b.getWinningMove(1));
+        assertEquals(-1, b.getWinningMove(2));
+
+        b.addToken(8 * 15 + 4, 1);
+        assertTrue(b.isWinning(1));
+        assertTrue(b.isWinningMove(8 * 15 + 4));
+        assertFalse(b.isWinningMove(0));
+        assertEquals(219, b.getPossibleMovesCount());
+        assertEquals(219, b.getNextPossibleMoves().length);
+        assertArrayEquals(new int[] { 68, 82, 96, 110, 124 }, b.getPlayerPosition(1));
+    }
+
+    @Test
+    public void symmetriesMoveLinesOntoLines() throws Exception {
+        int[][] sizes = new int[][] { { 3, 3, 3 }, { 4, 4, 3 }, { 3, 5, 3 }, { 6, 4, 4 } };
+        for (int[] size : sizes) {
+            BoardGeometry g = BoardGeometry.get(size[0], size[1], size[2]);
+            assertEquals(size[0] == size[1] ? 8 : 4, g.getSymmetryCount());
+            for (int t = 0; t < g.getSymmetryCount(); t++) {
+                boolean[] seen = new boolean[g.getCellCount()];
+                for (int cell = 0; cell < g.getCellCount(); cell++) {
+                    int moved = g.getSymmetricCell(t, cell);
+                    assertFalse(seen[moved]);
+                    seen[moved] = true;
+                    assertEquals(cell, g.getSymmetricCell(g.getInverseSymmetry(t), moved));
+                }
+                // each line is moved onto a line
+                for (int l = 0; l < g.getLineCount(); l++) {
+                    Board b = new Board(g);
+                    for (int i = 0; i < g.getLength(); i++) {
+                        b.addToken(g.getSymmetricCell(t, g.getLineCell(l, i)), 1);
+                    }
+                    assertTrue(b.isWinning(1));
+                }
+            }
+            assertEquals(0, g.getInverseSymmetry(0));
+            assertEquals(4, g.getSymmetricCell(0, 4));
+        }
+        // a quarter turn of the classic board moves the top left corner to the top right one
+        assertEquals(2, BoardGeometry.STANDARD.getSymmetricCell(1, 0));
+    }
+}
@@ -0,0 +1,224 @@
+package com.neilsonmarcil.tictactoe.game;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the Board masks, the incremental Zobrist hash and the line counters.
+ */
+public class BoardTest {
+
+    @Test
+    public void masksFollowTheTokens() throws Exception {
+        Board b = new Board();
+        b.addToken(4, 2);
+        b.addToken(0, 1);
+        b.addToken(8, 1);
+
+        assertEquals(0x101, b.getPlayerMask(1));
+        assertEquals(0x010, b.getPlayerMask(2));
+        assertEquals(6, b.getPossibleMovesCount());
+        assertArrayEquals(new int[] { 1, 2, 3, 5, 6, 7 }, b.getNextPossibleMoves());
+        assertEquals(2, b.getToken(4));
+        assertEquals(-1, b.getToken(9));
+
+        b.addToken(4, 1);
+        assertTrue(b.isWinning(1));
+        assertFalse(b.isWinning(2));
+    }
+
+    @Test
+    public void hashDoesNotDependOnMoveOrder() throws Exception {
+        Board a = new Board();
+        a.addToken(0, 1);
+        a.addToken(4, 2);
+        a.addToken(8, 1);
+
+        Board b = new Board();
+        b.addToken(8, 1);
+        b.addToken(4, 2);
+        b.addToken(0, 1);
+        assertEquals(a.getHash(), b.getHash());
+
+        Board c = new Board();
+        c.addToken(4, 2);
+        c.addToken(0, 2);
+        c.addToken(0, 1);
+        c.addToken(8, 1);
+        assertEquals(a.getHash(), c.getHash());
+
+        Board swapped = new Board();
+        swapped.addToken(0, 2);
+        swapped.addToken(4, 1);
+        swapped.addToken(8, 2);
+        assertNotEquals(a.getHash(), swapped.getHash());
+    }
+
+    @Test
+    public void hashIsRestoredWhenMovesAreUndone() throws Exception {
+        Board b = new Board();
+        b.addToken(3, 1);
+        long h = b.getHash();
+
+        b.addToken(5, 2);
+        b.addToken(7, 1);
+        assertNotEquals(h, b.getHash());
+        b.addToken(7, 0);
+        b.addToken(5, 0);
+        assertEquals(h, b.getHash());
+
+        b.resetBoard();
+        assertEquals(0, b.getHash());
+    }
+
+    @Test
+    public void countersFollowMovesAndUndos() throws Exception {
+        checkCounters(BoardGeometry.STANDARD);
+        checkCounters(BoardGeometry.get(4, 4, 3));
+        checkCounters(BoardGeometry.get(9, 9, 5));
+    }
+
+    /**
+     * Play and undo random moves and compare the counters with a scan of the lines.
+     */
+    private void checkCounters(BoardGeometry geometry) {
+        Random random = new Random(geometry.getCellCount());
+        Board b = new Board(geometry);
+        int[] moves = new int[geometry.getCellCount()];
+        int[] counts = new int[geometry.getLength() + 1];
+        int played = 0;
+        for (int i = 0; i < 2000; i++) {
+            int player = played % 2 + 1;
+            if (played > 0 && (random.nextInt(3) == 0 || b.isFull() || b.hasWinner())) {
+                b.addToken(moves[--played], 0);
+            }
+            else {
+                int box;
+                do {
+                    box = random.nextInt(geometry.getCellCount());
+                } while (b.getToken(box) != 0);
+                b.addToken(box, player);
+                moves[played++] = box;
+                assertEquals(scanWinning(b, player), b.isWinningMove(box));
+            }
+
+            assertEquals(geometry.getCellCount() - played, b.getPossibleMovesCount());
+            assertEquals(played == geometry.getCellCount(), b.isFull());
+            assertEquals(scanWinning(b, 1), b.isWinning(1));
+            assertEquals(scanWinning(b, 2), b.isWinning(2));
+            assertEquals(scanWinning(b, 1) || scanWinning(b, 2), b.hasWinner());
+            assertEquals(scanWinningMove(b, 1), b.getWinningMove(1));
+            b.countOpenLines(2, counts);
+            assertArrayEquals(scanOpenLines(b, 2), counts);
+        }
+        Board copy = new Board(b);
+        assertEquals(b.getWinningMove(2), copy.getWinningMove(2));
+        assertEquals(b.getPossibleMovesCount(), copy.getPossibleMovesCount());
+        b.resetBoard();
+        assertEquals(geometry.getCellCount(), b.getPossibleMovesCount());
+        assertFalse(b.hasWinner());
+    }
+
+    private static int countTokens(Board b, int line, int player) {
+        BoardGeometry g = b.getGeometry();
+        int count = 0;
+        for (int i = 0; i < g.getLength(); i++) {
+            if (b.getToken(g.getLineCell(line, i)) == player) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static boolean scanWinning(Board b, int player) {
+        BoardGeometry g = b.getGeometry();
+        for (int l = 0; l < g.getLineCount(); l++) {
+            if (countTokens(b, l, player) == g.getLength()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int scanWinningMove(Board b, int player) {
+        BoardGeometry g = b.getGeometry();
+        int best = -1;
+        for (int l = 0; l < g.getLineCount(); l++) {
+            if (countTokens(b, l, player) == g.getLength() - 1 && countTokens(b, l, 0) == 1) {
+                for (int i = 0; i < g.getLength(); i++) {
+                    int cell = g.getLineCell(l, i);
+                    if (b.getToken(cell) == 0 && (best < 0 || cell < best)) {
+                        best = cell;
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    private static int[] scanOpenLines(Board b, int player) {
+        BoardGeometry g = b.getGeometry();
+        int[] counts = new int[g.getLength() + 1];
+        for (int l = 0; l < g.getLineCount(); l++) {
+            int mine = countTokens(b, l, player);
+            if (mine + countTokens(b, l, 0) == g.getLength()) {
+                counts[mine]++;
+            }
+        }
+        return counts;
+    }
+
+    @Test
+    public void symmetricHashesAreTheHashesOfTheMovedBoards() throws Exception {
+        Random random = new Random(7);
+        BoardGeometry[] geometries = new BoardGeometry[] {
+                BoardGeometry.STANDARD, BoardGeometry.get(4, 4, 3), BoardGeometry.get(3, 5, 3)
+        };
+        for (BoardGeometry g : geometries) {
+            for (int game = 0; game < 50; game++) {
+                Board b = new Board(g);
+                int player = 1;
+                for (int move = 0; move < g.getCellCount() / 2; move++) {
+                    int[] moves = b.getNextPossibleMoves();
+                    b.addToken(moves[random.nextInt(moves.length)], player);
+                    player = 3 - player;
+                }
+                long canonical = b.getSymmetricHash(b.getCanonicalSymmetry());
+                for (int t = 0; t < g.getSymmetryCount(); t++) {
+                    Board moved = new Board(g);
+                    for (int cell = 0; cell < g.getCellCount(); cell++) {
+                        moved.addToken(g.getSymmetricCell(t, cell), b.getToken(cell));
+                    }
+                    assertEquals(b.getSymmetricHash(t), moved.getHash());
+                    assertEquals(canonical, moved.getSymmetricHash(moved.getCanonicalSymmetry()));
+                    assertTrue(canonical <= b.getSymmetricHash(t));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void symmetricPositionsAreFound() throws Exception {
+        Board b = new Board();
+        assertTrue(b.isSymmetric(5));
+        b.addToken(4, 1);
+        for (int t = 0; t < 8; t++) {
+            assertTrue(b.isSymmetric(t));
+        }
+        b.addToken(0, 2);
+        // only the reflection across the diagonal keeps the corner in place
+        assertTrue(b.isSymmetric(0));
+        assertTrue(b.isSymmetric(6));
+        assertFalse(b.isSymmetric(1));
+        assertFalse(b.isSymmetric(7));
+
+        Board copy = new Board(b);
+        assertEquals(b.getCanonicalSymmetry(), copy.getCanonicalSymmetry());
+        assertEquals(b.getSymmetricHash(3), copy.getSymmetricHash(3));
+        b.resetBoard();
+        assertEquals(0, b.getSymmetricHash(3));
+    }
+}
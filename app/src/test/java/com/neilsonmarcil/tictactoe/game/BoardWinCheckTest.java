@@ -0,0 +1,86 @@
+package com.neilsonmarcil.tictactoe.game;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compares the bitboard win detection against the previous implementation that was scanning
+ * the player positions with the WINNING_CONDITION table. Both implementations must agree on
+ * every position. The speed of the win check is measured by the benchmarks module.
+ */
+public class BoardWinCheckTest {
+
+    private static final int[] WINNING_CONDITION = new int[]
+            { 0, 1, 2, 0, 4, 8, 0, 3, 6, 3, 4, 5, 6, 7, 8, 2, 4, 6, 1, 4, 7, 2, 5, 8 };
+
+    private static final int POSITIONS = 4096;
+
+    @Test
+    public void bitboardAgreesWithLegacyScan() throws Exception {
+        Board[] boards = createPositions();
+        for (Board b : boards) {
+            for (int p = 1; p <= 2; p++) {
+                assertEquals(legacyIsWinning(b.getPlayerPosition(p)), b.isWinning(p));
+            }
+        }
+    }
+
+    /**
+     * Play random games with a fixed seed and keep every intermediate position.
+     */
+    private Board[] createPositions() {
+        Random r = new Random(42);
+        Board[] boards = new Board[POSITIONS];
+        int c = 0;
+        while (c < POSITIONS) {
+            Board b = new Board();
+            int player = 1;
+            for (int m = 0; m < Board.BOARD_SIZE && c < POSITIONS; m++) {
+                int[] moves = b.getNextPossibleMoves();
+                b.addToken(moves[r.nextInt(moves.length)], player);
+                player = 3 - player;
+
+                Board copy = new Board();
+                for (int i = 0; i < Board.BOARD_SIZE; i++) {
+                    copy.addToken(i, b.getToken(i));
+                }
+                boards[c++] = copy;
+                if (b.isWinning(1) || b.isWinning(2)) {
+                    break;
+                }
+            }
+        }
+        return boards;
+    }
+
+    private boolean legacyIsWinning(int[] p) {
+        boolean winner = false;
+        int blockIndex = 0;
+        int[] block = new int[20];
+        for (int i = 0; i < p.length && !winner; i++) {
+            for (int j = 0; j < WINNING_CONDITION.length && !winner; j++) {
+                if (p[i] == WINNING_CONDITION[j]) {
+                    block[blockIndex++] = j / 3;
+                    winner = hasThreeOccurences(block, blockIndex);
+                }
+            }
+        }
+        return winner;
+    }
+
+    private boolean hasThreeOccurences(int[] block, int maxIndex) {
+        boolean result = false;
+        int[] b = Arrays.copyOf(block, maxIndex);
+        Arrays.sort(b);
+        for (int i = 2; i < b.length && !result && i < maxIndex; i++) {
+            if (b[i - 2] == b[i - 1] && b[i - 1] == b[i]) {
+                result = true;
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,126 @@
+package com.neilsonmarcil.tictactoe.game;
+
+import com.neilsonmarcil.tictactoe.player.ComputerPlayer;
+import com.neilsonmarcil.tictactoe.player.Player;
+import com.neilsonmarcil.tictactoe.player.Ponderer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the computer player searches in the background and that its move is only given
+ * to the listener on the callback executor.
+ */
+public class GameTest implements Game.ComputerPlayerListener {
+
+    private static final int HUMAN = 1;
+    private static final int COMPUTER = 2;
+
+    private final BlockingQueue<Runnable> mCallbacks = new LinkedBlockingQueue<>();
+    private final List<Integer> mMoves = new ArrayList<>();
+    private int mThinking;
+
+    private ExecutorService mBackground;
+    private Board mBoard;
+    private ComputerPlayer mComputer;
+    private Game mGame;
+
+    @Before
+    public void setUp() {
+        mBackground = Executors.newSingleThreadExecutor();
+        mBoard = new Board();
+        mGame = new Game(mBoard, new Score(), new Player[] { new Player(HUMAN), mComputer = new ComputerPlayer(COMPUTER) }, this);
+        mGame.setComputerExecutor(mBackground, new Executor() {
+            @Override
+            public void execute(Runnable r) {
+                mCallbacks.add(r);
+            }
+        });
+    }
+
+    @After
+    public void tearDown() {
+        mBackground.shutdownNow();
+    }
+
+    @Test
+    public void moveIsGivenOnTheCallbackExecutor() throws Exception {
+        mBoard.addToken(0, HUMAN);
+        mBoard.addToken(4, COMPUTER);
+        mBoard.addToken(1, HUMAN);
+        mGame.setActivePlayer(HUMAN);
+        mGame.nextPlayer();
+
+        assertEquals(1, mThinking);
+        assertTrue(mGame.isComputerThinking());
+        assertTrue(mMoves.isEmpty());
+
+        mCallbacks.poll(5, TimeUnit.SECONDS).run();
+        assertFalse(mGame.isComputerThinking());
+        assertEquals(1, mMoves.size());
+        assertEquals(2, (int)mMoves.get(0));
+        assertEquals(6, mBoard.getPossibleMovesCount());
+    }
+
+    @Test
+    public void cancelledMoveIsIgnored() throws Exception {
+        mBoard.addToken(0, HUMAN);
+        mGame.setActivePlayer(HUMAN);
+        mGame.nextPlayer();
+        mGame.cancelComputerPlay();
+        assertFalse(mGame.isComputerThinking());
+
+        Runnable callback = mCallbacks.poll(1, TimeUnit.SECONDS);
+        if (callback != null) {
+            callback.run();
+        }
+        assertTrue(mMoves.isEmpty());
+    }
+
+    @Test
+    public void ponderedReplyIsPlayedRightAway() throws Exception {
+        Ponderer ponderer = new Ponderer(mComputer);
+        mGame.setPonderer(ponderer);
+        mBoard.addToken(0, HUMAN);
+        mBoard.addToken(4, COMPUTER);
+        mGame.setActivePlayer(COMPUTER);
+        mGame.nextPlayer();
+
+        long end = System.currentTimeMillis() + 10000;
+        while (ponderer.getReadyCount() < 7 && System.currentTimeMillis() < end) {
+            Thread.sleep(5);
+        }
+        mBoard.addToken(1, HUMAN);
+        mGame.nextPlayer();
+
+        assertEquals(0, mThinking);
+        assertFalse(mGame.isComputerThinking());
+        assertEquals(1, mMoves.size());
+        assertEquals(2, (int)mMoves.get(0));
+        assertNull(mGame.getSearchStats());
+        ponderer.shutdown();
+    }
+
+    @Override
+    public void computerPlayerMove(int box, int i) {
+        assertEquals(COMPUTER, i);
+        mMoves.add(box);
+    }
+
+    @Override
+    public void computerPlayerThinking() {
+        mThinking++;
+    }
+}
@@ -0,0 +1,98 @@
+package com.neilsonmarcil.tictactoe.player;
+
+import com.neilsonmarcil.tictactoe.game.Board;
+import com.neilsonmarcil.tictactoe.game.Game;
+import com.neilsonmarcil.tictactoe.game.Score;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the search of the ComputerPlayer does not allocate once it is warmed up, with the
+ * allocation counter of the thread kept by the JVM.
+ */
+public class ComputerPlayerAllocationTest {
+
+    private static final int HUMAN = 1;
+    private static final int COMPUTER = 2;
+
+    @Test
+    public void fullSearchDoesNotAllocate() throws Exception {
+        ComputerPlayer computer = new ComputerPlayer(COMPUTER);
+        Board board = new Board();
+        Game game = new Game(board, new Score(), new Player[] { new Player(HUMAN), computer }, null);
+
+        assertEquals(0, measure(computer, game, new int[] { 4, 0, 8 }));
+    }
+
+    @Test
+    public void limitedSearchDoesNotAllocate() throws Exception {
+        ComputerPlayer computer = new ComputerPlayer(COMPUTER);
+        computer.setTimeBudget(5);
+        Board board = new Board(5, 5, 4);
+        Game game = new Game(board, new Score(), new Player[] { new Player(HUMAN), computer }, null);
+
+        assertEquals(0, measure(computer, game, new int[] { 12, 6, 18 }));
+    }
+
+    @Test
+    public void statsDoNotAllocate() throws Exception {
+        ComputerPlayer computer = new ComputerPlayer(COMPUTER);
+        computer.setStatsEnabled(true);
+        Board board = new Board();
+        Game game = new Game(board, new Score(), new Player[] { new Player(HUMAN), computer }, null);
+
+        assertEquals(0, measure(computer, game, new int[] { 4, 0, 8 }));
+    }
+
+    /**
+     * Play the computer moves of a game where the human plays the given boxes, several times to
+     * warm up and once to count the bytes allocated by playMove.
+     * @return the number of bytes allocated by the second game
+     */
+    private long measure(ComputerPlayer computer, Game game, int[] human) {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean)bean;
+        Assume.assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+        long thread = Thread.currentThread().getId();
+
+        for (int i = 0; i < 20; i++) {
+            play(computer, game, human);
+        }
+        // the counter itself may allocate, its cost is measured first
+        long start = threads.getThreadAllocatedBytes(thread);
+        long overhead = threads.getThreadAllocatedBytes(thread) - start;
+
+        start = threads.getThreadAllocatedBytes(thread);
+        play(computer, game, human);
+        return threads.getThreadAllocatedBytes(thread) - start - overhead;
+    }
+
+    private static void play(ComputerPlayer computer, Game game, int[] human) {
+        Board b = game.getBoard();
+        b.resetBoard();
+        for (int i = 0; i < human.length; i++) {
+            // the human plays the next empty box when the computer took the one planned
+            int box = human[i];
+            while (b.getToken(box) != 0) {
+                box = (box + 1) % b.getCellCount();
+            }
+            b.addToken(box, HUMAN);
+            if (game.isGameOver()) {
+                return;
+            }
+            int move = computer.playMove(game);
+            assertEquals(0, b.getToken(move));
+            b.addToken(move, COMPUTER);
+            if (game.isGameOver()) {
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,282 @@
+package com.neilsonmarcil.tictactoe.player;
+
+import com.neilsonmarcil.tictactoe.game.Board;
+import com.neilsonmarcil.tictactoe.game.Game;
+import com.neilsonmarcil.tictactoe.game.Score;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the ComputerPlayer search against a plain minimax search on every position the
+ * computer can face, and compares the number of nodes visited by both.
+ */
+public class ComputerPlayerTest {
+
+    private static final int HUMAN = 1;
+    private static final int COMPUTER = 2;
+
+    private Board mBoard;
+    private Game mGame;
+    private ComputerPlayer mComputer;
+
+    private long mSearchNodes;
+    private long mMinimaxNodes;
+    private int mPositions;
+    private Set<Integer> mVisited = new HashSet<>();
+    private boolean mCompareScores;
+
+    @Test
+    public void alphaBetaPlaysLikeMinimax() throws Exception {
+        checkAllPositions(ComputerPlayer.SEARCH_ALPHA_BETA);
+    }
+
+    @Test
+    public void principalVariationPlaysLikeMinimax() throws Exception {
+        checkAllPositions(ComputerPlayer.SEARCH_PRINCIPAL_VARIATION);
+    }
+
+    @Test
+    public void parallelSearchPlaysLikeMinimax() throws Exception {
+        checkAllPositions(ComputerPlayer.SEARCH_ALPHA_BETA, 4);
+    }
+
+    @Test
+    public void parallelSearchFindsTheSameScoreOnALargerBoard() throws Exception {
+        int[] opening = new int[] { 5, 10 };
+        SearchResult[] results = new SearchResult[2];
+        for (int t = 0; t < results.length; t++) {
+            mBoard = new Board(4, 4, 4);
+            mComputer = new ComputerPlayer(COMPUTER);
+            mComputer.setThreadCount(t == 0 ? 1 : 4);
+            mGame = new Game(mBoard, new Score(), new Player[] { new Player(HUMAN), mComputer }, null);
+            for (int i = 0; i < opening.length; i++) {
+                mBoard.addToken(opening[i], i % 2 == 0 ? HUMAN : COMPUTER);
+            }
+            results[t] = mComputer.searchMove(mGame);
+        }
+        assertEquals(results[0].getScore(), results[1].getScore());
+        assertEquals(results[0].getMove(), results[1].getMove());
+    }
+
+    @Test
+    public void tableMakesTheNextMovesCheaper() throws Exception {
+        mBoard = new Board();
+        mComputer = new ComputerPlayer(COMPUTER);
+        mGame = new Game(mBoard, new Score(), new Player[] { new Player(HUMAN), mComputer }, null);
+
+        mBoard.addToken(0, HUMAN);
+        int move = mComputer.playMove(mGame);
+        long firstSearch = mComputer.getLastNodeCount();
+
+        mBoard.addToken(move, COMPUTER);
+        mBoard.addToken(mBoard.getNextPossibleMoves()[0], HUMAN);
+        mComputer.playMove(mGame);
+        long secondSearch = mComputer.getLastNodeCount();
+
+        assertTrue(secondSearch <= mBoard.getPossibleMovesCount() + 1);
+        assertTrue(secondSearch * 10 < firstSearch);
+    }
+
+    @Test
+    public void playsTheWinningMoveOnALargeBoard() throws Exception {
+        mBoard = new Board(15, 15, 5);
+        mComputer = new ComputerPlayer(COMPUTER);
+        mGame = new Game(mBoard, new Score(), new Player[] { new Player(HUMAN), mComputer }, null);
+
+        for (int c = 5; c <= 8; c++) {
+            mBoard.addToken(7 * 15 + c, COMPUTER);
+        }
+        mBoard.addToken(0, HUMAN);
+        mBoard.addToken(20, HUMAN);
+        mBoard.addToken(200, HUMAN);
+        mBoard.addToken(224, HUMAN);
+
+        assertEquals(7 * 15 + 4, mComputer.playMove(mGame));
+    }
+
+    @Test
+    public void limitedSearchPlaysMovesAsGoodAsMinimax() throws Exception {
+        mCompareScores = true;
+        mBoard = new Board();
+        mComputer = new ComputerPlayer(COMPUTER);
+        mComputer.setTimeBudget(1000);
+        mGame = new Game(mBoard, new Score(), new Player[] { new Player(HUMAN), mComputer }, null);
+
+        visit(HUMAN);
+        visit(COMPUTER);
+    }
+
+    @Test
+    public void limitedSearchStopsWithinTheBudget() throws Exception {
+        checkBudget(1);
+    }
+
+    @Test
+    public void limitedParallelSearchStopsWithinTheBudget() throws Exception {
+        checkBudget(4);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeTimeBudgetIsRejected() throws Exception {
+        new ComputerPlayer(COMPUTER).setTimeBudget(-1);
+    }
+
+    @Test
+    public void statsDescribeTheLastMove() throws Exception {
+        mBoard = new Board(4, 4, 3);
+        mComputer = new ComputerPlayer(COMPUTER);
+        mGame = new Game(mBoard, new Score(), new Player[] { new Player(HUMAN), mComputer }, null);
+        assertNull(mGame.getSearchStats());
+
+        mComputer.setStatsEnabled(true);
+        mBoard.addToken(5, HUMAN);
+        int move = mComputer.playMove(mGame);
+        SearchStats stats = mGame.getSearchStats();
+
+        assertEquals(move, stats.getMove());
+        assertEquals(mComputer.getLastNodeCount(), stats.getNodeCount());
+        assertTrue(stats.getCutoffs() > 0);
+        assertTrue(stats.getTableHits() > 0);
+        assertTrue(stats.getMaxDepth() > 1);
+        assertTrue(stats.getElapsedNanos() > 0);
+        assertTrue(stats.getNodesPerSecond() > 0);
+
+        // the principal variation starts with the move and is a legal game
+        int[] pv = stats.getPrincipalVariation();
+        assertTrue(pv.length > 0);
+        assertEquals(move, pv[0]);
+        Board copy = new Board(mBoard);
+        for (int i = 0; i < pv.length; i++) {
+            assertEquals(0, copy.getToken(pv[i]));
+            copy.addToken(pv[i], i % 2 == 0 ? COMPUTER : HUMAN);
+        }
+        assertEquals(15, mBoard.getPossibleMovesCount());
+
+        mComputer.setStatsEnabled(false);
+        assertNull(mGame.getSearchStats());
+    }
+
+    private void checkBudget(int threads) {
+        mBoard = new Board(15, 15, 5);
+        mComputer = new ComputerPlayer(COMPUTER);
+        mComputer.setTimeBudget(50);
+        mComputer.setThreadCount(threads);
+        mGame = new Game(mBoard, new Score(), new Player[] { new Player(HUMAN), mComputer }, null);
+        mBoard.addToken(7 * 15 + 7, HUMAN);
+
+        // the second move starts from a table filled by the first one
+        for (int i = 0; i < 2; i++) {
+            long start = System.nanoTime();
+            SearchResult result = mComputer.searchMove(mGame);
+            long elapsed = (System.nanoTime() - start) / 1000000L;
+
+            assertTrue(elapsed < 50 + 100);
+            assertTrue(result.getDepth() >= 1);
+            assertEquals(0, mBoard.getToken(result.getMove()));
+        }
+        mComputer.setThreadCount(1);
+    }
+
+    private void checkAllPositions(int mode) {
+        checkAllPositions(mode, 1);
+    }
+
+    private void checkAllPositions(int mode, int threads) {
+        mBoard = new Board();
+        mComputer = new ComputerPlayer(COMPUTER);
+        mComputer.setSearchMode(mode);
+        mComputer.setThreadCount(threads);
+        mGame = new Game(mBoard, new Score(), new Player[] { new Player(HUMAN), mComputer }, null);
+
+        visit(HUMAN);
+        visit(COMPUTER);
+
+        assertTrue(mPositions > 0);
+        assertTrue(mSearchNodes * 10 <= mMinimaxNodes);
+    }
+
+    /**
+     * Walk every reachable position and ask the computer to play each time it is his turn.
+     */
+    private void visit(int turn) {
+        if (mGame.isGameOver()) {
+            return;
+        }
+        int[] moves = mBoard.getNextPossibleMoves();
+        int key = mBoard.getPlayerMask(HUMAN) | mBoard.getPlayerMask(COMPUTER) << Board.BOARD_SIZE
+                | turn << 2 * Board.BOARD_SIZE;
+        if (!mVisited.add(key)) {
+            return;
+        }
+        if (turn == COMPUTER && moves.length < Board.BOARD_SIZE) {
+            int move = mComputer.playMove(mGame);
+            mSearchNodes += mComputer.getLastNodeCount();
+            mPositions++;
+
+            int[] expected = minimaxRoot();
+            if (mCompareScores) {
+                mBoard.addToken(move, COMPUTER);
+                assertEquals(expected[1], minimax(HUMAN, 1));
+                mBoard.addToken(move, 0);
+            }
+            else {
+                assertEquals(expected[0], move);
+            }
+            assertArrayEquals(moves, mBoard.getNextPossibleMoves());
+        }
+        for (int m : moves) {
+            mBoard.addToken(m, turn);
+            visit(3 - turn);
+            mBoard.addToken(m, 0);
+        }
+    }
+
+    /**
+     * The plain minimax search used by the first version of the ComputerPlayer. The score is
+     * from the point of view of the human player, the computer chooses the lowest one.
+     * @return the first best move and its score
+     */
+    private int[] minimaxRoot() {
+        int best = Integer.MAX_VALUE;
+        int bestMove = -1;
+        mMinimaxNodes++;
+        for (int m : mBoard.getNextPossibleMoves()) {
+            mBoard.addToken(m, COMPUTER);
+            int s = minimax(HUMAN, 1);
+            mBoard.addToken(m, 0);
+            if (s < best) {
+                best = s;
+                bestMove = m;
+            }
+        }
+        return new int[] { bestMove, best };
+    }
+
+    private int minimax(int turn, int depth) {
+        mMinimaxNodes++;
+        int winner = mGame.determineWinner();
+        if (winner == HUMAN) {
+            return 10 - depth;
+        }
+        if (winner == COMPUTER) {
+            return depth - 10;
+        }
+        int[] moves = mBoard.getNextPossibleMoves();
+        if (moves.length == 0) {
+            return 0;
+        }
+        int best = turn == HUMAN ? Integer.MIN_VALUE : Integer.MAX_VALUE;
+        for (int m : moves) {
+            mBoard.addToken(m, turn);
+            int s = minimax(3 - turn, depth + 1);
+            mBoard.addToken(m, 0);
+            best = turn == HUMAN ? Math.max(best, s) : Math.min(best, s);
+        }
+        return best;
+    }
+}
@@ -0,0 +1,104 @@
+package com.neilsonmarcil.tictactoe.player;
+
+import com.neilsonmarcil.tictactoe.game.Board;
+import com.neilsonmarcil.tictactoe.game.Game;
+import com.neilsonmarcil.tictactoe.game.Score;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the difficulty levels search less than the perfect level, within their budget,
+ * and that their scores do not change the moves of a perfect search sharing their table.
+ */
+public class DifficultyTest {
+
+    private static final int HUMAN = 1;
+    private static final int COMPUTER = 2;
+
+    @Test
+    public void lowerLevelsVisitLessNodes() {
+        Board b = new Board(4, 4, 3);
+        b.addToken(5, HUMAN);
+        long previous = 0;
+        for (int level = Difficulty.LEVEL_EASY; level <= Difficulty.LEVEL_PERFECT; level++) {
+            ComputerPlayer computer = newPlayer(level);
+            computer.playMove(newGame(b, computer));
+            long nodes = computer.getLastNodeCount();
+            assertTrue("level " + level + ": " + nodes + " nodes", nodes > previous);
+            previous = nodes;
+        }
+    }
+
+    @Test
+    public void nodeBudgetIsRespected() {
+        Board b = new Board(5, 5, 4);
+        b.addToken(12, HUMAN);
+        b.addToken(6, COMPUTER);
+        b.addToken(18, HUMAN);
+        Difficulty medium = Difficulty.get(Difficulty.LEVEL_MEDIUM);
+        ComputerPlayer computer = newPlayer(Difficulty.LEVEL_MEDIUM);
+        int move = computer.playMove(newGame(b, computer));
+
+        assertEquals(0, b.getToken(move));
+        // the budget is checked on every node once the first depth is searched
+        assertTrue(computer.getLastNodeCount() <= medium.getNodeBudget() + 1);
+    }
+
+    @Test
+    public void everyLevelWinsAndBlocks() {
+        Board b = new Board();
+        b.addToken(0, COMPUTER);
+        b.addToken(3, HUMAN);
+        b.addToken(1, COMPUTER);
+        b.addToken(4, HUMAN);
+        for (int level = Difficulty.LEVEL_EASY; level <= Difficulty.LEVEL_PERFECT; level++) {
+            ComputerPlayer computer = newPlayer(level);
+            assertEquals("level " + level, 2, computer.playMove(newGame(b, computer)));
+        }
+
+        b.resetBoard();
+        b.addToken(0, HUMAN);
+        b.addToken(4, COMPUTER);
+        b.addToken(1, HUMAN);
+        for (int level = Difficulty.LEVEL_EASY; level <= Difficulty.LEVEL_PERFECT; level++) {
+            ComputerPlayer computer = newPlayer(level);
+            assertEquals("level " + level, 2, computer.playMove(newGame(b, computer)));
+        }
+    }
+
+    @Test
+    public void noisyScoresAreNotReadByAPerfectSearch() {
+        TranspositionTable table = new TranspositionTable();
+        ComputerPlayer shared = new ComputerPlayer(COMPUTER, table);
+        ComputerPlayer perfect = new ComputerPlayer(COMPUTER);
+        Board b = new Board(4, 4, 3);
+        Game sharedGame = newGame(b, shared);
+        Game perfectGame = newGame(b, perfect);
+        for (int first = 0; first < b.getCellCount(); first += 3) {
+            b.resetBoard();
+            b.addToken(first, HUMAN);
+            shared.setDifficulty(Difficulty.get(Difficulty.LEVEL_EASY));
+            shared.playMove(sharedGame);
+            shared.setDifficulty(Difficulty.PERFECT);
+            assertEquals("first move " + first, perfect.playMove(perfectGame), shared.playMove(sharedGame));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownLevelIsRejected() {
+        Difficulty.get(Difficulty.LEVEL_PERFECT + 1);
+    }
+
+    private static ComputerPlayer newPlayer(int level) {
+        ComputerPlayer computer = new ComputerPlayer(COMPUTER);
+        computer.setDifficulty(Difficulty.get(level));
+        computer.setSeed(level);
+        return computer;
+    }
+
+    private static Game newGame(Board b, ComputerPlayer computer) {
+        return new Game(b, new Score(), new Player[] { new Player(HUMAN), computer }, null);
+    }
+}
@@ -0,0 +1,127 @@
+package com.neilsonmarcil.tictactoe.player;
+
+import com.neilsonmarcil.tictactoe.game.Board;
+import com.neilsonmarcil.tictactoe.game.Game;
+import com.neilsonmarcil.tictactoe.game.Score;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the moves of the MonteCarloPlayer against the ComputerPlayer, which always plays the
+ * best move.
+ */
+public class MonteCarloPlayerTest {
+
+    private static final int HUMAN = 1;
+    private static final int COMPUTER = 2;
+
+    @Test
+    public void neverLosesAgainstTheComputerPlayer() throws Exception {
+        for (int game = 0; game < 6; game++) {
+            Board b = new Board();
+            MonteCarloPlayer mcts = new MonteCarloPlayer(COMPUTER);
+            mcts.setSeed(game);
+            ComputerPlayer computer = new ComputerPlayer(HUMAN);
+            Game mctsGame = new Game(b, new Score(), new Player[] { computer, mcts }, null);
+            Game computerGame = new Game(b, new Score(), new Player[] { mcts, computer }, null);
+
+            int turn = game % 2 == 0 ? HUMAN : COMPUTER;
+            while (!mctsGame.isGameOver()) {
+                int move = turn == COMPUTER ? mcts.playMove(mctsGame) : computer.playMove(computerGame);
+                assertEquals(0, b.getToken(move));
+                b.addToken(move, turn);
+                turn = 3 - turn;
+            }
+            assertNotEquals(HUMAN, mctsGame.determineWinner());
+        }
+    }
+
+    @Test
+    public void sameSeedPlaysTheSameMove() throws Exception {
+        int[] moves = new int[2];
+        for (int i = 0; i < moves.length; i++) {
+            Board b = new Board(7, 7, 4);
+            b.addToken(24, HUMAN);
+            MonteCarloPlayer mcts = new MonteCarloPlayer(COMPUTER);
+            mcts.setSeed(42);
+            mcts.setPlayouts(2000);
+            moves[i] = mcts.playMove(new Game(b, new Score(), new Player[] { new Player(HUMAN), mcts }, null));
+            assertEquals(2000, mcts.getLastPlayoutCount());
+        }
+        assertEquals(moves[0], moves[1]);
+    }
+
+    @Test
+    public void parallelPlayoutsOnALargeBoard() throws Exception {
+        Board b = new Board(15, 15, 5);
+        b.addToken(7 * 15 + 7, HUMAN);
+        MonteCarloPlayer mcts = new MonteCarloPlayer(COMPUTER);
+        mcts.setThreadCount(4);
+        mcts.setPlayouts(0);
+        mcts.setTimeBudget(200);
+        int move = mcts.playMove(new Game(b, new Score(), new Player[] { new Player(HUMAN), mcts }, null));
+
+        assertEquals(0, b.getToken(move));
+        assertEquals(224, b.getPossibleMovesCount());
+        assertTrue(mcts.getLastPlayoutCount() > 0);
+    }
+
+    @Test(timeout = 10000)
+    public void cancelStopsTheTreesOfAllTheThreads() throws Exception {
+        Board b = new Board(15, 15, 5);
+        b.addToken(7 * 15 + 7, HUMAN);
+        final MonteCarloPlayer mcts = new MonteCarloPlayer(COMPUTER);
+        mcts.setThreadCount(4);
+        // the budget is longer than the timeout of the test, only the cancel stops the search
+        mcts.setPlayouts(0);
+        mcts.setTimeBudget(60000);
+        final Game game = new Game(b, new Score(), new Player[] { new Player(HUMAN), mcts }, null);
+        final int[] move = new int[] { -1 };
+        Thread search = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                move[0] = mcts.playMove(game);
+            }
+        });
+        search.start();
+        // the helper threads may not have started their playouts yet
+        Thread.sleep(20);
+        mcts.cancel();
+        search.join();
+
+        assertEquals(0, b.getToken(move[0]));
+    }
+
+    @Test(timeout = 10000)
+    public void moreThreadsThanPlayoutsStillReturns() throws Exception {
+        Board b = new Board();
+        b.addToken(4, HUMAN);
+        MonteCarloPlayer mcts = new MonteCarloPlayer(COMPUTER);
+        mcts.setThreadCount(4);
+        mcts.setPlayouts(3);
+        int move = mcts.playMove(new Game(b, new Score(), new Player[] { new Player(HUMAN), mcts }, null));
+
+        assertEquals(0, b.getToken(move));
+        assertEquals(3, mcts.getLastPlayoutCount());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void moveWithoutAnyBudgetIsRejected() throws Exception {
+        Board b = new Board();
+        b.addToken(4, HUMAN);
+        MonteCarloPlayer mcts = new MonteCarloPlayer(COMPUTER);
+        mcts.setPlayouts(0);
+        mcts.playMove(new Game(b, new Score(), new Player[] { new Player(HUMAN), mcts }, null));
+    }
+
+    @Test
+    public void smallTreeStillPlaysAValidMove() throws Exception {
+        Board b = new Board(5, 5, 4);
+        MonteCarloPlayer mcts = new MonteCarloPlayer(COMPUTER, 30);
+        mcts.setPlayouts(500);
+        int move = mcts.playMove(new Game(b, new Score(), new Player[] { new Player(HUMAN), mcts }, null));
+        assertEquals(0, b.getToken(move));
+    }
+}
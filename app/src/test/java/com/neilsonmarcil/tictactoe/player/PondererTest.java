@@ -0,0 +1,99 @@
+package com.neilsonmarcil.tictactoe.player;
+
+import com.neilsonmarcil.tictactoe.game.Board;
+import com.neilsonmarcil.tictactoe.game.Game;
+import com.neilsonmarcil.tictactoe.game.Score;
+
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Ponders the replies to every move of the human player and compares them with the moves of a
+ * ComputerPlayer searching them when the human has played.
+ */
+public class PondererTest {
+
+    private static final int HUMAN = 1;
+    private static final int COMPUTER = 2;
+
+    private final ComputerPlayer mComputer = new ComputerPlayer(COMPUTER);
+    private final Ponderer mPonderer = new Ponderer(mComputer);
+
+    @After
+    public void tearDown() {
+        mPonderer.shutdown();
+    }
+
+    @Test
+    public void repliesAreTheMovesOfTheComputerPlayer() throws Exception {
+        Board b = new Board(4, 4, 3);
+        b.addToken(5, HUMAN);
+        b.addToken(6, COMPUTER);
+        mPonderer.start(b, HUMAN, COMPUTER);
+        waitForReplies(b.getPossibleMovesCount());
+
+        ComputerPlayer computer = new ComputerPlayer(COMPUTER);
+        Game game = new Game(b, new Score(), new Player[] { new Player(HUMAN), computer }, null);
+        for (int move : b.getNextPossibleMoves()) {
+            b.addToken(move, HUMAN);
+            int expected = b.isWinningMove(move) ? -1 : computer.playMove(game);
+            assertEquals("move " + move, expected, mPonderer.getReply(b));
+            b.addToken(move, 0);
+        }
+    }
+
+    @Test
+    public void boardCanChangeWhilePondering() throws Exception {
+        Board b = new Board();
+        b.addToken(4, HUMAN);
+        b.addToken(0, COMPUTER);
+        mPonderer.start(b, HUMAN, COMPUTER);
+        b.addToken(8, HUMAN);
+        waitForReplies(7);
+
+        // the only reply that stops the human player
+        assertEquals(2, mPonderer.getReply(b));
+    }
+
+    @Test
+    public void cancelForgetsTheReplies() throws Exception {
+        Board b = new Board();
+        b.addToken(4, HUMAN);
+        b.addToken(0, COMPUTER);
+        mPonderer.start(b, HUMAN, COMPUTER);
+        waitForReplies(7);
+        mPonderer.cancel();
+
+        b.addToken(8, HUMAN);
+        assertEquals(-1, mPonderer.getReply(b));
+        assertEquals(0, mPonderer.getReadyCount());
+    }
+
+    @Test
+    public void policyCanRefuseToPonder() throws Exception {
+        mPonderer.setPolicy(new PonderPolicy() {
+            @Override
+            public boolean canPonder() {
+                return false;
+            }
+        });
+        Board b = new Board();
+        b.addToken(4, HUMAN);
+        mPonderer.start(b, HUMAN, COMPUTER);
+        Thread.sleep(100);
+
+        assertEquals(0, mPonderer.getReadyCount());
+        b.addToken(0, HUMAN);
+        assertEquals(-1, mPonderer.getReply(b));
+    }
+
+    private void waitForReplies(int count) throws InterruptedException {
+        long end = System.currentTimeMillis() + 10000;
+        while (mPonderer.getReadyCount() < count) {
+            assertTrue("replies not pondered in time", System.currentTimeMillis() < end);
+            Thread.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.neilsonmarcil.tictactoe.player;
+
+import com.neilsonmarcil.tictactoe.game.Board;
+import com.neilsonmarcil.tictactoe.game.Game;
+import com.neilsonmarcil.tictactoe.game.Position;
+import com.neilsonmarcil.tictactoe.game.Score;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+/**
+ * Searches many positions at the same time with one SearchEngine and compares the moves with
+ * the moves of a ComputerPlayer searching them one at a time.
+ */
+public class SearchEngineTest {
+
+    private static final int HUMAN = 1;
+    private static final int COMPUTER = 2;
+
+    @Test
+    public void concurrentSearchesPlayLikeTheComputerPlayer() throws Exception {
+        final List<Position> positions = new ArrayList<>();
+        List<Integer> expected = new ArrayList<>();
+        Board b = new Board(4, 4, 3);
+        ComputerPlayer computer = new ComputerPlayer(COMPUTER);
+        Game game = new Game(b, new Score(), new Player[] { new Player(HUMAN), computer }, null);
+        int cells = b.getCellCount();
+        for (int first = 0; first < cells; first++) {
+            for (int second = 0; second < cells; second += 3) {
+                int third = (first + 5) % cells;
+                if (second == first || third == second) {
+                    continue;
+                }
+                b.resetBoard();
+                b.addToken(first, HUMAN);
+                b.addToken(second, COMPUTER);
+                b.addToken(third, HUMAN);
+                positions.add(game.getPosition());
+                expected.add(computer.playMove(game));
+            }
+        }
+
+        final SearchEngine engine = new SearchEngine();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<SearchResult>> results = new ArrayList<>();
+        for (final Position p : positions) {
+            results.add(executor.submit(new Callable<SearchResult>() {
+                @Override
+                public SearchResult call() {
+                    return engine.search(p);
+                }
+            }));
+        }
+        for (int i = 0; i < positions.size(); i++) {
+            assertEquals("position " + i, (int)expected.get(i), results.get(i).get().getMove());
+        }
+        executor.shutdown();
+    }
+
+    @Test
+    public void searchDoesNotChangeTheBoardOfTheGame() throws Exception {
+        Board b = new Board();
+        ComputerPlayer computer = new ComputerPlayer(COMPUTER);
+        computer.setStatsEnabled(true);
+        Game game = new Game(b, new Score(), new Player[] { new Player(HUMAN), computer }, null);
+        b.addToken(4, HUMAN);
+        long hash = b.getHash();
+        Position p = game.getPosition();
+
+        computer.playMove(game);
+        SearchResult result = new SearchEngine().search(p);
+
+        assertEquals(hash, b.getHash());
+        assertEquals(hash, p.getHash());
+        assertEquals(COMPUTER, p.getPlayerToMove());
+        assertEquals(0, p.getToken(result.getMove()));
+        b.addToken(0, COMPUTER);
+        assertEquals(0, p.getToken(0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void wonPositionIsRejected() throws Exception {
+        // X X X
+        // O O .
+        // . . .
+        Board b = new Board();
+        b.addToken(0, HUMAN);
+        b.addToken(3, COMPUTER);
+        b.addToken(1, HUMAN);
+        b.addToken(4, COMPUTER);
+        b.addToken(2, HUMAN);
+        new SearchEngine().search(new Position(b, COMPUTER, HUMAN));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void samePlayersAreRejected() throws Exception {
+        new Position(new Board(), HUMAN, HUMAN);
+    }
+}
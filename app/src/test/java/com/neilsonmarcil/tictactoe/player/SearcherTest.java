@@ -0,0 +1,104 @@
+package com.neilsonmarcil.tictactoe.player;
+
+import com.neilsonmarcil.tictactoe.game.Board;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the scores kept in a transposition table can be used by the search of another
+ * root, such as the next move of the game, where the same positions are found at another depth,
+ * and that a cancel stops the search it was meant for.
+ */
+public class SearcherTest {
+
+    private static final int HUMAN = 1;
+    private static final int COMPUTER = 2;
+
+    @Test
+    public void scoredPositionsDoNotDependOnTheRootDepth() throws Exception {
+        // . . . . .
+        // . X O . .
+        // . . X . .
+        // . . . . .
+        // . . . . .
+        Board b = new Board(5, 5, 4);
+        b.addToken(6, HUMAN);
+        b.addToken(7, COMPUTER);
+        b.addToken(12, HUMAN);
+        assertTrue(Math.abs(checkRoots(b, 12)) <= Searcher.MAX_EVALUATION);
+    }
+
+    @Test
+    public void winsDoNotDependOnTheRootDepth() throws Exception {
+        // X X X .
+        // O X O .
+        // . O X .
+        // . . O .
+        // the human threatens the first row and the diagonal, he wins with his next move
+        Board b = new Board(4, 4, 4);
+        b.addToken(0, HUMAN);
+        b.addToken(4, COMPUTER);
+        b.addToken(1, HUMAN);
+        b.addToken(6, COMPUTER);
+        b.addToken(2, HUMAN);
+        b.addToken(9, COMPUTER);
+        b.addToken(5, HUMAN);
+        b.addToken(14, COMPUTER);
+        b.addToken(10, HUMAN);
+        assertTrue(checkRoots(b, 10) > Searcher.MAX_EVALUATION);
+    }
+
+    @Test
+    public void cancelBeforePrepareStopsTheSearch() throws Exception {
+        Board b = new Board(4, 4, 4);
+        b.addToken(5, HUMAN);
+        Searcher s = new Searcher(new TranspositionTable());
+        // the search is requested, then cancelled before its thread prepares it
+        int generation = s.getGeneration();
+        s.cancel();
+        s.prepare(b.getGeometry(), COMPUTER, ComputerPlayer.SEARCH_ALPHA_BETA, false, generation);
+        int infinity = s.getInfinity();
+        s.searchChild(b, COMPUTER, HUMAN, 5, 1, -infinity, infinity, true);
+        assertTrue(s.isAborted());
+
+        // the next search is not stopped by the old cancel
+        s.prepare(b.getGeometry(), COMPUTER, ComputerPlayer.SEARCH_ALPHA_BETA, true,
+                s.getGeneration());
+        s.setHorizon(3);
+        s.searchChild(b, COMPUTER, HUMAN, 5, 1, -infinity, infinity, true);
+        assertFalse(s.isAborted());
+    }
+
+    /**
+     * Search a position where the computer plays as a child of the root, two moves ahead, then
+     * as a node two moves deeper with the same table, like the search of the next move does.
+     * The second search must find the score of a search with an empty table.
+     * @return the score of the position for the human, who played the last move
+     */
+    private int checkRoots(Board b, int lastMove) {
+        Searcher shared = new Searcher(new TranspositionTable());
+        int first = search(shared, b, lastMove, 1);
+        int second = search(shared, b, lastMove, 3);
+        int expected = search(new Searcher(new TranspositionTable()), b, lastMove, 3);
+
+        assertEquals(expected, second);
+        // a scored position has the same score at any depth, a win is two moves further away
+        if (Math.abs(expected) <= Searcher.MAX_EVALUATION) {
+            assertEquals(first, second);
+        }
+        else {
+            assertEquals(Math.abs(first) - 2, Math.abs(second));
+        }
+        return second;
+    }
+
+    private static int search(Searcher s, Board b, int lastMove, int depth) {
+        s.prepare(b.getGeometry(), COMPUTER, ComputerPlayer.SEARCH_ALPHA_BETA, true,
+                s.getGeneration());
+        s.setHorizon(depth + 2);
+        int infinity = s.getInfinity();
+        return s.searchChild(b, COMPUTER, HUMAN, lastMove, depth, -infinity, infinity, true);
+    }
+}
@@ -0,0 +1,98 @@
+package com.neilsonmarcil.tictactoe.player;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the tablebase index numbers each position once, and gives the same index to the
+ * symmetric positions.
+ */
+public class TablebaseIndexTest {
+
+    @Test
+    public void positionsGiveTheirIndex() {
+        TablebaseIndex index = new TablebaseIndex(4);
+        int count = index.getEntryCount();
+        // about an eighth of the 10,165,779 positions where the player to move can play
+        assertTrue(count > 10165779 / 8 && count < 10165779 / 7);
+        int used = 0;
+        for (int i = 0; i < count; i++) {
+            int position = index.position(i);
+            int j = index.index(position >>> TablebaseIndex.CELLS, position & 0xffff);
+            // a position symmetric to a position of a smaller index has the smaller index
+            assertTrue(j <= i);
+            if (j == i) {
+                used++;
+            }
+            else {
+                int other = index.position(j);
+                assertEquals(j, index.index(other >>> TablebaseIndex.CELLS, other & 0xffff));
+            }
+        }
+        assertTrue(used > count * 9 / 10);
+    }
+
+    @Test
+    public void symmetricPositionsShareTheirIndex() {
+        TablebaseIndex index = new TablebaseIndex(3);
+        Random random = new Random(11);
+        for (int n = 0; n < 10000; n++) {
+            int tokens = random.nextInt(TablebaseIndex.CELLS + 1);
+            int player = 0;
+            int opponent = 0;
+            for (int t = 0; t < tokens; t++) {
+                int cell;
+                do {
+                    cell = random.nextInt(TablebaseIndex.CELLS);
+                } while (((player | opponent) & 1 << cell) != 0);
+                // the opponent plays first when the number of tokens is odd
+                if (t % 2 == tokens % 2) {
+                    player |= 1 << cell;
+                }
+                else {
+                    opponent |= 1 << cell;
+                }
+            }
+            int expected = index.index(player, opponent);
+            assertTrue(expected >= 0);
+            assertEquals(expected, index.index(rotate(player), rotate(opponent)));
+            assertEquals(expected, index.index(mirror(player), mirror(opponent)));
+        }
+    }
+
+    @Test
+    public void invalidPositionsHaveNoIndex() {
+        TablebaseIndex index = new TablebaseIndex(4);
+        assertEquals(-1, index.index(1, 1));
+        assertEquals(-1, index.index(3, 0));
+        assertEquals(-1, index.index(0, 3));
+        assertEquals(-1, index.index(1 << TablebaseIndex.CELLS, 2));
+    }
+
+    private static int rotate(int mask) {
+        int rotated = 0;
+        for (int cell = 0; cell < TablebaseIndex.CELLS; cell++) {
+            if ((mask & 1 << cell) != 0) {
+                int r = cell / TablebaseIndex.SIZE;
+                int c = cell % TablebaseIndex.SIZE;
+                rotated |= 1 << (c * TablebaseIndex.SIZE + TablebaseIndex.SIZE - 1 - r);
+            }
+        }
+        return rotated;
+    }
+
+    private static int mirror(int mask) {
+        int mirrored = 0;
+        for (int cell = 0; cell < TablebaseIndex.CELLS; cell++) {
+            if ((mask & 1 << cell) != 0) {
+                int r = cell / TablebaseIndex.SIZE;
+                int c = cell % TablebaseIndex.SIZE;
+                mirrored |= 1 << (r * TablebaseIndex.SIZE + TablebaseIndex.SIZE - 1 - c);
+            }
+        }
+        return mirrored;
+    }
+}
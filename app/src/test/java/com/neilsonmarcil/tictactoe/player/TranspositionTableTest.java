@@ -0,0 +1,60 @@
+package com.neilsonmarcil.tictactoe.player;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the packing of the entries and the replacement policies of the TranspositionTable.
+ */
+public class TranspositionTableTest {
+
+    @Test
+    public void storedEntryIsFound() throws Exception {
+        TranspositionTable t = new TranspositionTable(100, TranspositionTable.REPLACE_ALWAYS);
+        assertEquals(128, t.size());
+
+        t.store(0x123456789L, -7, TranspositionTable.BOUND_UPPER, 5, 8);
+        int data = t.probe(0x123456789L);
+        assertEquals(-7, TranspositionTable.getScore(data));
+        assertEquals(TranspositionTable.BOUND_UPPER, TranspositionTable.getBound(data));
+        assertEquals(5, TranspositionTable.getDepth(data));
+        assertEquals(8, TranspositionTable.getMove(data));
+
+        assertEquals(0, t.probe(0x987654321L));
+        t.clear();
+        assertEquals(0, t.probe(0x123456789L));
+    }
+
+    @Test
+    public void collidingKeysUseNextEntries() throws Exception {
+        TranspositionTable t = new TranspositionTable(16, TranspositionTable.REPLACE_ALWAYS);
+        for (int i = 0; i < 4; i++) {
+            t.store(3 + 16 * i, i, TranspositionTable.BOUND_EXACT, i, TranspositionTable.NO_MOVE);
+        }
+        for (int i = 0; i < 4; i++) {
+            assertEquals(i, TranspositionTable.getScore(t.probe(3 + 16 * i)));
+        }
+    }
+
+    @Test
+    public void depthPreferredKeepsDeepEntries() throws Exception {
+        TranspositionTable t = new TranspositionTable(16, TranspositionTable.REPLACE_DEPTH_PREFERRED);
+        int[] depths = new int[] { 9, 2, 7, 8 };
+        for (int i = 0; i < depths.length; i++) {
+            t.store(16 * i, 0, TranspositionTable.BOUND_EXACT, depths[i], 0);
+        }
+        t.store(16 * 4, 0, TranspositionTable.BOUND_EXACT, 6, 0);
+
+        assertEquals(0, t.probe(16));
+        assertNotEquals(0, t.probe(0));
+        assertNotEquals(0, t.probe(16 * 4));
+
+        TranspositionTable always = new TranspositionTable(16, TranspositionTable.REPLACE_ALWAYS);
+        for (int i = 0; i < depths.length; i++) {
+            always.store(16 * i, 0, TranspositionTable.BOUND_EXACT, depths[i], 0);
+        }
+        always.store(16 * 4, 0, TranspositionTable.BOUND_EXACT, 6, 0);
+        assertEquals(0, always.probe(0));
+    }
+}
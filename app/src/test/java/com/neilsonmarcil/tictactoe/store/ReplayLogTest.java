@@ -0,0 +1,199 @@
+package com.neilsonmarcil.tictactoe.store;
+
+import com.neilsonmarcil.tictactoe.game.Board;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Records games in a replay log, reads them back and replays them on a board.
+ */
+public class ReplayLogTest {
+
+    private static final int HUMAN = 1;
+    private static final int COMPUTER = 2;
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    @Test
+    public void recordKeepsTheGame() {
+        int[] moves = new int[] { 4, 0, 8, 2, 1, 7, 6, 3, 5 };
+        for (int count = 0; count <= moves.length; count++) {
+            for (int first = 1; first <= 2; first++) {
+                for (int result = GameRecord.RESULT_DRAW; result <= GameRecord.RESULT_PLAYER_2; result++) {
+                    GameRecord r = new GameRecord(moves, count, first, result);
+                    GameRecord read = GameRecord.fromPacked(r.getPacked());
+                    assertEquals(r, read);
+                    assertTrue(r.getPacked() >>> (8 * GameRecord.SIZE) == 0);
+                    assertEquals(count, read.getMoveCount());
+                    assertEquals(first, read.getFirstPlayer());
+                    assertEquals(result, read.getResult());
+                    for (int i = 0; i < count; i++) {
+                        assertEquals(moves[i], read.getMove(i));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void damagedRecordIsRejected() {
+        GameRecord r = new GameRecord(new int[] { 0, 4, 8 }, 3, 1, GameRecord.RESULT_PLAYER_1);
+        for (int bit = 0; bit < 8 * GameRecord.SIZE; bit++) {
+            try {
+                GameRecord.fromPacked(r.getPacked() ^ 1L << bit);
+                fail("Bit " + bit + " changed without being detected");
+            }
+            catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+        try {
+            GameRecord.fromPacked(0);
+            fail("A record of zeros is not a game");
+        }
+        catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void boxPlayedTwiceIsRejected() {
+        new GameRecord(new int[] { 4, 0, 4 }, 3, 1, GameRecord.RESULT_DRAW);
+    }
+
+    @Test
+    public void replayRebuildsTheBoard() {
+        int[] moves = new int[] { 4, 0, 8, 2, 1, 6, 7 };
+        GameRecord r = new GameRecord(moves, moves.length, 2, GameRecord.RESULT_PLAYER_2);
+        Board expected = new Board();
+        Board b = new Board();
+        int player = COMPUTER;
+        for (int i = 0; i <= moves.length; i++) {
+            r.replay(b, i, HUMAN, COMPUTER);
+            for (int box = 0; box < b.getCellCount(); box++) {
+                assertEquals(expected.getToken(box), b.getToken(box));
+            }
+            if (i < moves.length) {
+                expected.addToken(moves[i], player);
+                player = player == HUMAN ? COMPUTER : HUMAN;
+            }
+        }
+        assertTrue(b.isWinning(COMPUTER));
+    }
+
+    @Test
+    public void recorderWritesFinishedGames() throws Exception {
+        ReplayLog log = new ReplayLog(mFolder.getRoot());
+        ReplayRecorder recorder = new ReplayRecorder(log, HUMAN, COMPUTER);
+        recorder.moveCompleted(4, COMPUTER);
+        recorder.moveCompleted(0, HUMAN);
+        // the activity is recreated during the game
+        int[] state = recorder.saveState();
+        recorder = new ReplayRecorder(log, HUMAN, COMPUTER);
+        recorder.restoreState(state);
+        recorder.moveCompleted(8, COMPUTER);
+        recorder.gameOver(0);
+        recorder.moveCompleted(1, HUMAN);
+        recorder.startGame();
+        recorder.moveCompleted(2, HUMAN);
+        recorder.gameOver(HUMAN);
+
+        ReplayReader reader = log.openReader();
+        assertEquals(new GameRecord(new int[] { 4, 0, 8 }, 3, 2, GameRecord.RESULT_DRAW), reader.next());
+        assertEquals(new GameRecord(new int[] { 2 }, 1, 1, GameRecord.RESULT_PLAYER_1), reader.next());
+        assertFalse(reader.hasNext());
+        reader.close();
+        log.close();
+    }
+
+    @Test
+    public void filesRollAndManyGamesAreStreamed() throws Exception {
+        File dir = mFolder.getRoot();
+        int perFile = 1000;
+        int files = 4;
+        ReplayLog log = new ReplayLog(dir, ReplayLog.HEADER_SIZE + perFile * GameRecord.SIZE, files);
+        Random random = new Random(7);
+        int games = perFile * 10 + 17;
+        List<GameRecord> written = new ArrayList<>();
+        for (int i = 0; i < games; i++) {
+            GameRecord r = randomGame(random);
+            written.add(r);
+            log.append(r);
+        }
+        log.close();
+        assertEquals(files, ReplayLog.listFiles(dir).length);
+
+        // the oldest files were deleted, the last games are kept
+        ReplayReader reader = ReplayLog.openReader(dir);
+        int kept = perFile * (files - 1) + 17;
+        int i = games - kept;
+        while (reader.hasNext()) {
+            assertEquals(written.get(i++), reader.next());
+        }
+        reader.close();
+        assertEquals(games, i);
+        assertEquals(0, reader.getSkippedCount());
+    }
+
+    @Test
+    public void damagedFilesAreRecovered() throws Exception {
+        File dir = mFolder.getRoot();
+        ReplayLog log = new ReplayLog(dir);
+        Random random = new Random(3);
+        List<GameRecord> written = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            written.add(randomGame(random));
+            log.append(written.get(i));
+        }
+        log.close();
+        File file = ReplayLog.listFiles(dir)[0];
+
+        // a record cut by a crash, then a damaged record
+        RandomAccessFile f = new RandomAccessFile(file, "rw");
+        f.seek(f.length());
+        f.write(new byte[] { 1, 2 });
+        long damaged = ReplayLog.HEADER_SIZE + GameRecord.SIZE + 2;
+        f.seek(damaged);
+        int b = f.read();
+        f.seek(damaged);
+        f.write(b ^ 0x10);
+        f.close();
+
+        log = new ReplayLog(dir);
+        assertEquals(ReplayLog.HEADER_SIZE + 5 * GameRecord.SIZE, file.length());
+        written.add(randomGame(random));
+        log.append(written.get(5));
+        ReplayReader reader = log.openReader();
+        List<GameRecord> read = new ArrayList<>();
+        while (reader.hasNext()) {
+            read.add(reader.next());
+        }
+        reader.close();
+        log.close();
+        written.remove(1);
+        assertEquals(written, read);
+        assertEquals(1, reader.getSkippedCount());
+    }
+
+    private static GameRecord randomGame(Random random) {
+        int[] moves = new int[] { 0, 1, 2, 3, 4, 5, 6, 7, 8 };
+        for (int i = moves.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int t = moves[i];
+            moves[i] = moves[j];
+            moves[j] = t;
+        }
+        return new GameRecord(moves, 5 + random.nextInt(5), 1 + random.nextInt(2), random.nextInt(3));
+    }
+}
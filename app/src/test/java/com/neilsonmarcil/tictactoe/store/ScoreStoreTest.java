@@ -0,0 +1,214 @@
+package com.neilsonmarcil.tictactoe.store;
+
+import com.neilsonmarcil.tictactoe.game.Score;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import static org.junit.Assert.*;
+
+/**
+ * Writes scores, damages the files the way a crash would and checks what is loaded back.
+ */
+public class ScoreStoreTest {
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    @Test
+    public void scoreSurvivesReopening() throws Exception {
+        File dir = mFolder.getRoot();
+        ScoreStore store = new ScoreStore(dir);
+        assertScore(store.getScore(), 0, 0, 0);
+        record(store, 3, 2, 1);
+        // the score in memory does not wait for the writer thread
+        assertScore(store.getScore(), 3, 2, 1);
+        store.close();
+
+        store = new ScoreStore(dir);
+        assertScore(store.getScore(), 3, 2, 1);
+        store.reset();
+        store.recordGame(ScoreStore.RESULT_DRAW);
+        store.close();
+
+        store = new ScoreStore(dir);
+        assertScore(store.getScore(), 0, 0, 1);
+        store.close();
+    }
+
+    @Test
+    public void incompleteRecordIsDropped() throws Exception {
+        File dir = mFolder.getRoot();
+        ScoreStore store = new ScoreStore(dir);
+        record(store, 2, 1, 0);
+        store.close();
+        File journal = new File(dir, ScoreStore.JOURNAL_NAME);
+        long valid = journal.length();
+        assertEquals(3 * ScoreStore.RECORD_SIZE, valid);
+
+        // the process stopped in the middle of the next record
+        RandomAccessFile file = new RandomAccessFile(journal, "rw");
+        file.seek(valid);
+        file.write(new byte[ScoreStore.RECORD_SIZE / 2]);
+        file.close();
+
+        store = new ScoreStore(dir);
+        assertScore(store.getScore(), 2, 1, 0);
+        assertEquals(valid, journal.length());
+        store.recordGame(ScoreStore.RESULT_LOSS);
+        store.close();
+
+        store = new ScoreStore(dir);
+        assertScore(store.getScore(), 2, 2, 0);
+        store.close();
+    }
+
+    @Test
+    public void journalEndsAtCorruptedRecord() throws Exception {
+        File dir = mFolder.getRoot();
+        ScoreStore store = new ScoreStore(dir);
+        record(store, 3, 0, 0);
+        store.close();
+
+        File journal = new File(dir, ScoreStore.JOURNAL_NAME);
+        RandomAccessFile file = new RandomAccessFile(journal, "rw");
+        file.seek(ScoreStore.RECORD_SIZE + 10);
+        int b = file.read();
+        file.seek(ScoreStore.RECORD_SIZE + 10);
+        file.write(b ^ 0x40);
+        file.close();
+
+        store = new ScoreStore(dir);
+        assertScore(store.getScore(), 1, 0, 0);
+        assertEquals(ScoreStore.RECORD_SIZE, journal.length());
+        store.close();
+    }
+
+    @Test
+    public void journalIsCompactedIntoSnapshot() throws Exception {
+        File dir = mFolder.getRoot();
+        ScoreStore store = new ScoreStore(dir);
+        int games = ScoreStore.COMPACT_RECORDS * 2 + 5;
+        for (int i = 0; i < games; i++) {
+            store.recordGame(ScoreStore.RESULT_WIN + i % 3);
+        }
+        assertEquals(5, store.getJournalRecordCount());
+        store.close();
+        assertEquals(ScoreStore.SNAPSHOT_SIZE, new File(dir, ScoreStore.SNAPSHOT_NAME).length());
+        assertEquals(5 * ScoreStore.RECORD_SIZE, new File(dir, ScoreStore.JOURNAL_NAME).length());
+
+        store = new ScoreStore(dir);
+        assertScore(store.getScore(), 45, 44, 44);
+        store.close();
+    }
+
+    @Test
+    public void recordsAlreadyInSnapshotAreSkipped() throws Exception {
+        File dir = mFolder.getRoot();
+        File journal = new File(dir, ScoreStore.JOURNAL_NAME);
+        ScoreStore store = new ScoreStore(dir);
+        for (int i = 0; i < ScoreStore.COMPACT_RECORDS - 1; i++) {
+            store.recordGame(ScoreStore.RESULT_WIN);
+        }
+        store.flush();
+        byte[] before = readFile(journal);
+
+        store.recordGame(ScoreStore.RESULT_WIN);
+        store.close();
+        assertEquals(0, journal.length());
+
+        // the process stopped after the snapshot was renamed, before the journal was truncated
+        RandomAccessFile file = new RandomAccessFile(journal, "rw");
+        file.write(before);
+        file.close();
+
+        store = new ScoreStore(dir);
+        assertScore(store.getScore(), ScoreStore.COMPACT_RECORDS, 0, 0);
+        store.recordGame(ScoreStore.RESULT_DRAW);
+        store.close();
+
+        store = new ScoreStore(dir);
+        assertScore(store.getScore(), ScoreStore.COMPACT_RECORDS, 0, 1);
+        store.close();
+    }
+
+    @Test
+    public void damagedSnapshotIsIgnored() throws Exception {
+        File dir = mFolder.getRoot();
+        new File(dir, "score.snapshot.tmp").createNewFile();
+        RandomAccessFile file = new RandomAccessFile(new File(dir, ScoreStore.SNAPSHOT_NAME), "rw");
+        file.write(new byte[ScoreStore.SNAPSHOT_SIZE]);
+        file.close();
+
+        ScoreStore store = new ScoreStore(dir);
+        assertScore(store.getScore(), 0, 0, 0);
+        store.recordGame(ScoreStore.RESULT_LOSS);
+        store.close();
+        assertFalse(new File(dir, "score.snapshot.tmp").exists());
+
+        store = new ScoreStore(dir);
+        assertScore(store.getScore(), 0, 1, 0);
+        store.close();
+    }
+
+    @Test
+    public void openingLoadsSnapshotAndLog() throws Exception {
+        File dir = mFolder.getRoot();
+        ScoreStore store = new ScoreStore(dir);
+        for (int i = 0; i < ScoreStore.COMPACT_RECORDS + ScoreStore.COMPACT_RECORDS / 2; i++) {
+            store.recordGame(ScoreStore.RESULT_DRAW);
+        }
+        store.close();
+
+        // the time of the opening is measured by ScoreStoreBenchmark
+        store = new ScoreStore(dir);
+        assertScore(store.getScore(), 0, 0, ScoreStore.COMPACT_RECORDS + ScoreStore.COMPACT_RECORDS / 2);
+        store.close();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownResultIsRejected() throws Exception {
+        ScoreStore store = new ScoreStore(mFolder.getRoot());
+        try {
+            store.recordGame(0);
+        }
+        finally {
+            store.close();
+        }
+    }
+
+    private static void record(ScoreStore store, int wins, int losses, int draws) {
+        for (int i = 0; i < wins; i++) {
+            store.recordGame(ScoreStore.RESULT_WIN);
+        }
+        for (int i = 0; i < losses; i++) {
+            store.recordGame(ScoreStore.RESULT_LOSS);
+        }
+        for (int i = 0; i < draws; i++) {
+            store.recordGame(ScoreStore.RESULT_DRAW);
+        }
+    }
+
+    private static byte[] readFile(File f) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(f, "r");
+        try {
+            byte[] bytes = new byte[(int)file.length()];
+            file.readFully(bytes);
+            return bytes;
+        }
+        finally {
+            file.close();
+        }
+    }
+
+    private static void assertScore(Score s, int wins, int losses, int draws) {
+        assertEquals(wins, s.getScoreWins());
+        assertEquals(losses, s.getScoreLosses());
+        assertEquals(draws, s.getScoreDraws());
+    }
+}
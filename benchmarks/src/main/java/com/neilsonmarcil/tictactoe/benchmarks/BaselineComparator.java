@@ -0,0 +1,158 @@
+package com.neilsonmarcil.tictactoe.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares two JMH results files written with {@code -rf csv}, usually the checked-in baseline
+ * and the results of the last run, and prints the change of each score. The lines that start
+ * with {@code #} are comments.<br/><br/>
+ *
+ * With a threshold, the exit code is 1 when a benchmark got slower by more than the threshold
+ * percentage: a lower throughput, or a higher average time or allocation per operation. A score
+ * whose error in the baseline is larger than the threshold cannot show such a change, it is
+ * marked as noisy and never counted as a regression.
+ */
+public final class BaselineComparator {
+
+    private static final String ALLOCATION_METRIC = "gc.alloc.rate.norm";
+
+    private BaselineComparator() {
+    }
+
+    /**
+     * @param args the baseline file, the results file and an optional threshold in percent
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: BaselineComparator <baseline.csv> <results.csv> [threshold %]");
+            System.exit(2);
+        }
+        Map<String, Double> baseline = read(new File(args[0]));
+        Map<String, Double> errors = readErrors(new File(args[0]));
+        Map<String, Double> results = read(new File(args[1]));
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : Double.NaN;
+
+        int regressions = 0;
+        System.out.println(String.format("%-70s %14s %14s %9s", "Benchmark", "Baseline", "Current", "Change"));
+        for (Map.Entry<String, Double> e : results.entrySet()) {
+            Double base = baseline.get(e.getKey());
+            if (base == null) {
+                System.out.println(String.format("%-70s %14s %14.3f %9s", e.getKey(), "-", e.getValue(), "new"));
+                continue;
+            }
+            double change = base == 0 ? 0 : (e.getValue() - base) * 100 / base;
+            double slower = e.getKey().contains("thrpt") && !e.getKey().contains(ALLOCATION_METRIC)
+                    ? -change : change;
+            Double error = errors.get(e.getKey());
+            boolean noisy = !Double.isNaN(threshold) && base != 0 && error != null
+                    && error * 100 / base > threshold;
+            boolean regression = !Double.isNaN(threshold) && !noisy && slower > threshold
+                    && isMeasured(e.getKey());
+            if (regression) {
+                regressions++;
+            }
+            System.out.println(String.format("%-70s %14.3f %14.3f %+8.1f%%%s", e.getKey(), base,
+                    e.getValue(), change, regression ? " REGRESSION" : noisy ? " noisy" : ""));
+        }
+        if (regressions > 0) {
+            System.out.println(regressions + " benchmark(s) slower than the baseline by more than " + threshold + "%");
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Only the primary scores and the allocation per operation are checked, the other gc
+     * metrics depend on the run
+     */
+    private static boolean isMeasured(String key) {
+        return !key.contains(":\u00b7") || key.contains(ALLOCATION_METRIC);
+    }
+
+    /**
+     * Read the scores of a results file, indexed by the benchmark, its mode and its parameters.
+     */
+    static Map<String, Double> read(File file) throws IOException {
+        return read(file, "Score");
+    }
+
+    /**
+     * Read the errors of the scores of a results file, indexed like the scores. The errors that
+     * JMH cannot compute are left out.
+     */
+    static Map<String, Double> readErrors(File file) throws IOException {
+        Map<String, Double> errors = read(file, "Score Error (99.9%)");
+        for (Iterator<Double> i = errors.values().iterator(); i.hasNext(); ) {
+            if (i.next().isNaN()) {
+                i.remove();
+            }
+        }
+        return errors;
+    }
+
+    private static Map<String, Double> read(File file, String column) throws IOException {
+        Map<String, Double> scores = new LinkedHashMap<>();
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(
+                new FileInputStream(file), StandardCharsets.UTF_8))) {
+            List<String> header = null;
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                List<String> fields = split(line);
+                if (header == null) {
+                    header = fields;
+                    continue;
+                }
+                StringBuilder key = new StringBuilder(shortName(fields.get(0))).append(' ').append(fields.get(1));
+                for (int i = 0; i < header.size() && i < fields.size(); i++) {
+                    if (header.get(i).startsWith("Param: ") && !fields.get(i).isEmpty()) {
+                        key.append(' ').append(header.get(i).substring(7)).append('=').append(fields.get(i));
+                    }
+                }
+                scores.put(key.toString(), Double.parseDouble(fields.get(header.indexOf(column))));
+            }
+        }
+        return scores;
+    }
+
+    /**
+     * Remove the package from a benchmark name, keeping the class, the method and the metric
+     */
+    private static String shortName(String name) {
+        int end = name.indexOf(':');
+        int method = name.lastIndexOf('.', end < 0 ? name.length() : end);
+        return name.substring(name.lastIndexOf('.', method - 1) + 1);
+    }
+
+    private static List<String> split(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"') {
+                quoted = !quoted;
+            }
+            else if (c == ',' && !quoted) {
+                fields.add(field.toString());
+                field.setLength(0);
+            }
+            else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
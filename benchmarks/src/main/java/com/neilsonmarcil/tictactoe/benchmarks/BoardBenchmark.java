@@ -0,0 +1,84 @@
+package com.neilsonmarcil.tictactoe.benchmarks;
+
+import com.neilsonmarcil.tictactoe.game.Board;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the Board operations used by the search at every node.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BoardBenchmark {
+
+    @Param({ Positions.OPENING, Positions.MID_GAME, Positions.NEAR_TERMINAL })
+    public String position;
+
+    private Board mBoard;
+    private int[] mMoves;
+    private int mMove;
+
+    @Setup
+    public void setUp() {
+        mBoard = Positions.create(position);
+        mMoves = new int[mBoard.getCellCount()];
+        mMove = mBoard.getNextPossibleMoves()[0];
+    }
+
+    @Benchmark
+    public int getNextPossibleMoves() {
+        return mBoard.getNextPossibleMoves(mMoves);
+    }
+
+    @Benchmark
+    public int[] getNextPossibleMovesArray() {
+        return mBoard.getNextPossibleMoves();
+    }
+
+    @Benchmark
+    public int getPossibleMovesCount() {
+        return mBoard.getPossibleMovesCount();
+    }
+
+    @Benchmark
+    public boolean isWinning() {
+        return mBoard.isWinning(Positions.HUMAN);
+    }
+
+    @Benchmark
+    public int getWinningMove() {
+        return mBoard.getWinningMove(Positions.COMPUTER);
+    }
+
+    /**
+     * A move and its undo, as played at each node of the search
+     */
+    @Benchmark
+    public boolean playAndUndo() {
+        mBoard.addToken(mMove, Positions.COMPUTER);
+        boolean win = mBoard.isWinningMove(mMove);
+        mBoard.addToken(mMove, 0);
+        return win;
+    }
+
+    @Benchmark
+    public Board copy() {
+        return new Board(mBoard);
+    }
+}
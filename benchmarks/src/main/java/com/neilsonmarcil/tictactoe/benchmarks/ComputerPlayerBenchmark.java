@@ -0,0 +1,63 @@
+package com.neilsonmarcil.tictactoe.benchmarks;
+
+import com.neilsonmarcil.tictactoe.game.Game;
+import com.neilsonmarcil.tictactoe.game.Score;
+import com.neilsonmarcil.tictactoe.player.ComputerPlayer;
+import com.neilsonmarcil.tictactoe.player.Player;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures a move of the ComputerPlayer, without the move book. With a cold table, the table is
+ * cleared before each move so the whole search is measured. With a warm table, the positions
+ * searched for the previous move are found in the table, like during a game.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ComputerPlayerBenchmark {
+
+    @Param({ Positions.OPENING, Positions.MID_GAME, Positions.NEAR_TERMINAL })
+    public String position;
+
+    @Param({ "cold", "warm" })
+    public String table;
+
+    private ComputerPlayer mComputer;
+    private Game mGame;
+
+    @Setup
+    public void setUp() {
+        mComputer = new ComputerPlayer(Positions.COMPUTER);
+        Player[] players = new Player[] { new Player(Positions.HUMAN), mComputer };
+        mGame = new Game(Positions.create(position), new Score(), players, null);
+    }
+
+    @Setup(Level.Invocation)
+    public void clearTable() {
+        if ("cold".equals(table)) {
+            mComputer.getTranspositionTable().clear();
+        }
+    }
+
+    @Benchmark
+    public int playMove() {
+        return mComputer.playMove(mGame);
+    }
+}
@@ -0,0 +1,54 @@
+package com.neilsonmarcil.tictactoe.benchmarks;
+
+import com.neilsonmarcil.tictactoe.game.Game;
+import com.neilsonmarcil.tictactoe.game.Score;
+import com.neilsonmarcil.tictactoe.player.ComputerPlayer;
+import com.neilsonmarcil.tictactoe.player.Player;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the end of game checks done by the Game after every move.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GameBenchmark {
+
+    @Param({ Positions.OPENING, Positions.MID_GAME, Positions.NEAR_TERMINAL })
+    public String position;
+
+    private Game mGame;
+
+    @Setup
+    public void setUp() {
+        Player[] players = new Player[] {
+                new Player(Positions.HUMAN), new ComputerPlayer(Positions.COMPUTER) };
+        mGame = new Game(Positions.create(position), new Score(), players, null);
+    }
+
+    @Benchmark
+    public int determineWinner() {
+        return mGame.determineWinner();
+    }
+
+    @Benchmark
+    public boolean isGameOver() {
+        return mGame.isGameOver();
+    }
+}
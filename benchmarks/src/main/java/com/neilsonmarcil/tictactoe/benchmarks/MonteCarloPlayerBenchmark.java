@@ -0,0 +1,65 @@
+package com.neilsonmarcil.tictactoe.benchmarks;
+
+import com.neilsonmarcil.tictactoe.game.Board;
+import com.neilsonmarcil.tictactoe.game.Game;
+import com.neilsonmarcil.tictactoe.game.Score;
+import com.neilsonmarcil.tictactoe.player.MonteCarloPlayer;
+import com.neilsonmarcil.tictactoe.player.Player;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures a move of the MonteCarloPlayer on the 15x15 board with a fixed number of playouts,
+ * shared between the threads. The playouts per second are the playouts divided by the time.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MonteCarloPlayerBenchmark {
+
+    private static final int PLAYOUTS = 2000;
+
+    @Param({ "1", "4" })
+    public int threads;
+
+    private MonteCarloPlayer mPlayer;
+    private Game mGame;
+
+    @Setup
+    public void setUp() {
+        Board b = new Board(15, 15, 5);
+        b.addToken(7 * 15 + 7, Positions.HUMAN);
+        mPlayer = new MonteCarloPlayer(Positions.COMPUTER);
+        mPlayer.setThreadCount(threads);
+        mPlayer.setPlayouts(PLAYOUTS);
+        mPlayer.setSeed(1);
+        Player[] players = new Player[] { new Player(Positions.HUMAN), mPlayer };
+        mGame = new Game(b, new Score(), players, null);
+    }
+
+    @TearDown
+    public void tearDown() {
+        mPlayer.setThreadCount(1);
+    }
+
+    @Benchmark
+    public int playMove() {
+        return mPlayer.playMove(mGame);
+    }
+}
@@ -0,0 +1,81 @@
+package com.neilsonmarcil.tictactoe.benchmarks;
+
+import com.neilsonmarcil.tictactoe.game.Board;
+import com.neilsonmarcil.tictactoe.game.Game;
+import com.neilsonmarcil.tictactoe.game.Score;
+import com.neilsonmarcil.tictactoe.player.ComputerPlayer;
+import com.neilsonmarcil.tictactoe.player.Player;
+import com.neilsonmarcil.tictactoe.player.SearchResult;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the search of a 4x4 opening with one thread and with the parallel search, with the
+ * table cleared before each search. With one token, the tree is about five times larger than
+ * with two. The parallel search is only worth enabling in the app on the devices where more
+ * threads give a shorter time.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParallelSearchBenchmark {
+
+    @Param({ "1", "2", "4" })
+    public int threads;
+
+    @Param({ "1", "2" })
+    public int tokens;
+
+    private ComputerPlayer mComputer;
+    private Game mGame;
+
+    @Setup
+    public void setUp() {
+        // . . . .
+        // . X . .
+        // . . O .
+        // . . . .
+        // the O token is only played with two tokens
+        Board b = new Board(4, 4, 4);
+        b.addToken(5, Positions.HUMAN);
+        if (tokens > 1) {
+            b.addToken(10, Positions.COMPUTER);
+        }
+        mComputer = new ComputerPlayer(Positions.COMPUTER);
+        mComputer.setThreadCount(threads);
+        Player[] players = new Player[] { new Player(Positions.HUMAN), mComputer };
+        mGame = new Game(b, new Score(), players, null);
+    }
+
+    @Setup(Level.Invocation)
+    public void clearTable() {
+        mComputer.getTranspositionTable().clear();
+    }
+
+    @TearDown
+    public void tearDown() {
+        mComputer.setThreadCount(1);
+    }
+
+    @Benchmark
+    public SearchResult searchMove() {
+        return mComputer.searchMove(mGame);
+    }
+}
@@ -0,0 +1,62 @@
+package com.neilsonmarcil.tictactoe.benchmarks;
+
+import com.neilsonmarcil.tictactoe.game.Board;
+
+/**
+ * The positions the benchmarks are measured on. In each of them, it is the computer player turn.
+ */
+final class Positions {
+
+    static final int HUMAN = 1;
+    static final int COMPUTER = 2;
+
+    /**
+     * The names used by the {@code position} benchmark parameter
+     */
+    static final String OPENING = "opening";
+    static final String MID_GAME = "midgame";
+    static final String NEAR_TERMINAL = "nearterminal";
+
+    private Positions() {
+    }
+
+    /**
+     * Create the board of a position.
+     * @param name one of the position names
+     */
+    static Board create(String name) {
+        Board b = new Board();
+        switch (name) {
+            case OPENING:
+                // . . .
+                // . X .
+                // . . .
+                // the first move of an empty board is random, it is not searched
+                b.addToken(4, HUMAN);
+                break;
+            case MID_GAME:
+                // X . .
+                // . O .
+                // . . X
+                b.addToken(0, HUMAN);
+                b.addToken(4, COMPUTER);
+                b.addToken(8, HUMAN);
+                break;
+            case NEAR_TERMINAL:
+                // X O X
+                // X O O
+                // . X .
+                b.addToken(0, HUMAN);
+                b.addToken(1, COMPUTER);
+                b.addToken(2, HUMAN);
+                b.addToken(3, HUMAN);
+                b.addToken(4, COMPUTER);
+                b.addToken(5, COMPUTER);
+                b.addToken(7, HUMAN);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown position: " + name);
+        }
+        return b;
+    }
+}
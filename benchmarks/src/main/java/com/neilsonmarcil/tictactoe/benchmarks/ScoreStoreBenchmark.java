@@ -0,0 +1,69 @@
+package com.neilsonmarcil.tictactoe.benchmarks;
+
+import com.neilsonmarcil.tictactoe.store.ScoreStore;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the opening of the ScoreStore done when the activity starts, with a snapshot and
+ * half a log of records to replay.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScoreStoreBenchmark {
+
+    private File mDirectory;
+    private ScoreStore mStore;
+
+    @Setup
+    public void setUp() throws IOException {
+        mDirectory = Files.createTempDirectory("scorestore").toFile();
+        ScoreStore store = new ScoreStore(mDirectory);
+        for (int i = 0; i < ScoreStore.COMPACT_RECORDS + ScoreStore.COMPACT_RECORDS / 2; i++) {
+            store.recordGame(ScoreStore.RESULT_DRAW);
+        }
+        store.close();
+    }
+
+    @TearDown(Level.Invocation)
+    public void close() throws IOException {
+        mStore.close();
+    }
+
+    @TearDown
+    public void tearDown() {
+        File[] files = mDirectory.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                f.delete();
+            }
+        }
+        mDirectory.delete();
+    }
+
+    @Benchmark
+    public ScoreStore open() throws IOException {
+        mStore = new ScoreStore(mDirectory);
+        return mStore;
+    }
+}
@@ -0,0 +1,58 @@
+package com.neilsonmarcil.tictactoe.server;
+
+import com.neilsonmarcil.tictactoe.game.Game;
+import com.neilsonmarcil.tictactoe.game.Position;
+import com.neilsonmarcil.tictactoe.player.AIPlayer;
+import com.neilsonmarcil.tictactoe.player.SearchEngine;
+import com.neilsonmarcil.tictactoe.player.SearchResult;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * An {@code EnginePlayer} is the AI player of a session. Its moves are searched by the engine
+ * shared by all the sessions, on the search threads of the server: the session thread only waits
+ * for the result, so the number of searches running at the same time is bounded by the number
+ * of search threads whatever the number of sessions.
+ */
+final class EnginePlayer extends AIPlayer {
+
+    private final SearchEngine mEngine;
+    private final ExecutorService mSearches;
+
+    /**
+     * Create a new EnginePlayer
+     * @param id the player id
+     * @param engine the engine shared by the sessions
+     * @param searches the executor of the searches
+     */
+    EnginePlayer(int id, SearchEngine engine, ExecutorService searches) {
+        super(id);
+        mEngine = engine;
+        mSearches = searches;
+    }
+
+    @Override
+    public int playMove(Game g) {
+        final Position position = g.getPosition();
+        Future<SearchResult> result = mSearches.submit(new Callable<SearchResult>() {
+            @Override
+            public SearchResult call() {
+                return mEngine.search(position);
+            }
+        });
+        try {
+            return result.get().getMove();
+        }
+        catch (InterruptedException e) {
+            result.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the search", e);
+        }
+        catch (ExecutionException e) {
+            throw new IllegalStateException("The search failed", e.getCause());
+        }
+    }
+}
@@ -0,0 +1,307 @@
+package com.neilsonmarcil.tictactoe.server;
+
+import com.neilsonmarcil.tictactoe.player.SearchEngine;
+import com.neilsonmarcil.tictactoe.player.TranspositionTable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@code GameServer} hosts games against the engine for many players at the same time. Each
+ * connection is a {@link Session} that runs on its own thread, a virtual thread when the JVM
+ * has them, and blocks on its socket between two commands. The searches of all the sessions run
+ * on a fixed number of search threads, one per processor by default, and share one
+ * {@link SearchEngine} and its transposition table.<br/><br/>
+ *
+ * A session without any command for longer than the idle timeout is evicted, and new
+ * connections are refused when the maximum number of sessions is reached.
+ */
+public class GameServer implements Closeable {
+
+    public static final int DEFAULT_PORT = 7777;
+
+    /**
+     * The wait before the next accept after a failed one. The usual failure is too many open
+     * files, which lasts until some sessions are closed.
+     */
+    private static final long ACCEPT_RETRY_MILLIS = 50;
+
+    private String mHost = "127.0.0.1";
+    private int mPort = DEFAULT_PORT;
+    private long mIdleTimeout = 60000;
+    private int mMaxSessions = 10000;
+    private int mSearchThreads = Runtime.getRuntime().availableProcessors();
+    private long mTimeBudget = 50;
+
+    private final Set<Session> mActive = ConcurrentHashMap.newKeySet();
+    private final ServerMetrics mMetrics = new ServerMetrics();
+    private ServerSocketChannel mServerChannel;
+    private ExecutorService mSessions;
+    private ExecutorService mSearches;
+    private ScheduledExecutorService mEvictor;
+    private SearchEngine mEngine;
+
+    /**
+     * Set the address the server listens on, the loopback address by default
+     */
+    public void setHost(String host) {
+        checkNotStarted();
+        mHost = host;
+    }
+
+    /**
+     * Set the port the server listens on, 0 for any free port
+     */
+    public void setPort(int port) {
+        checkNotStarted();
+        if (port < 0 || port > 0xFFFF) {
+            throw new IllegalArgumentException("Invalid port: " + port);
+        }
+        mPort = port;
+    }
+
+    /**
+     * Set the time after which a session without any command is evicted
+     * @param millis the timeout in milliseconds
+     */
+    public void setIdleTimeout(long millis) {
+        checkNotStarted();
+        if (millis <= 0) {
+            throw new IllegalArgumentException("Invalid idle timeout: " + millis);
+        }
+        mIdleTimeout = millis;
+    }
+
+    /**
+     * Set the maximum number of sessions, the connections over it are refused
+     */
+    public void setMaxSessions(int sessions) {
+        checkNotStarted();
+        if (sessions < 1) {
+            throw new IllegalArgumentException("Invalid maximum number of sessions: " + sessions);
+        }
+        mMaxSessions = sessions;
+    }
+
+    /**
+     * Set the number of threads that search the moves of all the sessions
+     */
+    public void setSearchThreads(int threads) {
+        checkNotStarted();
+        if (threads < 1) {
+            throw new IllegalArgumentException("Invalid number of search threads: " + threads);
+        }
+        mSearchThreads = threads;
+    }
+
+    /**
+     * Set the time budget of a move
+     * @param millis the budget in milliseconds, 0 to search until the end of the game, which
+     *               is only practical on small boards
+     */
+    public void setTimeBudget(long millis) {
+        checkNotStarted();
+        if (millis < 0) {
+            throw new IllegalArgumentException("Time budget cannot be negative: " + millis);
+        }
+        mTimeBudget = millis;
+    }
+
+    /**
+     * Start listening and accepting the connections
+     */
+    public void start() throws IOException {
+        checkNotStarted();
+        mEngine = new SearchEngine(new TranspositionTable(1 << 20, TranspositionTable.REPLACE_DEPTH_PREFERRED));
+        mEngine.setTimeBudget(mTimeBudget);
+        mSearches = Executors.newFixedThreadPool(mSearchThreads, Threads.daemonFactory("search"));
+        mSessions = Threads.newSessionExecutor("session");
+        mEvictor = Executors.newSingleThreadScheduledExecutor(Threads.daemonFactory("evictor"));
+        long period = Math.max(10, mIdleTimeout / 4);
+        mEvictor.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                evictIdleSessions();
+            }
+        }, period, period, TimeUnit.MILLISECONDS);
+
+        mServerChannel = ServerSocketChannel.open();
+        mServerChannel.bind(new InetSocketAddress(mHost, mPort), 1024);
+        Thread acceptor = Threads.daemonFactory("acceptor").newThread(new Runnable() {
+            @Override
+            public void run() {
+                acceptConnections();
+            }
+        });
+        acceptor.start();
+    }
+
+    /**
+     * Returns the port the server listens on
+     */
+    public int getPort() throws IOException {
+        return ((InetSocketAddress)mServerChannel.getLocalAddress()).getPort();
+    }
+
+    public ServerMetrics getMetrics() {
+        return mMetrics;
+    }
+
+    /**
+     * Stop accepting connections and close the sessions
+     */
+    @Override
+    public void close() throws IOException {
+        if (mServerChannel == null) {
+            return;
+        }
+        mServerChannel.close();
+        for (Session s : mActive) {
+            s.evict();
+        }
+        mEvictor.shutdownNow();
+        mSessions.shutdown();
+        mSearches.shutdownNow();
+    }
+
+    void sessionEnded(Session session) {
+        if (mActive.remove(session)) {
+            mMetrics.sessionClosed();
+        }
+    }
+
+    /**
+     * Accept the connections until the server channel is closed. A connection that cannot be
+     * accepted is counted and logged, and the next one is accepted after a short wait.
+     */
+    private void acceptConnections() {
+        while (true) {
+            SocketChannel channel;
+            try {
+                channel = mServerChannel.accept();
+            }
+            catch (ClosedChannelException e) {
+                // the server is closed
+                return;
+            }
+            catch (IOException e) {
+                mMetrics.acceptFailed();
+                System.err.println("Cannot accept a connection: " + e);
+                try {
+                    Thread.sleep(ACCEPT_RETRY_MILLIS);
+                }
+                catch (InterruptedException interrupted) {
+                    return;
+                }
+                continue;
+            }
+            if (mActive.size() >= mMaxSessions) {
+                refuse(channel);
+                continue;
+            }
+            Session session = new Session(this, channel,
+                    new EnginePlayer(Session.ENGINE, mEngine, mSearches));
+            mActive.add(session);
+            mMetrics.sessionOpened();
+            try {
+                mSessions.execute(session);
+            }
+            catch (RejectedExecutionException e) {
+                // the server is being closed, the session never starts
+                sessionEnded(session);
+                closeChannel(channel);
+            }
+        }
+    }
+
+    private static void closeChannel(SocketChannel channel) {
+        try {
+            channel.close();
+        }
+        catch (IOException e) {
+            // the connection is dropped anyway
+        }
+    }
+
+    private void refuse(SocketChannel channel) {
+        mMetrics.sessionRejected();
+        try {
+            channel.write(ByteBuffer.wrap("ERR server full\n".getBytes(StandardCharsets.US_ASCII)));
+            channel.close();
+        }
+        catch (IOException e) {
+            // the connection is refused anyway
+        }
+    }
+
+    private void evictIdleSessions() {
+        long now = System.nanoTime();
+        long timeout = TimeUnit.MILLISECONDS.toNanos(mIdleTimeout);
+        for (Session s : mActive) {
+            if (now - s.getLastActivity() > timeout && !s.isEvicted()) {
+                s.evict();
+                mMetrics.sessionEvicted();
+            }
+        }
+    }
+
+    private void checkNotStarted() {
+        if (mServerChannel != null) {
+            throw new IllegalStateException("The server is already started");
+        }
+    }
+
+    /**
+     * Start a server from the command line.
+     * Options: --host 127.0.0.1 --port 7777 --idle 60000 --sessions 10000 --threads 4 --budget 50
+     */
+    public static void main(String[] args) throws Exception {
+        final GameServer server = new GameServer();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--host":
+                    server.setHost(value);
+                    break;
+                case "--port":
+                    server.setPort(Integer.parseInt(value));
+                    break;
+                case "--idle":
+                    server.setIdleTimeout(Long.parseLong(value));
+                    break;
+                case "--sessions":
+                    server.setMaxSessions(Integer.parseInt(value));
+                    break;
+                case "--threads":
+                    server.setSearchThreads(Integer.parseInt(value));
+                    break;
+                case "--budget":
+                    server.setTimeBudget(Long.parseLong(value));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        server.start();
+        System.out.println("Listening on " + server.mHost + ":" + server.getPort() + ", "
+                + (Threads.hasVirtualThreads() ? "virtual" : "platform") + " session threads, "
+                + server.mSearchThreads + " search threads");
+        while (true) {
+            Thread.sleep(10000);
+            System.out.println(server.getMetrics());
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.neilsonmarcil.tictactoe.server;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A {@code LineChannel} reads and writes the lines of the protocol on a blocking SocketChannel.
+ * The lines are ASCII and end with '\n', a '\r' before it is ignored. A line longer than the
+ * buffer is an error, the commands of the protocol are short.
+ */
+final class LineChannel implements Closeable {
+
+    private static final int BUFFER_SIZE = 256;
+
+    private final SocketChannel mChannel;
+    private final ByteBuffer mIn = ByteBuffer.allocate(BUFFER_SIZE);
+    private final ByteBuffer mOut = ByteBuffer.allocate(4 * BUFFER_SIZE);
+
+    LineChannel(SocketChannel channel) throws IOException {
+        mChannel = channel;
+        mChannel.configureBlocking(true);
+        mIn.flip();
+    }
+
+    /**
+     * Read the next line.
+     * @return the line without its end, null when the other side closed the connection
+     */
+    String readLine() throws IOException {
+        while (true) {
+            for (int i = mIn.position(); i < mIn.limit(); i++) {
+                if (mIn.get(i) == '\n') {
+                    int end = i > mIn.position() && mIn.get(i - 1) == '\r' ? i - 1 : i;
+                    String line = new String(mIn.array(), mIn.position(), end - mIn.position(),
+                            StandardCharsets.US_ASCII);
+                    mIn.position(i + 1);
+                    return line;
+                }
+            }
+            mIn.compact();
+            if (!mIn.hasRemaining()) {
+                throw new IOException("Line too long");
+            }
+            int read = mChannel.read(mIn);
+            mIn.flip();
+            if (read < 0) {
+                if (mIn.hasRemaining()) {
+                    throw new EOFException("Connection closed in the middle of a line");
+                }
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Write a line and its end.
+     */
+    void writeLine(String line) throws IOException {
+        mOut.clear();
+        for (int i = 0; i < line.length(); i++) {
+            mOut.put((byte)line.charAt(i));
+        }
+        mOut.put((byte)'\n');
+        mOut.flip();
+        while (mOut.hasRemaining()) {
+            mChannel.write(mOut);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        mChannel.close();
+    }
+}
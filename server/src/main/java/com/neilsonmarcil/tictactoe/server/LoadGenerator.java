@@ -0,0 +1,225 @@
+package com.neilsonmarcil.tictactoe.server;
+
+import com.neilsonmarcil.tictactoe.game.Board;
+import com.neilsonmarcil.tictactoe.game.BoardGeometry;
+import com.neilsonmarcil.tictactoe.tools.LatencyHistogram;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * A {@code LoadGenerator} plays games against a {@link GameServer} with many clients at the same
+ * time, each one on its own connection and thread, and measures the moves per second and the
+ * latency of a move seen by the clients. The clients play random moves.
+ */
+public class LoadGenerator {
+
+    private final InetSocketAddress mAddress;
+    private final int mClients;
+    private final long mDuration;
+    private final BoardGeometry mGeometry;
+
+    /**
+     * Create a new LoadGenerator
+     * @param address the address of the server
+     * @param clients the number of clients
+     * @param millis how long the clients play, in milliseconds
+     * @param geometry the board of the games
+     */
+    public LoadGenerator(InetSocketAddress address, int clients, long millis, BoardGeometry geometry) {
+        if (clients < 1 || millis <= 0) {
+            throw new IllegalArgumentException("Invalid clients or duration: " + clients + ", " + millis);
+        }
+        mAddress = address;
+        mClients = clients;
+        mDuration = millis;
+        mGeometry = geometry;
+    }
+
+    /**
+     * Play until the duration is over and returns the moves played and their latency
+     */
+    public Result run() throws InterruptedException, IOException {
+        final long deadline = System.nanoTime() + mDuration * 1000000L;
+        ExecutorService executor = Threads.newSessionExecutor("client");
+        List<Future<Result>> futures = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int i = 0; i < mClients; i++) {
+            final long seed = i;
+            futures.add(executor.submit(new Callable<Result>() {
+                @Override
+                public Result call() throws IOException {
+                    return play(deadline, seed);
+                }
+            }));
+        }
+        Result total = new Result();
+        try {
+            for (Future<Result> f : futures) {
+                total.add(f.get());
+            }
+        }
+        catch (ExecutionException e) {
+            throw new IOException("A client failed", e.getCause());
+        }
+        finally {
+            executor.shutdownNow();
+        }
+        total.mElapsed = System.nanoTime() - start;
+        return total;
+    }
+
+    /**
+     * Play games on one connection until the deadline
+     */
+    private Result play(long deadline, long seed) throws IOException {
+        Result result = new Result();
+        Random random = new Random(seed);
+        Board board = new Board(mGeometry);
+        int[] moves = new int[mGeometry.getCellCount()];
+        String newGame = "NEW " + mGeometry.getRows() + " " + mGeometry.getColumns() + " "
+                + mGeometry.getLength();
+        try (LineChannel channel = new LineChannel(SocketChannel.open(mAddress))) {
+            while (System.nanoTime() - deadline < 0) {
+                board.resetBoard();
+                expect(channel, newGame, "OK");
+                result.mGames++;
+                String state = "PLAY";
+                while (state.equals("PLAY")) {
+                    int count = board.getNextPossibleMoves(moves);
+                    int move = moves[random.nextInt(count)];
+                    board.addToken(move, Session.PLAYER);
+
+                    long start = System.nanoTime();
+                    channel.writeLine("PLAY " + move);
+                    String reply = channel.readLine();
+                    result.mLatency.record(System.nanoTime() - start);
+                    result.mMoves++;
+
+                    String[] args = reply == null ? new String[0] : reply.split(" ");
+                    if (args.length != 3 || !args[0].equals("MOVE")) {
+                        throw new IOException("Unexpected reply: " + reply);
+                    }
+                    int box = Integer.parseInt(args[1]);
+                    if (box >= 0) {
+                        board.addToken(box, Session.ENGINE);
+                    }
+                    state = args[2];
+                }
+                if (state.equals("WIN")) {
+                    result.mWins++;
+                }
+            }
+            expect(channel, "QUIT", "BYE");
+        }
+        return result;
+    }
+
+    private static void expect(LineChannel channel, String command, String reply) throws IOException {
+        channel.writeLine(command);
+        String line = channel.readLine();
+        if (!reply.equals(line)) {
+            throw new IOException("Unexpected reply to " + command + ": " + line);
+        }
+    }
+
+    /**
+     * The moves played by the clients and their latency
+     */
+    public static final class Result {
+
+        private final LatencyHistogram mLatency = new LatencyHistogram();
+        private long mGames;
+        private long mWins;
+        private long mMoves;
+        private long mElapsed;
+
+        private void add(Result other) {
+            mLatency.add(other.mLatency);
+            mGames += other.mGames;
+            mWins += other.mWins;
+            mMoves += other.mMoves;
+        }
+
+        public long getGames() {
+            return mGames;
+        }
+
+        /**
+         * Returns the number of games won by the clients, a random player should not win against
+         * the engine on the classic board
+         */
+        public long getWins() {
+            return mWins;
+        }
+
+        public long getMoves() {
+            return mMoves;
+        }
+
+        public LatencyHistogram getLatency() {
+            return mLatency;
+        }
+
+        public double getMovesPerSecond() {
+            return mElapsed == 0 ? 0 : mMoves * 1e9 / mElapsed;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d games, %d moves, %.0f moves/s, latency mean %.0f us, "
+                            + "p50 %d us, p99 %d us, max %d us", mGames, mMoves, getMovesPerSecond(),
+                    mLatency.getMean() / 1e3, mLatency.getPercentile(50) / 1000,
+                    mLatency.getPercentile(99) / 1000, mLatency.getMax() / 1000);
+        }
+    }
+
+    /**
+     * Run the load generator from the command line.
+     * Options: --host 127.0.0.1 --port 7777 --clients 100 --seconds 10 --board 3x3x3
+     */
+    public static void main(String[] args) throws Exception {
+        String host = "127.0.0.1";
+        int port = GameServer.DEFAULT_PORT;
+        int clients = 100;
+        long seconds = 10;
+        BoardGeometry geometry = BoardGeometry.STANDARD;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--host":
+                    host = value;
+                    break;
+                case "--port":
+                    port = Integer.parseInt(value);
+                    break;
+                case "--clients":
+                    clients = Integer.parseInt(value);
+                    break;
+                case "--seconds":
+                    seconds = Long.parseLong(value);
+                    break;
+                case "--board":
+                    String[] size = value.split("x");
+                    geometry = BoardGeometry.get(Integer.parseInt(size[0]), Integer.parseInt(size[1]),
+                            Integer.parseInt(size[2]));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        System.out.println(String.format("%d clients on %s boards for %d s, %s threads", clients,
+                geometry, seconds, Threads.hasVirtualThreads() ? "virtual" : "platform"));
+        LoadGenerator generator = new LoadGenerator(new InetSocketAddress(host, port), clients,
+                seconds * 1000, geometry);
+        System.out.println(generator.run());
+    }
+}
@@ -0,0 +1,123 @@
+package com.neilsonmarcil.tictactoe.server;
+
+import com.neilsonmarcil.tictactoe.tools.LatencyHistogram;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The {@code ServerMetrics} count the sessions, games and moves of the server and measure the
+ * latency of the moves, from the command of the player to the reply with the move of the engine,
+ * which includes the wait for a search thread.
+ */
+public class ServerMetrics {
+
+    private final long mStart = System.nanoTime();
+    private final AtomicInteger mActiveSessions = new AtomicInteger();
+    private final AtomicLong mSessions = new AtomicLong();
+    private final AtomicLong mEvicted = new AtomicLong();
+    private final AtomicLong mRejected = new AtomicLong();
+    private final AtomicLong mAcceptErrors = new AtomicLong();
+    private final AtomicLong mGames = new AtomicLong();
+    private final AtomicLong mMoves = new AtomicLong();
+    private final LatencyHistogram mLatency = new LatencyHistogram();
+
+    void sessionOpened() {
+        mSessions.incrementAndGet();
+        mActiveSessions.incrementAndGet();
+    }
+
+    void sessionClosed() {
+        mActiveSessions.decrementAndGet();
+    }
+
+    void sessionEvicted() {
+        mEvicted.incrementAndGet();
+    }
+
+    void sessionRejected() {
+        mRejected.incrementAndGet();
+    }
+
+    void acceptFailed() {
+        mAcceptErrors.incrementAndGet();
+    }
+
+    void gameStarted() {
+        mGames.incrementAndGet();
+    }
+
+    /**
+     * Count a move of the engine
+     * @param nanos the time from the command to the reply
+     */
+    void moveCompleted(long nanos) {
+        mMoves.incrementAndGet();
+        synchronized (mLatency) {
+            mLatency.record(nanos);
+        }
+    }
+
+    public int getActiveSessions() {
+        return mActiveSessions.get();
+    }
+
+    public long getSessionCount() {
+        return mSessions.get();
+    }
+
+    public long getEvictedCount() {
+        return mEvicted.get();
+    }
+
+    public long getRejectedCount() {
+        return mRejected.get();
+    }
+
+    /**
+     * Returns the number of connections that could not be accepted, because the process had
+     * too many open files for example
+     */
+    public long getAcceptErrorCount() {
+        return mAcceptErrors.get();
+    }
+
+    public long getGameCount() {
+        return mGames.get();
+    }
+
+    public long getMoveCount() {
+        return mMoves.get();
+    }
+
+    /**
+     * Returns the number of moves per second since the server started
+     */
+    public double getMovesPerSecond() {
+        long elapsed = System.nanoTime() - mStart;
+        return elapsed == 0 ? 0 : mMoves.get() * 1e9 / elapsed;
+    }
+
+    /**
+     * Returns a percentile of the move latency in nanoseconds
+     * @param percent the percentile, from 0 to 100
+     */
+    public long getLatencyPercentile(double percent) {
+        synchronized (mLatency) {
+            return mLatency.getPercentile(percent);
+        }
+    }
+
+    /**
+     * Returns the metrics on one line, the reply to the STATS command
+     */
+    @Override
+    public String toString() {
+        return String.format("sessions=%d active=%d evicted=%d rejected=%d games=%d moves=%d "
+                        + "moves/s=%.1f p50us=%d p99us=%d accepterrors=%d",
+                getSessionCount(), getActiveSessions(), getEvictedCount(), getRejectedCount(),
+                getGameCount(), getMoveCount(), getMovesPerSecond(),
+                getLatencyPercentile(50) / 1000, getLatencyPercentile(99) / 1000,
+                getAcceptErrorCount());
+    }
+}
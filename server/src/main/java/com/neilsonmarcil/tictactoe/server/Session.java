@@ -0,0 +1,176 @@
+package com.neilsonmarcil.tictactoe.server;
+
+import com.neilsonmarcil.tictactoe.game.Board;
+import com.neilsonmarcil.tictactoe.game.BoardGeometry;
+import com.neilsonmarcil.tictactoe.game.Game;
+import com.neilsonmarcil.tictactoe.game.Score;
+import com.neilsonmarcil.tictactoe.player.Player;
+
+import java.io.IOException;
+import java.nio.channels.SocketChannel;
+
+/**
+ * A {@code Session} plays the games of one connection against the engine. It reads a command,
+ * plays it and writes the reply, until the player quits, the connection is closed or the session
+ * is evicted for being idle. The protocol is made of ASCII lines:
+ * <ul>
+ *     <li>{@code NEW rows columns length [C]}: start a game, the player moves first unless
+ *     {@code C} is given. The reply is {@code OK}, or the first move of the engine.</li>
+ *     <li>{@code PLAY box}: play a move. The reply is {@code MOVE box state}, with the move of
+ *     the engine, -1 when the game ended with the move of the player, and the state of the game
+ *     for the player: {@code PLAY}, {@code WIN}, {@code LOSS} or {@code DRAW}.</li>
+ *     <li>{@code STATS}: the metrics of the server on one line.</li>
+ *     <li>{@code QUIT}: the reply is {@code BYE} and the connection is closed.</li>
+ * </ul>
+ * An invalid command gets the reply {@code ERR message}, the session goes on.
+ */
+final class Session implements Runnable {
+
+    static final int PLAYER = 1;
+    static final int ENGINE = 2;
+
+    private final GameServer mServer;
+    private final SocketChannel mChannel;
+    private final EnginePlayer mEngine;
+    private final Score mScore = new Score();
+
+    private Board mBoard;
+    private Game mGame;
+
+    /**
+     * The time of the last command or reply, from System.nanoTime
+     */
+    private volatile long mLastActivity = System.nanoTime();
+    private volatile boolean mEvicted;
+
+    Session(GameServer server, SocketChannel channel, EnginePlayer engine) {
+        mServer = server;
+        mChannel = channel;
+        mEngine = engine;
+    }
+
+    long getLastActivity() {
+        return mLastActivity;
+    }
+
+    /**
+     * Close the connection of an idle session, its thread stops reading
+     */
+    void evict() {
+        mEvicted = true;
+        try {
+            mChannel.close();
+        }
+        catch (IOException e) {
+            // the session ends anyway
+        }
+    }
+
+    boolean isEvicted() {
+        return mEvicted;
+    }
+
+    @Override
+    public void run() {
+        try (LineChannel channel = new LineChannel(mChannel)) {
+            String line;
+            while ((line = channel.readLine()) != null) {
+                mLastActivity = System.nanoTime();
+                if (line.equals("QUIT")) {
+                    channel.writeLine("BYE");
+                    break;
+                }
+                channel.writeLine(execute(line));
+                mLastActivity = System.nanoTime();
+            }
+        }
+        catch (IOException e) {
+            // the connection was closed by the player or by the eviction
+        }
+        finally {
+            mServer.sessionEnded(this);
+        }
+    }
+
+    /**
+     * Execute a command and returns its reply
+     */
+    private String execute(String line) {
+        String[] args = line.split(" ");
+        try {
+            switch (args[0]) {
+                case "NEW":
+                    return newGame(args);
+                case "PLAY":
+                    if (args.length != 2) {
+                        return "ERR usage: PLAY box";
+                    }
+                    return play(Integer.parseInt(args[1]));
+                case "STATS":
+                    return mServer.getMetrics().toString();
+                default:
+                    return "ERR unknown command: " + args[0];
+            }
+        }
+        catch (NumberFormatException e) {
+            return "ERR not a number: " + e.getMessage();
+        }
+        catch (IllegalArgumentException e) {
+            return "ERR " + e.getMessage();
+        }
+    }
+
+    private String newGame(String[] args) {
+        if (args.length < 4 || args.length > 5 || (args.length == 5 && !args[4].equals("C"))) {
+            return "ERR usage: NEW rows columns length [C]";
+        }
+        BoardGeometry geometry = BoardGeometry.get(Integer.parseInt(args[1]),
+                Integer.parseInt(args[2]), Integer.parseInt(args[3]));
+        if (mBoard == null || mBoard.getGeometry() != geometry) {
+            mBoard = new Board(geometry);
+            mGame = new Game(mBoard, mScore, new Player[] { new Player(PLAYER), mEngine }, null);
+        }
+        mBoard.resetBoard();
+        mServer.getMetrics().gameStarted();
+        if (args.length == 5) {
+            return engineMove(System.nanoTime());
+        }
+        return "OK";
+    }
+
+    private String play(int box) {
+        long start = System.nanoTime();
+        if (mGame == null || mGame.isGameOver()) {
+            return "ERR no game in progress";
+        }
+        if (box < 0 || box >= mBoard.getCellCount() || !mGame.isValidMove(box)) {
+            return "ERR invalid move: " + box;
+        }
+        mBoard.addToken(box, PLAYER);
+        if (mGame.isGameOver()) {
+            return "MOVE -1 " + end();
+        }
+        return engineMove(start);
+    }
+
+    /**
+     * Play the move of the engine and returns the reply
+     * @param start the time the command was received
+     */
+    private String engineMove(long start) {
+        int move = mEngine.playMove(mGame);
+        mBoard.addToken(move, ENGINE);
+        String state = mGame.isGameOver() ? end() : "PLAY";
+        mServer.getMetrics().moveCompleted(System.nanoTime() - start);
+        return "MOVE " + move + " " + state;
+    }
+
+    /**
+     * Count the game that just ended and returns its result for the player
+     */
+    private String end() {
+        int winner = mGame.determineWinner();
+        mGame.updateScore(winner);
+        return winner == PLAYER ? "WIN" : winner == ENGINE ? "LOSS" : "DRAW";
+    }
+}
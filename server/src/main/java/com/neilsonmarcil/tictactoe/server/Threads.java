@@ -0,0 +1,60 @@
+package com.neilsonmarcil.tictactoe.server;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates the executors of the server. The sessions block on their socket most of the time, so
+ * each one runs on its own virtual thread when the JVM has them. The module is compiled for
+ * Java 8, the virtual threads are looked up by reflection and platform threads are used when
+ * they are missing.
+ */
+final class Threads {
+
+    private Threads() {
+    }
+
+    /**
+     * Returns an executor that runs each task on a new thread, a virtual one if possible
+     */
+    static ExecutorService newSessionExecutor(String name) {
+        try {
+            Method m = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService)m.invoke(null);
+        }
+        catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(daemonFactory(name));
+        }
+    }
+
+    /**
+     * Returns true if the sessions run on virtual threads
+     */
+    static boolean hasVirtualThreads() {
+        try {
+            Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return true;
+        }
+        catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Returns a factory of daemon platform threads, named after the pool
+     */
+    static ThreadFactory daemonFactory(final String name) {
+        final AtomicInteger count = new AtomicInteger();
+        return new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, name + "-" + count.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }
+        };
+    }
+}
@@ -0,0 +1,123 @@
+package com.neilsonmarcil.tictactoe.server;
+
+import com.neilsonmarcil.tictactoe.game.BoardGeometry;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.nio.channels.SocketChannel;
+
+import static org.junit.Assert.*;
+
+/**
+ * Plays against a server on the loopback address and checks the protocol, the eviction of the
+ * idle sessions and the load generator.
+ */
+public class GameServerTest {
+
+    private GameServer mServer;
+
+    @After
+    public void tearDown() throws Exception {
+        if (mServer != null) {
+            mServer.close();
+        }
+    }
+
+    @Test
+    public void playsAGameWithTheProtocol() throws Exception {
+        start();
+        try (LineChannel c = connect()) {
+            assertEquals("ERR unknown command: HELLO", send(c, "HELLO"));
+            assertEquals("ERR no game in progress", send(c, "PLAY 4"));
+            assertEquals("OK", send(c, "NEW 3 3 3"));
+            assertEquals("ERR invalid move: 9", send(c, "PLAY 9"));
+
+            // the player takes the first free box until the game ends
+            boolean[] taken = new boolean[9];
+            String state = "PLAY";
+            while (state.equals("PLAY")) {
+                int box = 0;
+                while (taken[box]) {
+                    box++;
+                }
+                taken[box] = true;
+                String[] reply = send(c, "PLAY " + box).split(" ");
+                assertEquals("MOVE", reply[0]);
+                int move = Integer.parseInt(reply[1]);
+                if (move >= 0) {
+                    assertFalse(taken[move]);
+                    taken[move] = true;
+                }
+                state = reply[2];
+            }
+            assertNotEquals("WIN", state);
+            assertTrue(send(c, "STATS").startsWith("sessions=1 active=1"));
+
+            String[] first = send(c, "NEW 4 4 3 C").split(" ");
+            assertEquals("MOVE", first[0]);
+            assertEquals("PLAY", first[2]);
+            assertEquals("BYE", send(c, "QUIT"));
+        }
+        assertEquals(2, mServer.getMetrics().getGameCount());
+    }
+
+    @Test
+    public void idleSessionsAreEvicted() throws Exception {
+        mServer = new GameServer();
+        mServer.setPort(0);
+        mServer.setIdleTimeout(100);
+        mServer.start();
+        try (LineChannel c = connect()) {
+            assertEquals("OK", send(c, "NEW 3 3 3"));
+            Thread.sleep(500);
+            assertNull(c.readLine());
+        }
+        assertEquals(1, mServer.getMetrics().getEvictedCount());
+        assertEquals(0, mServer.getMetrics().getActiveSessions());
+    }
+
+    @Test
+    public void connectionsOverTheLimitAreRefused() throws Exception {
+        mServer = new GameServer();
+        mServer.setPort(0);
+        mServer.setMaxSessions(1);
+        mServer.start();
+        try (LineChannel first = connect(); LineChannel second = connect()) {
+            assertEquals("OK", send(first, "NEW 3 3 3"));
+            assertEquals("ERR server full", second.readLine());
+        }
+        assertEquals(1, mServer.getMetrics().getRejectedCount());
+    }
+
+    @Test
+    public void loadGeneratorNeverBeatsTheEngine() throws Exception {
+        start();
+        LoadGenerator.Result result = new LoadGenerator(
+                new InetSocketAddress("127.0.0.1", mServer.getPort()), 64, 1000,
+                BoardGeometry.STANDARD).run();
+
+        assertTrue(result.getGames() > 64);
+        assertEquals(0, result.getWins());
+        assertTrue(mServer.getMetrics().getMoveCount() > 0);
+        assertEquals(64, mServer.getMetrics().getSessionCount());
+        assertEquals(0, mServer.getMetrics().getAcceptErrorCount());
+    }
+
+    private void start() throws Exception {
+        mServer = new GameServer();
+        mServer.setPort(0);
+        mServer.setSearchThreads(2);
+        mServer.start();
+    }
+
+    private LineChannel connect() throws Exception {
+        return new LineChannel(SocketChannel.open(new InetSocketAddress("127.0.0.1", mServer.getPort())));
+    }
+
+    private static String send(LineChannel c, String command) throws Exception {
+        c.writeLine(command);
+        return c.readLine();
+    }
+}
@@ -0,0 +1,95 @@
+package com.neilsonmarcil.tictactoe.tools;
+
+/**
+ * A {@code LatencyHistogram} counts durations in buckets of increasing width, so that millions of
+ * values take a fixed amount of memory. The values below 128 have their own bucket, the others
+ * share a bucket with the values that have the same 7 highest bits, which keeps the error of a
+ * percentile under 1.6%.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKETS = 64;
+    private static final int BUCKET_COUNT = 58 * SUB_BUCKETS;
+
+    private final long[] mCounts = new long[BUCKET_COUNT];
+    private long mCount;
+    private long mMax;
+    private long mTotal;
+
+    /**
+     * Count a duration.
+     * @param nanos the duration in nanoseconds, negative values are counted as 0
+     */
+    public void record(long nanos) {
+        long v = Math.max(nanos, 0);
+        mCounts[bucket(v)]++;
+        mCount++;
+        mTotal += v;
+        mMax = Math.max(mMax, v);
+    }
+
+    /**
+     * Add the durations counted by another histogram
+     */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            mCounts[i] += other.mCounts[i];
+        }
+        mCount += other.mCount;
+        mTotal += other.mTotal;
+        mMax = Math.max(mMax, other.mMax);
+    }
+
+    public long getCount() {
+        return mCount;
+    }
+
+    public long getMax() {
+        return mMax;
+    }
+
+    /**
+     * Returns the mean duration in nanoseconds, 0 when nothing was counted
+     */
+    public double getMean() {
+        return mCount == 0 ? 0 : (double)mTotal / mCount;
+    }
+
+    /**
+     * Returns the duration under which the percentage of the values are, rounded up to the end
+     * of its bucket.
+     * @param percent the percentage, from 0 to 100
+     * @return the duration in nanoseconds, 0 when nothing was counted
+     */
+    public long getPercentile(double percent) {
+        if (percent < 0 || percent > 100) {
+            throw new IllegalArgumentException("Invalid percentile: " + percent);
+        }
+        long target = Math.max(1, (long)Math.ceil(percent / 100 * mCount));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT && mCount > 0; i++) {
+            seen += mCounts[i];
+            if (seen >= target) {
+                return Math.min(highestValue(i), mMax);
+            }
+        }
+        return 0;
+    }
+
+    private static int bucket(long v) {
+        if (v < 2 * SUB_BUCKETS) {
+            return (int)v;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(v) - 6;
+        return shift * SUB_BUCKETS + (int)(v >>> shift);
+    }
+
+    private static long highestValue(int bucket) {
+        if (bucket < 2 * SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        long mantissa = bucket - shift * SUB_BUCKETS;
+        return ((mantissa + 1) << shift) - 1;
+    }
+}
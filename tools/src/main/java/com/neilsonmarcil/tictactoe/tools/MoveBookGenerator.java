@@ -0,0 +1,129 @@
+package com.neilsonmarcil.tictactoe.tools;
+
+import com.neilsonmarcil.tictactoe.game.Board;
+import com.neilsonmarcil.tictactoe.player.MoveBook;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * A {@code MoveBookGenerator} solves every 3x3 position that can be reached in a game and writes
+ * the {@link MoveBook} file that is packaged in the application assets. It runs at build time.
+ */
+public class MoveBookGenerator {
+
+    /**
+     * The worth of a win, the same value as the ComputerPlayer search
+     */
+    private static final int WIN_VALUE = 10;
+
+    /**
+     * Marks the positions not solved yet
+     */
+    private static final int UNSOLVED = Integer.MIN_VALUE;
+
+    private final short[] mEntries = new short[MoveBook.ENTRY_COUNT];
+    private final int[] mScores = new int[MoveBook.ENTRY_COUNT];
+    private int mSolved;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            throw new IllegalArgumentException("Usage: MoveBookGenerator <output file>");
+        }
+        MoveBookGenerator generator = new MoveBookGenerator();
+        generator.solve();
+        generator.write(new File(args[0]));
+        System.out.println("Move book: " + generator.mSolved + " positions solved, written to " + args[0]);
+    }
+
+    /**
+     * Solve the positions reachable from the empty board. Both players can start, which is
+     * covered because the book is indexed from the point of view of the player to move.
+     */
+    public void solve() {
+        Arrays.fill(mScores, UNSOLVED);
+        solve(0, 0);
+    }
+
+    /**
+     * Returns the book entries, indexed by MoveBook.index
+     */
+    public short[] getEntries() {
+        return mEntries;
+    }
+
+    /**
+     * Write the book file: the header followed by the entries.
+     */
+    public void write(File output) throws IOException {
+        ByteBuffer entries = ByteBuffer.allocate(MoveBook.ENTRY_COUNT * 2);
+        entries.asShortBuffer().put(mEntries);
+        int checksum = MoveBook.checksum(entries.duplicate());
+
+        File parent = output.getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Cannot create directory: " + parent);
+        }
+        DataOutputStream out = new DataOutputStream(new FileOutputStream(output));
+        try {
+            out.writeInt(MoveBook.MAGIC);
+            out.writeInt(MoveBook.VERSION);
+            out.writeInt(MoveBook.ENTRY_COUNT);
+            out.writeInt(checksum);
+            out.write(entries.array());
+        }
+        finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Solve a position that is not over and returns its score for the player to move. The scores
+     * follow the ComputerPlayer search: a win in {@code n} moves is worth {@code WIN_VALUE - n}.
+     * @param player the mask of the player to move
+     * @param opponent the mask of the opponent
+     */
+    private int solve(int player, int opponent) {
+        int index = MoveBook.index(player, opponent);
+        if (mScores[index] != UNSOLVED) {
+            return mScores[index];
+        }
+
+        int empty = ~(player | opponent) & Board.FULL_MASK;
+        int best = Integer.MIN_VALUE;
+        int bestMoves = 0;
+        for (int e = empty; e != 0; e &= e - 1) {
+            int bit = e & -e;
+            int next = player | bit;
+            int score;
+            if (Board.isWinningMask(next)) {
+                score = WIN_VALUE - 1;
+            }
+            else if ((empty & ~bit) == 0) {
+                score = 0;
+            }
+            else {
+                // the child score is one move further away from this position
+                int child = solve(opponent, next);
+                score = child > 0 ? 1 - child : child < 0 ? -child - 1 : 0;
+            }
+
+            if (score > best) {
+                best = score;
+                bestMoves = bit;
+            }
+            else if (score == best) {
+                bestMoves |= bit;
+            }
+        }
+
+        mScores[index] = best;
+        mEntries[index] = (short)(best << MoveBook.SCORE_SHIFT | bestMoves);
+        mSolved++;
+        return best;
+    }
+}
@@ -0,0 +1,454 @@
+package com.neilsonmarcil.tictactoe.tools;
+
+import com.neilsonmarcil.tictactoe.game.Board;
+import com.neilsonmarcil.tictactoe.game.BoardGeometry;
+
+import java.util.Arrays;
+import java.util.Spliterator;
+import java.util.function.LongConsumer;
+import java.util.function.LongPredicate;
+import java.util.function.LongUnaryOperator;
+import java.util.stream.LongStream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A {@code PositionEnumerator} walks every position that can be reached in a game on a board of
+ * up to 32 boxes, each one exactly once, for the generators, the tests and the benchmarks. A
+ * position is encoded in a {@code long}: the mask of the first player in the low 32 bits and the
+ * mask of the second player in the high 32 bits, so the walk does not create any Board. With the
+ * symmetry reduction, only the canonical position of each group of rotations and reflections is
+ * given, the one with the smallest code.<br/><br/>
+ *
+ * A position is reachable when its counts of tokens are right and some token of the last player
+ * can be removed without leaving a completed line: the position without it is reachable, since
+ * its tokens can be played in any order. The parent of a position is the one without the
+ * smallest such token, so the positions form a tree and a position is only given by its parent.
+ * Nothing is remembered, the walk keeps a stack of the positions still to visit.<br/><br/>
+ *
+ * The positions are given by a {@link Spliterator} that splits by handing over the bottom half
+ * of its stack, which holds the largest subtrees, so {@code stream(true)} spreads the walk across
+ * all the cores.
+ */
+public class PositionEnumerator {
+
+    /**
+     * The largest number of boxes, each player mask takes 32 bits of a position
+     */
+    public static final int MAX_CELLS = 32;
+
+    /**
+     * The counts of the classic 3x3 board where the first player is always the same: the
+     * positions, the positions left once the symmetric positions are removed, and the games
+     */
+    public static final int STANDARD_POSITIONS = 5478;
+    public static final int STANDARD_CANONICAL_POSITIONS = 765;
+    public static final int STANDARD_GAMES = 255168;
+
+    private static final long LOW_MASK = 0xFFFFFFFFL;
+
+    private final BoardGeometry mGeometry;
+    private final boolean mReduced;
+    private final int mCellCount;
+    private final long mFullMask;
+
+    /**
+     * The winning lines as masks
+     */
+    private final int[] mLines;
+
+    /**
+     * The bytes of a mask moved by each symmetry, 4 bytes of 256 values per symmetry
+     */
+    private final int mSymmetryCount;
+    private final int[] mPermute;
+
+    /**
+     * Create a new PositionEnumerator.
+     * @param geometry the shape of the board, 32 boxes at most
+     * @param reduced true to give only the canonical position of the symmetric positions
+     */
+    public PositionEnumerator(BoardGeometry geometry, boolean reduced) {
+        if (geometry.getCellCount() > MAX_CELLS) {
+            throw new IllegalArgumentException("Cannot enumerate a board of more than " + MAX_CELLS
+                    + " boxes: " + geometry);
+        }
+        mGeometry = geometry;
+        mReduced = reduced;
+        mCellCount = geometry.getCellCount();
+        mFullMask = -1L >>> (64 - mCellCount);
+        mLines = new int[geometry.getLineCount()];
+        for (int l = 0; l < mLines.length; l++) {
+            mLines[l] = (int)geometry.getLineMask(l, 0);
+        }
+
+        mSymmetryCount = geometry.getSymmetryCount();
+        mPermute = new int[mSymmetryCount * 4 * 256];
+        for (int t = 0; t < mSymmetryCount; t++) {
+            for (int cell = 0; cell < mCellCount; cell++) {
+                int to = 1 << geometry.getSymmetricCell(t, cell);
+                int base = (t * 4 + (cell >>> 3)) * 256;
+                for (int b = 0; b < 256; b++) {
+                    if ((b & 1 << (cell & 7)) != 0) {
+                        mPermute[base + b] |= to;
+                    }
+                }
+            }
+        }
+    }
+
+    public BoardGeometry getGeometry() {
+        return mGeometry;
+    }
+
+    public boolean isReduced() {
+        return mReduced;
+    }
+
+    /**
+     * Returns the positions. A sequential walk gives the empty board first and each position
+     * before its children.
+     */
+    public Spliterator.OfLong spliterator() {
+        long estimate = 1;
+        for (int i = 0; i < mCellCount && estimate < Long.MAX_VALUE / 3; i++) {
+            estimate *= 3;
+        }
+        return new Walk(new long[] { 0 }, 1, estimate);
+    }
+
+    /**
+     * Returns the positions as a stream.
+     * @param parallel true for a parallel stream
+     */
+    public LongStream stream(boolean parallel) {
+        return StreamSupport.longStream(spliterator(), parallel);
+    }
+
+    public static int getFirstMask(long position) {
+        return (int)position;
+    }
+
+    public static int getSecondMask(long position) {
+        return (int)(position >>> 32);
+    }
+
+    /**
+     * Returns the code of a position.
+     * @param first the mask of the first player
+     * @param second the mask of the second player
+     */
+    public static long encode(int first, int second) {
+        return (first & LOW_MASK) | (long)second << 32;
+    }
+
+    /**
+     * Put the tokens of a position on a board of the geometry, the board is emptied first.
+     * @param position the position
+     * @param b the board
+     * @param first the id of the first player
+     * @param second the id of the second player
+     */
+    public void copyTo(long position, Board b, int first, int second) {
+        if (b.getGeometry() != mGeometry) {
+            throw new IllegalArgumentException("Cannot copy a " + mGeometry + " position into a "
+                    + b.getGeometry() + " board");
+        }
+        b.resetBoard();
+        for (int cell = 0; cell < mCellCount; cell++) {
+            long bit = 1L << cell;
+            if ((position & bit) != 0) {
+                b.addToken(cell, first);
+            }
+            else if ((position & bit << 32) != 0) {
+                b.addToken(cell, second);
+            }
+        }
+    }
+
+    /**
+     * Returns true if the game is over in a position: a player completed a line or the board
+     * is full.
+     */
+    public boolean isOver(long position) {
+        int first = getFirstMask(position);
+        int second = getSecondMask(position);
+        return isWinning(first) || isWinning(second) || ((first | second) & LOW_MASK) == mFullMask;
+    }
+
+    /**
+     * Returns the canonical position of a position, the smallest code among its symmetric
+     * positions.
+     */
+    public long canonical(long position) {
+        long best = position;
+        for (int t = 1; t < mSymmetryCount; t++) {
+            long moved = permute(t, position);
+            if (moved < best) {
+                best = moved;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Returns the number of different positions that are symmetric to a position, the position
+     * included. A position given by the reduced walk stands for that many positions.
+     */
+    public int getOrbitSize(long position) {
+        long[] seen = new long[mSymmetryCount];
+        int count = 0;
+        for (int t = 0; t < mSymmetryCount; t++) {
+            long moved = permute(t, position);
+            int i = 0;
+            while (i < count && seen[i] != moved) {
+                i++;
+            }
+            if (i == count) {
+                seen[count++] = moved;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the number of games that reach a position, each order of the moves being one game.
+     * The count is exponential in the number of tokens, it is meant for the small boards.
+     * @param position a reachable position
+     */
+    public long countGames(long position) {
+        int first = getFirstMask(position);
+        int second = getSecondMask(position);
+        if ((first | second) == 0) {
+            return 1;
+        }
+        // the first player played last when he has more tokens
+        boolean firstPlayedLast = Integer.bitCount(first) > Integer.bitCount(second);
+        int last = firstPlayedLast ? first : second;
+        long games = 0;
+        for (int m = last; m != 0; m &= m - 1) {
+            int previous = last & ~(m & -m);
+            if (!isWinning(previous)) {
+                games += countGames(firstPlayedLast ? encode(previous, second) : encode(first, previous));
+            }
+        }
+        return games;
+    }
+
+    /**
+     * Returns the number of games that can be played, adding the games of each position where
+     * the game is over. The symmetric positions of a reduced walk have as many games as their
+     * canonical position.
+     * @param parallel true to count on all the cores
+     */
+    public long countAllGames(boolean parallel) {
+        return stream(parallel).filter(new LongPredicate() {
+            @Override
+            public boolean test(long position) {
+                return isOver(position);
+            }
+        }).map(new LongUnaryOperator() {
+            @Override
+            public long applyAsLong(long position) {
+                return countGames(position) * (mReduced ? getOrbitSize(position) : 1);
+            }
+        }).sum();
+    }
+
+    /**
+     * Counts the positions and the games of the classic board with and without the symmetry
+     * reduction and checks them against the known counts.
+     */
+    public static void main(String[] args) {
+        PositionEnumerator all = new PositionEnumerator(BoardGeometry.STANDARD, false);
+        final PositionEnumerator reduced = new PositionEnumerator(BoardGeometry.STANDARD, true);
+        long start = System.nanoTime();
+        long positions = all.stream(true).count();
+        long games = all.countAllGames(true);
+        long canonical = reduced.stream(true).count();
+        long represented = reduced.stream(true).map(new LongUnaryOperator() {
+            @Override
+            public long applyAsLong(long position) {
+                return reduced.getOrbitSize(position);
+            }
+        }).sum();
+        long reducedGames = reduced.countAllGames(true);
+        long elapsed = (System.nanoTime() - start) / 1000000;
+
+        check("positions", STANDARD_POSITIONS, positions);
+        check("games", STANDARD_GAMES, games);
+        check("canonical positions", STANDARD_CANONICAL_POSITIONS, canonical);
+        check("positions of the canonical positions", STANDARD_POSITIONS, represented);
+        check("games of the canonical positions", STANDARD_GAMES, reducedGames);
+        System.out.println("3x3: " + positions + " positions, " + games + " games, " + canonical
+                + " canonical positions, counted in " + elapsed + " ms");
+    }
+
+    private static void check(String name, long expected, long actual) {
+        if (expected != actual) {
+            throw new IllegalStateException("Expected " + expected + " " + name + ", found " + actual);
+        }
+    }
+
+    private boolean isWinning(int mask) {
+        for (int line : mLines) {
+            if ((mask & line) == line) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int permute(int t, int mask) {
+        int base = t * 4 * 256;
+        return mPermute[base + (mask & 0xff)] | mPermute[base + 256 + (mask >>> 8 & 0xff)]
+                | mPermute[base + 512 + (mask >>> 16 & 0xff)] | mPermute[base + 768 + (mask >>> 24)];
+    }
+
+    private long permute(int t, long position) {
+        return encode(permute(t, getFirstMask(position)), permute(t, getSecondMask(position)));
+    }
+
+    /**
+     * Returns the parent of a position that is not empty: the position without the smallest
+     * token of the last player that does not leave a completed line, as a canonical position
+     * when the walk is reduced.
+     */
+    private long getParent(long position) {
+        int first = getFirstMask(position);
+        int second = getSecondMask(position);
+        boolean firstPlayedLast = Integer.bitCount(first) > Integer.bitCount(second);
+        int last = firstPlayedLast ? first : second;
+        for (int m = last; m != 0; m &= m - 1) {
+            int previous = last & ~(m & -m);
+            if (!isWinning(previous)) {
+                long parent = firstPlayedLast ? encode(previous, second) : encode(first, previous);
+                return mReduced ? canonical(parent) : parent;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Push the children of a position on a stack: the positions after each move whose parent is
+     * the position. In a reduced walk, two moves can give the same canonical position, only the
+     * first one is kept.
+     * @param position a position where the game is not over
+     * @param stack the stack
+     * @param size the size of the stack
+     * @return the new size of the stack
+     */
+    private int pushChildren(long position, long[] stack, int size) {
+        int first = getFirstMask(position);
+        int second = getSecondMask(position);
+        boolean firstToMove = Integer.bitCount(first) == Integer.bitCount(second);
+        int start = size;
+        for (long e = ~((first | second) & LOW_MASK) & mFullMask; e != 0; e &= e - 1) {
+            int bit = (int)(e & -e);
+            long child = firstToMove ? encode(first | bit, second) : encode(first, second | bit);
+            if (mReduced) {
+                child = canonical(child);
+                boolean seen = false;
+                for (int i = start; i < size && !seen; i++) {
+                    seen = stack[i] == child;
+                }
+                if (seen) {
+                    continue;
+                }
+            }
+            if (getParent(child) == position) {
+                stack[size++] = child;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * The positions still to visit: the positions already expanded, to give before the others,
+     * then a stack of positions whose children are pushed when they are given
+     */
+    private final class Walk implements Spliterator.OfLong {
+        private long[] mStack;
+        private int mSize;
+        private long[] mExpanded = new long[0];
+        private int mExpandedCount;
+        private long mEstimate;
+
+        Walk(long[] stack, int size, long estimate) {
+            mStack = stack;
+            mSize = size;
+            mEstimate = estimate;
+        }
+
+        @Override
+        public boolean tryAdvance(LongConsumer action) {
+            if (mExpandedCount > 0) {
+                action.accept(mExpanded[--mExpandedCount]);
+                return true;
+            }
+            if (mSize == 0) {
+                return false;
+            }
+            long position = mStack[--mSize];
+            expand(position);
+            action.accept(position);
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(LongConsumer action) {
+            while (mExpandedCount > 0) {
+                action.accept(mExpanded[--mExpandedCount]);
+            }
+            while (mSize > 0) {
+                long position = mStack[--mSize];
+                expand(position);
+                action.accept(position);
+            }
+        }
+
+        /**
+         * Hand over the bottom half of the stack. With a single position on the stack, its
+         * children are pushed first and it is kept to be given by this walk.
+         */
+        @Override
+        public Spliterator.OfLong trySplit() {
+            while (mSize == 1) {
+                long position = mStack[--mSize];
+                expand(position);
+                if (mExpandedCount == mExpanded.length) {
+                    mExpanded = Arrays.copyOf(mExpanded, Math.max(4, 2 * mExpandedCount));
+                }
+                mExpanded[mExpandedCount++] = position;
+            }
+            if (mSize < 2) {
+                return null;
+            }
+            int half = mSize / 2;
+            long[] bottom = Arrays.copyOf(mStack, half);
+            System.arraycopy(mStack, half, mStack, 0, mSize - half);
+            mSize -= half;
+            mEstimate >>>= 1;
+            return new Walk(bottom, half, mEstimate);
+        }
+
+        @Override
+        public long estimateSize() {
+            return mEstimate;
+        }
+
+        @Override
+        public int characteristics() {
+            return DISTINCT | NONNULL | IMMUTABLE;
+        }
+
+        private void expand(long position) {
+            if (isOver(position)) {
+                return;
+            }
+            if (mStack.length - mSize < mCellCount) {
+                mStack = Arrays.copyOf(mStack, Math.max(2 * mStack.length, mSize + mCellCount));
+            }
+            mSize = pushChildren(position, mStack, mSize);
+        }
+    }
+}
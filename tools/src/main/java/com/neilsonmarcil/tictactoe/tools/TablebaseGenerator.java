@@ -0,0 +1,197 @@
+package com.neilsonmarcil.tictactoe.tools;
+
+import com.neilsonmarcil.tictactoe.player.MoveBook;
+import com.neilsonmarcil.tictactoe.player.Tablebase;
+import com.neilsonmarcil.tictactoe.player.TablebaseIndex;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A {@code TablebaseGenerator} solves every 4x4 position by retrograde analysis and writes the
+ * {@link Tablebase} file.<br/><br/>
+ *
+ * A move always adds a token, so the positions are solved by number of tokens, from the full
+ * board back to the empty one: the value of a position only depends on the positions with one
+ * more token, which are already solved. The positions with the same number of tokens do not
+ * depend on each other, they are split in chunks solved in parallel by all the cores. Only one
+ * position of each group of symmetric positions is solved, the index gives them the same entry.
+ */
+public class TablebaseGenerator {
+
+    /**
+     * The number of positions solved by a thread at a time
+     */
+    private static final int CHUNK_SIZE = 4096;
+
+    private final TablebaseIndex mIndex;
+    private final byte[] mValues;
+    private final int mThreads;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1 || args.length > 2) {
+            throw new IllegalArgumentException("Usage: TablebaseGenerator <output file> [winning length]");
+        }
+        int length = args.length > 1 ? Integer.parseInt(args[1]) : TablebaseIndex.SIZE;
+        TablebaseGenerator generator = new TablebaseGenerator(length, Runtime.getRuntime().availableProcessors());
+        long start = System.nanoTime();
+        generator.solve();
+        long elapsed = (System.nanoTime() - start) / 1000000;
+        generator.write(new File(args[0]));
+        System.out.println("Tablebase 4x4x" + length + ": " + generator.mValues.length
+                + " positions solved in " + elapsed + " ms with " + generator.mThreads
+                + " threads, written to " + args[0]);
+    }
+
+    /**
+     * Create a new TablebaseGenerator.
+     * @param length the number of tokens in a row to win
+     * @param threads the number of threads of the analysis
+     */
+    public TablebaseGenerator(int length, int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Thread count must be at least 1: " + threads);
+        }
+        mIndex = new TablebaseIndex(length);
+        mValues = new byte[mIndex.getEntryCount()];
+        mThreads = threads;
+    }
+
+    /**
+     * Returns the values of the positions, indexed by TablebaseIndex.index
+     */
+    public byte[] getValues() {
+        return mValues;
+    }
+
+    /**
+     * Solve all the positions, by number of tokens from the full board to the empty one.
+     */
+    public void solve() throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(mThreads);
+        try {
+            // the full board is a draw when it is not already won
+            for (int tokens = TablebaseIndex.CELLS - 1; tokens >= 0; tokens--) {
+                solveLayer(pool, mIndex.getLayerOffset(tokens), mIndex.getLayerOffset(tokens + 1));
+            }
+        }
+        finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Write the table file: the header followed by the packed values.
+     */
+    public void write(File output) throws IOException {
+        ByteBuffer values = ByteBuffer.allocate(Tablebase.getDataSize(mValues.length));
+        byte[] packed = values.array();
+        for (int i = 0; i < mValues.length; i++) {
+            int bit = i * Tablebase.VALUE_BITS;
+            int v = mValues[i] << (bit & 7);
+            packed[bit >>> 3] |= (byte)v;
+            packed[(bit >>> 3) + 1] |= (byte)(v >>> 8);
+        }
+        int checksum = MoveBook.checksum(values.duplicate());
+
+        File parent = output.getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Cannot create directory: " + parent);
+        }
+        DataOutputStream out = new DataOutputStream(new FileOutputStream(output));
+        try {
+            out.writeInt(Tablebase.MAGIC);
+            out.writeInt(Tablebase.VERSION);
+            out.writeInt(TablebaseIndex.SIZE);
+            out.writeInt(TablebaseIndex.SIZE);
+            out.writeInt(mIndex.getGeometry().getLength());
+            out.writeInt(mValues.length);
+            out.writeInt(checksum);
+            out.write(packed);
+        }
+        finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Solve the positions of a range of indexes in parallel, the threads take the chunks in order
+     * until the range is done.
+     */
+    private void solveLayer(ExecutorService pool, final int start, final int end) throws InterruptedException {
+        final AtomicInteger next = new AtomicInteger(start);
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int t = 0; t < mThreads; t++) {
+            tasks.add(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    int from;
+                    while ((from = next.getAndAdd(CHUNK_SIZE)) < end) {
+                        int to = Math.min(end, from + CHUNK_SIZE);
+                        for (int i = from; i < to; i++) {
+                            mValues[i] = (byte)solvePosition(i);
+                        }
+                    }
+                    return null;
+                }
+            });
+        }
+        for (Future<Void> f : pool.invokeAll(tasks)) {
+            try {
+                f.get();
+            }
+            catch (ExecutionException e) {
+                throw new IllegalStateException("Tablebase generation failed", e.getCause());
+            }
+        }
+    }
+
+    /**
+     * Returns the value of a position from the values of the positions after each move.
+     */
+    private int solvePosition(int index) {
+        int position = mIndex.position(index);
+        int player = position >>> TablebaseIndex.CELLS;
+        int opponent = position & ((1 << TablebaseIndex.CELLS) - 1);
+        // the game is over, or cannot be reached
+        if (mIndex.isWinning(opponent) || mIndex.isWinning(player)) {
+            return Tablebase.VALUE_DRAW;
+        }
+
+        int empty = ~(player | opponent) & ((1 << TablebaseIndex.CELLS) - 1);
+        int best = Integer.MIN_VALUE;
+        int bestValue = Tablebase.VALUE_DRAW;
+        for (int e = empty; e != 0; e &= e - 1) {
+            int bit = e & -e;
+            int next = player | bit;
+            int value;
+            if (mIndex.isWinning(next)) {
+                return Tablebase.toValue(Tablebase.RESULT_WIN, 1);
+            }
+            else if ((empty & ~bit) == 0) {
+                value = Tablebase.VALUE_DRAW;
+            }
+            else {
+                // the positions with one more token are solved, the index is symmetric
+                value = Tablebase.getParentValue(mValues[mIndex.index(opponent, next)]);
+            }
+            int score = Tablebase.getScore(value);
+            if (score > best) {
+                best = score;
+                bestValue = value;
+            }
+        }
+        return bestValue;
+    }
+}
@@ -0,0 +1,435 @@
+package com.neilsonmarcil.tictactoe.tools;
+
+import com.neilsonmarcil.tictactoe.game.Board;
+import com.neilsonmarcil.tictactoe.game.BoardGeometry;
+import com.neilsonmarcil.tictactoe.game.Game;
+import com.neilsonmarcil.tictactoe.game.Score;
+import com.neilsonmarcil.tictactoe.player.AIPlayer;
+import com.neilsonmarcil.tictactoe.player.ComputerPlayer;
+import com.neilsonmarcil.tictactoe.player.Difficulty;
+import com.neilsonmarcil.tictactoe.player.MonteCarloPlayer;
+import com.neilsonmarcil.tictactoe.player.Player;
+import com.neilsonmarcil.tictactoe.player.RandomPlayer;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * A {@code Tournament} plays games between AI players without the Android UI, to measure the
+ * strength and the speed of the engines. Every player plays every other player the same number of
+ * games with each of them starting, through the same {@link Game} checks as the application.<br/><br/>
+ *
+ * The games are played in batches spread across the threads. A batch creates its players with a
+ * seed derived from the tournament seed, so the results do not depend on the number of threads,
+ * except for the players limited by a time budget.<br/><br/>
+ *
+ * The difficulty levels of the computer player are entrants too, the cost of each level is
+ * reported in nodes and time per move.
+ */
+public class Tournament {
+
+    /**
+     * The number of games played in a row by the same players, which keeps their tables
+     * between the games like in the application
+     */
+    private static final int BATCH_SIZE = 100;
+
+    private static final int FIRST = 1;
+    private static final int SECOND = 2;
+
+    /**
+     * Creates the players of a tournament
+     */
+    public interface Entrant {
+        String getName();
+
+        /**
+         * Create a new player.
+         * @param id the player id
+         * @param seed the seed of the player randomness
+         */
+        AIPlayer create(int id, long seed);
+    }
+
+    public static final Entrant COMPUTER = new Entrant() {
+        @Override
+        public String getName() {
+            return "computer";
+        }
+
+        @Override
+        public AIPlayer create(int id, long seed) {
+            ComputerPlayer player = new ComputerPlayer(id);
+            player.setSeed(seed);
+            return player;
+        }
+    };
+
+    public static final Entrant EASY = level("easy", Difficulty.LEVEL_EASY);
+    public static final Entrant MEDIUM = level("medium", Difficulty.LEVEL_MEDIUM);
+    public static final Entrant HARD = level("hard", Difficulty.LEVEL_HARD);
+
+    public static final Entrant RANDOM = new Entrant() {
+        @Override
+        public String getName() {
+            return "random";
+        }
+
+        @Override
+        public AIPlayer create(int id, long seed) {
+            return new RandomPlayer(id, seed);
+        }
+    };
+
+    public static final Entrant MONTE_CARLO = new Entrant() {
+        @Override
+        public String getName() {
+            return "mcts";
+        }
+
+        @Override
+        public AIPlayer create(int id, long seed) {
+            MonteCarloPlayer player = new MonteCarloPlayer(id);
+            player.setPlayouts(2000);
+            player.setSeed(seed);
+            return player;
+        }
+    };
+
+    private final List<Entrant> mEntrants;
+    private final BoardGeometry mGeometry;
+    private final int mGamesPerPair;
+    private final int mThreads;
+    private final long mSeed;
+
+    /**
+     * Create a new Tournament
+     * @param entrants the players, at least two
+     * @param geometry the board the games are played on
+     * @param gamesPerPair the number of games between two players with the same player starting
+     * @param threads the number of threads
+     * @param seed the seed of all the games
+     */
+    public Tournament(List<Entrant> entrants, BoardGeometry geometry, int gamesPerPair, int threads,
+                      long seed) {
+        if (entrants.size() < 2) {
+            throw new IllegalArgumentException("A tournament needs at least two players");
+        }
+        if (gamesPerPair < 1 || threads < 1) {
+            throw new IllegalArgumentException("Invalid games or threads: " + gamesPerPair + ", " + threads);
+        }
+        mEntrants = new ArrayList<>(entrants);
+        mGeometry = geometry;
+        mGamesPerPair = gamesPerPair;
+        mThreads = threads;
+        mSeed = seed;
+    }
+
+    /**
+     * Play all the games and returns their results
+     */
+    public Result run() throws InterruptedException {
+        int n = mEntrants.size();
+        List<Callable<Result>> batches = new ArrayList<>();
+        for (int first = 0; first < n; first++) {
+            for (int second = 0; second < n; second++) {
+                if (first == second) {
+                    continue;
+                }
+                for (int start = 0; start < mGamesPerPair; start += BATCH_SIZE) {
+                    int games = Math.min(BATCH_SIZE, mGamesPerPair - start);
+                    long seed = mix(mSeed, (first * n + second) * (long)mGamesPerPair + start);
+                    batches.add(new Batch(first, second, games, seed));
+                }
+            }
+        }
+
+        Result result = new Result(mEntrants);
+        ExecutorService executor = Executors.newFixedThreadPool(mThreads);
+        long start = System.nanoTime();
+        try {
+            for (Future<Result> f : executor.invokeAll(batches)) {
+                result.add(f.get());
+            }
+        }
+        catch (ExecutionException e) {
+            throw new IllegalStateException("A game failed", e.getCause());
+        }
+        finally {
+            executor.shutdownNow();
+        }
+        result.mElapsed = System.nanoTime() - start;
+        return result;
+    }
+
+    /**
+     * The games between two players, with the same player starting
+     */
+    private final class Batch implements Callable<Result> {
+
+        private final int mFirst;
+        private final int mSecond;
+        private final int mGames;
+        private final long mBatchSeed;
+
+        Batch(int first, int second, int games, long seed) {
+            mFirst = first;
+            mSecond = second;
+            mGames = games;
+            mBatchSeed = seed;
+        }
+
+        @Override
+        public Result call() {
+            Result result = new Result(mEntrants);
+            AIPlayer first = mEntrants.get(mFirst).create(FIRST, mix(mBatchSeed, FIRST));
+            AIPlayer second = mEntrants.get(mSecond).create(SECOND, mix(mBatchSeed, SECOND));
+            Board board = new Board(mGeometry);
+            // each player sees the game with its opponent as the first player
+            Game firstGame = new Game(board, new Score(), new Player[] { second, first }, null);
+            Game secondGame = new Game(board, new Score(), new Player[] { first, second }, null);
+
+            for (int g = 0; g < mGames; g++) {
+                board.resetBoard();
+                boolean firstTurn = true;
+                while (!firstGame.isGameOver()) {
+                    AIPlayer player = firstTurn ? first : second;
+                    long start = System.nanoTime();
+                    int move = player.playMove(firstTurn ? firstGame : secondGame);
+                    int index = firstTurn ? mFirst : mSecond;
+                    result.mLatencies[index].record(System.nanoTime() - start);
+                    if (player instanceof ComputerPlayer) {
+                        result.mNodes[index] += ((ComputerPlayer)player).getLastNodeCount();
+                    }
+                    if (board.getToken(move) != 0) {
+                        throw new IllegalStateException(mEntrants.get(firstTurn ? mFirst : mSecond).getName()
+                                + " played an invalid move: " + move);
+                    }
+                    board.addToken(move, player.getId());
+                    firstTurn = !firstTurn;
+                }
+                result.addGame(mFirst, mSecond, firstGame.determineWinner());
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Returns an entrant that plays a difficulty level of the computer player
+     */
+    private static Entrant level(final String name, final int level) {
+        return new Entrant() {
+            @Override
+            public String getName() {
+                return name;
+            }
+
+            @Override
+            public AIPlayer create(int id, long seed) {
+                ComputerPlayer player = new ComputerPlayer(id);
+                player.setDifficulty(Difficulty.get(level));
+                player.setSeed(seed);
+                return player;
+            }
+        };
+    }
+
+    /**
+     * Mix a seed with a value, so that close values give unrelated seeds
+     */
+    private static long mix(long seed, long value) {
+        long z = seed + value * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * The results of a tournament. The matrices are indexed by player, from the point of view of
+     * the player of the row against the player of the column.
+     */
+    public static final class Result {
+
+        private final List<Entrant> mEntrants;
+        private final long[][] mWins;
+        private final long[][] mDraws;
+        private final long[][] mLosses;
+        private final LatencyHistogram[] mLatencies;
+
+        /**
+         * The nodes searched by each player, 0 for the players that do not search a tree
+         */
+        private final long[] mNodes;
+        private long mGames;
+        private long mElapsed;
+
+        Result(List<Entrant> entrants) {
+            int n = entrants.size();
+            mEntrants = entrants;
+            mWins = new long[n][n];
+            mDraws = new long[n][n];
+            mLosses = new long[n][n];
+            mLatencies = new LatencyHistogram[n];
+            mNodes = new long[n];
+            for (int i = 0; i < n; i++) {
+                mLatencies[i] = new LatencyHistogram();
+            }
+        }
+
+        private void addGame(int first, int second, int winner) {
+            mGames++;
+            if (winner == FIRST) {
+                mWins[first][second]++;
+                mLosses[second][first]++;
+            }
+            else if (winner == SECOND) {
+                mWins[second][first]++;
+                mLosses[first][second]++;
+            }
+            else {
+                mDraws[first][second]++;
+                mDraws[second][first]++;
+            }
+        }
+
+        private void add(Result other) {
+            for (int i = 0; i < mWins.length; i++) {
+                for (int j = 0; j < mWins.length; j++) {
+                    mWins[i][j] += other.mWins[i][j];
+                    mDraws[i][j] += other.mDraws[i][j];
+                    mLosses[i][j] += other.mLosses[i][j];
+                }
+                mLatencies[i].add(other.mLatencies[i]);
+                mNodes[i] += other.mNodes[i];
+            }
+            mGames += other.mGames;
+        }
+
+        public long getGames() {
+            return mGames;
+        }
+
+        public long getWins(int player, int opponent) {
+            return mWins[player][opponent];
+        }
+
+        public long getDraws(int player, int opponent) {
+            return mDraws[player][opponent];
+        }
+
+        public long getLosses(int player, int opponent) {
+            return mLosses[player][opponent];
+        }
+
+        public LatencyHistogram getLatency(int player) {
+            return mLatencies[player];
+        }
+
+        /**
+         * Returns the mean number of nodes searched for a move of a player, 0 if it does not
+         * search a tree
+         */
+        public double getNodesPerMove(int player) {
+            long moves = mLatencies[player].getCount();
+            return moves == 0 ? 0 : (double)mNodes[player] / moves;
+        }
+
+        public double getGamesPerSecond() {
+            return mElapsed == 0 ? 0 : mGames * 1e9 / mElapsed;
+        }
+
+        /**
+         * Print the throughput, the win/draw/loss matrix, the move latencies and the nodes
+         * searched per move
+         */
+        public void print(PrintStream out) {
+            out.println(String.format("%d games in %.2f s, %.0f games/s", mGames, mElapsed / 1e9,
+                    getGamesPerSecond()));
+            out.println();
+            out.println("Wins/draws/losses of the row player against the column player:");
+            StringBuilder header = new StringBuilder(String.format("%-10s", ""));
+            for (Entrant e : mEntrants) {
+                header.append(String.format(" %20s", e.getName()));
+            }
+            out.println(header);
+            for (int i = 0; i < mEntrants.size(); i++) {
+                StringBuilder row = new StringBuilder(String.format("%-10s", mEntrants.get(i).getName()));
+                for (int j = 0; j < mEntrants.size(); j++) {
+                    row.append(i == j ? String.format(" %20s", "-") : String.format(" %20s",
+                            mWins[i][j] + "/" + mDraws[i][j] + "/" + mLosses[i][j]));
+                }
+                out.println(row);
+            }
+            out.println();
+            out.println(String.format("%-10s %10s %10s %10s %10s %10s %10s %12s", "Move time", "moves",
+                    "mean us", "p50 us", "p90 us", "p99 us", "max us", "nodes/move"));
+            for (int i = 0; i < mEntrants.size(); i++) {
+                LatencyHistogram h = mLatencies[i];
+                out.println(String.format("%-10s %10d %10.1f %10.1f %10.1f %10.1f %10.1f %12.1f",
+                        mEntrants.get(i).getName(), h.getCount(), h.getMean() / 1e3,
+                        h.getPercentile(50) / 1e3, h.getPercentile(90) / 1e3,
+                        h.getPercentile(99) / 1e3, h.getMax() / 1e3, getNodesPerMove(i)));
+            }
+        }
+    }
+
+    /**
+     * Run a tournament from the command line.
+     * Options: --players computer,hard,medium,easy,random,mcts --games 1000 --threads 4 --seed 1 --board 3x3x3
+     */
+    public static void main(String[] args) throws InterruptedException {
+        List<Entrant> entrants = Arrays.asList(COMPUTER, RANDOM);
+        int games = 1000;
+        int threads = Runtime.getRuntime().availableProcessors();
+        long seed = 1;
+        BoardGeometry geometry = BoardGeometry.STANDARD;
+
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--players":
+                    entrants = new ArrayList<>();
+                    for (String name : value.split(",")) {
+                        entrants.add(entrant(name));
+                    }
+                    break;
+                case "--games":
+                    games = Integer.parseInt(value);
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(value);
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(value);
+                    break;
+                case "--board":
+                    String[] size = value.split("x");
+                    geometry = BoardGeometry.get(Integer.parseInt(size[0]), Integer.parseInt(size[1]),
+                            Integer.parseInt(size[2]));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        System.out.println(String.format("Board %s, %d games per pair and side, %d threads, seed %d",
+                geometry, games, threads, seed));
+        new Tournament(entrants, geometry, games, threads, seed).run().print(System.out);
+    }
+
+    private static Entrant entrant(String name) {
+        for (Entrant e : new Entrant[] { COMPUTER, EASY, MEDIUM, HARD, RANDOM, MONTE_CARLO }) {
+            if (e.getName().equals(name)) {
+                return e;
+            }
+        }
+        throw new IllegalArgumentException("Unknown player: " + name);
+    }
+}
@@ -0,0 +1,91 @@
+package com.neilsonmarcil.tictactoe.tools;
+
+import com.neilsonmarcil.tictactoe.game.Board;
+import com.neilsonmarcil.tictactoe.game.Game;
+import com.neilsonmarcil.tictactoe.game.Score;
+import com.neilsonmarcil.tictactoe.player.ComputerPlayer;
+import com.neilsonmarcil.tictactoe.player.MoveBook;
+import com.neilsonmarcil.tictactoe.player.Player;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import static org.junit.Assert.*;
+
+/**
+ * Generates the move book, maps it back and checks that it plays the same moves as the search.
+ */
+public class MoveBookGeneratorTest {
+
+    private static final int HUMAN = 1;
+    private static final int COMPUTER = 2;
+
+    private Board mBoard;
+    private Game mGame;
+    private ComputerPlayer mSearch;
+    private ComputerPlayer mBook;
+    private int mPositions;
+
+    @Test
+    public void bookPlaysLikeTheSearch() throws Exception {
+        ByteBuffer buffer = generate();
+        mBoard = new Board();
+        mSearch = new ComputerPlayer(COMPUTER);
+        mBook = new ComputerPlayer(COMPUTER);
+        mBook.setMoveBook(new MoveBook(buffer));
+        mGame = new Game(mBoard, new Score(), new Player[] { new Player(HUMAN), mSearch }, null);
+
+        visit(HUMAN);
+        visit(COMPUTER);
+        assertTrue(mPositions > 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void corruptedBookIsRejected() throws Exception {
+        ByteBuffer buffer = generate();
+        ByteBuffer copy = ByteBuffer.allocate(buffer.remaining());
+        copy.put(buffer);
+        copy.put(MoveBook.HEADER_SIZE + 100, (byte)(copy.get(MoveBook.HEADER_SIZE + 100) ^ 1));
+        copy.flip();
+        new MoveBook(copy);
+    }
+
+    private ByteBuffer generate() throws Exception {
+        MoveBookGenerator generator = new MoveBookGenerator();
+        generator.solve();
+        File f = File.createTempFile("movebook", ".bin");
+        f.deleteOnExit();
+        generator.write(f);
+
+        RandomAccessFile raf = new RandomAccessFile(f, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        finally {
+            raf.close();
+        }
+    }
+
+    private void visit(int turn) {
+        if (mGame.isGameOver()) {
+            return;
+        }
+        int[] moves = mBoard.getNextPossibleMoves();
+        if (turn == COMPUTER && moves.length < Board.BOARD_SIZE) {
+            int expected = mSearch.playMove(mGame);
+            assertEquals(expected, mBook.playMove(mGame));
+            assertEquals(0, mBook.getLastNodeCount());
+            mPositions++;
+        }
+        for (int m : moves) {
+            mBoard.addToken(m, turn);
+            visit(3 - turn);
+            mBoard.addToken(m, 0);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.neilsonmarcil.tictactoe.tools;
+
+import com.neilsonmarcil.tictactoe.game.Board;
+import com.neilsonmarcil.tictactoe.game.BoardGeometry;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.LongUnaryOperator;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the positions given by the enumerator against the known counts of the classic board,
+ * and against the positions reached by playing every game on a Board.
+ */
+public class PositionEnumeratorTest {
+
+    @Test
+    public void standardCounts() throws Exception {
+        PositionEnumerator all = new PositionEnumerator(BoardGeometry.STANDARD, false);
+        assertEquals(PositionEnumerator.STANDARD_POSITIONS, all.stream(false).count());
+        assertEquals(PositionEnumerator.STANDARD_POSITIONS, all.stream(true).count());
+        assertEquals(PositionEnumerator.STANDARD_GAMES, all.countAllGames(true));
+
+        final PositionEnumerator reduced = new PositionEnumerator(BoardGeometry.STANDARD, true);
+        assertEquals(PositionEnumerator.STANDARD_CANONICAL_POSITIONS, reduced.stream(true).count());
+        assertEquals(PositionEnumerator.STANDARD_POSITIONS, reduced.stream(true).map(new LongUnaryOperator() {
+            @Override
+            public long applyAsLong(long position) {
+                return reduced.getOrbitSize(position);
+            }
+        }).sum());
+        assertEquals(PositionEnumerator.STANDARD_GAMES, reduced.countAllGames(false));
+    }
+
+    @Test
+    public void positionsAreTheReachablePositions() throws Exception {
+        BoardGeometry geometry = BoardGeometry.get(3, 4, 3);
+        Set<Long> expected = new HashSet<>();
+        play(new Board(geometry), 1, 2, expected);
+
+        PositionEnumerator enumerator = new PositionEnumerator(geometry, false);
+        long[] sequential = enumerator.stream(false).toArray();
+        long[] parallel = enumerator.stream(true).toArray();
+        assertEquals(expected.size(), sequential.length);
+        assertEquals(0, sequential[0]);
+        Arrays.sort(sequential);
+        Arrays.sort(parallel);
+        assertArrayEquals(sequential, parallel);
+        for (long position : sequential) {
+            assertTrue(expected.contains(position));
+        }
+
+        // the canonical positions stand for all the positions
+        PositionEnumerator reduced = new PositionEnumerator(geometry, true);
+        long[] canonical = reduced.stream(true).toArray();
+        long represented = 0;
+        for (long position : canonical) {
+            assertEquals(position, reduced.canonical(position));
+            represented += reduced.getOrbitSize(position);
+        }
+        assertEquals(expected.size(), represented);
+        assertEquals(canonical.length, reduced.stream(true).distinct().count());
+    }
+
+    @Test
+    public void canonicalPositionsHaveTheSameBoardHash() throws Exception {
+        PositionEnumerator enumerator = new PositionEnumerator(BoardGeometry.STANDARD, false);
+        Board b = new Board();
+        Board canonical = new Board();
+        for (long position : enumerator.stream(false).toArray()) {
+            enumerator.copyTo(position, b, 1, 2);
+            enumerator.copyTo(enumerator.canonical(position), canonical, 1, 2);
+            assertEquals(b.getSymmetricHash(b.getCanonicalSymmetry()),
+                    canonical.getSymmetricHash(canonical.getCanonicalSymmetry()));
+            assertEquals(Integer.bitCount(PositionEnumerator.getFirstMask(position)),
+                    b.getPlayerPosition(1).length);
+        }
+    }
+
+    /**
+     * Play every game from a position and keep the positions reached.
+     */
+    private static void play(Board b, int pt, int other, Set<Long> positions) {
+        int first = 0;
+        int second = 0;
+        for (int cell = 0; cell < b.getCellCount(); cell++) {
+            if (b.getToken(cell) == 1) {
+                first |= 1 << cell;
+            }
+            else if (b.getToken(cell) == 2) {
+                second |= 1 << cell;
+            }
+        }
+        if (!positions.add(PositionEnumerator.encode(first, second))) {
+            return;
+        }
+        if (b.isWinning(1) || b.isWinning(2) || b.isFull()) {
+            return;
+        }
+        for (int move : b.getNextPossibleMoves()) {
+            b.addToken(move, pt);
+            play(b, other, pt, positions);
+            b.addToken(move, 0);
+        }
+    }
+}
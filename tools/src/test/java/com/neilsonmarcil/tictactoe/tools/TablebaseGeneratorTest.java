@@ -0,0 +1,117 @@
+package com.neilsonmarcil.tictactoe.tools;
+
+import com.neilsonmarcil.tictactoe.game.Board;
+import com.neilsonmarcil.tictactoe.game.Game;
+import com.neilsonmarcil.tictactoe.game.Score;
+import com.neilsonmarcil.tictactoe.player.ComputerPlayer;
+import com.neilsonmarcil.tictactoe.player.Player;
+import com.neilsonmarcil.tictactoe.player.SearchResult;
+import com.neilsonmarcil.tictactoe.player.Tablebase;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Generates the 4x4 tablebases, maps them back and checks that they play the moves of the
+ * search with the same scores.
+ */
+public class TablebaseGeneratorTest {
+
+    private static final int HUMAN = 1;
+    private static final int COMPUTER = 2;
+
+    @Test
+    public void parallelAnalysisFindsTheSameValues() throws Exception {
+        TablebaseGenerator single = new TablebaseGenerator(3, 1);
+        single.solve();
+        TablebaseGenerator parallel = new TablebaseGenerator(3, 4);
+        parallel.solve();
+        assertTrue(Arrays.equals(single.getValues(), parallel.getValues()));
+    }
+
+    @Test
+    public void tablebasePlaysLikeTheSearch() throws Exception {
+        checkAgainstSearch(3, 300, 2);
+        checkAgainstSearch(4, 60, 7);
+    }
+
+    @Test
+    public void emptyBoardIsSolved() throws Exception {
+        Tablebase three = Tablebase.map(generate(3));
+        assertEquals(Tablebase.RESULT_WIN, three.getResult(0, 0));
+        Tablebase four = Tablebase.map(generate(4));
+        assertEquals(Tablebase.RESULT_DRAW, four.getResult(0, 0));
+        assertEquals(0, four.getDistance(0, 0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void corruptedTablebaseIsRejected() throws Exception {
+        RandomAccessFile raf = new RandomAccessFile(generate(3), "r");
+        ByteBuffer copy;
+        try {
+            FileChannel channel = raf.getChannel();
+            copy = ByteBuffer.allocate((int)channel.size());
+            channel.read(copy, 0);
+        }
+        finally {
+            raf.close();
+        }
+        int offset = Tablebase.HEADER_SIZE + 1000;
+        copy.put(offset, (byte)(copy.get(offset) ^ 4));
+        copy.flip();
+        copy.position(0);
+        new Tablebase(copy);
+    }
+
+    /**
+     * Play random games and compare the move and the score of the tablebase with the search on
+     * each position where the computer player has to play.
+     */
+    private void checkAgainstSearch(int length, int games, long seed) throws Exception {
+        Tablebase tablebase = Tablebase.map(generate(length));
+        Board b = new Board(4, 4, length);
+        ComputerPlayer search = new ComputerPlayer(COMPUTER);
+        ComputerPlayer table = new ComputerPlayer(COMPUTER);
+        table.setTablebase(tablebase);
+        Game game = new Game(b, new Score(), new Player[] { new Player(HUMAN), search }, null);
+        Random random = new Random(seed);
+        int positions = 0;
+        for (int g = 0; g < games; g++) {
+            b.resetBoard();
+            int turn = random.nextBoolean() ? HUMAN : COMPUTER;
+            // the positions with few tokens take too long to search
+            int opening = 6 + random.nextInt(3);
+            while (!game.isGameOver()) {
+                int[] moves = b.getNextPossibleMoves();
+                if (turn == COMPUTER && b.getCellCount() - moves.length >= opening) {
+                    SearchResult expected = search.searchMove(game);
+                    SearchResult actual = table.searchMove(game);
+                    assertEquals(expected.getMove(), actual.getMove());
+                    assertEquals(expected.getScore(), actual.getScore());
+                    assertEquals(0, actual.getNodeCount());
+                    positions++;
+                }
+                b.addToken(moves[random.nextInt(moves.length)], turn);
+                turn = 3 - turn;
+            }
+        }
+        assertTrue(positions > games);
+    }
+
+    private static File generate(int length) throws Exception {
+        TablebaseGenerator generator = new TablebaseGenerator(length, 2);
+        generator.solve();
+        File f = File.createTempFile("tablebase", ".bin");
+        f.deleteOnExit();
+        generator.write(f);
+        return f;
+    }
+}
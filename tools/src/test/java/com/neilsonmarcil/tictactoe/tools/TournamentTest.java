@@ -0,0 +1,68 @@
+package com.neilsonmarcil.tictactoe.tools;
+
+import com.neilsonmarcil.tictactoe.game.BoardGeometry;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Plays small tournaments and checks their results and the latency histogram.
+ */
+public class TournamentTest {
+
+    private static final int COMPUTER = 0;
+    private static final int RANDOM = 1;
+
+    private final List<Tournament.Entrant> mEntrants =
+            Arrays.asList(Tournament.COMPUTER, Tournament.RANDOM);
+
+    @Test
+    public void computerNeverLosesAgainstRandom() throws Exception {
+        Tournament.Result result = new Tournament(mEntrants, BoardGeometry.STANDARD, 150, 2, 7).run();
+
+        assertEquals(300, result.getGames());
+        assertEquals(0, result.getLosses(COMPUTER, RANDOM));
+        assertEquals(result.getWins(COMPUTER, RANDOM), result.getLosses(RANDOM, COMPUTER));
+        assertEquals(result.getDraws(COMPUTER, RANDOM), result.getDraws(RANDOM, COMPUTER));
+        assertEquals(300, result.getWins(COMPUTER, RANDOM) + result.getDraws(COMPUTER, RANDOM));
+        assertTrue(result.getLatency(COMPUTER).getCount() > 0);
+    }
+
+    @Test
+    public void sameSeedGivesTheSameResultsWithAnyThreadCount() throws Exception {
+        Tournament.Result one = new Tournament(mEntrants, BoardGeometry.STANDARD, 250, 1, 42).run();
+        Tournament.Result four = new Tournament(mEntrants, BoardGeometry.STANDARD, 250, 4, 42).run();
+
+        for (int i = 0; i < mEntrants.size(); i++) {
+            for (int j = 0; j < mEntrants.size(); j++) {
+                assertEquals(one.getWins(i, j), four.getWins(i, j));
+                assertEquals(one.getDraws(i, j), four.getDraws(i, j));
+                assertEquals(one.getLosses(i, j), four.getLosses(i, j));
+            }
+        }
+        assertEquals(one.getLatency(RANDOM).getCount(), four.getLatency(RANDOM).getCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void oneEntrantIsRejected() {
+        new Tournament(Arrays.asList(Tournament.RANDOM), BoardGeometry.STANDARD, 1, 1, 1);
+    }
+
+    @Test
+    public void histogramPercentilesAreWithinTheirBucket() {
+        LatencyHistogram h = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            h.record(i * 1000L);
+        }
+
+        assertEquals(1000, h.getCount());
+        assertEquals(1000000, h.getMax());
+        assertEquals(500000, h.getPercentile(50), 500000 / 32);
+        assertEquals(990000, h.getPercentile(99), 990000 / 32);
+        assertEquals(500500, h.getMean(), 1);
+    }
+}